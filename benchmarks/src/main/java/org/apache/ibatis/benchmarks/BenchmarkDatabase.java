@@ -0,0 +1,146 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+
+/**
+ * Creates an in-memory HSQLDB database with a fixed data set and a {@link SqlSessionFactory} for it.
+ * Every call uses a new database, so benchmarks running in the same JVM do not share data.
+ */
+public final class BenchmarkDatabase {
+
+  public static final int AUTHORS = 100;
+  public static final int BLOGS = 20;
+  public static final int POSTS_PER_BLOG = 10;
+
+  public static final String NAMESPACE = BlogMapper.class.getName();
+
+  private static final String CONFIG = "org/apache/ibatis/benchmarks/mybatis-config.xml";
+  private static final String SCHEMA = "org/apache/ibatis/benchmarks/CreateDB.sql";
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+  private BenchmarkDatabase() {
+    // Prevent Instantiation
+  }
+
+  public static SqlSessionFactory createSqlSessionFactory() throws Exception {
+    return createSqlSessionFactory("POOLED");
+  }
+
+  public static SqlSessionFactory createSqlSessionFactory(String dataSourceType) throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("dataSourceType", dataSourceType);
+    properties.setProperty("url", newUrl());
+    SqlSessionFactory sqlSessionFactory;
+    try (Reader reader = Resources.getResourceAsReader(CONFIG)) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader, properties);
+    }
+    populate(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource());
+    return sqlSessionFactory;
+  }
+
+  public static String newUrl() {
+    return "jdbc:hsqldb:mem:benchmark" + SEQUENCE.incrementAndGet();
+  }
+
+  /**
+   * The parameter of <code>findAuthors</code>: a username pattern and ten ids, so all dynamic branches are taken.
+   */
+  public static Map<String, Object> findAuthorsCriteria() {
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 1; i <= 10; i++) {
+      ids.add(i * 3);
+    }
+    Map<String, Object> criteria = new HashMap<>();
+    criteria.put("username", "user%");
+    criteria.put("email", null);
+    criteria.put("ids", ids);
+    return criteria;
+  }
+
+  private static void populate(DataSource dataSource) throws Exception {
+    try (Connection connection = dataSource.getConnection()) {
+      ScriptRunner runner = new ScriptRunner(connection);
+      runner.setAutoCommit(true);
+      runner.setStopOnError(true);
+      runner.setLogWriter(null);
+      runner.setErrorLogWriter(new PrintWriter(System.err));
+      try (Reader reader = Resources.getResourceAsReader(SCHEMA)) {
+        runner.runScript(reader);
+      }
+      connection.setAutoCommit(false);
+      insertData(connection);
+      connection.commit();
+    }
+  }
+
+  private static void insertData(Connection connection) throws SQLException {
+    try (PreparedStatement ps = connection.prepareStatement("insert into author (id, username, email, bio) values (?, ?, ?, ?)")) {
+      for (int i = 1; i <= AUTHORS; i++) {
+        ps.setInt(1, i);
+        ps.setString(2, "user" + i);
+        ps.setString(3, "user" + i + "@example.com");
+        ps.setString(4, "Biography of user " + i);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    }
+    try (PreparedStatement ps = connection.prepareStatement("insert into blog (id, author_id, title) values (?, ?, ?)")) {
+      for (int i = 1; i <= BLOGS; i++) {
+        ps.setInt(1, i);
+        ps.setInt(2, i);
+        ps.setString(3, "Blog " + i);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    }
+    try (PreparedStatement ps = connection.prepareStatement("insert into post (id, blog_id, created_on, subject, body) values (?, ?, ?, ?, ?)")) {
+      Timestamp now = new Timestamp(System.currentTimeMillis());
+      int id = 0;
+      for (int blog = 1; blog <= BLOGS; blog++) {
+        for (int i = 0; i < POSTS_PER_BLOG; i++) {
+          ps.setInt(1, ++id);
+          ps.setInt(2, blog);
+          ps.setTimestamp(3, now);
+          ps.setString(4, "Subject " + id);
+          ps.setString(5, "Body of post " + id);
+          ps.addBatch();
+        }
+      }
+      ps.executeBatch();
+    }
+  }
+
+}
@@ -0,0 +1,46 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the benchmark jar. Same as the JMH launcher, but defaults to JSON results written to
+ * <code>jmh-result.json</code> (override with <code>-rf</code> and <code>-rff</code>), so that the results of two
+ * releases can be diffed.
+ */
+public final class BenchmarkMain {
+
+  private BenchmarkMain() {
+    // Prevent Instantiation
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<String> arguments = new ArrayList<>(Arrays.asList(args));
+    if (!arguments.contains("-rf")) {
+      arguments.add("-rf");
+      arguments.add("json");
+    }
+    if (!arguments.contains("-rff")) {
+      arguments.add("-rff");
+      arguments.add("jmh-result.json");
+    }
+    org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+  }
+
+}
@@ -0,0 +1,113 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.TinyLfuCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Second level cache get/put under contention. The perpetual and LRU caches are decorated with
+ * {@link SynchronizedCache} as {@link org.apache.ibatis.mapping.CacheBuilder} does, {@link TinyLfuCache} is used as is.
+ * The key space is twice the default size of 1024, so the LRU and TinyLFU caches evict while the perpetual cache
+ * does not.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+  private static final int KEYS = 2048;
+
+  @Param({ "PERPETUAL", "LRU", "TINYLFU" })
+  public String cacheType;
+
+  private Cache cache;
+  private CacheKey[] keys;
+
+  @Setup
+  public void setup() {
+    if ("TINYLFU".equals(cacheType)) {
+      cache = new TinyLfuCache("benchmark");
+    } else {
+      Cache delegate = new PerpetualCache("benchmark");
+      if ("LRU".equals(cacheType)) {
+        delegate = new LruCache(delegate);
+      }
+      cache = new SynchronizedCache(delegate);
+    }
+    keys = new CacheKey[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      CacheKey key = new CacheKey();
+      key.update(BenchmarkDatabase.NAMESPACE + ".selectAuthor");
+      key.update(0);
+      key.update(Integer.MAX_VALUE);
+      key.update("select id, username, email, bio from author where id = ?");
+      key.update(i);
+      keys[i] = key;
+      cache.putObject(key, Integer.valueOf(i));
+    }
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object get() {
+    return cache.getObject(randomKey());
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(3)
+  public Object readWriteGet() {
+    return cache.getObject(randomKey());
+  }
+
+  @Benchmark
+  @Group("readWrite")
+  @GroupThreads(1)
+  public void readWritePut() {
+    CacheKey key = randomKey();
+    cache.putObject(key, key);
+  }
+
+  private CacheKey randomKey() {
+    return keys[ThreadLocalRandom.current().nextInt(KEYS)];
+  }
+
+}
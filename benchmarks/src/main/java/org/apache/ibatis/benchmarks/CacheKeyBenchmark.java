@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating a {@link CacheKey} the way the executor does for every query, and comparing two equal keys the way the
+ * local and second level caches do on a hit. The parameters are a string, a null and a list of ten ids expanded by
+ * a <code>foreach</code>. <code>compact</code> toggles <code>compactCacheKeys</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheKeyBenchmark {
+
+  @Param({ "false", "true" })
+  public boolean compact;
+
+  private Executor executor;
+  private MappedStatement mappedStatement;
+  private Map<String, Object> criteria;
+  private BoundSql boundSql;
+  private CacheKey key;
+  private CacheKey equalKey;
+
+  @Setup
+  public void setup() throws Exception {
+    Configuration configuration = BenchmarkDatabase.createSqlSessionFactory().getConfiguration();
+    configuration.setCompactCacheKeys(compact);
+    executor = configuration.newExecutor(new JdbcTransaction(configuration.getEnvironment().getDataSource(), null, false));
+    mappedStatement = configuration.getMappedStatement(BenchmarkDatabase.NAMESPACE + ".findAuthors");
+    criteria = BenchmarkDatabase.findAuthorsCriteria();
+    boundSql = mappedStatement.getBoundSql(criteria);
+    key = createCacheKey();
+    equalKey = createCacheKey();
+  }
+
+  @Benchmark
+  public CacheKey createCacheKey() {
+    return executor.createCacheKey(mappedStatement, criteria, RowBounds.DEFAULT, boundSql);
+  }
+
+  @Benchmark
+  public boolean hashCodeAndEquals() {
+    return key.hashCode() == equalKey.hashCode() && key.equals(equalKey);
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.impl.CompactSerializer;
+import org.apache.ibatis.cache.impl.JavaCacheSerializer;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Copying a cached result of 100 authors through a {@link CacheSerializer}, as {@link OffHeapCache} does on every
+ * put and get, and a full round trip through the off-heap cache itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheSerializerBenchmark {
+
+  @Param({ "JAVA", "COMPACT" })
+  public String serializerType;
+
+  private CacheSerializer serializer;
+  private List<Author> authors;
+  private byte[] serialized;
+  private OffHeapCache cache;
+
+  @Setup
+  public void setup() {
+    serializer = "JAVA".equals(serializerType) ? new JavaCacheSerializer() : new CompactSerializer();
+    authors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "author" + i, "author" + i + "@example.com", "Biography of author " + i));
+    }
+    serialized = serializer.serialize(authors);
+    cache = new OffHeapCache("benchmark");
+    cache.setSerializer(serializer);
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return serializer.serialize(authors);
+  }
+
+  @Benchmark
+  public Object deserialize() {
+    return serializer.deserialize(serialized);
+  }
+
+  @Benchmark
+  public Object offHeapPutAndGet() {
+    cache.putObject("authors", authors);
+    return cache.getObject("authors");
+  }
+
+}
@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link org.apache.ibatis.scripting.xmltags.DynamicSqlSource#getBoundSql(Object)} of a statement with
+ * <code>where</code>, <code>if</code> and <code>foreach</code> nodes, with and without the
+ * <code>dynamicSqlCacheSize</code> cache of parsed statements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DynamicSqlSourceBenchmark {
+
+  @Param({ "0", "64" })
+  public int dynamicSqlCacheSize;
+
+  private SqlSource sqlSource;
+  private Map<String, Object> criteria;
+
+  @Setup
+  public void setup() throws Exception {
+    Configuration configuration = BenchmarkDatabase.createSqlSessionFactory().getConfiguration();
+    configuration.setDynamicSqlCacheSize(dynamicSqlCacheSize);
+    sqlSource = configuration.getMappedStatement(BenchmarkDatabase.NAMESPACE + ".findAuthors").getSqlSource();
+    criteria = BenchmarkDatabase.findAuthorsCriteria();
+  }
+
+  @Benchmark
+  public BoundSql getBoundSql() {
+    return sqlSource.getBoundSql(criteria);
+  }
+
+}
@@ -0,0 +1,82 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.ExpressionCompiler;
+import org.apache.ibatis.scripting.xmltags.OgnlCache;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluating typical <code>&lt;if test&gt;</code> expressions against the bindings of a dynamic statement, through
+ * the OGNL interpreter and through {@link ExpressionCompiler}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpressionEvaluatorBenchmark {
+
+  @Param({ "username != null and username != ''", "ids != null and ids.size() > 0", "author.id gt 0" })
+  public String expression;
+
+  private Map<String, Object> bindings;
+  private ReflectorFactory reflectorFactory;
+
+  @Setup
+  public void setup() {
+    Map<String, Object> criteria = new HashMap<>();
+    criteria.put("username", "jdoe");
+    criteria.put("ids", new ArrayList<>(Arrays.asList(1, 2, 3)));
+    Author author = new Author();
+    author.setId(1);
+    criteria.put("author", author);
+    Configuration configuration = new Configuration();
+    reflectorFactory = configuration.getReflectorFactory();
+    bindings = new DynamicContext(configuration, criteria).getBindings();
+  }
+
+  @Benchmark
+  public Object ognl() {
+    return OgnlCache.getValue(expression, bindings);
+  }
+
+  @Benchmark
+  public Object compiled() {
+    return ExpressionCompiler.getValue(expression, bindings, reflectorFactory);
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.LambdaReflectorFactory;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Property access through the {@link Reflector} invokers of {@link DefaultReflectorFactory} (reflection) and
+ * {@link LambdaReflectorFactory}, both directly and through {@link MetaObject} as parameter binding and result
+ * mapping do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvokerBenchmark {
+
+  @Param({ "reflection", "lambda" })
+  public String invokers;
+
+  private final Object[] args = new Object[1];
+  private Author author;
+  private Invoker getUsername;
+  private Invoker setUsername;
+  private Invoker getId;
+  private MetaObject metaObject;
+
+  @Setup
+  public void setup() {
+    ReflectorFactory reflectorFactory = "lambda".equals(invokers) ? new LambdaReflectorFactory()
+        : new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Author.class);
+    getUsername = reflector.getGetInvoker("username");
+    setUsername = reflector.getSetInvoker("username");
+    getId = reflector.getGetInvoker("id");
+    author = new Author(1, "jdoe", "jdoe@example.com", null);
+    metaObject = MetaObject.forObject(author, SystemMetaObject.DEFAULT_OBJECT_FACTORY,
+        SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, reflectorFactory);
+    args[0] = "jdoe";
+  }
+
+  @Benchmark
+  public Object getObject() throws Exception {
+    return getUsername.invoke(author, null);
+  }
+
+  @Benchmark
+  public Object getPrimitive() throws Exception {
+    return getId.invoke(author, null);
+  }
+
+  @Benchmark
+  public Object set() throws Exception {
+    return setUsername.invoke(author, args);
+  }
+
+  @Benchmark
+  public Object metaObjectGet() {
+    return metaObject.getValue("username");
+  }
+
+  @Benchmark
+  public void metaObjectSet() {
+    metaObject.setValue("username", "jdoe");
+  }
+
+}
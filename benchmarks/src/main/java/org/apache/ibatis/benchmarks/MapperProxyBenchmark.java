@@ -0,0 +1,90 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapper method dispatch. <code>dispatch*</code> calls a mapper bound to a stub session, so only the proxy and
+ * {@link org.apache.ibatis.binding.MapperMethod} are measured; <code>selectAuthor</code> runs the whole query path
+ * through a real session.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperProxyBenchmark {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private BlogMapper stubMapper;
+
+  @Setup
+  public void setup() throws Exception {
+    sqlSessionFactory = BenchmarkDatabase.createSqlSessionFactory();
+    final Author author = new Author(1, "user1", "user1@example.com", null);
+    final List<Object> authors = Collections.singletonList(author);
+    SqlSession stubSession = (SqlSession) Proxy.newProxyInstance(SqlSession.class.getClassLoader(),
+        new Class<?>[] { SqlSession.class }, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getConfiguration":
+              return sqlSessionFactory.getConfiguration();
+            case "selectOne":
+              return author;
+            case "selectList":
+              return authors;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+    stubMapper = sqlSessionFactory.getConfiguration().getMapper(BlogMapper.class, stubSession);
+  }
+
+  @Benchmark
+  public Author dispatchSelectOne() {
+    return stubMapper.selectAuthor(1);
+  }
+
+  @Benchmark
+  public List<Author> dispatchSelectList() {
+    return stubMapper.selectAuthors();
+  }
+
+  @Benchmark
+  public Author selectAuthor() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(BlogMapper.class).selectAuthor(42);
+    }
+  }
+
+}
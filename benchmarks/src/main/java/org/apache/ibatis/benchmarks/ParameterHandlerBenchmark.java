@@ -0,0 +1,79 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link DefaultParameterHandler#setParameters(PreparedStatement)} for a statement with a plain parameter and
+ * ten <code>foreach</code> parameters. The statement is prepared once and never executed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParameterHandlerBenchmark {
+
+  private MappedStatement mappedStatement;
+  private Map<String, Object> criteria;
+  private BoundSql boundSql;
+  private Connection connection;
+  private PreparedStatement statement;
+
+  @Setup
+  public void setup() throws Exception {
+    mappedStatement = BenchmarkDatabase.createSqlSessionFactory().getConfiguration()
+        .getMappedStatement(BenchmarkDatabase.NAMESPACE + ".findAuthors");
+    criteria = BenchmarkDatabase.findAuthorsCriteria();
+    boundSql = mappedStatement.getBoundSql(criteria);
+    connection = mappedStatement.getConfiguration().getEnvironment().getDataSource().getConnection();
+    statement = connection.prepareStatement(boundSql.getSql());
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    statement.close();
+    connection.close();
+  }
+
+  @Benchmark
+  public PreparedStatement setParameters() {
+    new DefaultParameterHandler(mappedStatement, criteria, boundSql).setParameters(statement);
+    return statement;
+  }
+
+}
@@ -0,0 +1,113 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link DefaultResultSetHandler#handleResultSets(java.sql.Statement)} for a simple result map (100 authors) and a
+ * nested result map (20 blogs with their author and 10 posts each, from 200 joined rows).
+ * <code>executeAndDrain</code> is the baseline that executes the statement and reads every column without mapping.
+ * <code>compiled</code> toggles <code>useCompiledRowMappers</code>, which only applies to the simple result map.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResultSetHandlerBenchmark {
+
+  @Param({ "simple", "nested" })
+  public String mapping;
+
+  @Param({ "false", "true" })
+  public boolean compiled;
+
+  private MappedStatement mappedStatement;
+  private BoundSql boundSql;
+  private Executor executor;
+  private Connection connection;
+  private PreparedStatement statement;
+
+  @Setup
+  public void setup() throws Exception {
+    Configuration configuration = BenchmarkDatabase.createSqlSessionFactory().getConfiguration();
+    configuration.setUseCompiledRowMappers(compiled);
+    String statementId = "simple".equals(mapping) ? "selectAuthors" : "selectBlogsWithPosts";
+    mappedStatement = configuration.getMappedStatement(BenchmarkDatabase.NAMESPACE + "." + statementId);
+    boundSql = mappedStatement.getBoundSql(null);
+    connection = configuration.getEnvironment().getDataSource().getConnection();
+    executor = configuration.newExecutor(new JdbcTransaction(connection));
+    statement = connection.prepareStatement(boundSql.getSql());
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    statement.close();
+    connection.close();
+  }
+
+  @Benchmark
+  public List<Object> handleResultSets() throws SQLException {
+    statement.execute();
+    DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(executor, mappedStatement,
+        new DefaultParameterHandler(mappedStatement, null, boundSql), null, boundSql, RowBounds.DEFAULT);
+    return resultSetHandler.handleResultSets(statement);
+  }
+
+  @Benchmark
+  public int executeAndDrain() throws SQLException {
+    int hash = 0;
+    try (ResultSet rs = statement.executeQuery()) {
+      int columns = rs.getMetaData().getColumnCount();
+      while (rs.next()) {
+        for (int i = 1; i <= columns; i++) {
+          Object value = rs.getObject(i);
+          hash += value == null ? 0 : value.hashCode();
+        }
+      }
+    }
+    return hash;
+  }
+
+}
@@ -0,0 +1,40 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table post if exists;
+drop table blog if exists;
+drop table author if exists;
+
+create table author (
+  id int primary key,
+  username varchar(32) not null,
+  email varchar(64) not null,
+  bio varchar(255)
+);
+
+create table blog (
+  id int primary key,
+  author_id int not null,
+  title varchar(128) not null
+);
+
+create table post (
+  id int primary key,
+  blog_id int not null,
+  created_on timestamp not null,
+  subject varchar(128) not null,
+  body varchar(1024) not null
+);
@@ -0,0 +1,53 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotation that makes an {@link Insert} or {@link InsertProvider} method a multi-row insert. The SQL is written
+ * for one element of the collection parameter; the collection is inserted with one
+ * <code>INSERT ... VALUES (...), (...)</code> statement per chunk of {@link #size()} rows.
+ * Generated keys are assigned to the elements when <code>useGeneratedKeys</code> is set.
+ *
+ * <p><br>
+ * <b>How to use:</b>
+ * <pre>
+ * public interface UserMapper {
+ *   &#064;Insert("insert into users (name) values (#{name})")
+ *   &#064;Options(useGeneratedKeys = true, keyProperty = "id")
+ *   &#064;InsertBatch(size = 500)
+ *   int insertAll(List&lt;User&gt; users);
+ * }
+ * </pre>
+ *
+ * @since 3.5.4
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface InsertBatch {
+  /**
+   * Returns the number of rows per statement.
+   *
+   * @return the number of rows per statement, 0 to use the <code>defaultInsertBatchSize</code> setting
+   */
+  int size() default 0;
+}
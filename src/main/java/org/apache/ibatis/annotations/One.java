@@ -47,4 +47,12 @@ public @interface One {
    */
   FetchType fetchType() default FetchType.DEFAULT;
 
+  /**
+   * Returns the maximum number of pending lazy loads of the nested statement that are loaded with a single query.
+   *
+   * @return the fetch batch size, 0 or 1 to load each property on its own
+   * @since 3.5.4
+   */
+  int fetchBatchSize() default 0;
+
 }
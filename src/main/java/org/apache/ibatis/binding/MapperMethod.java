@@ -23,10 +23,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.Flow;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
@@ -312,16 +314,23 @@ public class MapperMethod {
     /** 构造函数，主要对属性进行赋值 */
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+      // 返回 CompletableFuture<T> 的方法按 T 执行, 由 MapperProxy 包装成 future
+      final boolean returnsFuture = resolvedReturnType instanceof ParameterizedType
+          && CompletableFuture.class.equals(((ParameterizedType) resolvedReturnType).getRawType());
+      if (returnsFuture) {
+        resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+      }
       if (resolvedReturnType instanceof Class<?>) {
         this.returnType = (Class<?>) resolvedReturnType;
       } else if (resolvedReturnType instanceof ParameterizedType) {
         this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
       } else {
-        this.returnType = method.getReturnType();
+        this.returnType = returnsFuture ? Object.class : method.getReturnType();
       }
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || returnsFuture && Void.class.equals(this.returnType);
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
-      this.returnsCursor = Cursor.class.equals(this.returnType);
+      // Flow.Publisher 由 MapperProxy 基于游标创建
+      this.returnsCursor = Cursor.class.equals(this.returnType) || Flow.Publisher.class.equals(this.returnType);
       this.returnsOptional = Optional.class.equals(this.returnType);
       this.mapKey = getMapKey(method);
       this.returnsMap = this.mapKey != null;
@@ -401,7 +410,7 @@ public class MapperMethod {
     /** 判断method的返回类型是否有注解主键，有则返回该主键value，没有返回null */
     private String getMapKey(Method method) {
       String mapKey = null;
-      if (Map.class.isAssignableFrom(method.getReturnType())) {
+      if (Map.class.isAssignableFrom(returnType)) {
         final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
         if (mapKeyAnnotation != null) {
           mapKey = mapKeyAnnotation.value();
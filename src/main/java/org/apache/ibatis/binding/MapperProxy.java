@@ -25,7 +25,13 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.Flow;
+import org.apache.ibatis.cursor.defaults.CursorPublisher;
 import org.apache.ibatis.reflection.ExceptionUtil;
 import org.apache.ibatis.session.SqlSession;
 
@@ -43,12 +49,26 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
   private final SqlSession sqlSession;
   private final Class<T> mapperInterface;
   private final Map<Method, MapperMethodInvoker> methodCache;
+  /** 异步mapper执行语句的线程池，同步mapper为null */
+  private final transient Executor asyncExecutor;
 
   /** MapperProxy构造方法，被MapperProxyFactory调用用于实例化代理对象 */
   public MapperProxy(SqlSession sqlSession, Class<T> mapperInterface, Map<Method, MapperMethodInvoker> methodCache) {
+    this(sqlSession, mapperInterface, methodCache, null);
+  }
+
+  /**
+   * Creates a proxy whose methods returning {@link CompletableFuture} or {@link Flow.Publisher} run on the given
+   * executor. Other statement methods are rejected, because they would use the session outside of the executor.
+   *
+   * @since 3.5.4
+   */
+  public MapperProxy(SqlSession sqlSession, Class<T> mapperInterface, Map<Method, MapperMethodInvoker> methodCache,
+      Executor asyncExecutor) {
     this.sqlSession = sqlSession;
     this.mapperInterface = mapperInterface;
     this.methodCache = methodCache;
+    this.asyncExecutor = asyncExecutor;
   }
 
   /** 静态代码块初始化合适的MethodHandler */
@@ -83,6 +103,13 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
     try {
       if (Object.class.equals(method.getDeclaringClass())) {
         return method.invoke(this, args);
+      } else if (!method.isDefault() && CompletableFuture.class.equals(method.getReturnType())) {
+        return invokeForFuture(proxy, method, args);
+      } else if (!method.isDefault() && Flow.Publisher.class.equals(method.getReturnType())) {
+        return invokeForPublisher(proxy, method, args);
+      } else if (asyncExecutor != null && !method.isDefault()) {
+        throw new BindingException("Mapper method '" + mapperInterface.getName() + "." + method.getName()
+            + "' must return CompletableFuture or Flow.Publisher to be called on an AsyncSqlSession.");
       } else {
         return cachedInvoker(proxy, method, args).invoke(proxy, method, args, sqlSession);
       }
@@ -90,6 +117,44 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
       throw ExceptionUtil.unwrapThrowable(t);
     }
   }
+
+  /** 返回CompletableFuture的方法：异步mapper在线程池上执行，同步mapper直接执行后包装结果或异常 */
+  private Object invokeForFuture(Object proxy, Method method, Object[] args) throws Throwable {
+    final MapperMethodInvoker invoker = cachedInvoker(proxy, method, args);
+    if (asyncExecutor == null) {
+      CompletableFuture<Object> future = new CompletableFuture<>();
+      try {
+        future.complete(invoker.invoke(proxy, method, args, sqlSession));
+      } catch (Throwable t) {
+        future.completeExceptionally(ExceptionUtil.unwrapThrowable(t));
+      }
+      return future;
+    }
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return invoker.invoke(proxy, method, args, sqlSession);
+      } catch (Throwable t) {
+        throw new CompletionException(ExceptionUtil.unwrapThrowable(t));
+      }
+    }, asyncExecutor);
+  }
+
+  /** 返回Flow.Publisher的方法：每次订阅时以游标方式执行查询 */
+  @SuppressWarnings("unchecked")
+  private Object invokeForPublisher(Object proxy, Method method, Object[] args) throws Throwable {
+    final MapperMethodInvoker invoker = cachedInvoker(proxy, method, args);
+    return new CursorPublisher<>(() -> {
+      try {
+        return (Cursor<Object>) invoker.invoke(proxy, method, args, sqlSession);
+      } catch (Throwable t) {
+        Throwable cause = ExceptionUtil.unwrapThrowable(t);
+        if (cause instanceof Exception) {
+          throw (Exception) cause;
+        }
+        throw new CompletionException(cause);
+      }
+    }, asyncExecutor == null ? Runnable::run : asyncExecutor);
+  }
   /** 缓存调用 */
   private MapperMethodInvoker cachedInvoker(Object proxy, Method method, Object[] args) throws Throwable {
     try {
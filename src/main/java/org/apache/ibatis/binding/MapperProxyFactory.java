@@ -19,6 +19,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import org.apache.ibatis.binding.MapperProxy.MapperMethodInvoker;
 import org.apache.ibatis.session.SqlSession;
@@ -50,6 +51,12 @@ public class MapperProxyFactory<T> {
     return newInstance(mapperProxy);
   }
 
+  /** 创建在asyncExecutor上执行语句的异步代理对象 */
+  public T newInstance(SqlSession sqlSession, Executor asyncExecutor) {
+    final MapperProxy<T> mapperProxy = new MapperProxy<>(sqlSession, mapperInterface, methodCache, asyncExecutor);
+    return newInstance(mapperProxy);
+  }
+
   /** 重载方法创建代理对象 */
   @SuppressWarnings("unchecked")
   protected T newInstance(MapperProxy<T> mapperProxy) {
@@ -63,6 +63,13 @@ public abstract class BaseBuilder {
     return new HashSet<>(Arrays.asList(value.split(",")));
   }
 
+  protected int[] intArrayValueOf(String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return new int[0];
+    }
+    return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+  }
+
   protected JdbcType resolveJdbcType(String alias) {
     if (alias == null) {
       return null;
@@ -0,0 +1,190 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * The SQL source of a batch insert (<code>&lt;insert batch="true"&gt;</code> or
+ * {@link org.apache.ibatis.annotations.InsertBatch}).
+ * <p>
+ * The wrapped SQL source renders the insert for a single element, for example
+ * <code>insert into author (id, name) values (#{id}, #{name})</code>. Given a list of elements, this source repeats
+ * the <code>VALUES</code> row once per element, so the SQL text only depends on the number of rows and the driver
+ * can reuse the prepared statement for every full chunk. Elements may be beans, maps or values with a type handler,
+ * exactly as for a single-row insert.
+ *
+ * @since 3.5.4
+ */
+public class MultiRowInsertSqlSource implements SqlSource {
+
+  private static final Pattern VALUES_PATTERN = Pattern.compile("\\bvalues\\s*\\(", Pattern.CASE_INSENSITIVE);
+  private static final String ROW_PARAMETER_PREFIX = "__row_";
+
+  private final Configuration configuration;
+  private final SqlSource rowSqlSource;
+  private volatile RowTemplate lastTemplate; //最近一次解析的单行语句，静态语句只需解析一次
+
+  public MultiRowInsertSqlSource(Configuration configuration, SqlSource rowSqlSource) {
+    this.configuration = configuration;
+    this.rowSqlSource = rowSqlSource;
+  }
+
+  /**
+   * Returns the SQL source that renders the insert for a single element.
+   *
+   * @return the row SQL source
+   */
+  public SqlSource getRowSqlSource() {
+    return rowSqlSource;
+  }
+
+  /**
+   * Renders the multi-row insert.
+   *
+   * @param parameterObject the list of elements to insert, any other object is inserted as a single row
+   * @return the bound SQL with one <code>VALUES</code> row per element
+   */
+  @Override
+  public BoundSql getBoundSql(Object parameterObject) {
+    List<?> rows = parameterObject instanceof List ? (List<?>) parameterObject : Collections.singletonList(parameterObject);
+    if (rows.isEmpty()) {
+      throw new BuilderException("A batch insert requires at least one row.");
+    }
+    TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    RowTemplate template = null;
+    StringBuilder sql = null;
+    List<ParameterMapping> parameterMappings = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    for (int i = 0; i < rows.size(); i++) {
+      Object row = rows.get(i);
+      BoundSql rowBoundSql = rowSqlSource.getBoundSql(row);
+      if (template == null) {
+        template = templateFor(rowBoundSql.getSql());
+        sql = new StringBuilder(template.prefix.length() + rows.size() * (template.row.length() + 1) + template.suffix.length());
+        sql.append(template.prefix).append(template.row);
+      } else if (template.rowSql.equals(rowBoundSql.getSql())) {
+        sql.append(',').append(template.row);
+      } else {
+        throw new BuilderException("All rows of a batch insert must render the same SQL, but row " + (i + 1)
+            + " rendered '" + rowBoundSql.getSql() + "' instead of '" + template.rowSql + "'.");
+      }
+      MetaObject metaObject = null;
+      for (ParameterMapping rowMapping : rowBoundSql.getParameterMappings()) {
+        if (rowMapping.getMode() != ParameterMode.IN) {
+          throw new BuilderException("A batch insert only supports IN parameters, but '" + rowMapping.getProperty() + "' is " + rowMapping.getMode() + ".");
+        }
+        // 与 DefaultParameterHandler 相同的取值规则，各行的值保存为附加参数
+        String property = rowMapping.getProperty();
+        Object value;
+        if (rowBoundSql.hasAdditionalParameter(property)) {
+          value = rowBoundSql.getAdditionalParameter(property);
+        } else if (row == null) {
+          value = null;
+        } else if (typeHandlerRegistry.hasTypeHandler(row.getClass())) {
+          value = row;
+        } else {
+          if (metaObject == null) {
+            metaObject = configuration.newMetaObject(row);
+          }
+          value = metaObject.getValue(property);
+        }
+        parameterMappings.add(copy(rowMapping, ROW_PARAMETER_PREFIX + values.size()));
+        values.add(value);
+      }
+    }
+    sql.append(template.suffix);
+    BoundSql boundSql = new BoundSql(configuration, sql.toString(), parameterMappings, parameterObject);
+    for (int i = 0; i < values.size(); i++) {
+      boundSql.setAdditionalParameter(ROW_PARAMETER_PREFIX + i, values.get(i));
+    }
+    return boundSql;
+  }
+
+  private ParameterMapping copy(ParameterMapping mapping, String property) {
+    return new ParameterMapping.Builder(configuration, property, mapping.getTypeHandler())
+        .javaType(mapping.getJavaType())
+        .jdbcType(mapping.getJdbcType())
+        .jdbcTypeName(mapping.getJdbcTypeName())
+        .numericScale(mapping.getNumericScale())
+        .build();
+  }
+
+  private RowTemplate templateFor(String rowSql) {
+    RowTemplate template = lastTemplate;
+    if (template == null || !template.rowSql.equals(rowSql)) {
+      template = new RowTemplate(rowSql);
+      lastTemplate = template;
+    }
+    return template;
+  }
+
+  /**
+   * The single-row insert split around its <code>VALUES</code> row.
+   */
+  private static final class RowTemplate {
+    private final String rowSql;
+    private final String prefix;
+    private final String row;
+    private final String suffix;
+
+    RowTemplate(String rowSql) {
+      Matcher matcher = VALUES_PATTERN.matcher(rowSql);
+      if (!matcher.find()) {
+        throw new BuilderException("A batch insert must have a VALUES clause, but was '" + rowSql + "'.");
+      }
+      int start = matcher.end() - 1;
+      int end = closingParenthesis(rowSql, start);
+      if (end < 0) {
+        throw new BuilderException("Unbalanced parentheses in the VALUES clause of '" + rowSql + "'.");
+      }
+      this.rowSql = rowSql;
+      this.prefix = rowSql.substring(0, start);
+      this.row = rowSql.substring(start, end + 1);
+      this.suffix = rowSql.substring(end + 1);
+    }
+
+    private static int closingParenthesis(String sql, int open) {
+      int depth = 0;
+      boolean quoted = false;
+      for (int i = open; i < sql.length(); i++) {
+        char c = sql.charAt(i);
+        if (c == '\'') {
+          // 字符串中的括号不计数，连续两个单引号为转义
+          quoted = !quoted;
+        } else if (!quoted && c == '(') {
+          depth++;
+        } else if (!quoted && c == ')' && --depth == 0) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+}
@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
@@ -42,6 +43,7 @@ import org.apache.ibatis.annotations.Case;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.DeleteProvider;
 import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.InsertBatch;
 import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.Lang;
 import org.apache.ibatis.annotations.MapKey;
@@ -66,6 +68,7 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.Flow;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
@@ -296,7 +299,8 @@ public class MapperAnnotationBuilder {
   }
 
   void parseStatement(Method method) {
-    Class<?> parameterTypeClass = getParameterType(method);
+    InsertBatch insertBatch = method.getAnnotation(InsertBatch.class);
+    Class<?> parameterTypeClass = insertBatch == null ? getParameterType(method) : getBatchElementType(method);
     LanguageDriver languageDriver = getLanguageDriver(method);
     SqlSource sqlSource = getSqlSourceFromAnnotations(method, parameterTypeClass, languageDriver);
     if (sqlSource != null) {
@@ -378,10 +382,41 @@ public class MapperAnnotationBuilder {
           null,
           languageDriver,
           // ResultSets
-          options != null ? nullOrEmpty(options.resultSets()) : null);
+          options != null ? nullOrEmpty(options.resultSets()) : null,
+          insertBatchSize(insertBatch));
     }
   }
 
+  private int insertBatchSize(InsertBatch insertBatch) {
+    if (insertBatch == null) {
+      return 0;
+    }
+    return insertBatch.size() > 0 ? insertBatch.size() : configuration.getDefaultInsertBatchSize();
+  }
+
+  /**
+   * Returns the element type of the collection parameter of a batch insert, so that the SQL is parsed for one row.
+   */
+  private Class<?> getBatchElementType(Method method) {
+    Class<?> parameterType = getParameterType(method);
+    if (parameterType == null || parameterType == ParamMap.class) {
+      return parameterType;
+    }
+    if (parameterType.isArray()) {
+      return parameterType.getComponentType();
+    }
+    for (Type type : method.getGenericParameterTypes()) {
+      if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == parameterType
+          && Collection.class.isAssignableFrom(parameterType)) {
+        Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+        if (elementType instanceof Class) {
+          return (Class<?>) elementType;
+        }
+      }
+    }
+    return Object.class;
+  }
+
   private LanguageDriver getLanguageDriver(Method method) {
     Lang lang = method.getAnnotation(Lang.class);
     Class<? extends LanguageDriver> langClass = null;
@@ -410,6 +445,12 @@ public class MapperAnnotationBuilder {
   private Class<?> getReturnType(Method method) {
     Class<?> returnType = method.getReturnType();
     Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+    // 异步 mapper 方法 CompletableFuture<T> 按 T 推断结果类型
+    if (resolvedReturnType instanceof ParameterizedType
+        && CompletableFuture.class.equals(((ParameterizedType) resolvedReturnType).getRawType())) {
+      resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+      returnType = Object.class;
+    }
     if (resolvedReturnType instanceof Class) {
       returnType = (Class<?>) resolvedReturnType;
       if (returnType.isArray()) {
@@ -425,7 +466,8 @@ public class MapperAnnotationBuilder {
     } else if (resolvedReturnType instanceof ParameterizedType) {
       ParameterizedType parameterizedType = (ParameterizedType) resolvedReturnType;
       Class<?> rawType = (Class<?>) parameterizedType.getRawType();
-      if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType)) {
+      if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType)
+          || Flow.Publisher.class.equals(rawType)) {
         Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
         if (actualTypeArguments != null && actualTypeArguments.length == 1) {
           Type returnTypeParameter = actualTypeArguments[0];
@@ -559,7 +601,8 @@ public class MapperAnnotationBuilder {
           flags,
           null,
           null,
-          isLazy(result));
+          isLazy(result),
+          fetchBatchSize(result));
       resultMappings.add(resultMapping);
     }
   }
@@ -585,6 +628,10 @@ public class MapperAnnotationBuilder {
     return isLazy;
   }
 
+  private int fetchBatchSize(Result result) {
+    return result.one().select().length() > 0 ? result.one().fetchBatchSize() : result.many().fetchBatchSize();
+  }
+
   private boolean hasNestedSelect(Result result) {
     if (result.one().select().length() > 0 && result.many().select().length() > 0) {
       throw new BuilderException("Cannot use both @One and @Many annotations in the same @Result");
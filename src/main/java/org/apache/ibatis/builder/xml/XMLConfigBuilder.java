@@ -30,6 +30,7 @@ import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.DatabaseIdProvider;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.parsing.XPathParser;
 import org.apache.ibatis.plugin.Interceptor;
@@ -250,6 +251,7 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.valueOf(props.getProperty("autoMappingUnknownColumnBehavior", "NONE")));
     configuration.setCacheEnabled(booleanValueOf(props.getProperty("cacheEnabled"), true));
     configuration.setProxyFactory((ProxyFactory) createInstance(props.getProperty("proxyFactory")));
+    configuration.setMetricsCollector((MetricsCollector) createInstance(props.getProperty("metricsCollector")));
     configuration.setLazyLoadingEnabled(booleanValueOf(props.getProperty("lazyLoadingEnabled"), false));
     configuration.setAggressiveLazyLoading(booleanValueOf(props.getProperty("aggressiveLazyLoading"), false));
     configuration.setMultipleResultSetsEnabled(booleanValueOf(props.getProperty("multipleResultSetsEnabled"), true));
@@ -270,6 +272,20 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));
     configuration.setUseActualParamName(booleanValueOf(props.getProperty("useActualParamName"), true));
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
+    configuration.setUseCompiledRowMappers(booleanValueOf(props.getProperty("useCompiledRowMappers"), false));
+    configuration.setCompactCacheKeys(booleanValueOf(props.getProperty("compactCacheKeys"), false));
+    configuration.setReorderingBatchSize(integerValueOf(props.getProperty("reorderingBatchSize"), 1000));
+    configuration.setReorderingBatchTableOrdering(booleanValueOf(props.getProperty("reorderingBatchTableOrdering"), true));
+    configuration.setDefaultInsertBatchSize(integerValueOf(props.getProperty("defaultInsertBatchSize"), 100));
+    configuration.setForeachPaddingBuckets(intArrayValueOf(props.getProperty("foreachPaddingBuckets")));
+    configuration.setDynamicSqlCacheSize(integerValueOf(props.getProperty("dynamicSqlCacheSize"), 0));
+    configuration.setNestedResultStreamingEnabled(booleanValueOf(props.getProperty("nestedResultStreamingEnabled"), false));
+    configuration.setNestedResultObjectsLimit(integerValueOf(props.getProperty("nestedResultObjectsLimit"), 0));
+    configuration.setAdaptiveFetchSizeEnabled(booleanValueOf(props.getProperty("adaptiveFetchSizeEnabled"), false));
+    configuration.setAdaptiveFetchSizeInitial(integerValueOf(props.getProperty("adaptiveFetchSizeInitial"), 16));
+    configuration.setAdaptiveFetchSizeMaxBytes(integerValueOf(props.getProperty("adaptiveFetchSizeMaxBytes"), 4 * 1024 * 1024));
+    configuration.setParallelMappingEnabled(booleanValueOf(props.getProperty("parallelMappingEnabled"), false));
+    configuration.setParallelMappingChunkSize(integerValueOf(props.getProperty("parallelMappingChunkSize"), 256));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
   }
@@ -51,10 +51,17 @@ public class CacheKey implements Cloneable, Serializable {
   private List<Object> updateList;
 
   public CacheKey() {
+    this(true);
+  }
+
+  /**
+   * For subclasses that keep the updates in their own form, such as {@link CompactCacheKey}.
+   */
+  CacheKey(boolean retainUpdates) {
     this.hashcode = DEFAULT_HASHCODE;
     this.multiplier = DEFAULT_MULTIPLIER;
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updateList = retainUpdates ? new ArrayList<>() : null;
   }
 
   public CacheKey(Object[] objects) {
@@ -95,6 +102,10 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
+    // 不保存更新列表的子类 key 与普通 key 不相等
+    if (cacheKey.updateList == null) {
+      return false;
+    }
     if (hashcode != cacheKey.hashcode) {
       return false;
     }
@@ -132,7 +143,9 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    if (updateList != null) {
+      clonedCacheKey.updateList = new ArrayList<>(updateList);
+    }
     return clonedCacheKey;
   }
 
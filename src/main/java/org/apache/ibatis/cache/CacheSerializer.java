@@ -0,0 +1,46 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Turns cached values into bytes and back, for caches that keep their entries outside the Java heap.
+ * <p>
+ * Implementations must be thread-safe and have a public no-argument constructor.
+ *
+ * @since 3.5.4
+ * @see org.apache.ibatis.cache.impl.OffHeapCache
+ */
+public interface CacheSerializer {
+
+  /**
+   * Serializes a value.
+   *
+   * @param value the value, may be null
+   * @return the serialized form
+   * @throws CacheException if the value cannot be serialized
+   */
+  byte[] serialize(Object value);
+
+  /**
+   * Rebuilds a value from its serialized form.
+   *
+   * @param bytes the bytes returned by {@link #serialize(Object)}
+   * @return a copy of the original value
+   * @throws CacheException if the bytes cannot be read
+   */
+  Object deserialize(byte[] bytes);
+
+}
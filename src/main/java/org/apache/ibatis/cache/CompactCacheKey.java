@@ -0,0 +1,274 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * A {@link CacheKey} that does not keep a list of its components.
+ * <p>
+ * Boxed integral types, booleans, characters, doubles and floats are appended to a single canonical
+ * <code>char</code> encoding together with a type tag for every other component, and a 64-bit hash is updated as each
+ * component arrives. Strings and other objects are kept by reference in a plain array, because the statement id and
+ * SQL string of equal keys are usually the same instances. Two keys are equal when their hashes, encodings and
+ * referenced components (compared like {@link CacheKey} does) are equal. This avoids the list, its growth and the
+ * boxing of large numbers that a {@link CacheKey} needs, and rejects most unequal keys by the hash alone.
+ * <p>
+ * Equality follows {@link CacheKey}: components are compared in order, and values of different types never match.
+ * A compact key is never equal to a plain {@link CacheKey}.
+ *
+ * @since 3.5.4
+ * @see org.apache.ibatis.session.Configuration#setCompactCacheKeys(boolean)
+ */
+public class CompactCacheKey extends CacheKey {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final char NULL = 0;
+  private static final char STRING = 1;
+  private static final char INTEGER = 2;
+  private static final char LONG = 3;
+  private static final char SHORT = 4;
+  private static final char BYTE = 5;
+  private static final char BOOLEAN = 6;
+  private static final char CHARACTER = 7;
+  private static final char DOUBLE = 8;
+  private static final char FLOAT = 9;
+  private static final char OBJECT = 10;
+  private static final char SMALL_INTEGER = 11;
+
+  private static final long SEED = 0x9E3779B97F4A7C15L;
+  private static final char[] EMPTY_ENCODING = new char[0];
+  private static final Object[] EMPTY_OBJECTS = new Object[0];
+
+  private long hash = SEED;
+  private int count;
+  private char[] encoding = EMPTY_ENCODING;
+  private int length;
+  private Object[] objects = EMPTY_OBJECTS;
+  private int objectCount;
+
+  public CompactCacheKey() {
+    super(false);
+  }
+
+  public CompactCacheKey(Object[] objects) {
+    this();
+    updateAll(objects);
+  }
+
+  @Override
+  public int getUpdateCount() {
+    return count;
+  }
+
+  @Override
+  public void update(Object object) {
+    count++;
+    if (object == null) {
+      append(NULL, 0);
+    } else if (object instanceof String) {
+      // 字符串(语句 id、SQL)通常是同一个实例, 保留引用比拷贝字符更省, 比较时也能直接命中 ==
+      append(STRING, ((long) object.hashCode() << 32) | ((String) object).length());
+      addObject(object);
+    } else if (object instanceof Integer) {
+      int value = (Integer) object;
+      if (value >= 0 && value <= Character.MAX_VALUE) {
+        // 偏移量、小的 id 等只占一个字符
+        append(SMALL_INTEGER, value);
+        encoding[length++] = (char) value;
+      } else {
+        appendInt(INTEGER, value);
+      }
+    } else if (object instanceof Long) {
+      appendLong(LONG, (Long) object);
+    } else if (object instanceof Boolean) {
+      append(BOOLEAN, (Boolean) object ? 1 : 0);
+      encoding[length++] = (Boolean) object ? '1' : '0';
+    } else if (object instanceof Double) {
+      appendLong(DOUBLE, Double.doubleToLongBits((Double) object));
+    } else if (object instanceof Short) {
+      appendInt(SHORT, (Short) object);
+    } else if (object instanceof Byte) {
+      appendInt(BYTE, (Byte) object);
+    } else if (object instanceof Character) {
+      append(CHARACTER, (Character) object);
+      encoding[length++] = (Character) object;
+    } else if (object instanceof Float) {
+      appendInt(FLOAT, Float.floatToIntBits((Float) object));
+    } else {
+      // 没有规范编码的值(如日期、数组、枚举)按原样保存, 与 CacheKey 一样用 ArrayUtil 比较
+      append(OBJECT, ArrayUtil.hashCode(object));
+      addObject(object);
+    }
+  }
+
+  private void addObject(Object object) {
+    if (objectCount == objects.length) {
+      objects = Arrays.copyOf(objects, Math.max(8, objectCount << 1));
+    }
+    objects[objectCount++] = object;
+  }
+
+  private void appendInt(char tag, int value) {
+    append(tag, value);
+    appendInt(value);
+  }
+
+  private void appendLong(char tag, long value) {
+    append(tag, value);
+    appendInt((int) (value >>> 32));
+    appendInt((int) value);
+  }
+
+  private void appendInt(int value) {
+    ensureCapacity(2);
+    encoding[length++] = (char) (value >>> 16);
+    encoding[length++] = (char) value;
+  }
+
+  /**
+   * Writes the tag of a component and mixes the component hash into the key hash.
+   */
+  private void append(char tag, long componentHash) {
+    ensureCapacity(2);
+    encoding[length++] = tag;
+    hash = Long.rotateLeft(hash ^ (componentHash + tag) * SEED, 29) * 0xBF58476D1CE4E5B9L;
+  }
+
+  private void ensureCapacity(int size) {
+    if (length + size > encoding.length) {
+      encoding = Arrays.copyOf(encoding, Math.max(Math.max(32, encoding.length << 1), length + size));
+    }
+  }
+
+  /**
+   * Returns the 64-bit hash of this key.
+   *
+   * @return the hash
+   */
+  public long getHash64() {
+    // 最终混淆(fmix64), 让低位也充分依赖所有分量
+    long h = hash ^ count;
+    h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+    h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return h ^ (h >>> 33);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof CompactCacheKey)) {
+      return false;
+    }
+
+    final CompactCacheKey cacheKey = (CompactCacheKey) object;
+
+    if (hash != cacheKey.hash || count != cacheKey.count || length != cacheKey.length
+        || objectCount != cacheKey.objectCount) {
+      return false;
+    }
+    final char[] thatEncoding = cacheKey.encoding;
+    for (int i = 0; i < length; i++) {
+      if (encoding[i] != thatEncoding[i]) {
+        return false;
+      }
+    }
+    final Object[] thatObjects = cacheKey.objects;
+    for (int i = 0; i < objectCount; i++) {
+      if (objects[i] != thatObjects[i] && !ArrayUtil.equals(objects[i], thatObjects[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    long h = getHash64();
+    return (int) (h ^ (h >>> 32));
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner returnValue = new StringJoiner(":");
+    returnValue.add(String.valueOf(hashCode()));
+    returnValue.add(String.valueOf(getHash64()));
+    int position = 0;
+    int object = 0;
+    while (position < length) {
+      char tag = encoding[position++];
+      switch (tag) {
+        case NULL:
+          returnValue.add("null");
+          break;
+        case BOOLEAN:
+          returnValue.add(String.valueOf(encoding[position++] == '1'));
+          break;
+        case CHARACTER:
+          returnValue.add(String.valueOf(encoding[position++]));
+          break;
+        case SMALL_INTEGER:
+          returnValue.add(String.valueOf((int) encoding[position++]));
+          break;
+        case LONG:
+          returnValue.add(String.valueOf(readLong(position)));
+          position += 4;
+          break;
+        case DOUBLE:
+          returnValue.add(String.valueOf(Double.longBitsToDouble(readLong(position))));
+          position += 4;
+          break;
+        case FLOAT:
+          returnValue.add(String.valueOf(Float.intBitsToFloat(readInt(position))));
+          position += 2;
+          break;
+        case STRING:
+        case OBJECT:
+          returnValue.add(ArrayUtil.toString(objects[object++]));
+          break;
+        default:
+          // INTEGER, SHORT, BYTE
+          returnValue.add(String.valueOf(readInt(position)));
+          position += 2;
+          break;
+      }
+    }
+    return returnValue.toString();
+  }
+
+  private int readInt(int position) {
+    return (encoding[position] << 16) | encoding[position + 1];
+  }
+
+  private long readLong(int position) {
+    return ((long) readInt(position) << 32) | (readInt(position + 2) & 0xFFFFFFFFL);
+  }
+
+  @Override
+  public CompactCacheKey clone() throws CloneNotSupportedException {
+    CompactCacheKey clonedCacheKey = (CompactCacheKey) super.clone();
+    clonedCacheKey.encoding = Arrays.copyOf(encoding, length);
+    clonedCacheKey.objects = Arrays.copyOf(objects, objectCount);
+    return clonedCacheKey;
+  }
+
+}
@@ -0,0 +1,622 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * A compact binary {@link CacheSerializer} for typical query results.
+ * <p>
+ * Strings, boxed primitives, numbers, dates, byte arrays, enums, object arrays and the common <code>java.util</code>
+ * lists, sets and maps are written with a one byte tag and a variable-length payload. Result objects are written
+ * field by field, including inherited and private fields, and rebuilt through their no-argument constructor; the
+ * field layout is worked out once per class. Shared and cyclic references are preserved. Anything else, including
+ * lazy loading proxies and classes with custom serialization methods, falls back to Java serialization, so every
+ * value {@link JavaCacheSerializer} accepts is accepted here too.
+ * <p>
+ * The format is only meant to be read back by the same instance in the same JVM.
+ *
+ * @since 3.5.4
+ */
+public class CompactSerializer implements CacheSerializer {
+
+  private static final byte NULL = 0;
+  private static final byte REFERENCE = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte DOUBLE = 7;
+  private static final byte FLOAT = 8;
+  private static final byte TRUE = 9;
+  private static final byte FALSE = 10;
+  private static final byte CHARACTER = 11;
+  private static final byte BIG_DECIMAL = 12;
+  private static final byte BIG_INTEGER = 13;
+  private static final byte DATE = 14;
+  private static final byte SQL_DATE = 15;
+  private static final byte SQL_TIME = 16;
+  private static final byte SQL_TIMESTAMP = 17;
+  private static final byte BYTES = 18;
+  private static final byte ENUM = 19;
+  private static final byte COLLECTION = 20;
+  private static final byte MAP = 21;
+  private static final byte ARRAY = 22;
+  private static final byte OBJECT = 23;
+  private static final byte JAVA = 24;
+
+  private static final String[] CUSTOM_SERIALIZATION_METHODS = {
+      "writeReplace", "readResolve", "writeObject", "readObject", "readObjectNoData" };
+
+  // 排序集合的比较器、LinkedHashMap 的访问顺序等无法按元素重建, 只处理这几种常见集合
+  private static final Set<Class<?>> COLLECTION_TYPES = new HashSet<>(Arrays.asList(
+      ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class, HashMap.class, LinkedHashMap.class));
+
+  private static final ClassLayout UNSUPPORTED = new ClassLayout(null, null);
+
+  private final ConcurrentMap<Class<?>, ClassLayout> layouts = new ConcurrentHashMap<>();
+
+  @Override
+  public byte[] serialize(Object value) {
+    if (value != null && !(value instanceof Serializable)) {
+      throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + value);
+    }
+    try {
+      Writer writer = new Writer();
+      writer.writeObject(value);
+      return writer.toByteArray();
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      return new Reader(bytes).readObject();
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  private ClassLayout layoutFor(Class<?> type) {
+    ClassLayout layout = layouts.get(type);
+    if (layout == null) {
+      layout = createLayout(type);
+      layouts.putIfAbsent(type, layout);
+    }
+    return layout;
+  }
+
+  private static ClassLayout createLayout(Class<?> type) {
+    if (COLLECTION_TYPES.contains(type)) {
+      try {
+        return new ClassLayout(type.getConstructor(), null);
+      } catch (NoSuchMethodException e) {
+        return UNSUPPORTED;
+      }
+    }
+    if (isJdkClass(type) || type.isSynthetic() || Proxy.isProxyClass(type)
+        || Externalizable.class.isAssignableFrom(type)) {
+      return UNSUPPORTED;
+    }
+    try {
+      List<Field> fields = new ArrayList<>();
+      for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+        if (isJdkClass(current) || hasCustomSerialization(current)) {
+          return UNSUPPORTED;
+        }
+        Field[] declared = current.getDeclaredFields();
+        // 字段顺序按名称固定, 不依赖 getDeclaredFields 的返回顺序
+        Arrays.sort(declared, Comparator.comparing(Field::getName));
+        for (Field field : declared) {
+          int modifiers = field.getModifiers();
+          if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+            field.setAccessible(true);
+            fields.add(field);
+          }
+        }
+      }
+      Constructor<?> constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return new ClassLayout(constructor, fields.toArray(new Field[0]));
+    } catch (NoSuchMethodException | RuntimeException e) {
+      // 没有无参构造方法或无法访问字段时, 交给 Java 序列化处理
+      return UNSUPPORTED;
+    }
+  }
+
+  private static boolean isJdkClass(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+        || name.startsWith("com.sun.") || name.startsWith("jdk.");
+  }
+
+  private static boolean hasCustomSerialization(Class<?> type) {
+    for (Method method : type.getDeclaredMethods()) {
+      for (String name : CUSTOM_SERIALIZATION_METHODS) {
+        if (name.equals(method.getName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static final class ClassLayout {
+    private final Constructor<?> constructor;
+    private final Field[] fields;
+
+    ClassLayout(Constructor<?> constructor, Field[] fields) {
+      this.constructor = constructor;
+      this.fields = fields;
+    }
+
+    boolean isSupported() {
+      return constructor != null;
+    }
+  }
+
+  private final class Writer {
+    private final Map<Object, Integer> handles = new IdentityHashMap<>();
+    private final Map<Class<?>, Integer> classes = new IdentityHashMap<>();
+    private byte[] buffer = new byte[256];
+    private int position;
+
+    void writeObject(Object value) throws IOException, IllegalAccessException {
+      if (value == null) {
+        writeByte(NULL);
+        return;
+      }
+      Class<?> type = value.getClass();
+      if (type == String.class) {
+        writeByte(STRING);
+        writeString((String) value);
+      } else if (type == Integer.class) {
+        writeByte(INTEGER);
+        writeSignedVarLong((Integer) value);
+      } else if (type == Long.class) {
+        writeByte(LONG);
+        writeSignedVarLong((Long) value);
+      } else if (type == Boolean.class) {
+        writeByte((Boolean) value ? TRUE : FALSE);
+      } else if (type == Double.class) {
+        writeByte(DOUBLE);
+        writeLong(Double.doubleToRawLongBits((Double) value));
+      } else if (type == BigDecimal.class) {
+        BigDecimal decimal = (BigDecimal) value;
+        writeByte(BIG_DECIMAL);
+        writeBytes(decimal.unscaledValue().toByteArray());
+        writeSignedVarLong(decimal.scale());
+      } else if (type == Timestamp.class) {
+        Timestamp timestamp = (Timestamp) value;
+        writeByte(SQL_TIMESTAMP);
+        writeSignedVarLong(timestamp.getTime());
+        writeVarLong(timestamp.getNanos());
+      } else if (type == Date.class || type == java.sql.Date.class || type == Time.class) {
+        writeByte(type == Date.class ? DATE : type == Time.class ? SQL_TIME : SQL_DATE);
+        writeSignedVarLong(((Date) value).getTime());
+      } else if (type == Short.class) {
+        writeByte(SHORT);
+        writeSignedVarLong((Short) value);
+      } else if (type == Byte.class) {
+        writeByte(BYTE);
+        writeByte((Byte) value);
+      } else if (type == Float.class) {
+        writeByte(FLOAT);
+        writeInt(Float.floatToRawIntBits((Float) value));
+      } else if (type == Character.class) {
+        writeByte(CHARACTER);
+        writeVarLong((Character) value);
+      } else if (type == BigInteger.class) {
+        writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (type == byte[].class) {
+        writeByte(BYTES);
+        writeBytes((byte[]) value);
+      } else if (value instanceof Enum) {
+        writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeString(((Enum<?>) value).name());
+      } else {
+        writeReference(value, type);
+      }
+    }
+
+    private void writeReference(Object value, Class<?> type) throws IOException, IllegalAccessException {
+      Integer handle = handles.get(value);
+      if (handle != null) {
+        writeByte(REFERENCE);
+        writeVarLong(handle);
+        return;
+      }
+      // 先登记引用再写内容, 读取时按相同顺序登记, 循环引用才能还原
+      handles.put(value, handles.size());
+      if (type.isArray() && !type.getComponentType().isPrimitive()) {
+        Object[] array = (Object[]) value;
+        writeByte(ARRAY);
+        writeClass(type.getComponentType());
+        writeVarLong(array.length);
+        for (Object element : array) {
+          writeObject(element);
+        }
+        return;
+      }
+      ClassLayout layout = type.isArray() ? UNSUPPORTED : layoutFor(type);
+      if (!layout.isSupported()) {
+        writeByte(JAVA);
+        writeBytes(javaSerialize(value));
+      } else if (value instanceof Collection) {
+        Collection<?> collection = (Collection<?>) value;
+        writeByte(COLLECTION);
+        writeClass(type);
+        writeVarLong(collection.size());
+        for (Object element : collection) {
+          writeObject(element);
+        }
+      } else if (value instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) value;
+        writeByte(MAP);
+        writeClass(type);
+        writeVarLong(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          writeObject(entry.getKey());
+          writeObject(entry.getValue());
+        }
+      } else {
+        writeByte(OBJECT);
+        writeClass(type);
+        for (Field field : layout.fields) {
+          writeField(value, field);
+        }
+      }
+    }
+
+    private void writeField(Object target, Field field) throws IOException, IllegalAccessException {
+      Class<?> type = field.getType();
+      if (!type.isPrimitive()) {
+        writeObject(field.get(target));
+      } else if (type == int.class) {
+        writeSignedVarLong(field.getInt(target));
+      } else if (type == long.class) {
+        writeSignedVarLong(field.getLong(target));
+      } else if (type == boolean.class) {
+        writeByte(field.getBoolean(target) ? 1 : 0);
+      } else if (type == double.class) {
+        writeLong(Double.doubleToRawLongBits(field.getDouble(target)));
+      } else if (type == float.class) {
+        writeInt(Float.floatToRawIntBits(field.getFloat(target)));
+      } else if (type == short.class) {
+        writeSignedVarLong(field.getShort(target));
+      } else if (type == byte.class) {
+        writeByte(field.getByte(target));
+      } else {
+        writeVarLong(field.getChar(target));
+      }
+    }
+
+    private void writeClass(Class<?> type) {
+      Integer index = classes.get(type);
+      if (index != null) {
+        writeVarLong(index + 1L);
+      } else {
+        writeVarLong(0);
+        writeString(type.getName());
+        classes.put(type, classes.size());
+      }
+    }
+
+    private byte[] javaSerialize(Object value) throws IOException {
+      try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+           ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+        oos.writeObject(value);
+        oos.flush();
+        return bos.toByteArray();
+      }
+    }
+
+    private void writeString(String value) {
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(byte[] bytes) {
+      writeVarLong(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    private void writeSignedVarLong(long value) {
+      // zigzag 编码, 让绝对值小的负数也只占少量字节
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    private void writeLong(long value) {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+
+    private void writeInt(int value) {
+      ensureCapacity(4);
+      buffer[position++] = (byte) (value >>> 24);
+      buffer[position++] = (byte) (value >>> 16);
+      buffer[position++] = (byte) (value >>> 8);
+      buffer[position++] = (byte) value;
+    }
+
+    private void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) value;
+    }
+
+    private void ensureCapacity(int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+      }
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+  }
+
+  private final class Reader {
+    private final List<Object> handles = new ArrayList<>();
+    private final List<Class<?>> classes = new ArrayList<>();
+    private final byte[] buffer;
+    private int position;
+
+    Reader(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Object readObject() throws Exception {
+      byte tag = buffer[position++];
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return handles.get((int) readVarLong());
+        case STRING:
+          return readString();
+        case INTEGER:
+          return (int) readSignedVarLong();
+        case LONG:
+          return readSignedVarLong();
+        case SHORT:
+          return (short) readSignedVarLong();
+        case BYTE:
+          return buffer[position++];
+        case DOUBLE:
+          return Double.longBitsToDouble(readLong());
+        case FLOAT:
+          return Float.intBitsToFloat(readInt());
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case CHARACTER:
+          return (char) readVarLong();
+        case BIG_DECIMAL:
+          return new BigDecimal(new BigInteger(readBytes()), (int) readSignedVarLong());
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case DATE:
+          return new Date(readSignedVarLong());
+        case SQL_DATE:
+          return new java.sql.Date(readSignedVarLong());
+        case SQL_TIME:
+          return new Time(readSignedVarLong());
+        case SQL_TIMESTAMP:
+          Timestamp timestamp = new Timestamp(readSignedVarLong());
+          timestamp.setNanos((int) readVarLong());
+          return timestamp;
+        case BYTES:
+          return readBytes();
+        case ENUM:
+          Class enumType = readClass();
+          return Enum.valueOf(enumType, readString());
+        case COLLECTION:
+          return readCollection();
+        case MAP:
+          return readMap();
+        case ARRAY:
+          return readArray();
+        case OBJECT:
+          return readFields();
+        case JAVA:
+          Object value = javaDeserialize(readBytes());
+          handles.add(value);
+          return value;
+        default:
+          throw new CacheException("Unknown type tag " + tag + " at offset " + (position - 1));
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readCollection() throws Exception {
+      Collection<Object> collection = (Collection<Object>) layoutFor(readClass()).constructor.newInstance();
+      handles.add(collection);
+      for (int i = (int) readVarLong(); i > 0; i--) {
+        collection.add(readObject());
+      }
+      return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readMap() throws Exception {
+      Map<Object, Object> map = (Map<Object, Object>) layoutFor(readClass()).constructor.newInstance();
+      handles.add(map);
+      for (int i = (int) readVarLong(); i > 0; i--) {
+        Object key = readObject();
+        map.put(key, readObject());
+      }
+      return map;
+    }
+
+    private Object readArray() throws Exception {
+      Class<?> componentType = readClass();
+      Object[] array = (Object[]) Array.newInstance(componentType, (int) readVarLong());
+      handles.add(array);
+      for (int i = 0; i < array.length; i++) {
+        array[i] = readObject();
+      }
+      return array;
+    }
+
+    private Object readFields() throws Exception {
+      ClassLayout layout = layoutFor(readClass());
+      Object target = layout.constructor.newInstance();
+      handles.add(target);
+      for (Field field : layout.fields) {
+        readField(target, field);
+      }
+      return target;
+    }
+
+    private void readField(Object target, Field field) throws Exception {
+      Class<?> type = field.getType();
+      if (!type.isPrimitive()) {
+        field.set(target, readObject());
+      } else if (type == int.class) {
+        field.setInt(target, (int) readSignedVarLong());
+      } else if (type == long.class) {
+        field.setLong(target, readSignedVarLong());
+      } else if (type == boolean.class) {
+        field.setBoolean(target, buffer[position++] != 0);
+      } else if (type == double.class) {
+        field.setDouble(target, Double.longBitsToDouble(readLong()));
+      } else if (type == float.class) {
+        field.setFloat(target, Float.intBitsToFloat(readInt()));
+      } else if (type == short.class) {
+        field.setShort(target, (short) readSignedVarLong());
+      } else if (type == byte.class) {
+        field.setByte(target, buffer[position++]);
+      } else {
+        field.setChar(target, (char) readVarLong());
+      }
+    }
+
+    private Class<?> readClass() throws ClassNotFoundException {
+      int index = (int) readVarLong();
+      if (index > 0) {
+        return classes.get(index - 1);
+      }
+      Class<?> type = Resources.classForName(readString());
+      classes.add(type);
+      return type;
+    }
+
+    private Object javaDeserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+      try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
+           ObjectInputStream ois = new SerializedCache.CustomObjectInputStream(bis)) {
+        return ois.readObject();
+      }
+    }
+
+    private String readString() {
+      int length = (int) readVarLong();
+      String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+
+    private byte[] readBytes() {
+      int length = (int) readVarLong();
+      byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+      position += length;
+      return bytes;
+    }
+
+    private long readSignedVarLong() {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer[position++];
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    private long readLong() {
+      return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    private int readInt() {
+      int value = ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16)
+          | ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+      position += 4;
+      return value;
+    }
+  }
+
+}
@@ -0,0 +1,354 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * A cache that keeps its values outside the Java heap, in direct {@link ByteBuffer} slabs.
+ * <p>
+ * Values are turned into bytes by a {@link CacheSerializer} ({@link CompactSerializer} by default) and appended to
+ * the current slab; only the keys and a small index entry per key stay on the heap. Slabs are allocated on demand
+ * up to <code>maximumBytes</code> (default 64 MB) in chunks of <code>slabSize</code> (default 4 MB). When all of them
+ * are full, the oldest slab is dropped with every entry it holds and reused, so eviction is first-in first-out and
+ * costs nothing per entry. Values larger than a slab are not cached.
+ * <p>
+ * Reads copy the bytes out of the slab without locking and retry as a miss if the slab was recycled meanwhile, so
+ * only writers are serialized. Each read returns a new copy, like {@link org.apache.ibatis.cache.decorators.SerializedCache},
+ * and the cache does not need the {@link org.apache.ibatis.cache.decorators.SynchronizedCache} decorator. Use it
+ * with <code>&lt;cache type="OFFHEAP"/&gt;</code> or <code>@CacheNamespace(implementation = OffHeapCache.class)</code>.
+ *
+ * @since 3.5.4
+ */
+public class OffHeapCache implements Cache {
+
+  private static final int MINIMUM_SLAB_SIZE = 4096;
+
+  private final String id;
+  private final ConcurrentMap<Object, Location> index = new ConcurrentHashMap<>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+
+  private long maximumBytes = 64L * 1024 * 1024;
+  private int slabSize = 4 * 1024 * 1024;
+  private CacheSerializer serializer = new CompactSerializer();
+  private Slab[] slabs;
+  private int current;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+    configure();
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the total size of the slabs. Clears the cache.
+   *
+   * @param maximumBytes the maximum number of bytes kept off heap
+   */
+  public void setMaximumBytes(long maximumBytes) {
+    this.maximumBytes = maximumBytes;
+    configure();
+  }
+
+  public long getMaximumBytes() {
+    return maximumBytes;
+  }
+
+  /**
+   * Sets the size of a single slab, which is also the unit of eviction and the largest value that can be cached.
+   * Clears the cache.
+   *
+   * @param slabSize the slab size in bytes
+   */
+  public void setSlabSize(int slabSize) {
+    this.slabSize = slabSize;
+    configure();
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  /**
+   * Sets the serializer by class name. Clears the cache.
+   *
+   * @param serializer the fully qualified name of a {@link CacheSerializer} implementation
+   */
+  public void setSerializerType(String serializer) {
+    try {
+      setSerializer((CacheSerializer) Resources.classForName(serializer).getDeclaredConstructor().newInstance());
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache serializer '" + serializer + "'.  Cause: " + e, e);
+    }
+  }
+
+  public void setSerializer(CacheSerializer serializer) {
+    this.serializer = serializer;
+    configure();
+  }
+
+  public CacheSerializer getSerializer() {
+    return serializer;
+  }
+
+  @Override
+  public int getSize() {
+    return index.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    // 序列化在锁外完成, 锁内只做内存拷贝
+    final byte[] bytes = serializer.serialize(value);
+    writeLock.lock();
+    try {
+      if (bytes.length > slabSize) {
+        index.remove(key);
+        return;
+      }
+      Slab slab = slabs[current];
+      if (slab.buffer == null) {
+        slab.buffer = ByteBuffer.allocateDirect(slabSize);
+      } else if (slab.position + bytes.length > slabSize) {
+        current = (current + 1) % slabs.length;
+        slab = slabs[current];
+        recycle(slab);
+      }
+      ByteBuffer target = slab.buffer.duplicate();
+      // 转为 Buffer 调用，避免编译到 JDK 9 起 ByteBuffer 协变返回的 position(int)，保持 Java 8 兼容
+      ((Buffer) target).position(slab.position);
+      target.put(bytes);
+      index.put(key, new Location(slab, slab.generation, slab.position, bytes.length));
+      slab.position += bytes.length;
+      slab.keys.add(key);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    final byte[] bytes = read(key);
+    if (bytes == null) {
+      missCount.increment();
+      return null;
+    }
+    hitCount.increment();
+    return serializer.deserialize(bytes);
+  }
+
+  private byte[] read(Object key) {
+    final Location location = index.get(key);
+    if (location == null) {
+      return null;
+    }
+    final Slab slab = location.slab;
+    final long stamp = slab.lock.tryOptimisticRead();
+    if (stamp == 0 || slab.generation != location.generation) {
+      return null;
+    }
+    final byte[] bytes = new byte[location.length];
+    final ByteBuffer source = slab.buffer.duplicate();
+    ((Buffer) source).position(location.offset);
+    source.get(bytes);
+    // 拷贝期间 slab 被回收过则数据可能已被覆盖, 按未命中处理
+    return slab.lock.validate(stamp) ? bytes : null;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    index.remove(key);
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    writeLock.lock();
+    try {
+      for (Slab slab : slabs) {
+        if (slab.buffer != null) {
+          reset(slab);
+        }
+      }
+      index.clear();
+      current = 0;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of successful lookups.
+   *
+   * @return the hit count
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Returns the number of lookups that did not find a value.
+   *
+   * @return the miss count
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Returns the number of entries dropped because their slab was reused.
+   *
+   * @return the eviction count
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /**
+   * Returns the number of bytes allocated off heap so far.
+   *
+   * @return the allocated bytes
+   */
+  public long getAllocatedBytes() {
+    writeLock.lock();
+    try {
+      long allocated = 0;
+      for (Slab slab : slabs) {
+        if (slab.buffer != null) {
+          allocated += slab.buffer.capacity();
+        }
+      }
+      return allocated;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void recycle(Slab slab) {
+    if (slab.buffer == null) {
+      slab.buffer = ByteBuffer.allocateDirect(slabSize);
+      return;
+    }
+    for (Object key : slab.keys) {
+      Location location = index.get(key);
+      if (location != null && location.slab == slab && location.generation == slab.generation
+          && index.remove(key, location)) {
+        evictionCount.increment();
+      }
+    }
+    reset(slab);
+  }
+
+  private void reset(Slab slab) {
+    long stamp = slab.lock.writeLock();
+    try {
+      slab.generation++;
+    } finally {
+      slab.lock.unlockWrite(stamp);
+    }
+    slab.position = 0;
+    slab.keys.clear();
+  }
+
+  private void configure() {
+    if (slabSize < MINIMUM_SLAB_SIZE) {
+      throw new CacheException("The slab size of cache '" + id + "' must be at least " + MINIMUM_SLAB_SIZE + " bytes.");
+    }
+    if (maximumBytes < slabSize) {
+      throw new CacheException("The maximum bytes of cache '" + id + "' must not be less than the slab size.");
+    }
+    writeLock.lock();
+    try {
+      // 至少两个 slab, 回收最旧的 slab 时仍有数据可用
+      int count = (int) Math.min(Integer.MAX_VALUE, Math.max(2, maximumBytes / slabSize));
+      slabs = new Slab[count];
+      for (int i = 0; i < count; i++) {
+        slabs[i] = new Slab();
+      }
+      current = 0;
+      index.clear();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Slab {
+    private final StampedLock lock = new StampedLock();
+    private final List<Object> keys = new ArrayList<>();
+    private ByteBuffer buffer;
+    private int generation;
+    private int position;
+  }
+
+  private static final class Location {
+    private final Slab slab;
+    private final int generation;
+    private final int offset;
+    private final int length;
+
+    Location(Slab slab, int generation, int offset, int length) {
+      this.slab = slab;
+      this.generation = generation;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+}
@@ -0,0 +1,461 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * A bounded, thread-safe cache with W-TinyLFU admission and eviction.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap}, so reads never block. The eviction policy is split into segments by
+ * key hash, each guarded by its own lock and holding a small LRU admission window and a segmented LRU main space
+ * (probation and protected). When the cache is full, the entry leaving the window is only admitted if a
+ * {@link FrequencySketch} estimates it is used more often than the main space victim. Reads reorder entries only if
+ * the segment lock is free, so a busy segment never makes readers wait.
+ * <p>
+ * The cache is bounded by entry count (<code>size</code>, default 1024) or, if <code>maximumWeight</code> is set, by
+ * the sum of entry weights as computed by {@link #weigh(Object, Object)}. It does not need the
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache} decorator. Use it with
+ * <code>&lt;cache type="TINYLFU"/&gt;</code> or <code>@CacheNamespace(implementation = TinyLfuCache.class)</code>.
+ *
+ * @since 3.5.4
+ */
+public class TinyLfuCache implements Cache {
+
+  private static final int MAXIMUM_SEGMENTS = 64;
+  private static final int MINIMUM_SEGMENT_CAPACITY = 64;
+
+  private final String id;
+  private final ConcurrentMap<Object, Node> data = new ConcurrentHashMap<>();
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+
+  private int size = 1024;
+  private long maximumWeight;
+  private Segment[] segments;
+  private int segmentMask;
+
+  public TinyLfuCache(String id) {
+    this.id = id;
+    configure();
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the maximum number of entries. Clears the cache.
+   *
+   * @param size the maximum number of entries
+   */
+  public void setSize(int size) {
+    this.size = size;
+    configure();
+  }
+
+  /**
+   * Bounds the cache by total weight instead of entry count. Clears the cache.
+   *
+   * @param maximumWeight the maximum total weight, 0 to bound by <code>size</code>
+   */
+  public void setMaximumWeight(long maximumWeight) {
+    this.maximumWeight = maximumWeight;
+    configure();
+  }
+
+  public long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  @Override
+  public int getSize() {
+    return data.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    final int hash = spread(key.hashCode());
+    final int weight = maximumWeight > 0 ? weigh(key, value) : 1;
+    final Segment segment = segmentFor(hash);
+    segment.lock.lock();
+    try {
+      Node node = data.get(key);
+      if (node == null) {
+        node = new Node(key, hash, value, weight);
+        data.put(key, node);
+        segment.onAdd(node);
+      } else {
+        segment.onUpdate(node, value, weight);
+      }
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    final Node node = data.get(key);
+    final Object value = node == null ? null : node.value;
+    final int hash = node == null ? spread(key.hashCode()) : node.hash;
+    final Segment segment = segmentFor(hash);
+    if (value == null) {
+      missCount.increment();
+    } else {
+      hitCount.increment();
+    }
+    // 访问顺序与频率的记录允许丢失，锁被占用时直接返回
+    if (segment.lock.tryLock()) {
+      try {
+        if (value == null) {
+          segment.sketch.increment(hash);
+        } else {
+          segment.onAccess(node);
+        }
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    final Segment segment = segmentFor(spread(key.hashCode()));
+    segment.lock.lock();
+    try {
+      Node node = data.remove(key);
+      if (node == null) {
+        return null;
+      }
+      segment.onRemove(node);
+      return node.value;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.lock.lock();
+    }
+    try {
+      data.clear();
+      for (Segment segment : segments) {
+        segment.reset();
+      }
+    } finally {
+      for (Segment segment : segments) {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /**
+   * Returns the weight of an entry when the cache is bounded by <code>maximumWeight</code>. The default weighs query
+   * results by row count: a collection weighs its size plus one, any other value weighs 1. Subclasses may override it.
+   *
+   * @param key the cache key
+   * @param value the cached value
+   * @return the weight, at least 1
+   */
+  protected int weigh(Object key, Object value) {
+    if (value instanceof Collection) {
+      return ((Collection<?>) value).size() + 1;
+    }
+    return 1;
+  }
+
+  private void configure() {
+    final long maximum = maximumWeight > 0 ? maximumWeight : size;
+    if (maximum <= 0) {
+      throw new CacheException("The maximum size of cache '" + id + "' must be positive but was " + maximum);
+    }
+    int targetSegments = Math.min(MAXIMUM_SEGMENTS, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) << 2);
+    int count = 1;
+    while (count < targetSegments && maximum / (count << 1) >= MINIMUM_SEGMENT_CAPACITY) {
+      count <<= 1;
+    }
+    Segment[] newSegments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      newSegments[i] = new Segment(maximum / count + (i < maximum % count ? 1 : 0));
+    }
+    segments = newSegments;
+    segmentMask = count - 1;
+    data.clear();
+  }
+
+  private Segment segmentFor(int hash) {
+    return segments[(hash >>> 16) & segmentMask];
+  }
+
+  private static int spread(int h) {
+    h ^= h >>> 17;
+    h *= 0xed5ad4bb;
+    h ^= h >>> 11;
+    h *= 0xac4c1b51;
+    h ^= h >>> 15;
+    return h;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Node {
+    static final int WINDOW = 0;
+    static final int PROBATION = 1;
+    static final int PROTECTED = 2;
+    static final int DEAD = 3;
+
+    final Object key;
+    final int hash;
+    volatile Object value;
+    int weight;
+    int queue;
+    Node prev;
+    Node next;
+
+    Node(Object key, int hash, Object value, int weight) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * Doubly linked list of nodes from least (head) to most (tail) recently used.
+   */
+  private static final class AccessOrderQueue {
+    private final Node sentinel = new Node(null, 0, null, 0);
+    long weight;
+
+    AccessOrderQueue() {
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+    }
+
+    Node first() {
+      return sentinel.next == sentinel ? null : sentinel.next;
+    }
+
+    Node next(Node node) {
+      return node.next == sentinel ? null : node.next;
+    }
+
+    void addLast(Node node) {
+      node.prev = sentinel.prev;
+      node.next = sentinel;
+      sentinel.prev.next = node;
+      sentinel.prev = node;
+      weight += node.weight;
+    }
+
+    void remove(Node node) {
+      node.prev.next = node.next;
+      node.next.prev = node.prev;
+      node.prev = null;
+      node.next = null;
+      weight -= node.weight;
+    }
+
+    void moveToLast(Node node) {
+      remove(node);
+      addLast(node);
+    }
+
+    void clear() {
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+      weight = 0;
+    }
+  }
+
+  private final class Segment {
+    final ReentrantLock lock = new ReentrantLock();
+    final FrequencySketch sketch;
+    final long maximum;
+    final long windowMaximum;
+    final long protectedMaximum;
+    final AccessOrderQueue window = new AccessOrderQueue();
+    final AccessOrderQueue probation = new AccessOrderQueue();
+    final AccessOrderQueue protectedQueue = new AccessOrderQueue();
+
+    Segment(long maximum) {
+      this.maximum = maximum;
+      // 1%的窗口区容纳新条目，主区的80%为保护区
+      this.windowMaximum = Math.max(1, maximum / 100);
+      this.protectedMaximum = (maximum - windowMaximum) * 4 / 5;
+      this.sketch = new FrequencySketch(maximum);
+    }
+
+    void onAdd(Node node) {
+      sketch.increment(node.hash);
+      node.queue = Node.WINDOW;
+      window.addLast(node);
+      evict();
+    }
+
+    void onUpdate(Node node, Object value, int weight) {
+      node.value = value;
+      if (node.weight != weight) {
+        AccessOrderQueue queue = queueOf(node);
+        queue.remove(node);
+        node.weight = weight;
+        queue.addLast(node);
+      }
+      onAccess(node);
+      evict();
+    }
+
+    void onAccess(Node node) {
+      sketch.increment(node.hash);
+      switch (node.queue) {
+        case Node.WINDOW:
+          window.moveToLast(node);
+          break;
+        case Node.PROBATION:
+          // 试用区中再次被访问的条目晋升到保护区
+          probation.remove(node);
+          node.queue = Node.PROTECTED;
+          protectedQueue.addLast(node);
+          while (protectedQueue.weight > protectedMaximum) {
+            Node demoted = protectedQueue.first();
+            protectedQueue.remove(demoted);
+            demoted.queue = Node.PROBATION;
+            probation.addLast(demoted);
+          }
+          break;
+        case Node.PROTECTED:
+          protectedQueue.moveToLast(node);
+          break;
+        default:
+          // removed concurrently
+          break;
+      }
+    }
+
+    void onRemove(Node node) {
+      if (node.queue != Node.DEAD) {
+        queueOf(node).remove(node);
+        node.queue = Node.DEAD;
+      }
+    }
+
+    void reset() {
+      window.clear();
+      probation.clear();
+      protectedQueue.clear();
+    }
+
+    private AccessOrderQueue queueOf(Node node) {
+      switch (node.queue) {
+        case Node.WINDOW:
+          return window;
+        case Node.PROBATION:
+          return probation;
+        default:
+          return protectedQueue;
+      }
+    }
+
+    private long weight() {
+      return window.weight + probation.weight + protectedQueue.weight;
+    }
+
+    private void evict() {
+      // 窗口区溢出的条目进入试用区，成为准入候选者
+      Node candidate = null;
+      while (window.weight > windowMaximum) {
+        Node node = window.first();
+        window.remove(node);
+        node.queue = Node.PROBATION;
+        probation.addLast(node);
+        if (candidate == null) {
+          candidate = node;
+        }
+      }
+      while (weight() > maximum) {
+        Node victim = probation.first();
+        if (victim == null) {
+          victim = protectedQueue.first() != null ? protectedQueue.first() : window.first();
+        }
+        if (candidate != null && candidate != victim && candidate.queue == Node.PROBATION
+            && sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)) {
+          // 候选者的访问频率不高于淘汰对象，拒绝候选者
+          Node next = probation.next(candidate);
+          evictNode(candidate);
+          candidate = next;
+          continue;
+        }
+        if (victim == candidate) {
+          candidate = probation.next(candidate);
+        }
+        evictNode(victim);
+      }
+    }
+
+    private void evictNode(Node node) {
+      onRemove(node);
+      data.remove(node.key, node);
+      evictionCount.increment();
+    }
+  }
+
+}
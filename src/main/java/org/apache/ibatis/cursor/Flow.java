@@ -0,0 +1,79 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+/**
+ * Reactive stream interfaces with the same contract as <code>java.util.concurrent.Flow</code>, which is not
+ * available on Java 8. On Java 9 or later a {@link Publisher} is turned into a JDK one with
+ * <code>subscriber -&gt; publisher.subscribe(new Subscriber&lt;T&gt;() { ... })</code> delegating each method.
+ *
+ * @since 3.5.4
+ * @see org.apache.ibatis.session.AsyncSqlSession#selectCursor(String, Object)
+ */
+public final class Flow {
+
+  private Flow() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * A producer of items that are received by subscribers as they request them.
+   *
+   * @param <T> the item type
+   */
+  @FunctionalInterface
+  public interface Publisher<T> {
+
+    /**
+     * Adds a subscriber. {@link Subscriber#onSubscribe(Subscription)} is called before any other method.
+     *
+     * @param subscriber the subscriber
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+  }
+
+  /**
+   * A receiver of items. The methods are called one at a time, never concurrently.
+   *
+   * @param <T> the item type
+   */
+  public interface Subscriber<T> {
+
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+  }
+
+  /**
+   * The link between a publisher and a subscriber, used to ask for items or to stop receiving them.
+   */
+  public interface Subscription {
+
+    /**
+     * Asks for up to <code>n</code> more items.
+     *
+     * @param n the number of items, must be positive
+     */
+    void request(long n);
+
+    void cancel();
+  }
+
+}
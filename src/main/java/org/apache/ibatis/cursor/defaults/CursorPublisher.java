@@ -0,0 +1,158 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.Flow;
+
+/**
+ * A {@link Flow.Publisher} that streams the items of a {@link Cursor}.
+ * <p>
+ * Every subscription opens its own cursor, and rows are only fetched when the subscriber has requested them, plus
+ * one row read ahead to detect the end of the results. The
+ * cursor is opened, read and closed by tasks run on the given executor, never by the subscriber's thread, so an
+ * executor that runs one task at a time keeps all calls to the underlying session on one thread at a time. The
+ * cursor is closed when it is consumed, when the subscription is cancelled or when an error occurs.
+ *
+ * @since 3.5.4
+ */
+public class CursorPublisher<T> implements Flow.Publisher<T> {
+
+  private final Callable<Cursor<T>> cursorOpener;
+  private final Executor executor;
+
+  public CursorPublisher(Callable<Cursor<T>> cursorOpener, Executor executor) {
+    this.cursorOpener = cursorOpener;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    subscriber.onSubscribe(new CursorSubscription(subscriber));
+  }
+
+  private final class CursorSubscription implements Flow.Subscription, Runnable {
+    private final Flow.Subscriber<? super T> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    // 未处理的调度次数, 保证同一时刻只有一个任务在读取游标
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+    private Cursor<T> cursor;
+    private Iterator<T> iterator;
+    private boolean done;
+
+    CursorSubscription(Flow.Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("The number of requested items must be positive but was " + n);
+      } else {
+        long current;
+        long next;
+        do {
+          current = demand.get();
+          next = current + n < 0 ? Long.MAX_VALUE : current + n;
+        } while (!demand.compareAndSet(current, next));
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        executor.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        if (!done) {
+          drain();
+        }
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void drain() {
+      try {
+        if (cancelled) {
+          finish();
+          return;
+        }
+        if (invalidRequest != null) {
+          finish();
+          subscriber.onError(invalidRequest);
+          return;
+        }
+        if (cursor == null) {
+          cursor = cursorOpener.call();
+          iterator = cursor.iterator();
+        }
+        long requested = demand.get();
+        long emitted = 0;
+        while (emitted != requested && !cancelled && iterator.hasNext()) {
+          subscriber.onNext(iterator.next());
+          emitted++;
+        }
+        if (cancelled) {
+          finish();
+        } else if (!iterator.hasNext()) {
+          // hasNext 最多预读一行, 读完时不必等下一次 request 就能通知完成
+          finish();
+          subscriber.onComplete();
+        } else if (requested != Long.MAX_VALUE) {
+          demand.addAndGet(-emitted);
+        }
+      } catch (Throwable t) {
+        finish();
+        subscriber.onError(t);
+      }
+    }
+
+    private void finish() {
+      done = true;
+      if (cursor != null) {
+        try {
+          cursor.close();
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+}
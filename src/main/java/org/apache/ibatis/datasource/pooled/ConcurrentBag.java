@@ -0,0 +1,220 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free collection of pooled entries.
+ * <p>
+ * Entries are looked up first in a thread-local list of entries the current thread used recently,
+ * then in the shared list, and finally the caller waits on a fair hand-off queue for an entry
+ * returned by another thread. The state of an entry is the only thing guarded, via compare-and-set,
+ * so neither a borrow nor a return takes a lock.
+ *
+ * @since 3.5.4
+ */
+class ConcurrentBag<T extends ConcurrentBag.BagEntry> {
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<T> sharedList = new CopyOnWriteArrayList<>(); //所有条目
+  private final ThreadLocal<List<T>> threadList = ThreadLocal.withInitial(() -> new ArrayList<>(MAX_THREAD_LOCAL_ENTRIES)); //线程最近归还的条目
+  private final SynchronousQueue<T> handoffQueue = new SynchronousQueue<>(true); //直接移交给等待线程的队列
+  private final AtomicInteger waiters = new AtomicInteger(); //等待中的线程数
+
+  /**
+   * The state holder stored in the bag.
+   */
+  interface BagEntry {
+    int STATE_NOT_IN_USE = 0;
+    int STATE_IN_USE = 1;
+    int STATE_REMOVED = -1;
+    int STATE_RESERVED = -2;
+
+    boolean compareAndSetState(int expectState, int newState);
+
+    void setState(int newState);
+
+    int getState();
+  }
+
+  /**
+   * Borrows an entry, waiting up to the timeout for one to be returned.
+   *
+   * @param timeout how long to wait, 0 does not wait at all
+   * @param unit the unit of the timeout
+   * @return the borrowed entry, or null if the timeout elapsed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  T borrow(long timeout, TimeUnit unit) throws InterruptedException {
+    // 优先使用本线程最近归还的条目
+    final List<T> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      final T entry = list.remove(i);
+      if (entry.compareAndSetState(BagEntry.STATE_NOT_IN_USE, BagEntry.STATE_IN_USE)) {
+        return entry;
+      }
+    }
+
+    waiters.incrementAndGet();
+    try {
+      // 再扫描共享列表
+      for (T entry : sharedList) {
+        if (entry.compareAndSetState(BagEntry.STATE_NOT_IN_USE, BagEntry.STATE_IN_USE)) {
+          return entry;
+        }
+      }
+
+      // 最后等待其他线程移交
+      long remaining = unit.toNanos(timeout);
+      while (remaining > 0) {
+        final long start = System.nanoTime();
+        final T entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry != null && entry.compareAndSetState(BagEntry.STATE_NOT_IN_USE, BagEntry.STATE_IN_USE)) {
+          return entry;
+        }
+        remaining -= System.nanoTime() - start;
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns a borrowed (or reserved) entry to the bag, handing it off directly to a waiting thread if there is one.
+   *
+   * @param entry the entry to return
+   */
+  void requite(T entry) {
+    entry.setState(BagEntry.STATE_NOT_IN_USE);
+
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != BagEntry.STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+
+    final List<T> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      list.add(entry);
+    }
+  }
+
+  /**
+   * Adds a new entry to the bag. The entry must be in the {@link BagEntry#STATE_NOT_IN_USE} state.
+   *
+   * @param entry the entry to add
+   */
+  void add(T entry) {
+    sharedList.add(entry);
+    // 有线程在等待时直接移交
+    while (waiters.get() > 0 && entry.getState() == BagEntry.STATE_NOT_IN_USE && !handoffQueue.offer(entry)) {
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Removes an entry that is borrowed or reserved by the caller.
+   *
+   * @param entry the entry to remove
+   * @return true if the entry was removed
+   */
+  boolean remove(T entry) {
+    if (!entry.compareAndSetState(BagEntry.STATE_IN_USE, BagEntry.STATE_REMOVED)
+        && !entry.compareAndSetState(BagEntry.STATE_RESERVED, BagEntry.STATE_REMOVED)) {
+      return false;
+    }
+    return sharedList.remove(entry);
+  }
+
+  /**
+   * Removes an entry regardless of its state.
+   *
+   * @param entry the entry to remove
+   * @return true if the entry was still in the bag
+   */
+  boolean forceRemove(T entry) {
+    entry.setState(BagEntry.STATE_REMOVED);
+    return sharedList.remove(entry);
+  }
+
+  /**
+   * Reserves an idle entry so that it can not be borrowed, e.g. to evict or validate it.
+   *
+   * @param entry the entry to reserve
+   * @return true if the entry was idle and is now reserved
+   */
+  boolean reserve(T entry) {
+    return entry.compareAndSetState(BagEntry.STATE_NOT_IN_USE, BagEntry.STATE_RESERVED);
+  }
+
+  /**
+   * Makes a reserved entry available again without adding it to the current thread's list.
+   *
+   * @param entry the reserved entry
+   */
+  void unreserve(T entry) {
+    if (entry.compareAndSetState(BagEntry.STATE_RESERVED, BagEntry.STATE_NOT_IN_USE)) {
+      while (waiters.get() > 0 && entry.getState() == BagEntry.STATE_NOT_IN_USE && !handoffQueue.offer(entry)) {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   * Returns a snapshot of all entries.
+   *
+   * @return the entries
+   */
+  List<T> values() {
+    return new ArrayList<>(sharedList);
+  }
+
+  Iterable<T> entries() {
+    return sharedList;
+  }
+
+  int getCount(int state) {
+    int count = 0;
+    for (T entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  int size() {
+    return sharedList.size();
+  }
+
+  int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+}
@@ -0,0 +1,106 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free statistics of a {@link ConcurrentPooledDataSource}.
+ * <p>
+ * Counters are kept in {@link LongAdder}s so that recording them on checkout and return does not
+ * serialize the calling threads; the inherited connection lists are not used.
+ *
+ * @since 3.5.4
+ */
+public class ConcurrentPoolState extends PoolState {
+
+  private final ConcurrentBag<PoolEntry> bag;
+
+  protected final LongAdder requestCounter = new LongAdder(); //请求数
+  protected final LongAdder requestTime = new LongAdder(); //累计连接时间
+  protected final LongAdder checkoutTime = new LongAdder(); //累计检出时间
+  protected final LongAdder claimedOverdueCounter = new LongAdder(); //超时的连接个数
+  protected final LongAdder checkoutTimeOfOverdueConnections = new LongAdder(); //累计超时时间
+  protected final LongAdder waitTime = new LongAdder(); //累计等待时间
+  protected final LongAdder hadToWaitCounter = new LongAdder(); //等待次数
+  protected final LongAdder badConnectionCounter = new LongAdder(); //无效的连接数
+  protected final LongAdder timedOutRequestCounter = new LongAdder(); //等待超时的请求数
+
+  ConcurrentPoolState(ConcurrentPooledDataSource dataSource, ConcurrentBag<PoolEntry> bag) {
+    super(dataSource);
+    this.bag = bag;
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requestCounter.sum();
+  }
+
+  @Override
+  public long getAverageRequestTime() {
+    long count = requestCounter.sum();
+    return count == 0 ? 0 : requestTime.sum() / count;
+  }
+
+  @Override
+  public long getAverageWaitTime() {
+    long count = hadToWaitCounter.sum();
+    return count == 0 ? 0 : waitTime.sum() / count;
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaitCounter.sum();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return badConnectionCounter.sum();
+  }
+
+  @Override
+  public long getTimedOutRequestCount() {
+    return timedOutRequestCounter.sum();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueCounter.sum();
+  }
+
+  @Override
+  public long getAverageOverdueCheckoutTime() {
+    long count = claimedOverdueCounter.sum();
+    return count == 0 ? 0 : checkoutTimeOfOverdueConnections.sum() / count;
+  }
+
+  @Override
+  public long getAverageCheckoutTime() {
+    long count = requestCounter.sum();
+    return count == 0 ? 0 : checkoutTime.sum() / count;
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return bag.getCount(ConcurrentBag.BagEntry.STATE_NOT_IN_USE);
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return bag.getCount(ConcurrentBag.BagEntry.STATE_IN_USE);
+  }
+
+}
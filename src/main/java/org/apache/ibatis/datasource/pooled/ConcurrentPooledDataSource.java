@@ -0,0 +1,393 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.datasource.pooled.ConcurrentBag.BagEntry;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A connection pool that does not serialize checkouts and returns on a single monitor.
+ * <p>
+ * Connections are kept in a {@link ConcurrentBag}: a thread first tries the connections it returned recently,
+ * then any idle connection, then opens a new one while the pool is below {@code poolMaximumActiveConnections},
+ * and finally waits for a connection handed off by a returning thread. It honours the same configuration
+ * properties and keeps the same {@link PoolState} statistics as {@link PooledDataSource}.
+ *
+ * @since 3.5.4
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  private final ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>(); //连接容器
+  private final ConcurrentPoolState state = new ConcurrentPoolState(this, bag); //数据源状态维护
+  private final AtomicInteger totalConnections = new AtomicInteger(); //连接总数(空闲+使用中)
+
+  public ConcurrentPooledDataSource() {
+    super();
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    super(driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    super(driver, url, driverProperties);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    super(driverClassLoader, driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    super(driverClassLoader, driver, url, driverProperties);
+  }
+
+  @Override
+  public ConcurrentPoolState getPoolState() {
+    return state;
+  }
+
+  /**
+   * Closes all active and idle connections in the pool.
+   */
+  @Override
+  public void forceCloseAll() {
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    for (PoolEntry entry : bag.values()) {
+      if (bag.forceRemove(entry)) {
+        totalConnections.decrementAndGet();
+        PooledConnection conn = entry.getPooledConnection();
+        if (conn != null) {
+          conn.invalidate();
+        }
+        closeRealConnection(entry.getRealConnection());
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource forcefully closed/removed all connections.");
+    }
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    PoolEntry entry = acquireOwnedEntry(conn);
+    // 连接已被回收或重复关闭
+    if (entry == null || !conn.isValid()) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCounter.increment();
+      if (entry != null) {
+        discard(entry);
+      }
+      return;
+    }
+    state.checkoutTime.add(conn.getCheckoutTime());
+    entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+    conn.invalidate();
+    try {
+      if (!entry.getRealConnection().getAutoCommit()) {
+        entry.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      discard(entry);
+      throw e;
+    }
+    if (state.getIdleConnectionCount() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+        && !isExpired(entry.getCreatedTimestamp())) {
+      bag.requite(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+      }
+    } else {
+      discard(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  @Override
+  protected PooledConnection popConnection(String username, String password) throws SQLException {
+    boolean countedWait = false;
+    long t = System.currentTimeMillis();
+    long waitStart = 0;
+    long deadline = poolConnectionTimeout > 0 ? t + poolConnectionTimeout : Long.MAX_VALUE;
+    int localBadConnectionCount = 0;
+
+    try {
+      while (true) {
+        PooledConnection conn = null;
+        PoolEntry entry = bag.borrow(0, TimeUnit.MILLISECONDS);
+        if (entry == null) {
+          // Pool does not have available connection, try to create a new one
+          entry = createEntry(BagEntry.STATE_IN_USE);
+        }
+        if (entry != null) {
+          conn = entry.newPooledConnection(this);
+        } else {
+          entry = claimOverdueEntry();
+          if (entry != null) {
+            conn = entry.getPooledConnection();
+          }
+        }
+        if (entry == null) {
+          // Must wait
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            state.timedOutRequestCounter.increment();
+            state.waitTimeHistogram.record(countedWait ? System.currentTimeMillis() - waitStart : 0);
+            throw new PoolTimeoutException("PooledDataSource: Could not get a connection within " + poolConnectionTimeout + " milliseconds.");
+          }
+          if (!countedWait) {
+            state.hadToWaitCounter.increment();
+            countedWait = true;
+            waitStart = System.currentTimeMillis();
+          }
+          long timeToWait = poolTimeToWait;
+          if (deadline != Long.MAX_VALUE && (timeToWait <= 0 || timeToWait > remaining)) {
+            timeToWait = remaining;
+          } else if (timeToWait <= 0) {
+            // 与 PooledDataSource 的 wait(0) 一致，一直等到有连接归还
+            timeToWait = Long.MAX_VALUE;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug(timeToWait == Long.MAX_VALUE ? "Waiting for a connection to be returned."
+                : "Waiting as long as " + timeToWait + " milliseconds for connection.");
+          }
+          long wt = System.currentTimeMillis();
+          entry = bag.borrow(timeToWait, TimeUnit.MILLISECONDS);
+          state.waitTime.add(System.currentTimeMillis() - wt);
+          if (entry == null) {
+            continue;
+          }
+          conn = entry.newPooledConnection(this);
+        }
+
+        // ping to server and check the connection is valid or not
+        if (conn.isValid()) {
+          try {
+            if (!conn.getRealConnection().getAutoCommit()) {
+              conn.getRealConnection().rollback();
+            }
+          } catch (SQLException e) {
+            discard(entry);
+            throw e;
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          state.requestCounter.increment();
+          state.requestTime.add(System.currentTimeMillis() - t);
+          state.requestTimeHistogram.record(System.currentTimeMillis() - t);
+          if (countedWait) {
+            state.waitTimeHistogram.record(System.currentTimeMillis() - waitStart);
+          }
+          return conn;
+        }
+
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+        }
+        state.badConnectionCounter.increment();
+        localBadConnectionCount++;
+        discard(entry);
+        if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+          if (log.isDebugEnabled()) {
+            log.debug("PooledDataSource: Could not get a good connection to the database.");
+          }
+          throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("PooledDataSource: Interrupted while waiting for a connection.", e);
+    }
+  }
+
+  @Override
+  protected void housekeep() {
+    for (PoolEntry entry : bag.values()) {
+      // 只处理空闲连接，预留期间其他线程无法借出
+      if (!bag.reserve(entry)) {
+        continue;
+      }
+      long idleTime = System.currentTimeMillis() - entry.getLastUsedTimestamp();
+      boolean retire = isExpired(entry.getCreatedTimestamp())
+          || (poolMaximumIdleTime > 0 && idleTime > poolMaximumIdleTime
+              && state.getIdleConnectionCount() >= poolMinimumIdleConnections)
+          || !validateIdleConnection(entry.getRealConnection(), idleTime);
+      if (retire) {
+        discard(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Housekeeper closed connection " + entry.getRealConnection().hashCode() + ".");
+        }
+      } else {
+        bag.unreserve(entry);
+      }
+    }
+    int minimumIdle = Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+    try {
+      while (state.getIdleConnectionCount() < minimumIdle) {
+        if (createEntry(BagEntry.STATE_NOT_IN_USE) == null) {
+          break;
+        }
+      }
+    } catch (SQLException e) {
+      log.warn("Housekeeper could not open a connection: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Opens a new physical connection if the pool has not reached its maximum size.
+   *
+   * @param initialState the state of the new entry
+   * @return the new entry, or null if the pool is full
+   */
+  private PoolEntry createEntry(int initialState) throws SQLException {
+    while (true) {
+      int total = totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        return null;
+      }
+      if (totalConnections.compareAndSet(total, total + 1)) {
+        break;
+      }
+    }
+    PoolEntry entry;
+    try {
+      entry = new PoolEntry(dataSource.getConnection());
+    } catch (SQLException | RuntimeException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    }
+    entry.setState(initialState);
+    bag.add(entry);
+    if (log.isDebugEnabled()) {
+      log.debug("Created connection " + entry.getRealConnection().hashCode() + ".");
+    }
+    return entry;
+  }
+
+  /**
+   * Takes over a connection that has been checked out for longer than {@code poolMaximumCheckoutTime}.
+   *
+   * @return the claimed entry holding a new pooled connection, or null if no connection is overdue
+   */
+  private PoolEntry claimOverdueEntry() {
+    for (PoolEntry entry : bag.entries()) {
+      PooledConnection oldConnection = entry.getPooledConnection();
+      if (oldConnection == null || entry.getState() != BagEntry.STATE_IN_USE) {
+        continue;
+      }
+      long longestCheckoutTime = oldConnection.getCheckoutTime();
+      if (longestCheckoutTime <= poolMaximumCheckoutTime || !entry.compareAndSetState(BagEntry.STATE_IN_USE, BagEntry.STATE_RESERVED)) {
+        continue;
+      }
+      if (entry.getPooledConnection() != oldConnection) {
+        // returned and borrowed again meanwhile
+        entry.setState(BagEntry.STATE_IN_USE);
+        continue;
+      }
+      // Can claim overdue connection
+      state.claimedOverdueCounter.increment();
+      state.checkoutTimeOfOverdueConnections.add(longestCheckoutTime);
+      state.checkoutTime.add(longestCheckoutTime);
+      oldConnection.invalidate();
+      try {
+        if (!entry.getRealConnection().getAutoCommit()) {
+          entry.getRealConnection().rollback();
+        }
+      } catch (SQLException e) {
+        // the connection will be checked by the ping before it is handed out
+        log.debug("Bad connection. Could not roll back");
+      }
+      if (oldConnection.getStatementCache() != null) {
+        // 原会话仍持有旧缓存，使旧缓存失效并为新的检出创建新缓存
+        oldConnection.getStatementCache().invalidate();
+        entry.resetStatementCache();
+      }
+      entry.setLastUsedTimestamp(oldConnection.getLastUsedTimestamp());
+      PooledConnection conn = entry.newPooledConnection(this);
+      entry.setState(BagEntry.STATE_IN_USE);
+      if (log.isDebugEnabled()) {
+        log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+      }
+      return entry;
+    }
+    return null;
+  }
+
+  /**
+   * Reserves the entry the connection was checked out from for the caller.
+   *
+   * @return the reserved entry, or null if the connection was already returned or has been claimed
+   */
+  private PoolEntry acquireOwnedEntry(PooledConnection conn) {
+    PoolEntry entry = conn.getPoolEntry();
+    if (entry == null || entry.getPooledConnection() != conn) {
+      return null;
+    }
+    if (!entry.compareAndSetState(BagEntry.STATE_IN_USE, BagEntry.STATE_RESERVED)) {
+      return null;
+    }
+    if (entry.getPooledConnection() != conn) {
+      entry.setState(BagEntry.STATE_IN_USE);
+      return null;
+    }
+    entry.clearPooledConnection();
+    return entry;
+  }
+
+  /**
+   * Removes an entry owned by the caller from the pool and closes its physical connection.
+   */
+  private void discard(PoolEntry entry) {
+    if (bag.remove(entry)) {
+      totalConnections.decrementAndGet();
+      closeRealConnection(entry.getRealConnection());
+      fillForWaiters();
+    }
+  }
+
+  /**
+   * Replaces a discarded connection when threads are waiting, so they do not wait for {@code poolTimeToWait}.
+   */
+  private void fillForWaiters() {
+    if (bag.getWaitingThreadCount() > 0) {
+      try {
+        createEntry(BagEntry.STATE_NOT_IN_USE);
+      } catch (SQLException e) {
+        if (log.isDebugEnabled()) {
+          log.debug("Could not create a replacement connection: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A physical connection held by {@link ConcurrentPooledDataSource}.
+ * <p>
+ * Every checkout wraps the real connection in a new {@link PooledConnection}, so a proxy that has been
+ * closed (or reclaimed) can never be used again, exactly like {@link PooledDataSource} does.
+ *
+ * @since 3.5.4
+ */
+class PoolEntry implements ConcurrentBag.BagEntry {
+
+  private final AtomicInteger state = new AtomicInteger(STATE_NOT_IN_USE); //条目状态
+  private final Connection realConnection; //真正的连接对象
+  private final long createdTimestamp; //连接创建时间戳
+  private volatile long lastUsedTimestamp; //最后一次使用的时间戳
+  private volatile PooledConnection pooledConnection; //当前检出使用的代理连接
+  private PooledStatementCache statementCache; //真实连接上的语句缓存，在各次检出之间共享
+  private boolean statementCacheCreated;
+
+  PoolEntry(Connection realConnection) {
+    this.realConnection = realConnection;
+    this.createdTimestamp = System.currentTimeMillis();
+    this.lastUsedTimestamp = createdTimestamp;
+  }
+
+  /**
+   * Wraps the real connection in a new proxy for the next checkout.
+   *
+   * @param dataSource the data source the connection is returned to
+   * @return the new pooled connection
+   */
+  PooledConnection newPooledConnection(PooledDataSource dataSource) {
+    if (!statementCacheCreated) {
+      statementCache = dataSource.newStatementCache();
+      statementCacheCreated = true;
+    }
+    PooledConnection conn = new PooledConnection(realConnection, dataSource, statementCache);
+    conn.setPoolEntry(this);
+    conn.setCreatedTimestamp(createdTimestamp);
+    conn.setLastUsedTimestamp(lastUsedTimestamp);
+    // 先设置检出时间，避免被当作超时连接回收
+    conn.setCheckoutTimestamp(System.currentTimeMillis());
+    this.pooledConnection = conn;
+    return conn;
+  }
+
+  /**
+   * Makes the next checkout create a new statement cache, after the old one was invalidated.
+   */
+  void resetStatementCache() {
+    statementCache = null;
+    statementCacheCreated = false;
+  }
+
+  void clearPooledConnection() {
+    this.pooledConnection = null;
+  }
+
+  Connection getRealConnection() {
+    return realConnection;
+  }
+
+  PooledConnection getPooledConnection() {
+    return pooledConnection;
+  }
+
+  long getCreatedTimestamp() {
+    return createdTimestamp;
+  }
+
+  long getLastUsedTimestamp() {
+    return lastUsedTimestamp;
+  }
+
+  void setLastUsedTimestamp(long lastUsedTimestamp) {
+    this.lastUsedTimestamp = lastUsedTimestamp;
+  }
+
+  @Override
+  public boolean compareAndSetState(int expectState, int newState) {
+    return state.compareAndSet(expectState, newState);
+  }
+
+  @Override
+  public void setState(int newState) {
+    state.set(newState);
+  }
+
+  @Override
+  public int getState() {
+    return state.get();
+  }
+
+}
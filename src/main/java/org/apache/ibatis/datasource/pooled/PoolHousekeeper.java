@@ -0,0 +1,79 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Periodically runs {@link PooledDataSource#housekeep()} on a daemon thread.
+ * <p>
+ * The task only holds a weak reference to the data source, so an abandoned data source can still be
+ * garbage collected; the thread stops itself once that happens.
+ *
+ * @since 3.5.4
+ */
+class PoolHousekeeper implements Runnable {
+
+  private static final Log log = LogFactory.getLog(PoolHousekeeper.class);
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+
+  private final WeakReference<PooledDataSource> dataSourceRef;
+  private final ScheduledExecutorService executor;
+
+  private PoolHousekeeper(PooledDataSource dataSource) {
+    this.dataSourceRef = new WeakReference<>(dataSource);
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, "mybatis-pool-housekeeper-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.setRemoveOnCancelPolicy(true);
+    this.executor = scheduler;
+  }
+
+  static PoolHousekeeper start(PooledDataSource dataSource, long intervalMillis) {
+    PoolHousekeeper housekeeper = new PoolHousekeeper(dataSource);
+    // 立即执行一次，以便尽快预热最小空闲连接
+    housekeeper.executor.scheduleWithFixedDelay(housekeeper, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    return housekeeper;
+  }
+
+  @Override
+  public void run() {
+    PooledDataSource dataSource = dataSourceRef.get();
+    if (dataSource == null) {
+      executor.shutdown();
+      return;
+    }
+    try {
+      dataSource.housekeep();
+    } catch (RuntimeException e) {
+      log.warn("Pool housekeeping failed: " + e.getMessage());
+    }
+  }
+
+  void stop() {
+    executor.shutdownNow();
+  }
+
+}
@@ -15,8 +15,13 @@
  */
 package org.apache.ibatis.datasource.pooled;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.metrics.LatencyHistogram;
 
 /**
  * @author Clinton Begin
@@ -35,6 +40,13 @@ public class PoolState {
   protected long accumulatedWaitTime = 0; //累计等待时间
   protected long hadToWaitCount = 0; //等待次数
   protected long badConnectionCount = 0; //无效的连接数
+  protected long timedOutRequestCount = 0; //等待超时的请求数
+  protected final Deque<Object> waitQueue = new ArrayDeque<>(); //公平模式下的等待队列
+  protected final LatencyHistogram requestTimeHistogram = new LatencyHistogram(); //获取连接耗时分布(毫秒)
+  protected final LatencyHistogram waitTimeHistogram = new LatencyHistogram(); //需要等待的请求的等待耗时分布(毫秒)
+  protected final LongAdder statementCacheHitCounter = new LongAdder(); //所有连接语句缓存的命中次数
+  protected final LongAdder statementCacheMissCounter = new LongAdder(); //所有连接语句缓存的未命中次数
+  protected final LongAdder statementCacheEvictionCounter = new LongAdder(); //所有连接语句缓存的淘汰次数
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
@@ -61,6 +73,60 @@ public class PoolState {
     return badConnectionCount;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public synchronized long getTimedOutRequestCount() {
+    return timedOutRequestCount;
+  }
+
+  /**
+   * Returns the distribution of the time, in milliseconds, it took to check out a connection.
+   *
+   * @since 3.5.4
+   */
+  public LatencyHistogram getRequestTimeHistogram() {
+    return requestTimeHistogram;
+  }
+
+  /**
+   * Returns the distribution of the time, in milliseconds, requests that had to wait spent waiting,
+   * including the ones that timed out.
+   *
+   * @since 3.5.4
+   */
+  public LatencyHistogram getWaitTimeHistogram() {
+    return waitTimeHistogram;
+  }
+
+  /**
+   * Returns how often a statement was found in the statement cache of a connection.
+   *
+   * @since 3.5.4
+   * @see PooledStatementCache
+   */
+  public long getStatementCacheHitCount() {
+    return statementCacheHitCounter.sum();
+  }
+
+  /**
+   * Returns how often a statement had to be prepared because it was not in the statement cache of a connection.
+   *
+   * @since 3.5.4
+   */
+  public long getStatementCacheMissCount() {
+    return statementCacheMissCounter.sum();
+  }
+
+  /**
+   * Returns how many statements were closed because the statement cache of a connection was full.
+   *
+   * @since 3.5.4
+   */
+  public long getStatementCacheEvictionCount() {
+    return statementCacheEvictionCounter.sum();
+  }
+
   public synchronized long getClaimedOverdueConnectionCount() {
     return claimedOverdueConnectionCount;
   }
@@ -97,6 +163,13 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolMinimumIdleConnections     ").append(dataSource.poolMinimumIdleConnections);
+    builder.append("\n poolMaximumLifetime            ").append(dataSource.poolMaximumLifetime);
+    builder.append("\n poolMaximumIdleTime            ").append(dataSource.poolMaximumIdleTime);
+    builder.append("\n poolHousekeepingInterval       ").append(dataSource.poolHousekeepingInterval);
+    builder.append("\n poolFairWaiting                ").append(dataSource.poolFairWaiting);
+    builder.append("\n poolConnectionTimeout          ").append(dataSource.poolConnectionTimeout);
+    builder.append("\n poolStatementCacheSize         ").append(dataSource.poolStatementCacheSize);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -107,7 +180,13 @@ public class PoolState {
     builder.append("\n averageOverdueCheckoutTime     ").append(getAverageOverdueCheckoutTime());
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
+    builder.append("\n timedOutRequests               ").append(getTimedOutRequestCount());
+    builder.append("\n requestTime                    ").append(requestTimeHistogram);
+    builder.append("\n waitTime                       ").append(waitTimeHistogram);
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n statementCacheHits             ").append(getStatementCacheHitCount());
+    builder.append("\n statementCacheMisses           ").append(getStatementCacheMissCount());
+    builder.append("\n statementCacheEvictions        ").append(getStatementCacheEvictionCount());
     builder.append("\n===============================================================");
     return builder.toString();
   }
@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Thrown when no connection could be checked out within <code>poolConnectionTimeout</code>.
+ *
+ * @since 3.5.4
+ */
+public class PoolTimeoutException extends SQLTransientConnectionException {
+
+  private static final long serialVersionUID = 5270404468385186375L;
+
+  public PoolTimeoutException(String reason) {
+    super(reason);
+  }
+
+}
@@ -29,6 +29,8 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close"; //调用的是否为close关闭连接对象方法
+  private static final String UNWRAP = "unwrap";
+  private static final String IS_WRAPPER_FOR = "isWrapperFor";
   private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
 
   private final int hashCode; //连接的hash码
@@ -40,6 +42,8 @@ class PooledConnection implements InvocationHandler {
   private long lastUsedTimestamp; //连接对象最后一次使用的时间戳
   private int connectionTypeCode; //基于数据库URL、用户名、密码生成的连接类型code
   private boolean valid; //连接对象是否有效
+  private final PooledStatementCache statementCache; //真实连接上的语句缓存，未启用时为null
+  private PoolEntry poolEntry; //ConcurrentPooledDataSource 中检出该连接的条目
 
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -53,6 +57,18 @@ class PooledConnection implements InvocationHandler {
    * @param dataSource
    */
   public PooledConnection(Connection connection, PooledDataSource dataSource) {
+    this(connection, dataSource, dataSource.newStatementCache());
+  }
+
+  /**
+   * Wraps a real connection whose statement cache is carried over from a previous checkout.
+   *
+   * @param connection - the connection that is to be presented as a pooled connection
+   * @param dataSource - the dataSource that the connection is from
+   * @param statementCache - the statement cache of the real connection, or null if statements are not cached
+   */
+  PooledConnection(Connection connection, PooledDataSource dataSource, PooledStatementCache statementCache) {
+    this.statementCache = statementCache;
     this.hashCode = connection.hashCode();
     this.realConnection = connection;
     this.dataSource = dataSource;
@@ -88,6 +104,28 @@ class PooledConnection implements InvocationHandler {
     return realConnection;
   }
 
+  /**
+   * Getter for the statement cache of the real connection.
+   *
+   * @return The statement cache, or null if statements are not cached
+   */
+  PooledStatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /**
+   * Getter for the entry of {@link ConcurrentPooledDataSource} this connection was checked out from.
+   *
+   * @return The entry, or null if the connection does not come from a concurrent pool
+   */
+  PoolEntry getPoolEntry() {
+    return poolEntry;
+  }
+
+  void setPoolEntry(PoolEntry poolEntry) {
+    this.poolEntry = poolEntry;
+  }
+
   /**
    * Getter for the proxy for the connection.
    *
@@ -242,6 +280,15 @@ class PooledConnection implements InvocationHandler {
       dataSource.pushConnection(this);
       return null;
     }
+    if (statementCache != null && args != null && args[0] == PooledStatementCache.class) {
+      // 语句缓存由连接池维护，不交给真实连接处理
+      if (IS_WRAPPER_FOR.equals(methodName)) {
+        return true;
+      } else if (UNWRAP.equals(methodName)) {
+        checkConnection();
+        return statementCache;
+      }
+    }
     try {
       if (!Object.class.equals(method.getDeclaringClass())) {
         // issue #579 toString() should never fail
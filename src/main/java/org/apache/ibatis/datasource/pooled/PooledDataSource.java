@@ -30,6 +30,7 @@ import javax.sql.DataSource;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.metrics.MetricsCollector;
 
 /**
  * This is a simple, synchronous, thread-safe database connection pool.
@@ -42,7 +43,7 @@ public class PooledDataSource implements DataSource {
 
   private final PoolState state = new PoolState(this); //数据源状态维护
 
-  private final UnpooledDataSource dataSource; //通过UnpooledDataSource获取真正的连接，该对象在构造方法中进行实例化
+  protected final UnpooledDataSource dataSource; //通过UnpooledDataSource获取真正的连接，该对象在构造方法中进行实例化
 
   // OPTIONAL CONFIGURATION FIELDS
   protected int poolMaximumActiveConnections = 10;//最大活跃数
@@ -53,8 +54,20 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET"; //ping 语句
   protected boolean poolPingEnabled; //是否允许发送检查sql语句
   protected int poolPingConnectionsNotUsedFor; //连接超时的阈值，超过该阈值会发送一次连接测试sql，检查连接是否可用
+  protected int poolMinimumIdleConnections; //后台维护的最小空闲连接数
+  protected int poolMaximumLifetime; //连接的最大存活时间，0表示不限制
+  protected int poolMaximumIdleTime; //空闲连接的最大空闲时间，0表示不限制
+  protected int poolHousekeepingInterval; //后台维护线程的执行间隔，0表示不启用
+  protected int poolValidationTimeout = 5; //后台校验连接时Connection.isValid的超时时间(秒)
+  protected boolean poolFairWaiting; //是否按先来先得的顺序分配连接给等待线程
+  protected int poolConnectionTimeout; //获取连接的最长总等待时间，0表示不限制
+  protected int poolStatementCacheSize; //每个物理连接缓存的预编译语句数，0表示不缓存
 
-  private int expectedConnectionTypeCode; //期望数据源连接码：url+username+password 进行hash计算获取
+  private volatile PoolHousekeeper housekeeper; //后台维护线程
+  private int validatingConnectionCount; //维护线程正在校验的空闲连接数，计入连接数上限，由state加锁保护
+  private volatile MetricsCollector metricsCollector; //连接检出耗时的统计收集器，为null时不统计
+
+  protected int expectedConnectionTypeCode; //期望数据源连接码：url+username+password 进行hash计算获取
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -86,12 +99,25 @@ public class PooledDataSource implements DataSource {
 
   @Override
   public Connection getConnection() throws SQLException {
-    return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+    startHousekeeperIfNecessary();
+    return checkout(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
   }
 
   @Override
   public Connection getConnection(String username, String password) throws SQLException {
-    return popConnection(username, password).getProxyConnection();
+    startHousekeeperIfNecessary();
+    return checkout(username, password).getProxyConnection();
+  }
+
+  private PooledConnection checkout(String username, String password) throws SQLException {
+    final MetricsCollector collector = metricsCollector;
+    if (collector == null) {
+      return popConnection(username, password);
+    }
+    final long start = System.nanoTime();
+    PooledConnection conn = popConnection(username, password);
+    collector.recordConnectionCheckout(System.nanoTime() - start);
+    return conn;
   }
 
   @Override
@@ -247,6 +273,114 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The number of idle connections the housekeeper keeps in the pool.
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   * @since 3.5.4
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+    forceCloseAll();
+  }
+
+  /**
+   * The maximum time a connection may live. Older connections are closed when they are returned
+   * or by the housekeeper, 0 means no limit.
+   *
+   * @param milliseconds the maximum lifetime
+   * @since 3.5.4
+   */
+  public void setPoolMaximumLifetime(int milliseconds) {
+    this.poolMaximumLifetime = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The maximum time a connection may stay idle before the housekeeper closes it, as long as
+   * more than <code>poolMinimumIdleConnections</code> are idle. 0 means no limit.
+   *
+   * @param milliseconds the maximum idle time
+   * @since 3.5.4
+   */
+  public void setPoolMaximumIdleTime(int milliseconds) {
+    this.poolMaximumIdleTime = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * How often the housekeeper runs, 0 disables it. While it runs, idle connections are validated
+   * in the background with {@link Connection#isValid(int)} if <code>poolPingEnabled</code> is set, and the ping
+   * query is no longer sent on checkout.
+   *
+   * @param milliseconds the interval between two runs
+   * @since 3.5.4
+   */
+  public void setPoolHousekeepingInterval(int milliseconds) {
+    this.poolHousekeepingInterval = milliseconds;
+    stopHousekeeper();
+    forceCloseAll();
+  }
+
+  /**
+   * The timeout passed to {@link Connection#isValid(int)} by the housekeeper.
+   *
+   * @param seconds the validation timeout
+   * @since 3.5.4
+   */
+  public void setPoolValidationTimeout(int seconds) {
+    this.poolValidationTimeout = seconds;
+    forceCloseAll();
+  }
+
+  /**
+   * Hands connections to waiting threads in the order they started waiting, and keeps newly arriving
+   * threads from taking a connection while others are waiting. {@link ConcurrentPooledDataSource} always hands
+   * returned connections to waiting threads in that order and ignores this setting.
+   *
+   * @param poolFairWaiting True to serve waiting threads first-in first-out
+   * @since 3.5.4
+   */
+  public void setPoolFairWaiting(boolean poolFairWaiting) {
+    this.poolFairWaiting = poolFairWaiting;
+    forceCloseAll();
+  }
+
+  /**
+   * The maximum total time to wait for a connection before a {@link PoolTimeoutException} is thrown.
+   * 0 means wait forever, retrying every <code>poolTimeToWait</code> milliseconds.
+   *
+   * @param milliseconds the maximum time to wait
+   * @since 3.5.4
+   */
+  public void setPoolConnectionTimeout(int milliseconds) {
+    this.poolConnectionTimeout = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The number of prepared statements each physical connection keeps for {@link org.apache.ibatis.executor.ReuseExecutor}
+   * across checkouts. The least recently used statement is closed when the limit is exceeded. 0 disables the cache.
+   *
+   * @param poolStatementCacheSize the maximum number of statements per connection
+   * @since 3.5.4
+   * @see PooledStatementCache
+   */
+  public void setPoolStatementCacheSize(int poolStatementCacheSize) {
+    this.poolStatementCacheSize = poolStatementCacheSize;
+    forceCloseAll();
+  }
+
+  /**
+   * Sets the collector that receives connection checkout latencies. <code>null</code> disables recording.
+   *
+   * @param metricsCollector the metrics collector
+   * @since 3.5.4
+   */
+  public void setMetricsCollector(MetricsCollector metricsCollector) {
+    this.metricsCollector = metricsCollector;
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -314,6 +448,42 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  public int getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
+  public int getPoolMaximumIdleTime() {
+    return poolMaximumIdleTime;
+  }
+
+  public int getPoolHousekeepingInterval() {
+    return poolHousekeepingInterval;
+  }
+
+  public int getPoolValidationTimeout() {
+    return poolValidationTimeout;
+  }
+
+  public boolean isPoolFairWaiting() {
+    return poolFairWaiting;
+  }
+
+  public int getPoolStatementCacheSize() {
+    return poolStatementCacheSize;
+  }
+
+  public int getPoolConnectionTimeout() {
+    return poolConnectionTimeout;
+  }
+
+  public MetricsCollector getMetricsCollector() {
+    return metricsCollector;
+  }
+
   /**
    * Closes all active and idle connections in the pool.
    */
@@ -358,7 +528,16 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
-  private int assembleConnectionTypeCode(String url, String username, String password) {
+  /**
+   * Creates the statement cache for a new physical connection.
+   *
+   * @return the statement cache, or null if statements are not cached
+   */
+  PooledStatementCache newStatementCache() {
+    return poolStatementCacheSize > 0 ? new PooledStatementCache(poolStatementCacheSize, getPoolState()) : null;
+  }
+
+  protected int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
@@ -369,7 +548,8 @@ public class PooledDataSource implements DataSource {
       // 判断连接有效性
       if (conn.isValid()) {
         // 判断空闲列表是否小于最大值并且是否为同一个数据源
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isExpired(conn.getCreatedTimestamp())) {
           // 加总连接获取时间
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
           // 若非自动提交，则回滚
@@ -377,7 +557,7 @@ public class PooledDataSource implements DataSource {
             conn.getRealConnection().rollback();
           }
           // 充值真实连接的相关属性，并添加到空闲列表中
-          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this, conn.getStatementCache());
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
@@ -402,6 +582,8 @@ public class PooledDataSource implements DataSource {
           }
           // 将连接置为无效
           conn.invalidate();
+          // 活跃连接减少，等待线程可以创建新连接
+          state.notifyAll();
         }
       } else {
         if (log.isDebugEnabled()) {
@@ -413,114 +595,160 @@ public class PooledDataSource implements DataSource {
   }
 
   /** 从连接池获取连接对象 */
-  private PooledConnection popConnection(String username, String password) throws SQLException {
+  protected PooledConnection popConnection(String username, String password) throws SQLException {
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
+    long waitStart = 0;
+    long deadline = poolConnectionTimeout > 0 ? t + poolConnectionTimeout : Long.MAX_VALUE;
+    // 公平模式下用于在等待队列中排队的凭证
+    Object ticket = poolFairWaiting ? new Object() : null;
+    boolean queued = false;
     int localBadConnectionCount = 0;
 
-    while (conn == null) {
-      synchronized (state) {
-        if (!state.idleConnections.isEmpty()) {
-          // Pool has available connection
-          conn = state.idleConnections.remove(0);
-          if (log.isDebugEnabled()) {
-            log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
-          }
-        } else {
-          // Pool does not have available connection
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
-            // Can create new connection
-            conn = new PooledConnection(dataSource.getConnection(), this);
+    try {
+      while (conn == null) {
+        synchronized (state) {
+          // In fair mode, threads that are already waiting are served first
+          boolean mustWait = queued ? state.waitQueue.peekFirst() != ticket : poolFairWaiting && !state.waitQueue.isEmpty();
+          if (!mustWait && !state.idleConnections.isEmpty()) {
+            // Pool has available connection
+            conn = state.idleConnections.remove(0);
             if (log.isDebugEnabled()) {
-              log.debug("Created connection " + conn.getRealHashCode() + ".");
+              log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
             }
-          } else {
-            // Cannot create new connection
-            // 获取最早的一个活跃连接数
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
-              // Can claim overdue connection
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
-              state.activeConnections.remove(oldestActiveConnection);
-              if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
-                try {
-                  oldestActiveConnection.getRealConnection().rollback();
-                } catch (SQLException e) {
-                  /*
-                     Just log a message for debug and continue to execute the following
-                     statement like nothing happened.
-                     Wrap the bad connection with a new PooledConnection, this will help
-                     to not interrupt current executing thread and give current thread a
-                     chance to join the next competition for another valid/good database
-                     connection. At the end of this loop, bad {@link @conn} will be set as null.
-                   */
-                  log.debug("Bad connection. Could not roll back");
-                }
-              }
-              //重置最早连接对象的相关信息，并设置相关属性
-              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
-              conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
-              conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
-              oldestActiveConnection.invalidate();
+          } else if (!mustWait) {
+            // Pool does not have available connection
+            if (state.activeConnections.size() + validatingConnectionCount < poolMaximumActiveConnections) {
+              // Can create new connection
+              conn = new PooledConnection(dataSource.getConnection(), this);
               if (log.isDebugEnabled()) {
-                log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+                log.debug("Created connection " + conn.getRealHashCode() + ".");
               }
+            } else if (state.activeConnections.isEmpty()) {
+              // 其余连接都在被维护线程校验，等待其归还
+              mustWait = true;
             } else {
-              // Must wait
-              try {
-                if (!countedWait) {
-                  state.hadToWaitCount++;
-                  countedWait = true;
+              // Cannot create new connection
+              // 获取最早的一个活跃连接数
+              PooledConnection oldestActiveConnection = state.activeConnections.get(0);
+              long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+              if (longestCheckoutTime > poolMaximumCheckoutTime) {
+                // Can claim overdue connection
+                state.claimedOverdueConnectionCount++;
+                state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
+                state.accumulatedCheckoutTime += longestCheckoutTime;
+                state.activeConnections.remove(oldestActiveConnection);
+                if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
+                  try {
+                    oldestActiveConnection.getRealConnection().rollback();
+                  } catch (SQLException e) {
+                    /*
+                       Just log a message for debug and continue to execute the following
+                       statement like nothing happened.
+                       Wrap the bad connection with a new PooledConnection, this will help
+                       to not interrupt current executing thread and give current thread a
+                       chance to join the next competition for another valid/good database
+                       connection. At the end of this loop, bad {@link @conn} will be set as null.
+                     */
+                    log.debug("Bad connection. Could not roll back");
+                  }
                 }
+                //重置最早连接对象的相关信息，并设置相关属性
+                if (oldestActiveConnection.getStatementCache() != null) {
+                  // 原会话仍持有旧缓存，使其失效，新的代理连接使用新缓存
+                  oldestActiveConnection.getStatementCache().invalidate();
+                }
+                conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+                conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
+                conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+                oldestActiveConnection.invalidate();
                 if (log.isDebugEnabled()) {
-                  log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+                  log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
                 }
-                long wt = System.currentTimeMillis();
-                //设置组着等待，等待时长为poolTimeToWait
-                state.wait(poolTimeToWait);
-                // 设置总的等待时间
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
-              } catch (InterruptedException e) {
-                break;
+              } else {
+                mustWait = true;
               }
             }
           }
-        }
-        if (conn != null) {
-          // ping to server and check the connection is valid or not
-          // 通过ping验证连接的有效性，若有效则将该连接对象添加到活跃列表中，并将连接请求数+1，加总连接请求时间等。
-          if (conn.isValid()) {
-            if (!conn.getRealConnection().getAutoCommit()) {
-              conn.getRealConnection().rollback();
+          if (mustWait) {
+            // Must wait
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+              state.timedOutRequestCount++;
+              state.waitTimeHistogram.record(countedWait ? System.currentTimeMillis() - waitStart : 0);
+              throw new PoolTimeoutException("PooledDataSource: Could not get a connection within " + poolConnectionTimeout + " milliseconds.");
             }
-            conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
-            conn.setCheckoutTimestamp(System.currentTimeMillis());
-            conn.setLastUsedTimestamp(System.currentTimeMillis());
-            state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
-          } else {
-            if (log.isDebugEnabled()) {
-              log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+            if (poolFairWaiting && !queued) {
+              state.waitQueue.addLast(ticket);
+              queued = true;
+            }
+            try {
+              if (!countedWait) {
+                state.hadToWaitCount++;
+                countedWait = true;
+                waitStart = System.currentTimeMillis();
+              }
+              long timeToWait = poolTimeToWait;
+              if (deadline != Long.MAX_VALUE && (timeToWait <= 0 || timeToWait > remaining)) {
+                timeToWait = remaining;
+              }
+              if (log.isDebugEnabled()) {
+                log.debug("Waiting as long as " + timeToWait + " milliseconds for connection.");
+              }
+              long wt = System.currentTimeMillis();
+              //设置组着等待，等待时长为poolTimeToWait(不超过剩余的poolConnectionTimeout)
+              state.wait(timeToWait);
+              // 设置总的等待时间
+              state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+            } catch (InterruptedException e) {
+              break;
             }
-            //无效连接数+1
-            state.badConnectionCount++;
-            localBadConnectionCount++;
-            conn = null;
-            if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+          }
+          if (conn != null) {
+            // ping to server and check the connection is valid or not
+            // 通过ping验证连接的有效性，若有效则将该连接对象添加到活跃列表中，并将连接请求数+1，加总连接请求时间等。
+            if (conn.isValid()) {
+              if (!conn.getRealConnection().getAutoCommit()) {
+                conn.getRealConnection().rollback();
+              }
+              conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+              conn.setCheckoutTimestamp(System.currentTimeMillis());
+              conn.setLastUsedTimestamp(System.currentTimeMillis());
+              state.activeConnections.add(conn);
+              state.requestCount++;
+              state.accumulatedRequestTime += System.currentTimeMillis() - t;
+              state.requestTimeHistogram.record(System.currentTimeMillis() - t);
+              if (countedWait) {
+                state.waitTimeHistogram.record(System.currentTimeMillis() - waitStart);
+              }
+            } else {
               if (log.isDebugEnabled()) {
-                log.debug("PooledDataSource: Could not get a good connection to the database.");
+                log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+              }
+              //无效连接数+1
+              state.badConnectionCount++;
+              localBadConnectionCount++;
+              conn = null;
+              if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+                if (log.isDebugEnabled()) {
+                  log.debug("PooledDataSource: Could not get a good connection to the database.");
+                }
+                throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
               }
-              throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
             }
           }
         }
-      }
 
+      }
+    } finally {
+      if (queued) {
+        synchronized (state) {
+          // 离开等待队列，唤醒下一个排队线程
+          state.waitQueue.remove(ticket);
+          state.notifyAll();
+        }
+      }
     }
 
     if (conn == null) {
@@ -554,7 +782,8 @@ public class PooledDataSource implements DataSource {
     }
 
     if (result) {
-      if (poolPingEnabled) {
+      // 后台维护线程开启时由其负责校验，检出时不再发送ping语句
+      if (poolPingEnabled && !isHousekeepingEnabled()) {
         // 当连接超时阈值大于0，且上次执行的时间大于
         if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
           try {
@@ -606,8 +835,157 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /**
+   * Retires idle connections that exceeded <code>poolMaximumLifetime</code> or <code>poolMaximumIdleTime</code>,
+   * validates the remaining idle connections and tops the pool up to <code>poolMinimumIdleConnections</code>.
+   * Runs on the housekeeper thread.
+   *
+   * @since 3.5.4
+   */
+  protected void housekeep() {
+    int candidates;
+    synchronized (state) {
+      candidates = state.idleConnections.size();
+    }
+    for (int i = 0; i < candidates; i++) {
+      PooledConnection conn;
+      synchronized (state) {
+        if (state.idleConnections.isEmpty()) {
+          break;
+        }
+        // 取出最久未使用的空闲连接，校验期间其他线程无法检出，但仍计入连接数上限
+        conn = state.idleConnections.remove(0);
+        validatingConnectionCount++;
+      }
+      boolean keep = false;
+      try {
+        keep = !isExpired(conn.getCreatedTimestamp())
+            && !(poolMaximumIdleTime > 0 && conn.getTimeElapsedSinceLastUse() > poolMaximumIdleTime
+                && state.getIdleConnectionCount() >= poolMinimumIdleConnections)
+            && validateIdleConnection(conn.getRealConnection(), conn.getTimeElapsedSinceLastUse());
+      } finally {
+        synchronized (state) {
+          validatingConnectionCount--;
+          keep = keep && state.idleConnections.size() < poolMaximumIdleConnections;
+          if (keep) {
+            state.idleConnections.add(conn);
+          }
+          // 无论放回还是关闭，等待的线程都可以继续
+          state.notifyAll();
+        }
+      }
+      if (keep) {
+        continue;
+      }
+      conn.invalidate();
+      closeRealConnection(conn.getRealConnection());
+      if (log.isDebugEnabled()) {
+        log.debug("Housekeeper closed connection " + conn.getRealHashCode() + ".");
+      }
+    }
+    fillPool();
+  }
+
+  /**
+   * Opens connections until <code>poolMinimumIdleConnections</code> connections are idle.
+   */
+  private void fillPool() {
+    int minimumIdle = Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+    while (true) {
+      synchronized (state) {
+        if (state.idleConnections.size() >= minimumIdle
+            || state.idleConnections.size() + state.activeConnections.size() >= poolMaximumActiveConnections) {
+          return;
+        }
+      }
+      Connection realConnection;
+      try {
+        realConnection = dataSource.getConnection();
+      } catch (SQLException e) {
+        log.warn("Housekeeper could not open a connection: " + e.getMessage());
+        return;
+      }
+      synchronized (state) {
+        if (state.idleConnections.size() < minimumIdle
+            && state.idleConnections.size() + state.activeConnections.size() < poolMaximumActiveConnections) {
+          PooledConnection conn = new PooledConnection(realConnection, this);
+          state.idleConnections.add(conn);
+          state.notifyAll();
+          if (log.isDebugEnabled()) {
+            log.debug("Housekeeper created connection " + conn.getRealHashCode() + ".");
+          }
+          continue;
+        }
+      }
+      closeRealConnection(realConnection);
+      return;
+    }
+  }
+
+  /**
+   * Checks that an idle connection is not closed and, if <code>poolPingEnabled</code> is set, checks it with
+   * {@link Connection#isValid(int)} if it has not been used for <code>poolPingConnectionsNotUsedFor</code> milliseconds.
+   *
+   * @param realConnection the connection to check
+   * @param idleTime the time elapsed since the connection was last used
+   * @return True if the connection is still usable
+   */
+  protected boolean validateIdleConnection(Connection realConnection, long idleTime) {
+    try {
+      if (realConnection.isClosed()) {
+        return false;
+      }
+      if (!poolPingEnabled || idleTime < poolPingConnectionsNotUsedFor) {
+        return true;
+      }
+      return realConnection.isValid(poolValidationTimeout);
+    } catch (SQLException | AbstractMethodError e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realConnection.hashCode() + " is BAD: " + e.getMessage());
+      }
+      return false;
+    }
+  }
+
+  protected boolean isExpired(long createdTimestamp) {
+    return poolMaximumLifetime > 0 && System.currentTimeMillis() - createdTimestamp > poolMaximumLifetime;
+  }
+
+  protected boolean isHousekeepingEnabled() {
+    return poolHousekeepingInterval > 0;
+  }
+
+  protected void closeRealConnection(Connection realConn) {
+    try {
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private void startHousekeeperIfNecessary() {
+    if (isHousekeepingEnabled() && housekeeper == null) {
+      synchronized (this) {
+        if (housekeeper == null) {
+          housekeeper = PoolHousekeeper.start(this, poolHousekeepingInterval);
+        }
+      }
+    }
+  }
+
+  private synchronized void stopHousekeeper() {
+    if (housekeeper != null) {
+      housekeeper.stop();
+      housekeeper = null;
+    }
+  }
+
   @Override
   protected void finalize() throws Throwable {
+    stopHousekeeper();
     forceCloseAll();
     super.finalize();
   }
@@ -0,0 +1,222 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A least recently used cache of the statements prepared on one physical connection of a {@link PooledDataSource}.
+ * <p>
+ * The cache belongs to the real connection, not to the proxy handed out on each checkout, so statements prepared by
+ * one {@link org.apache.ibatis.session.SqlSession} are reused by the next session that gets the same connection, also
+ * after commits. It is enabled with the <code>poolStatementCacheSize</code> property and obtained from a pooled
+ * connection with <code>connection.unwrap(PooledStatementCache.class)</code>;
+ * {@link org.apache.ibatis.executor.ReuseExecutor} does that automatically. Statements pushed out of the cache are
+ * closed. A statement is handed out with the fetch size it had when it was cached, so a fetch size changed while
+ * reading its results does not carry over to the next use.
+ * <p>
+ * When an overdue connection is reclaimed the cache is invalidated and the connection gets a new one, so a session that
+ * still holds the old cache can neither use nor add statements of the connection.
+ * <p>
+ * A connection is used by one thread at a time, the methods are synchronized only so that statistics can be read from
+ * other threads.
+ *
+ * @since 3.5.4
+ */
+public class PooledStatementCache {
+
+  private static final Log log = LogFactory.getLog(PooledStatementCache.class);
+
+  private final int maximumSize; //缓存的最大语句数
+  private final PoolState poolState; //汇总统计所在的连接池状态
+  private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true); //按访问顺序排列的语句
+  private boolean invalid; //连接被回收后置为true，不再提供或缓存语句
+  private long hitCount; //命中次数
+  private long missCount; //未命中次数
+  private long evictionCount; //淘汰次数
+
+  PooledStatementCache(int maximumSize, PoolState poolState) {
+    this.maximumSize = maximumSize;
+    this.poolState = poolState;
+  }
+
+  /**
+   * Returns the statement prepared for the SQL, or <code>null</code> if there is none.
+   *
+   * @param sql the SQL the statement was prepared for
+   * @return the statement or <code>null</code>
+   */
+  public synchronized Statement get(String sql) {
+    if (invalid) {
+      return null;
+    }
+    CachedStatement cached = statements.get(sql);
+    if (cached != null && !cached.resetFetchSize()) {
+      statements.remove(sql);
+      close(cached.statement);
+      cached = null;
+    }
+    if (cached == null) {
+      missCount++;
+      poolState.statementCacheMissCounter.increment();
+      return null;
+    }
+    hitCount++;
+    poolState.statementCacheHitCounter.increment();
+    return cached.statement;
+  }
+
+  /**
+   * Caches a statement, closing the least recently used statement if the cache is full.
+   *
+   * @param sql the SQL the statement was prepared for
+   * @param statement the statement
+   */
+  public synchronized void put(String sql, Statement statement) {
+    if (invalid) {
+      return;
+    }
+    CachedStatement previous = statements.put(sql, new CachedStatement(statement));
+    if (previous != null && previous.statement != statement) {
+      close(previous.statement);
+    }
+    if (statements.size() > maximumSize) {
+      Iterator<Map.Entry<String, CachedStatement>> iterator = statements.entrySet().iterator();
+      Statement eldest = iterator.next().getValue().statement;
+      iterator.remove();
+      evictionCount++;
+      poolState.statementCacheEvictionCounter.increment();
+      close(eldest);
+    }
+  }
+
+  /**
+   * Removes and closes the statement prepared for the SQL, if any.
+   *
+   * @param sql the SQL the statement was prepared for
+   */
+  public synchronized void remove(String sql) {
+    CachedStatement cached = statements.remove(sql);
+    if (cached != null) {
+      close(cached.statement);
+    }
+  }
+
+  /**
+   * Closes and removes all statements.
+   */
+  public synchronized void clear() {
+    for (CachedStatement cached : statements.values()) {
+      close(cached.statement);
+    }
+    statements.clear();
+  }
+
+  /**
+   * Closes all statements and stops caching, for a connection that has been reclaimed from its session.
+   */
+  synchronized void invalidate() {
+    invalid = true;
+    clear();
+  }
+
+  public synchronized boolean isValid() {
+    return !invalid;
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public synchronized int size() {
+    return statements.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  private void close(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // 语句关闭失败不影响缓存的使用
+      if (log.isDebugEnabled()) {
+        log.debug("Error closing cached statement. Cause: " + e);
+      }
+    }
+  }
+
+  private static final class CachedStatement {
+
+    private final Statement statement;
+    private final int fetchSize; //缓存时的获取行数，自适应获取行数调整后需要恢复
+
+    CachedStatement(Statement statement) {
+      this.statement = statement;
+      this.fetchSize = readFetchSize(statement);
+    }
+
+    private static int readFetchSize(Statement statement) {
+      try {
+        return statement.getFetchSize();
+      } catch (SQLException e) {
+        return -1;
+      }
+    }
+
+    /**
+     * Restores the fetch size the statement had when it was cached.
+     *
+     * @return false if the statement can no longer be used
+     */
+    boolean resetFetchSize() {
+      try {
+        if (statement.isClosed()) {
+          return false;
+        }
+        if (fetchSize >= 0 && statement.getFetchSize() != fetchSize) {
+          statement.setFetchSize(fetchSize);
+        }
+        return true;
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "PooledStatementCache{size=" + statements.size() + ", maximumSize=" + maximumSize + ", hits=" + hitCount
+        + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+  }
+
+}
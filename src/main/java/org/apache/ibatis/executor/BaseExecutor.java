@@ -35,6 +35,8 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.metrics.MetricsCollector;
+import org.apache.ibatis.metrics.MetricsCollector.Phase;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
@@ -114,7 +116,14 @@ public abstract class BaseExecutor implements Executor {
       throw new ExecutorException("Executor was closed.");
     }
     clearLocalCache();
-    return doUpdate(ms, parameter);
+    final MetricsCollector metricsCollector = configuration.getMetricsCollector();
+    if (metricsCollector == null) {
+      return doUpdate(ms, parameter);
+    }
+    final long start = System.nanoTime();
+    int rows = doUpdate(ms, parameter);
+    metricsCollector.recordLatency(ms.getId(), Phase.UPDATE, System.nanoTime() - start);
+    return rows;
   }
 
   @Override
@@ -146,10 +155,15 @@ public abstract class BaseExecutor implements Executor {
     if (queryStack == 0 && ms.isFlushCacheRequired()) {
       clearLocalCache();
     }
+    final MetricsCollector metricsCollector = configuration.getMetricsCollector();
+    final long start = metricsCollector == null ? 0 : System.nanoTime();
     List<E> list;
     try {
       queryStack++;
       list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+      if (metricsCollector != null && resultHandler == null) {
+        metricsCollector.recordLocalCacheAccess(ms.getId(), list != null);
+      }
       if (list != null) {
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
       } else {
@@ -169,6 +183,9 @@ public abstract class BaseExecutor implements Executor {
         clearLocalCache();
       }
     }
+    if (metricsCollector != null) {
+      metricsCollector.recordLatency(ms.getId(), Phase.QUERY, System.nanoTime() - start);
+    }
     return list;
   }
 
@@ -196,7 +213,7 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
+    CacheKey cacheKey = configuration.newCacheKey();
     cacheKey.update(ms.getId());
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
@@ -120,33 +120,11 @@ public class BatchExecutor extends BaseExecutor {
         applyTransactionTimeout(stmt);
         BatchResult batchResult = batchResultList.get(i);
         try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
-          MappedStatement ms = batchResult.getMappedStatement();
-          List<Object> parameterObjects = batchResult.getParameterObjects();
-          KeyGenerator keyGenerator = ms.getKeyGenerator();
-          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
-            for (Object parameter : parameterObjects) {
-              keyGenerator.processAfter(this, ms, stmt, parameter);
-            }
-          }
+          executeBatch(stmt, batchResult);
           // Close statement to close cursor #1109
           closeStatement(stmt);
         } catch (BatchUpdateException e) {
-          StringBuilder message = new StringBuilder();
-          message.append(batchResult.getMappedStatement().getId())
-              .append(" (batch index #")
-              .append(i + 1)
-              .append(")")
-              .append(" failed.");
-          if (i > 0) {
-            message.append(" ")
-                .append(i)
-                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
-          }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
+          throw batchFailure(i, e, results, batchResult);
         }
         results.add(batchResult);
       }
@@ -161,4 +139,45 @@ public class BatchExecutor extends BaseExecutor {
     }
   }
 
+  /** 执行一个语句的批处理，并按主键生成器回填主键 */
+  protected void executeBatch(Statement stmt, BatchResult batchResult) throws SQLException {
+    batchResult.setUpdateCounts(stmt.executeBatch());
+    MappedStatement ms = batchResult.getMappedStatement();
+    List<Object> parameterObjects = batchResult.getParameterObjects();
+    if (ms.getInsertBatchSize() > 0) {
+      // 多行插入的每个参数是一组行，生成的主键按行依次返回
+      List<Object> rows = new ArrayList<>();
+      for (Object chunk : parameterObjects) {
+        rows.addAll((List<?>) chunk);
+      }
+      parameterObjects = rows;
+    }
+    KeyGenerator keyGenerator = ms.getKeyGenerator();
+    if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+      Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+      jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+    } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+      for (Object parameter : parameterObjects) {
+        keyGenerator.processAfter(this, ms, stmt, parameter);
+      }
+    }
+  }
+
+  /** 第index个批处理失败时的异常，results为之前已成功执行的批处理 */
+  protected BatchExecutorException batchFailure(int index, BatchUpdateException e, List<BatchResult> results,
+      BatchResult batchResult) {
+    StringBuilder message = new StringBuilder();
+    message.append(batchResult.getMappedStatement().getId())
+        .append(" (batch index #")
+        .append(index + 1)
+        .append(")")
+        .append(" failed.");
+    if (index > 0) {
+      message.append(" ")
+          .append(index)
+          .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+    }
+    return new BatchExecutorException(message.toString(), e, results, batchResult);
+  }
+
 }
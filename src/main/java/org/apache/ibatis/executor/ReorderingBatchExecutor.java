@@ -0,0 +1,301 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * A batch executor that keeps one JDBC batch open per distinct statement and SQL, so interleaved statements (for
+ * example inserts into <code>orders</code> and <code>order_lines</code>) are sent as one batch each instead of one
+ * batch per change of SQL.
+ * <p>
+ * Batches are executed in the order their first statement was added. If table ordering is on (the default), a
+ * statement is only added to an earlier batch if it may move past every batch opened after it, otherwise a new batch
+ * is opened. It may not move past a batch on the same table, so the statements of each table run in the order they
+ * were issued, nor past a batch on a table that is related to its own by a foreign key, as read from the
+ * {@link DatabaseMetaData} of the connection. The only exception is an insert into a table that is referenced by the
+ * table of a later batch of inserts: parent rows may be inserted before child rows that were issued earlier, but never
+ * the other way around. Statements whose table can not be read from the SQL, or whose foreign keys can not be read,
+ * never move past other batches. With table ordering off, every statement joins the batch of its SQL, which suits
+ * imports whose statements do not depend on each other.
+ * <p>
+ * When a batch reaches the configured number of rows, all pending batches are executed, which bounds the memory held
+ * by the driver. Their results are returned by the next {@link #flushStatements()}.
+ *
+ * @since 3.5.4
+ * @see org.apache.ibatis.session.ExecutorType#REORDERING_BATCH
+ */
+public class ReorderingBatchExecutor extends BatchExecutor {
+
+  private static final Pattern TABLE_PATTERN = Pattern.compile(
+      "^\\s*(?:insert\\s+into|update|delete\\s+from|merge\\s+into)\\s+([\\w.$\"`\\[\\]]+)",
+      Pattern.CASE_INSENSITIVE);
+
+  private final int batchSize;
+  private final boolean tableOrdering;
+  private final List<Batch> batches = new ArrayList<>();
+  private final Map<BatchKey, Batch> openBatches = new HashMap<>();
+  // 表名 -> 其外键引用的表名, null 表示无法读取
+  private final Map<String, Set<String>> referencedTables = new HashMap<>();
+  private final List<BatchResult> executedResults = new ArrayList<>();
+
+  public ReorderingBatchExecutor(Configuration configuration, Transaction transaction) {
+    this(configuration, transaction, configuration.getReorderingBatchSize(),
+        configuration.isReorderingBatchTableOrdering());
+  }
+
+  /**
+   * @param batchSize the number of rows of one batch that triggers the execution of all pending batches, 0 for no limit
+   * @param tableOrdering whether statements on the same table keep their order
+   */
+  public ReorderingBatchExecutor(Configuration configuration, Transaction transaction, int batchSize,
+      boolean tableOrdering) {
+    super(configuration, transaction);
+    this.batchSize = batchSize;
+    this.tableOrdering = tableOrdering;
+  }
+
+  @Override
+  public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
+    final Configuration configuration = ms.getConfiguration();
+    final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
+    final String sql = handler.getBoundSql().getSql();
+    final BatchKey key = new BatchKey(ms, sql);
+    Batch batch = openBatches.get(key);
+    if (batch == null || !canJoin(batch)) {
+      Connection connection = getConnection(ms.getStatementLog());
+      Statement stmt = handler.prepare(connection, transaction.getTimeout());
+      batch = new Batch(batches.size(), stmt, new BatchResult(ms, sql), tableOf(ms, sql), ms.getSqlCommandType());
+      batches.add(batch);
+      openBatches.put(key, batch);
+    } else {
+      applyTransactionTimeout(batch.statement);
+    }
+    handler.parameterize(batch.statement);
+    batch.result.addParameterObject(parameterObject);
+    handler.batch(batch.statement);
+    if (batchSize > 0 && ++batch.rows >= batchSize) {
+      // 达到行数上限时执行全部批处理, 而不只是这一个, 以保持批处理之间的顺序
+      executedResults.addAll(executeBatches());
+    }
+    return BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  /**
+   * Returns whether a statement can be added to a batch opened earlier, that is moved before all batches opened after
+   * it.
+   */
+  private boolean canJoin(Batch batch) {
+    if (!tableOrdering) {
+      return true;
+    }
+    for (int i = batch.index + 1, n = batches.size(); i < n; i++) {
+      if (!canOvertake(batch, batches.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean canOvertake(Batch batch, Batch later) {
+    if (batch.table == null || later.table == null || batch.table.equals(later.table)) {
+      return false;
+    }
+    Set<String> referenced = getReferencedTables(batch);
+    Set<String> referencedByLater = getReferencedTables(later);
+    if (referenced == null || referencedByLater == null || referenced.contains(simpleName(later.table))) {
+      return false;
+    }
+    if (referencedByLater.contains(simpleName(batch.table))) {
+      // 父表的插入可以提前到子表的插入之前
+      return batch.commandType == SqlCommandType.INSERT && later.commandType == SqlCommandType.INSERT;
+    }
+    return true;
+  }
+
+  private Set<String> getReferencedTables(Batch batch) {
+    if (referencedTables.containsKey(batch.table)) {
+      return referencedTables.get(batch.table);
+    }
+    Set<String> tables = null;
+    try {
+      DatabaseMetaData metaData = transaction.getConnection().getMetaData();
+      int dot = batch.tableName.lastIndexOf('.');
+      String schema = dot < 0 ? null : identifier(metaData, batch.tableName.substring(0, dot));
+      String name = identifier(metaData, batch.tableName.substring(dot + 1));
+      // 找不到表时外键未知, 而不是没有外键
+      boolean exists;
+      try (ResultSet rs = metaData.getTables(null, schema, name, null)) {
+        exists = rs.next();
+      }
+      if (exists) {
+        tables = new HashSet<>();
+        try (ResultSet rs = metaData.getImportedKeys(null, schema, name)) {
+          while (rs.next()) {
+            tables.add(rs.getString("PKTABLE_NAME").toUpperCase(Locale.ENGLISH));
+          }
+        }
+      }
+    } catch (SQLException | UnsupportedOperationException e) {
+      // 无法读取外键时不移动该表的语句
+      tables = null;
+    }
+    referencedTables.put(batch.table, tables);
+    return tables;
+  }
+
+  private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+    if (metaData.storesUpperCaseIdentifiers()) {
+      return name.toUpperCase(Locale.ENGLISH);
+    }
+    return metaData.storesLowerCaseIdentifiers() ? name.toLowerCase(Locale.ENGLISH) : name;
+  }
+
+  private static String simpleName(String table) {
+    return table.substring(table.lastIndexOf('.') + 1);
+  }
+
+  private String tableOf(MappedStatement ms, String sql) {
+    if (!tableOrdering || ms.getStatementType() == StatementType.CALLABLE) {
+      return null;
+    }
+    Matcher matcher = TABLE_PATTERN.matcher(sql);
+    if (!matcher.find()) {
+      return null;
+    }
+    // 去掉引号
+    return matcher.group(1).replaceAll("[\"`\\[\\]]", "");
+  }
+
+  @Override
+  public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+    if (isRollback) {
+      closeBatches();
+      executedResults.clear();
+      return Collections.emptyList();
+    }
+    List<BatchResult> results = executeBatches();
+    if (executedResults.isEmpty()) {
+      return results;
+    }
+    List<BatchResult> allResults = new ArrayList<>(executedResults);
+    allResults.addAll(results);
+    executedResults.clear();
+    return allResults;
+  }
+
+  private List<BatchResult> executeBatches() throws SQLException {
+    try {
+      List<BatchResult> results = new ArrayList<>();
+      for (Batch batch : batches) {
+        applyTransactionTimeout(batch.statement);
+        try {
+          executeBatch(batch.statement, batch.result);
+          // Close statement to close cursor #1109
+          closeStatement(batch.statement);
+        } catch (BatchUpdateException e) {
+          List<BatchResult> completed = new ArrayList<>(executedResults);
+          completed.addAll(results);
+          executedResults.clear();
+          throw batchFailure(completed.size(), e, completed, batch.result);
+        }
+        results.add(batch.result);
+      }
+      return results;
+    } finally {
+      closeBatches();
+    }
+  }
+
+  private void closeBatches() {
+    for (Batch batch : batches) {
+      closeStatement(batch.statement);
+    }
+    batches.clear();
+    openBatches.clear();
+  }
+
+  private static final class Batch {
+    private final int index;
+    private final Statement statement;
+    private final BatchResult result;
+    private final String tableName;
+    // 统一大小写后的表名, 作为表的标识
+    private final String table;
+    private final SqlCommandType commandType;
+    private int rows;
+
+    Batch(int index, Statement statement, BatchResult result, String tableName, SqlCommandType commandType) {
+      this.index = index;
+      this.statement = statement;
+      this.result = result;
+      this.tableName = tableName;
+      this.table = tableName == null ? null : tableName.toUpperCase(Locale.ENGLISH);
+      this.commandType = commandType;
+    }
+  }
+
+  private static final class BatchKey {
+    private final MappedStatement mappedStatement;
+    private final String sql;
+
+    BatchKey(MappedStatement mappedStatement, String sql) {
+      this.mappedStatement = mappedStatement;
+      this.sql = sql;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof BatchKey)) {
+        return false;
+      }
+      BatchKey other = (BatchKey) o;
+      return mappedStatement.equals(other.mappedStatement) && sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * mappedStatement.hashCode() + sql.hashCode();
+    }
+  }
+
+}
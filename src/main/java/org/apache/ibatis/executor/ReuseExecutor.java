@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.pooled.PooledStatementCache;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
@@ -34,11 +35,19 @@ import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
 
 /**
+ * An executor that reuses prepared statements by SQL.
+ * <p>
+ * If the connection comes from a pooled data source with a <code>poolStatementCacheSize</code>, statements are kept in
+ * the {@link PooledStatementCache} of the physical connection and survive commits and the end of the session.
+ * Otherwise they are kept until the statements are flushed.
+ *
  * @author Clinton Begin
  */
 public class ReuseExecutor extends BaseExecutor {
 
   private final Map<String, Statement> statementMap = new HashMap<>();
+  private PooledStatementCache pooledStatementCache; //连接池物理连接上的语句缓存，为null时使用statementMap
+  private boolean pooledStatementCacheResolved;
 
   public ReuseExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
@@ -70,6 +79,7 @@ public class ReuseExecutor extends BaseExecutor {
 
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) {
+    // 连接池缓存的语句在提交后仍然可用，不需要关闭
     for (Statement stmt : statementMap.values()) {
       closeStatement(stmt);
     }
@@ -81,7 +91,17 @@ public class ReuseExecutor extends BaseExecutor {
     Statement stmt;
     BoundSql boundSql = handler.getBoundSql();
     String sql = boundSql.getSql();
-    if (hasStatementFor(sql)) {
+    PooledStatementCache cache = getPooledStatementCache();
+    if (cache != null) {
+      stmt = cache.get(sql);
+      if (stmt != null) {
+        applyTransactionTimeout(stmt);
+      } else {
+        Connection connection = getConnection(statementLog);
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        cache.put(sql, stmt);
+      }
+    } else if (hasStatementFor(sql)) {
       stmt = getStatement(sql);
       applyTransactionTimeout(stmt);
     } else {
@@ -93,6 +113,21 @@ public class ReuseExecutor extends BaseExecutor {
     return stmt;
   }
 
+  private PooledStatementCache getPooledStatementCache() throws SQLException {
+    if (!pooledStatementCacheResolved) {
+      Connection connection = transaction.getConnection();
+      try {
+        if (connection.isWrapperFor(PooledStatementCache.class)) {
+          pooledStatementCache = connection.unwrap(PooledStatementCache.class);
+        }
+      } catch (SQLException | AbstractMethodError e) {
+        // 驱动不支持 JDBC 4 的 unwrap，不使用连接池的语句缓存
+      }
+      pooledStatementCacheResolved = true;
+    }
+    return pooledStatementCache;
+  }
+
   private boolean hasStatementFor(String sql) {
     try {
       return statementMap.keySet().contains(sql) && !statementMap.get(sql).getConnection().isClosed();
@@ -53,6 +53,10 @@ public class ResultLoader {
   protected boolean loaded;
   protected Object resultObject;
 
+  // 所属的批量加载，以及同批其他属性触发加载时一并取回的结果
+  ResultLoaderBatch batch;
+  List<Object> batchResult;
+
   public ResultLoader(Configuration config, Executor executor, MappedStatement mappedStatement, Object parameterObject, Class<?> targetType, CacheKey cacheKey, BoundSql boundSql) {
     this.configuration = config;
     this.executor = executor;
@@ -67,18 +71,33 @@ public class ResultLoader {
   }
 
   public Object loadResult() throws SQLException {
-    List<Object> list = selectList();
+    List<Object> list = batch == null ? selectList() : batch.load(this);
     resultObject = resultExtractor.extractObjectFromList(list, targetType);
     return resultObject;
   }
 
-  private <E> List<E> selectList() throws SQLException {
+  <E> List<E> selectList() throws SQLException {
+    return selectList(parameterObject, cacheKey, boundSql);
+  }
+
+  /**
+   * Runs the nested statement with the given parameter and sql, on the executor of this loader if it is still usable.
+   *
+   * @param parameter the parameter object
+   * @param key the cache key, null to create one for the given bound sql
+   * @param boundSql the bound sql
+   * @return the rows
+   * @throws SQLException if the query fails
+   */
+  <E> List<E> selectList(Object parameter, CacheKey key, BoundSql boundSql) throws SQLException {
     Executor localExecutor = executor;
     if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
       localExecutor = newExecutor();
     }
     try {
-      return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
+      final CacheKey queryKey = key == null && boundSql != null
+          ? localExecutor.createCacheKey(mappedStatement, parameter, RowBounds.DEFAULT, boundSql) : key;
+      return localExecutor.query(mappedStatement, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, queryKey, boundSql);
     } finally {
       if (localExecutor != executor) {
         localExecutor.close(false);
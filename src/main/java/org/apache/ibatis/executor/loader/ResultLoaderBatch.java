@@ -0,0 +1,315 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Loads the pending lazy loads of a nested select that were created by the same query with a single query.
+ * <p>
+ * When the first of them is loaded, up to <code>fetchBatchSize</code> distinct keys of the pending loads are looked up
+ * by turning the single <code>column = ?</code> predicate of the nested select into <code>column IN (?, ?, ...)</code>.
+ * The rows are handed back to each load by the value of the property that <code>column</code> is mapped to; the
+ * other loads keep their rows until their property is accessed. Nested selects that do not have this shape, or whose
+ * rows cannot be matched to the keys, are loaded one by one as before.
+ *
+ * @since 3.5.4
+ */
+public class ResultLoaderBatch {
+
+  private static final Log log = LogFactory.getLog(ResultLoaderBatch.class);
+
+  private static final String KEY_PARAMETER_PREFIX = "__batch_key_";
+
+  // 这些写法下一次查询多个键的结果与逐个查询的结果不同
+  private static final Pattern UNBATCHABLE_KEYWORDS = Pattern.compile(
+      "\\b(or|limit|offset|fetch|top|rownum|union|intersect|except|minus)\\b", Pattern.CASE_INSENSITIVE);
+
+  private final Configuration configuration;
+  private final MappedStatement mappedStatement;
+  private final int fetchBatchSize;
+  private final List<ResultLoader> pendingLoaders = new ArrayList<>();
+  private final Map<String, KeyedSql> keyedSqls = new HashMap<>();
+  private boolean disabled;
+
+  public ResultLoaderBatch(MappedStatement mappedStatement, int fetchBatchSize) {
+    this.configuration = mappedStatement.getConfiguration();
+    this.mappedStatement = mappedStatement;
+    this.fetchBatchSize = fetchBatchSize;
+  }
+
+  /**
+   * Adds a pending lazy load of the nested select.
+   *
+   * @param resultLoader the result loader
+   */
+  public synchronized void add(ResultLoader resultLoader) {
+    resultLoader.batch = this;
+    pendingLoaders.add(resultLoader);
+  }
+
+  synchronized List<Object> load(ResultLoader trigger) throws SQLException {
+    if (trigger.batchResult != null) {
+      final List<Object> rows = trigger.batchResult;
+      trigger.batchResult = null;
+      return rows;
+    }
+    pendingLoaders.remove(trigger);
+    final KeyedSql keyedSql = disabled || !isSimpleKey(trigger) ? null : keyedSql(trigger.boundSql);
+    if (keyedSql == null) {
+      return trigger.selectList();
+    }
+    final Map<String, Object> keys = new LinkedHashMap<>();
+    keys.put(normalizeKey(trigger.parameterObject), trigger.parameterObject);
+    final List<ResultLoader> loaders = new ArrayList<>();
+    for (ResultLoader loader : pendingLoaders) {
+      final String key = isSimpleKey(loader) && keyedSql.sql.equals(loader.boundSql.getSql())
+          ? normalizeKey(loader.parameterObject) : null;
+      if (key != null && (keys.containsKey(key) || keys.size() < fetchBatchSize)) {
+        keys.putIfAbsent(key, loader.parameterObject);
+        loaders.add(loader);
+      }
+    }
+    if (loaders.isEmpty()) {
+      return trigger.selectList();
+    }
+
+    final List<Object> rows = trigger.selectList(keys.values().iterator().next(), null, keyedSql.bind(keys.values()));
+    final Map<String, List<Object>> rowsByKey = new HashMap<>();
+    for (String key : keys.keySet()) {
+      rowsByKey.put(key, new ArrayList<>());
+    }
+    for (Object row : rows) {
+      final List<Object> keyRows = rowsByKey.get(normalizeKey(keyedSql.keyOf(row)));
+      if (keyRows == null) {
+        // 行无法按键分配时说明对嵌套查询的推断不成立，之后逐个加载
+        if (log.isDebugEnabled()) {
+          log.debug("Rows of nested select '" + mappedStatement.getId() + "' cannot be matched to their keys by '"
+              + keyedSql.keyProperty + "', loading them one by one.");
+        }
+        disabled = true;
+        return trigger.selectList();
+      }
+      keyRows.add(row);
+    }
+    final Set<ResultLoader> fetched = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (ResultLoader loader : loaders) {
+      loader.batchResult = new ArrayList<>(rowsByKey.get(normalizeKey(loader.parameterObject)));
+      fetched.add(loader);
+    }
+    pendingLoaders.removeIf(fetched::contains);
+    return rowsByKey.get(normalizeKey(trigger.parameterObject));
+  }
+
+  private boolean isSimpleKey(ResultLoader loader) {
+    return loader.parameterObject != null && loader.boundSql != null
+        && configuration.getTypeHandlerRegistry().hasTypeHandler(loader.parameterObject.getClass());
+  }
+
+  private KeyedSql keyedSql(BoundSql boundSql) {
+    final String sql = boundSql.getSql();
+    if (!keyedSqls.containsKey(sql)) {
+      keyedSqls.put(sql, parseKeyedSql(boundSql));
+    }
+    return keyedSqls.get(sql);
+  }
+
+  private KeyedSql parseKeyedSql(BoundSql boundSql) {
+    final List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    if (parameterMappings.size() != 1 || parameterMappings.get(0).getMode() != ParameterMode.IN) {
+      return null;
+    }
+    final String sql = boundSql.getSql();
+    final StringBuilder unquoted = new StringBuilder();
+    int placeholder = -1;
+    int depth = 0;
+    char quote = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      final char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+        unquoted.append(' ');
+        continue;
+      }
+      if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == '?') {
+        if (placeholder >= 0 || depth != 0) {
+          return null;
+        }
+        placeholder = i;
+      }
+      unquoted.append(c);
+    }
+    if (placeholder < 0 || UNBATCHABLE_KEYWORDS.matcher(unquoted).find()) {
+      return null;
+    }
+    // 占位符前须为 "列 =" 形式
+    int i = placeholder - 1;
+    while (i >= 0 && Character.isWhitespace(sql.charAt(i))) {
+      i--;
+    }
+    if (i < 1 || sql.charAt(i) != '=' || "<>!:".indexOf(sql.charAt(i - 1)) >= 0) {
+      return null;
+    }
+    i--;
+    while (i >= 0 && Character.isWhitespace(sql.charAt(i))) {
+      i--;
+    }
+    final int columnEnd = i + 1;
+    while (i >= 0 && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_' || sql.charAt(i) == '$'
+        || sql.charAt(i) == '.')) {
+      i--;
+    }
+    final String qualifiedColumn = sql.substring(i + 1, columnEnd);
+    if (qualifiedColumn.isEmpty() || !Character.isLetter(qualifiedColumn.charAt(0))) {
+      return null;
+    }
+    final String column = qualifiedColumn.substring(qualifiedColumn.lastIndexOf('.') + 1);
+    final KeyedSql keyedSql = new KeyedSql(sql, sql.substring(0, columnEnd), sql.substring(placeholder + 1),
+        parameterMappings.get(0));
+    return resolveKeyProperty(keyedSql, column) ? keyedSql : null;
+  }
+
+  private boolean resolveKeyProperty(KeyedSql keyedSql, String column) {
+    if (mappedStatement.getResultMaps().size() != 1) {
+      return false;
+    }
+    final ResultMap resultMap = mappedStatement.getResultMaps().get(0);
+    final Class<?> type = resultMap.getType();
+    if (Map.class.isAssignableFrom(type)) {
+      keyedSql.keyColumn = column;
+      keyedSql.keyProperty = column;
+      return true;
+    }
+    if (configuration.getTypeHandlerRegistry().hasTypeHandler(type)) {
+      return false;
+    }
+    final MetaClass metaClass = MetaClass.forClass(type, configuration.getReflectorFactory());
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      if (column.equalsIgnoreCase(resultMapping.getColumn()) && resultMapping.getNestedQueryId() == null
+          && resultMapping.getNestedResultMapId() == null && resultMapping.getProperty() != null
+          && metaClass.hasGetter(resultMapping.getProperty())) {
+        keyedSql.keyProperty = resultMapping.getProperty();
+        return true;
+      }
+    }
+    final boolean autoMapping = resultMap.getAutoMapping() != null ? resultMap.getAutoMapping()
+        : configuration.getAutoMappingBehavior() == AutoMappingBehavior.FULL
+            || configuration.getAutoMappingBehavior() == AutoMappingBehavior.PARTIAL && !resultMap.hasNestedResultMaps();
+    if (autoMapping && !resultMap.getMappedColumns().contains(column.toUpperCase(Locale.ENGLISH))) {
+      final String property = metaClass.findProperty(column, configuration.isMapUnderscoreToCamelCase());
+      if (property != null && metaClass.hasGetter(property)) {
+        keyedSql.keyProperty = property;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String normalizeKey(Object key) {
+    if (key instanceof Number) {
+      // 参数与结果属性的数值类型可能不同(Integer/Long/BigDecimal)
+      try {
+        return new BigDecimal(key.toString()).stripTrailingZeros().toPlainString();
+      } catch (NumberFormatException e) {
+        return key.toString();
+      }
+    }
+    return key == null ? null : key.toString();
+  }
+
+  // 形如 "... column = ? ..." 的嵌套查询，以及结果中与键对应的属性
+  private final class KeyedSql {
+
+    private final String sql;
+    private final String beforeOperator;
+    private final String afterPlaceholder;
+    private final ParameterMapping keyMapping;
+    private String keyColumn;
+    private String keyProperty;
+
+    KeyedSql(String sql, String beforeOperator, String afterPlaceholder, ParameterMapping keyMapping) {
+      this.sql = sql;
+      this.beforeOperator = beforeOperator;
+      this.afterPlaceholder = afterPlaceholder;
+      this.keyMapping = keyMapping;
+    }
+
+    BoundSql bind(Iterable<Object> keys) {
+      final StringBuilder batchSql = new StringBuilder(beforeOperator).append(" IN (");
+      final List<ParameterMapping> parameterMappings = new ArrayList<>();
+      final Map<String, Object> values = new HashMap<>();
+      for (Object key : keys) {
+        final String property = KEY_PARAMETER_PREFIX + parameterMappings.size();
+        batchSql.append(parameterMappings.isEmpty() ? "?" : ", ?");
+        parameterMappings.add(new ParameterMapping.Builder(configuration, property, keyMapping.getTypeHandler())
+            .javaType(keyMapping.getJavaType()).jdbcType(keyMapping.getJdbcType()).build());
+        values.put(property, key);
+      }
+      batchSql.append(')').append(afterPlaceholder);
+      final BoundSql boundSql = new BoundSql(configuration, batchSql.toString(), parameterMappings,
+          values.get(KEY_PARAMETER_PREFIX + 0));
+      values.forEach(boundSql::setAdditionalParameter);
+      return boundSql;
+    }
+
+    Object keyOf(Object row) {
+      if (row == null) {
+        return null;
+      }
+      if (keyColumn != null) {
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) row).entrySet()) {
+          if (keyColumn.equalsIgnoreCase(String.valueOf(entry.getKey()))) {
+            return entry.getValue();
+          }
+        }
+        return null;
+      }
+      return configuration.newMetaObject(row).getValue(keyProperty);
+    }
+  }
+
+}
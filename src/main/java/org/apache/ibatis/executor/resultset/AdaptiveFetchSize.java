@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Grows the fetch size of a result set read by a cursor or a custom result handler while it is being consumed.
+ * The statement starts with a small fetch size so the first rows arrive quickly; each time the consumer has drained
+ * a full fetch, the fetch size is doubled, up to the number of rows that fit in a byte budget estimated from
+ * the column types and sizes in the {@link ResultSetMetaData}.
+ *
+ * @since 3.5.4
+ */
+public class AdaptiveFetchSize {
+
+  private static final Log log = LogFactory.getLog(AdaptiveFetchSize.class);
+
+  // 长度未知或过大的列(LOB等)按此估算
+  private static final int UNBOUNDED_COLUMN_BYTES = 4096;
+
+  private final ResultSet resultSet;
+  private final int maxFetchSize;
+  private int fetchSize;
+  private long rowsUntilGrowth;
+
+  public AdaptiveFetchSize(ResultSet resultSet, int initialFetchSize, int maxBytes) throws SQLException {
+    this.resultSet = resultSet;
+    this.fetchSize = initialFetchSize;
+    this.maxFetchSize = Math.max(initialFetchSize, maxBytes / estimateRowBytes(resultSet.getMetaData()));
+    this.rowsUntilGrowth = initialFetchSize;
+  }
+
+  /**
+   * Returns whether the fetch size of queries of the statement is adapted, i.e. whether adaptive fetch size is
+   * enabled and the statement does not specify its own fetch size.
+   *
+   * @param configuration the configuration
+   * @param mappedStatement the statement
+   * @return true if the fetch size is adapted
+   */
+  public static boolean isEnabled(Configuration configuration, MappedStatement mappedStatement) {
+    return configuration.isAdaptiveFetchSizeEnabled() && mappedStatement.getFetchSize() == null;
+  }
+
+  public ResultSet getResultSet() {
+    return resultSet;
+  }
+
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  /**
+   * Records that a row was read and grows the fetch size when a whole fetch has been consumed.
+   */
+  public void rowFetched() {
+    if (--rowsUntilGrowth > 0 || fetchSize >= maxFetchSize) {
+      return;
+    }
+    int newFetchSize = (int) Math.min((long) fetchSize * 2, maxFetchSize);
+    try {
+      resultSet.setFetchSize(newFetchSize);
+      fetchSize = newFetchSize;
+      rowsUntilGrowth = newFetchSize;
+    } catch (SQLException e) {
+      // fetchSize 只是提示，驱动不支持时不再调整
+      if (log.isDebugEnabled()) {
+        log.debug("Could not change the fetch size to " + newFetchSize + ". Cause: " + e);
+      }
+      fetchSize = maxFetchSize;
+    }
+  }
+
+  static int estimateRowBytes(ResultSetMetaData metaData) throws SQLException {
+    int bytes = 0;
+    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+      bytes += estimateColumnBytes(metaData.getColumnType(i), metaData.getPrecision(i));
+    }
+    return Math.max(bytes, 1);
+  }
+
+  static int estimateColumnBytes(int columnType, int precision) {
+    switch (columnType) {
+      case Types.BIT:
+      case Types.BOOLEAN:
+      case Types.TINYINT:
+        return 1;
+      case Types.SMALLINT:
+        return 2;
+      case Types.INTEGER:
+      case Types.REAL:
+        return 4;
+      case Types.BIGINT:
+      case Types.DOUBLE:
+      case Types.FLOAT:
+      case Types.DATE:
+      case Types.TIME:
+        return 8;
+      case Types.TIMESTAMP:
+      case Types.TIME_WITH_TIMEZONE:
+      case Types.TIMESTAMP_WITH_TIMEZONE:
+        return 12;
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        return precision > 0 && precision < 1000 ? precision / 2 + 2 : 16;
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.BINARY:
+      case Types.VARBINARY:
+        return precision > 0 && precision < UNBOUNDED_COLUMN_BYTES ? precision : UNBOUNDED_COLUMN_BYTES;
+      default:
+        return UNBOUNDED_COLUMN_BYTES;
+    }
+  }
+
+}
@@ -0,0 +1,371 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyNamer;
+import org.apache.ibatis.type.PrimitiveDoubleTypeHandler;
+import org.apache.ibatis.type.PrimitiveIntTypeHandler;
+import org.apache.ibatis.type.PrimitiveLongTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Maps the current row of a result set with a known shape to a new result object.
+ * <p>
+ * A row mapper is built once per {@link org.apache.ibatis.mapping.ResultMap} and column signature (see
+ * {@link ResultSetWrapper#getColumnSignature()}) when <code>useCompiledRowMappers</code> is enabled. Columns are
+ * read by index with their type handlers resolved in advance. Setters and the default constructor are bound with
+ * {@link LambdaMetafactory} when the result type is public and visible to MyBatis, otherwise the {@link Reflector}
+ * invokers are used. Columns mapped to an <code>int</code>, <code>long</code> or <code>double</code> setter whose type
+ * handler implements {@link PrimitiveIntTypeHandler}, {@link PrimitiveLongTypeHandler} or
+ * {@link PrimitiveDoubleTypeHandler} are read and set without boxing.
+ *
+ * @since 3.5.4
+ */
+public final class CompiledRowMapper {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private final Supplier<Object> factory;
+  private final int[] columnIndexes;
+  private final TypeHandler<?>[] typeHandlers;
+  private final String[] properties;
+  private final BiConsumer<Object, Object>[] setters;
+  // 基本类型列的读取与赋值，不适用时为 null
+  private final PrimitiveColumn[] primitiveColumns;
+  private final boolean[] callSettersOnNulls;
+  private final boolean returnInstanceForEmptyRow;
+
+  @SuppressWarnings("unchecked")
+  private CompiledRowMapper(Builder builder) {
+    int size = builder.columnIndexes.size();
+    this.factory = builder.factory;
+    this.columnIndexes = new int[size];
+    this.typeHandlers = builder.typeHandlers.toArray(new TypeHandler<?>[size]);
+    this.properties = builder.properties.toArray(new String[size]);
+    this.setters = builder.setters.toArray(new BiConsumer[size]);
+    this.primitiveColumns = builder.primitiveColumns.toArray(new PrimitiveColumn[size]);
+    this.callSettersOnNulls = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      columnIndexes[i] = builder.columnIndexes.get(i);
+      callSettersOnNulls[i] = builder.callSettersOnNulls.get(i);
+    }
+    this.returnInstanceForEmptyRow = builder.returnInstanceForEmptyRow;
+  }
+
+  /**
+   * Maps the current row.
+   *
+   * @param rs the result set positioned on the row
+   * @return the result object, or null if all columns were null and empty rows are not returned as instances
+   * @throws SQLException if a column cannot be read
+   */
+  public Object map(ResultSet rs) throws SQLException {
+    final Object rowValue = factory.get();
+    boolean foundValues = false;
+    for (int i = 0; i < columnIndexes.length; i++) {
+      if (primitiveColumns[i] != null) {
+        if (primitiveColumns[i].map(rs, columnIndexes[i], rowValue)) {
+          foundValues = true;
+        }
+        continue;
+      }
+      final Object value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+      if (value != null) {
+        foundValues = true;
+        set(rowValue, i, value);
+      } else if (callSettersOnNulls[i]) {
+        set(rowValue, i, null);
+      }
+    }
+    return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+  }
+
+  public int getColumnCount() {
+    return columnIndexes.length;
+  }
+
+  private void set(Object rowValue, int i, Object value) {
+    try {
+      setters[i].accept(rowValue, value);
+    } catch (RuntimeException e) {
+      throw setFailure(properties[i], rowValue, value, e);
+    }
+  }
+
+  private static ReflectionException setFailure(String property, Object rowValue, Object value, RuntimeException e) {
+    return new ReflectionException("Could not set property '" + property + "' of '" + rowValue.getClass() + "' with value '" + value + "' Cause: " + e.toString(), e);
+  }
+
+  private static ResultMapException readFailure(int columnIndex, Exception e) {
+    return new ResultMapException("Error attempting to get column #" + columnIndex + " from result set.  Cause: " + e, e);
+  }
+
+  /**
+   * Reads a column as a primitive and sets it, returning false without calling the setter if it is SQL NULL.
+   */
+  private interface PrimitiveColumn {
+    boolean map(ResultSet rs, int columnIndex, Object rowValue) throws SQLException;
+  }
+
+  static class Builder {
+    private final Class<?> type;
+    private final Reflector reflector;
+    private final boolean linkable;
+    private final Supplier<Object> factory;
+    private final boolean returnInstanceForEmptyRow;
+    private final List<Integer> columnIndexes = new ArrayList<>();
+    private final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
+    private final List<String> properties = new ArrayList<>();
+    private final List<BiConsumer<Object, Object>> setters = new ArrayList<>();
+    private final List<PrimitiveColumn> primitiveColumns = new ArrayList<>();
+    private final List<Boolean> callSettersOnNulls = new ArrayList<>();
+
+    Builder(Class<?> type, Reflector reflector, ObjectFactory objectFactory, boolean returnInstanceForEmptyRow) {
+      this.type = type;
+      this.reflector = reflector;
+      this.linkable = isLinkable(type);
+      this.factory = resolveFactory(objectFactory);
+      this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+    }
+
+    Builder addColumn(int columnIndex, String property, TypeHandler<?> typeHandler, boolean callSetterOnNull) {
+      columnIndexes.add(columnIndex);
+      typeHandlers.add(typeHandler);
+      properties.add(property);
+      setters.add(resolveSetter(property));
+      primitiveColumns.add(resolvePrimitiveColumn(property, typeHandler));
+      callSettersOnNulls.add(callSetterOnNull);
+      return this;
+    }
+
+    CompiledRowMapper build() {
+      return new CompiledRowMapper(this);
+    }
+
+    private Supplier<Object> resolveFactory(ObjectFactory objectFactory) {
+      // 自定义ObjectFactory可能返回子类或做额外初始化，只有默认实现才直接调用构造方法
+      if (linkable && objectFactory.getClass() == DefaultObjectFactory.class) {
+        try {
+          return linkConstructor(type);
+        } catch (Throwable e) {
+          // fall back to the object factory
+        }
+      }
+      return () -> objectFactory.create(type);
+    }
+
+    private Method findLinkableSetter(String property) {
+      final Class<?> setterType = reflector.getSetterType(property);
+      if (linkable) {
+        for (Method method : type.getMethods()) {
+          if (!method.isBridge() && method.getParameterCount() == 1 && PropertyNamer.isSetter(method.getName())
+              && method.getParameterTypes()[0] == setterType && property.equals(PropertyNamer.methodToProperty(method.getName()))
+              && isLinkable(method.getDeclaringClass()) && isLinkable(setterType)) {
+            return method;
+          }
+        }
+      }
+      return null;
+    }
+
+    private BiConsumer<Object, Object> resolveSetter(String property) {
+      final Method method = findLinkableSetter(property);
+      if (method != null) {
+        try {
+          return linkSetter(method);
+        } catch (Throwable e) {
+          // fall back to the reflector
+        }
+      }
+      final Invoker invoker = reflector.getSetInvoker(property);
+      return (target, value) -> {
+        try {
+          invoker.invoke(target, new Object[] {value});
+        } catch (Throwable t) {
+          Throwable cause = ExceptionUtil.unwrapThrowable(t);
+          throw cause instanceof RuntimeException ? (RuntimeException) cause : new ReflectionException(cause);
+        }
+      };
+    }
+
+    @SuppressWarnings("unchecked")
+    private PrimitiveColumn resolvePrimitiveColumn(String property, TypeHandler<?> typeHandler) {
+      final Method method = findLinkableSetter(property);
+      if (method == null || !method.getParameterTypes()[0].isPrimitive()) {
+        return null;
+      }
+      final Class<?> valueType = method.getParameterTypes()[0];
+      try {
+        if (valueType == int.class && readsPrimitive(typeHandler, PrimitiveIntTypeHandler.class, "getInt")) {
+          final PrimitiveIntTypeHandler handler = (PrimitiveIntTypeHandler) typeHandler;
+          final ObjIntConsumer<Object> setter = (ObjIntConsumer<Object>) linkPrimitiveSetter(method, ObjIntConsumer.class);
+          return (rs, columnIndex, rowValue) -> {
+            final int value;
+            try {
+              value = handler.getInt(rs, columnIndex);
+              if (value == 0 && rs.wasNull()) {
+                return false;
+              }
+            } catch (Exception e) {
+              throw readFailure(columnIndex, e);
+            }
+            try {
+              setter.accept(rowValue, value);
+            } catch (RuntimeException e) {
+              throw setFailure(property, rowValue, value, e);
+            }
+            return true;
+          };
+        } else if (valueType == long.class && readsPrimitive(typeHandler, PrimitiveLongTypeHandler.class, "getLong")) {
+          final PrimitiveLongTypeHandler handler = (PrimitiveLongTypeHandler) typeHandler;
+          final ObjLongConsumer<Object> setter = (ObjLongConsumer<Object>) linkPrimitiveSetter(method, ObjLongConsumer.class);
+          return (rs, columnIndex, rowValue) -> {
+            final long value;
+            try {
+              value = handler.getLong(rs, columnIndex);
+              if (value == 0 && rs.wasNull()) {
+                return false;
+              }
+            } catch (Exception e) {
+              throw readFailure(columnIndex, e);
+            }
+            try {
+              setter.accept(rowValue, value);
+            } catch (RuntimeException e) {
+              throw setFailure(property, rowValue, value, e);
+            }
+            return true;
+          };
+        } else if (valueType == double.class && readsPrimitive(typeHandler, PrimitiveDoubleTypeHandler.class, "getDouble")) {
+          final PrimitiveDoubleTypeHandler handler = (PrimitiveDoubleTypeHandler) typeHandler;
+          final ObjDoubleConsumer<Object> setter = (ObjDoubleConsumer<Object>) linkPrimitiveSetter(method, ObjDoubleConsumer.class);
+          return (rs, columnIndex, rowValue) -> {
+            final double value;
+            try {
+              value = handler.getDouble(rs, columnIndex);
+              if (value == 0 && rs.wasNull()) {
+                return false;
+              }
+            } catch (Exception e) {
+              throw readFailure(columnIndex, e);
+            }
+            try {
+              setter.accept(rowValue, value);
+            } catch (RuntimeException e) {
+              throw setFailure(property, rowValue, value, e);
+            }
+            return true;
+          };
+        }
+      } catch (Throwable e) {
+        // fall back to boxed values
+      }
+      return null;
+    }
+
+    /**
+     * A subclass that overrides <code>getNullableResult</code> may convert values, so the primitive read is only used
+     * when it is declared by the same class.
+     */
+    private static boolean readsPrimitive(TypeHandler<?> typeHandler, Class<?> primitiveHandlerType, String methodName) {
+      if (!primitiveHandlerType.isInstance(typeHandler)) {
+        return false;
+      }
+      try {
+        Class<?> handlerType = typeHandler.getClass();
+        return handlerType.getMethod(methodName, ResultSet.class, int.class).getDeclaringClass()
+            == handlerType.getMethod("getNullableResult", ResultSet.class, int.class).getDeclaringClass();
+      } catch (NoSuchMethodException e) {
+        return false;
+      }
+    }
+
+    /**
+     * The generated lambda classes resolve the types they use through the MyBatis class loader, so only public types
+     * that loader can see are bound directly.
+     */
+    private static boolean isLinkable(Class<?> type) {
+      while (type.isArray()) {
+        type = type.getComponentType();
+      }
+      if (type.isPrimitive()) {
+        return true;
+      }
+      for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+        if (!Modifier.isPublic(c.getModifiers())) {
+          return false;
+        }
+      }
+      try {
+        return Class.forName(type.getName(), false, CompiledRowMapper.class.getClassLoader()) == type;
+      } catch (ClassNotFoundException | LinkageError e) {
+        return false;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> linkConstructor(Class<?> type) throws Throwable {
+      MethodHandle constructor = LOOKUP.findConstructor(type, MethodType.methodType(void.class));
+      CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", MethodType.methodType(Supplier.class),
+          MethodType.methodType(Object.class), constructor, MethodType.methodType(type));
+      return (Supplier<Object>) site.getTarget().invokeWithArguments();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> linkSetter(Method method) throws Throwable {
+      MethodHandle setter = LOOKUP.unreflect(method);
+      Class<?> valueType = MethodType.methodType(method.getParameterTypes()[0]).wrap().returnType();
+      CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(BiConsumer.class),
+          MethodType.methodType(void.class, Object.class, Object.class), setter,
+          MethodType.methodType(void.class, method.getDeclaringClass(), valueType));
+      return (BiConsumer<Object, Object>) site.getTarget().invokeWithArguments();
+    }
+
+    private static Object linkPrimitiveSetter(Method method, Class<?> consumerType) throws Throwable {
+      MethodHandle setter = LOOKUP.unreflect(method);
+      Class<?> valueType = method.getParameterTypes()[0];
+      CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(consumerType),
+          MethodType.methodType(void.class, Object.class, valueType), setter,
+          MethodType.methodType(void.class, method.getDeclaringClass(), valueType));
+      return site.getTarget().invokeWithArguments();
+    }
+  }
+
+}
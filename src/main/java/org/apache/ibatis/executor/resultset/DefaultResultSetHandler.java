@@ -16,17 +16,26 @@
 package org.apache.ibatis.executor.resultset;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
 import java.sql.CallableStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.ibatis.annotations.AutomapConstructor;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
@@ -37,6 +46,7 @@ import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.loader.ResultLoader;
+import org.apache.ibatis.executor.loader.ResultLoaderBatch;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
@@ -49,10 +59,13 @@ import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.metrics.MetricsCollector;
+import org.apache.ibatis.metrics.MetricsCollector.Phase;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
@@ -82,11 +95,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final TypeHandlerRegistry typeHandlerRegistry;
   private final ObjectFactory objectFactory;
   private final ReflectorFactory reflectorFactory;
+  private final MetricsCollector metricsCollector;
 
   // nested resultmaps
   private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
   private final Map<String, Object> ancestorObjects = new HashMap<>();
   private Object previousRowValue;
+  // 按 ORDER BY 判断过是否可以流式映射的结果映射
+  private final Map<String, Boolean> streamedResultMaps = new HashMap<>();
+
+  // 按嵌套查询合并加载的延迟加载
+  private final Map<String, ResultLoaderBatch> resultLoaderBatches = new HashMap<>();
 
   // multiple resultsets
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
@@ -98,6 +117,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
+  // number of top level rows handed to result handlers, only reported when metrics are enabled
+  private int rowsMapped;
+
+  // 游标与自定义 ResultHandler 查询在读取过程中逐步调大 fetchSize
+  private boolean adaptiveFetchSizeEnabled;
+  private AdaptiveFetchSize adaptiveFetchSize;
+
+  // 游标逐行取值，不做预读与并行映射
+  private boolean cursorResults;
+
+  // compiled row mapper of the result set and result map handled last, null if they cannot be compiled
+  private ResultSetWrapper compiledRowMapperRsw;
+  private ResultMap compiledRowMapperResultMap;
+  private CompiledRowMapper compiledRowMapper;
+
   private static class PendingRelation {
     public MetaObject metaObject;
     public ResultMapping propertyMapping;
@@ -108,6 +142,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     private final String property;
     private final TypeHandler<?> typeHandler;
     private final boolean primitive;
+    // 列序号所属的结果集，换了结果集时重新解析
+    private ResultSetWrapper indexedResultSet;
+    private int columnIndex;
 
     public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
       this.column = column;
@@ -129,6 +166,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.objectFactory = configuration.getObjectFactory();
     this.reflectorFactory = configuration.getReflectorFactory();
     this.resultHandler = resultHandler;
+    this.metricsCollector = configuration.getMetricsCollector();
+    this.adaptiveFetchSizeEnabled = resultHandler != null && AdaptiveFetchSize.isEnabled(configuration, mappedStatement);
   }
 
   //
@@ -181,6 +220,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   public List<Object> handleResultSets(Statement stmt) throws SQLException {
     ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
 
+    final long start = metricsCollector == null ? 0 : System.nanoTime();
     final List<Object> multipleResults = new ArrayList<>();
 
     int resultSetCount = 0;
@@ -212,6 +252,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    if (metricsCollector != null) {
+      metricsCollector.recordLatency(mappedStatement.getId(), Phase.MAP, System.nanoTime() - start);
+      metricsCollector.recordRowsMapped(mappedStatement.getId(), rowsMapped);
+    }
     return collapseSingleResultList(multipleResults);
   }
 
@@ -230,6 +274,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
+    adaptiveFetchSizeEnabled = AdaptiveFetchSize.isEnabled(configuration, mappedStatement);
+    cursorResults = true;
     return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
   }
 
@@ -322,7 +368,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   public void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
     if (resultMap.hasNestedResultMaps()) {
       ensureNoRowBounds();
-      checkResultHandler();
+      if (!isStreamed(resultMap)) {
+        checkResultHandler();
+      }
       handleRowValuesForNestedResultMap(rsw, resultMap, resultHandler, rowBounds, parentMapping);
     } else {
       handleRowValuesForSimpleResultMap(rsw, resultMap, resultHandler, rowBounds, parentMapping);
@@ -344,18 +392,186 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  /**
+   * Whether completed parent objects of the nested result map can be handed out and forgotten as soon as the
+   * parent key changes, even though the statement is not declared <code>resultOrdered</code>.
+   */
+  private boolean isStreamed(ResultMap resultMap) {
+    if (!configuration.isNestedResultStreamingEnabled() || mappedStatement.isResultOrdered()) {
+      return false;
+    }
+    return streamedResultMaps.computeIfAbsent(resultMap.getId(),
+        id -> NestedResultOrdering.isOrderedById(boundSql.getSql(), resultMap));
+  }
+
   private void handleRowValuesForSimpleResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
       throws SQLException {
     DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
     ResultSet resultSet = rsw.getResultSet();
     skipRows(resultSet, rowBounds);
+    if (isParallelMapped(rsw, resultMap, parentMapping)
+        && handleRowValuesInParallel(rsw, resultMap, resultHandler, resultContext, rowBounds)) {
+      return;
+    }
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+      rowFetched(rsw);
       ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
       Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
     }
   }
 
+  //
+  // PARALLEL MAPPING FOR SIMPLE RESULTMAP
+  //
+
+  private boolean isParallelMapped(ResultSetWrapper rsw, ResultMap resultMap, ResultMapping parentMapping) {
+    if (!configuration.isParallelMappingEnabled() || cursorResults || parentMapping != null
+        || resultMap.getDiscriminator() != null || resultMap.hasNestedQueries() || !RowBuffer.isSupported(rsw)) {
+      return false;
+    }
+    for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
+      if (resultMapping.getResultSet() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads the rows into buffers on this thread while the common fork join pool maps chunks of them, and hands the
+   * row values to the result handler in row order. The first row is mapped on this thread to record the getters the
+   * type handlers use; if they use the result set for more than reading column values, the rest of the rows are left
+   * to be mapped row by row.
+   *
+   * @return false if the rest of the result set must be mapped row by row
+   */
+  private boolean handleRowValuesInParallel(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler,
+      DefaultResultContext<Object> resultContext, RowBounds rowBounds) throws SQLException {
+    final ResultSet resultSet = rsw.getResultSet();
+    if (!shouldProcessMoreRows(resultContext, rowBounds) || resultSet.isClosed() || !resultSet.next()) {
+      return true;
+    }
+    rowFetched(rsw);
+    final RowBuffer rowBuffer = new RowBuffer(rsw);
+    final Object firstValue = getRowValue(new ResultSetWrapper(rsw, rowBuffer.record(resultSet)), resultMap, null);
+    storeObject(resultHandler, resultContext, firstValue, null, resultSet);
+    if (!rowBuffer.stopRecording()) {
+      return false;
+    }
+
+    final ForkJoinPool pool = ForkJoinPool.commonPool();
+    final int chunkSize = Math.max(1, configuration.getParallelMappingChunkSize());
+    // 预读的块数，保证池中每个线程都有任务而又不无限占用内存
+    final int maxPendingChunks = Math.max(2, pool.getParallelism() * 2);
+    final Deque<Future<List<Object>>> pendingChunks = new ArrayDeque<>();
+    long rowsRead = 1;
+    boolean moreRows = true;
+    try {
+      while (shouldProcessMoreRows(resultContext, rowBounds)) {
+        while (moreRows && pendingChunks.size() < maxPendingChunks) {
+          final List<Object[]> rows = new ArrayList<>(chunkSize);
+          while (rows.size() < chunkSize && rowsRead < rowBounds.getLimit() && !resultSet.isClosed() && resultSet.next()) {
+            rowFetched(rsw);
+            rows.add(rowBuffer.readRow(resultSet));
+            rowsRead++;
+          }
+          moreRows = rows.size() == chunkSize;
+          if (!rows.isEmpty()) {
+            pendingChunks.add(CompletableFuture.supplyAsync(() -> {
+              try {
+                return mapBufferedRows(rsw, rowBuffer, resultMap, rows);
+              } catch (SQLException e) {
+                throw new CompletionException(e);
+              }
+            }, pool));
+          }
+        }
+        final Future<List<Object>> chunk = pendingChunks.poll();
+        if (chunk == null) {
+          break;
+        }
+        for (Object rowValue : getMappedRows(chunk)) {
+          storeObject(resultHandler, resultContext, rowValue, null, resultSet);
+          if (!shouldProcessMoreRows(resultContext, rowBounds)) {
+            break;
+          }
+        }
+      }
+    } finally {
+      // 结果处理器提前停止或映射出错时丢弃已预读的行
+      for (Future<List<Object>> chunk : pendingChunks) {
+        chunk.cancel(false);
+      }
+    }
+    return true;
+  }
+
+  private List<Object> mapBufferedRows(ResultSetWrapper rsw, RowBuffer rowBuffer, ResultMap resultMap, List<Object[]> rows)
+      throws SQLException {
+    // 每个任务使用独立的处理器与包装器，映射过程中的缓存与临时标记不在线程间共享
+    final RowBuffer.BufferedResultSet bufferedResultSet = rowBuffer.newResultSet();
+    final ResultSetWrapper bufferedRsw = new ResultSetWrapper(rsw, bufferedResultSet.getResultSet());
+    final DefaultResultSetHandler rowMapper = new DefaultResultSetHandler(executor, mappedStatement, parameterHandler, null,
+        boundSql, rowBounds);
+    final List<Object> rowValues = new ArrayList<>(rows.size());
+    for (Object[] row : rows) {
+      bufferedResultSet.setRow(row);
+      Object rowValue;
+      try {
+        rowValue = rowMapper.getRowValue(bufferedRsw, resultMap, null);
+      } catch (SQLException | RuntimeException e) {
+        if (!isUnbufferedAccess(e)) {
+          throw e;
+        }
+        // 类型处理器按数据读取了第一行未使用的列，改用该行的全部列值重新映射
+        bufferedResultSet.setRow(row, true);
+        rowValue = rowMapper.getRowValue(bufferedRsw, resultMap, null);
+      }
+      rowValues.add(rowValue);
+    }
+    return rowValues;
+  }
+
+  private static boolean isUnbufferedAccess(Throwable e) {
+    for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+      if (t instanceof RowBuffer.UnbufferedAccessException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private List<Object> getMappedRows(Future<List<Object>> chunk) throws SQLException {
+    try {
+      return chunk.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while waiting for rows to be mapped.", e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error mapping rows. Cause: " + cause, cause);
+    }
+  }
+
+  private void rowFetched(ResultSetWrapper rsw) throws SQLException {
+    if (!adaptiveFetchSizeEnabled) {
+      return;
+    }
+    if (adaptiveFetchSize == null || adaptiveFetchSize.getResultSet() != rsw.getResultSet()) {
+      adaptiveFetchSize = new AdaptiveFetchSize(rsw.getResultSet(), configuration.getAdaptiveFetchSizeInitial(),
+          configuration.getAdaptiveFetchSizeMaxBytes());
+    }
+    adaptiveFetchSize.rowFetched();
+  }
+
   private void storeObject(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs) throws SQLException {
     if (parentMapping != null) {
       linkToParents(rs, parentMapping, rowValue);
@@ -368,6 +584,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void callResultHandler(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, Object rowValue) {
     resultContext.nextResultObject(rowValue);
     ((ResultHandler<Object>) resultHandler).handleResult(resultContext);
+    rowsMapped++;
   }
 
   private boolean shouldProcessMoreRows(ResultContext<?> context, RowBounds rowBounds) {
@@ -393,6 +610,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    if (columnPrefix == null && configuration.isUseCompiledRowMappers()) {
+      final CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap);
+      if (rowMapper != null) {
+        return rowMapper.map(rsw.getResultSet());
+      }
+    }
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
@@ -408,6 +631,88 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return rowValue;
   }
 
+  //
+  // COMPILED ROW MAPPERS
+  //
+
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (rsw != compiledRowMapperRsw || resultMap != compiledRowMapperResultMap) {
+      compiledRowMapperRsw = rsw;
+      compiledRowMapperResultMap = resultMap;
+      compiledRowMapper = null;
+      if (canCompileRowMapper(rsw, resultMap)) {
+        final String signature = rsw.getColumnSignature();
+        compiledRowMapper = configuration.getCompiledRowMapper(resultMap.getId(), signature);
+        if (compiledRowMapper == null) {
+          compiledRowMapper = compileRowMapper(rsw, resultMap);
+          if (compiledRowMapper != null) {
+            compiledRowMapper = configuration.addCompiledRowMapper(resultMap.getId(), signature, compiledRowMapper);
+          }
+        }
+      }
+    }
+    return compiledRowMapper;
+  }
+
+  // 只编译没有嵌套、鉴别器、构造方法映射的普通JavaBean结果映射，其余情况仍走MetaObject
+  private boolean canCompileRowMapper(ResultSetWrapper rsw, ResultMap resultMap) {
+    final Class<?> resultType = resultMap.getType();
+    if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries() || resultMap.getDiscriminator() != null
+        || !resultMap.getConstructorResultMappings().isEmpty()
+        || resultType.isInterface() || resultType.isArray() || Modifier.isAbstract(resultType.getModifiers())
+        || Map.class.isAssignableFrom(resultType) || Collection.class.isAssignableFrom(resultType)
+        || hasTypeHandlerForResultObject(rsw, resultType)
+        || configuration.getObjectWrapperFactory().getClass() != DefaultObjectWrapperFactory.class) {
+      return false;
+    }
+    final MetaClass metaType = MetaClass.forClass(resultType, reflectorFactory);
+    if (!metaType.hasDefaultConstructor()) {
+      return false;
+    }
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null
+          || propertyMapping.getNestedQueryId() != null || propertyMapping.getNestedResultMapId() != null) {
+        return false;
+      }
+      final String property = propertyMapping.getProperty();
+      if (property != null && !isSimpleWritableProperty(metaType, property)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final Class<?> resultType = resultMap.getType();
+    final MetaClass metaType = MetaClass.forClass(resultType, reflectorFactory);
+    final CompiledRowMapper.Builder builder = new CompiledRowMapper.Builder(resultType, reflectorFactory.findForClass(resultType),
+        objectFactory, configuration.isReturnInstanceForEmptyRow());
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      final MetaObject metaObject = configuration.newMetaObject(objectFactory.create(resultType));
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, null)) {
+        if (!isSimpleWritableProperty(metaType, mapping.property)) {
+          return null;
+        }
+        builder.addColumn(rsw.getColumnIndex(mapping.column), mapping.property, mapping.typeHandler,
+            configuration.isCallSettersOnNulls() && !mapping.primitive);
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      final String column = propertyMapping.getColumn();
+      final String property = propertyMapping.getProperty();
+      if (property != null && column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        builder.addColumn(rsw.getColumnIndex(column), property, propertyMapping.getTypeHandler(),
+            configuration.isCallSettersOnNulls() && !metaType.getSetterType(property).isPrimitive());
+      }
+    }
+    return builder.build();
+  }
+
+  private boolean isSimpleWritableProperty(MetaClass metaType, String property) {
+    return property.indexOf('.') < 0 && property.indexOf('[') < 0 && metaType.hasSetter(property);
+  }
+
   private boolean shouldApplyAutomaticMappings(ResultMap resultMap, boolean isNested) {
     if (resultMap.getAutoMapping() != null) {
       return resultMap.getAutoMapping();
@@ -426,19 +731,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    // 字段名到列序号的解析按结果集、resultMap和前缀只做一次，-1表示该字段未映射
+    final int[] columnIndexes = rsw.getPropertyColumnIndexes(resultMap, columnPrefix);
     boolean foundValues = false;
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
-      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      if (propertyMapping.getNestedResultMapId() != null) {
-        // the user added a column attribute to a nested result map, ignore it
-        column = null;
-      }
+    for (int i = 0; i < columnIndexes.length; i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
+      final int columnIndex = columnIndexes[i];
       if (propertyMapping.isCompositeResult()
-          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || columnIndex >= 0
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix, columnIndex);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -459,8 +762,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
-      throws SQLException {
+  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix,
+      int columnIndex) throws SQLException {
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
@@ -468,11 +771,27 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       return DEFERRED;
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
+      if (columnIndex > 0) {
+        try {
+          return typeHandler.getResult(rs, columnIndex);
+        } catch (Exception e) {
+          throw columnReadFailure(prependPrefix(propertyMapping.getColumn(), columnPrefix), e);
+        }
+      }
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
       return typeHandler.getResult(rs, column);
     }
   }
 
+  /**
+   * Reports a failure to read a column by index with the column label, as reading it by label would.
+   */
+  private ResultMapException columnReadFailure(String column, Exception e) {
+    // 类型处理器按序号读取时只报告列序号, 换成原始异常和列名
+    Throwable cause = e instanceof ResultMapException && e.getCause() != null ? e.getCause() : e;
+    return new ResultMapException("Error attempting to get column '" + column + "' from result set.  Cause: " + cause, cause);
+  }
+
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
     final String mapKey = resultMap.getId() + ":" + columnPrefix;
     List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
@@ -518,7 +837,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        if (mapping.indexedResultSet != rsw) {
+          mapping.columnIndex = rsw.getReadIndex(mapping.column);
+          mapping.indexedResultSet = rsw;
+        }
+        final Object value;
+        if (mapping.columnIndex > 0) {
+          try {
+            value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.columnIndex);
+          } catch (Exception e) {
+            throw columnReadFailure(mapping.column, e);
+          }
+        } else {
+          value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        }
         if (value != null) {
           foundValues = true;
         }
@@ -754,6 +1086,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       } else {
         final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql);
         if (propertyMapping.isLazy()) {
+          if (propertyMapping.getFetchBatchSize() > 1 && !propertyMapping.isCompositeResult()) {
+            resultLoaderBatches.computeIfAbsent(nestedQueryId,
+                id -> new ResultLoaderBatch(nestedQuery, propertyMapping.getFetchBatchSize())).add(resultLoader);
+          }
           lazyLoader.addLoader(property, metaResultObject, resultLoader);
           value = DEFERRED;
         } else {
@@ -855,12 +1191,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ResultSet resultSet = rsw.getResultSet();
     skipRows(resultSet, rowBounds);
     Object rowValue = previousRowValue;
+    final boolean resultOrdered = mappedStatement.isResultOrdered() || isStreamed(resultMap);
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+      rowFetched(rsw);
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
       final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
       Object partialObject = nestedResultObjects.get(rowKey);
       // issue #577 && #542
-      if (mappedStatement.isResultOrdered()) {
+      if (resultOrdered) {
         if (partialObject == null && rowValue != null) {
           nestedResultObjects.clear();
           storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
@@ -873,7 +1211,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
+    if (rowValue != null && resultOrdered && shouldProcessMoreRows(resultContext, rowBounds)) {
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
       previousRowValue = null;
     } else if (rowValue != null) {
@@ -911,11 +1249,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
       if (combinedKey != CacheKey.NULL_CACHE_KEY) {
         nestedResultObjects.put(combinedKey, rowValue);
+        checkNestedResultObjectsLimit();
       }
     }
     return rowValue;
   }
 
+  private void checkNestedResultObjectsLimit() {
+    int limit = configuration.getNestedResultObjectsLimit();
+    if (limit > 0 && nestedResultObjects.size() > limit) {
+      throw new ExecutorException("Mapping the nested results of '" + mappedStatement.getId() + "' holds more than "
+          + limit + " objects, the nestedResultObjectsLimit. Order the statement by the id columns of its result map "
+          + "and set resultOrdered=true (or enable nestedResultStreamingEnabled), or raise the limit.");
+    }
+  }
+
   private void putAncestor(Object resultObject, String resultMapId) {
     ancestorObjects.put(resultMapId, resultObject);
   }
@@ -1006,7 +1354,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
+    final CacheKey cacheKey = configuration.newCacheKey();
     cacheKey.update(resultMap.getId());
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
     if (resultMappings.isEmpty()) {
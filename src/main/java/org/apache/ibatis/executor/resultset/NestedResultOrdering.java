@@ -0,0 +1,319 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.ibatis.mapping.ResultFlag;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+
+/**
+ * Detects statements whose rows are grouped by the id columns of their top level result map, so that a parent object
+ * is complete as soon as the id changes. That is the case when the outermost <code>ORDER BY</code> lists all the id
+ * columns, optionally after other columns of the same result map (which have one value per parent).
+ * <p>
+ * Every ORDER BY item is resolved to the label of exactly one item of the outermost select list: a qualified item
+ * such as <code>o.id</code> must appear with the same qualifier in the select list, an unqualified item must be the
+ * label of exactly one select item. The labels are then matched against the columns of the result map, so
+ * <code>order by l.id</code> does not match <code>&lt;id column="id"&gt;</code> when the select list reads
+ * <code>l.id line_id</code>. The check is conservative: expressions, positions, wildcard select lists, items that
+ * cannot be resolved or are ambiguous, discriminators and result maps without explicit ids are never considered
+ * ordered.
+ *
+ * @since 3.5.4
+ */
+final class NestedResultOrdering {
+
+  private NestedResultOrdering() {
+    // Prevent Instantiation of Static Class
+  }
+
+  static boolean isOrderedById(String sql, ResultMap resultMap) {
+    if (resultMap.getDiscriminator() != null) {
+      return false;
+    }
+    Set<String> idColumns = new HashSet<>();
+    for (ResultMapping idMapping : resultMap.getIdResultMappings()) {
+      if (!idMapping.getFlags().contains(ResultFlag.ID) || idMapping.getColumn() == null
+          || idMapping.getNestedResultMapId() != null || idMapping.getNestedQueryId() != null) {
+        return false;
+      }
+      idColumns.add(idMapping.getColumn().toUpperCase(Locale.ENGLISH));
+    }
+    if (idColumns.isEmpty()) {
+      return false;
+    }
+    List<String[]> selectItems = selectItems(sql);
+    if (selectItems == null) {
+      return false;
+    }
+    for (String column : orderByColumns(sql)) {
+      String label = resolveLabel(column, selectItems);
+      if (label == null) {
+        return false;
+      }
+      if (!idColumns.remove(label) && !resultMap.getMappedColumns().contains(label)) {
+        return false;
+      }
+      if (idColumns.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the label of the only select item the ORDER BY item refers to, or null if there is none or more than one.
+   */
+  private static String resolveLabel(String column, List<String[]> selectItems) {
+    if (column == null) {
+      return null;
+    }
+    boolean qualified = column.indexOf('.') >= 0;
+    String label = null;
+    for (String[] item : selectItems) {
+      // item[0] 为选择项的列表达式(非简单列时为null)，item[1] 为结果集中的列标签
+      if (column.equals(qualified ? item[0] : item[1])) {
+        if (label != null) {
+          return null;
+        }
+        label = item[1];
+      }
+    }
+    if (label == null) {
+      return null;
+    }
+    int count = 0;
+    for (String[] item : selectItems) {
+      if (label.equals(item[1])) {
+        count++;
+      }
+    }
+    // 结果集中有同名列时无法确定父对象读取的是哪一列
+    return count == 1 ? label : null;
+  }
+
+  /**
+   * Returns the columns of the outermost ORDER BY clause, upper case and without quotes, keeping their qualifier.
+   * Items that are not plain columns are returned as null.
+   */
+  static List<String> orderByColumns(String sql) {
+    List<String> columns = new ArrayList<>();
+    int start = findOrderBy(sql);
+    if (start < 0) {
+      return columns;
+    }
+    int depth = 0;
+    int itemStart = start;
+    for (int i = start; i <= sql.length(); i++) {
+      char c = i < sql.length() ? sql.charAt(i) : ',';
+      if (c == '\'' || c == '"' || c == '`') {
+        i = skipQuoted(sql, i);
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == ',' && depth == 0) {
+        String item = sql.substring(itemStart, Math.min(i, sql.length()));
+        int end = endOfClause(item);
+        columns.add(toColumn(item.substring(0, end)));
+        if (end < item.length()) {
+          break;
+        }
+        itemStart = i + 1;
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Returns the items of the outermost select list as pairs of column (qualified like in the SQL, or null for
+   * expressions) and label, upper case and without quotes. Returns null if the select list cannot be read or contains
+   * a wildcard.
+   */
+  static List<String[]> selectItems(String sql) {
+    String upper = sql.toUpperCase(Locale.ENGLISH);
+    int start = -1;
+    int depth = 0;
+    List<String[]> items = new ArrayList<>();
+    int itemStart = -1;
+    for (int i = 0; i < upper.length(); i++) {
+      char c = upper.charAt(i);
+      if (c == '\'' || c == '"' || c == '`') {
+        i = skipQuoted(upper, i);
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (depth == 0 && start < 0 && isKeyword(upper, i, "SELECT")) {
+        start = i + 6;
+        itemStart = start;
+      } else if (depth == 0 && start >= 0 && (c == ',' || isKeyword(upper, i, "FROM"))) {
+        String[] item = toSelectItem(sql.substring(itemStart, i));
+        if (item == null) {
+          return null;
+        }
+        items.add(item);
+        if (c != ',') {
+          return items;
+        }
+        itemStart = i + 1;
+      }
+    }
+    return null;
+  }
+
+  private static String[] toSelectItem(String item) {
+    List<String> tokens = new ArrayList<>(Arrays.asList(item.trim().split("\\s+")));
+    if (!tokens.isEmpty() && ("DISTINCT".equalsIgnoreCase(tokens.get(0)) || "ALL".equalsIgnoreCase(tokens.get(0)))) {
+      tokens.remove(0);
+    }
+    if (tokens.isEmpty() || tokens.get(0).isEmpty() || tokens.get(0).endsWith("*")) {
+      return null;
+    }
+    boolean aliased = tokens.size() >= 3 && "AS".equalsIgnoreCase(tokens.get(tokens.size() - 2));
+    if (aliased || tokens.size() == 2) {
+      String alias = toIdentifier(tokens.get(tokens.size() - 1));
+      if (alias == null) {
+        return null;
+      }
+      int expressionTokens = tokens.size() - (aliased ? 2 : 1);
+      return new String[] {expressionTokens == 1 ? toColumnPath(tokens.get(0)) : null, alias};
+    }
+    if (tokens.size() > 2) {
+      // 未命名的表达式，标签由数据库决定
+      return new String[] {null, null};
+    }
+    String column = toColumnPath(tokens.get(0));
+    if (column == null) {
+      return new String[] {null, null};
+    }
+    return new String[] {column, column.substring(column.lastIndexOf('.') + 1)};
+  }
+
+  private static boolean isKeyword(String upper, int index, String keyword) {
+    return upper.startsWith(keyword, index) && isWordBoundary(upper, index - 1)
+        && isWordBoundary(upper, index + keyword.length());
+  }
+
+  // 查找括号与引号之外的最后一个 ORDER BY，返回其后第一个字符的位置
+  private static int findOrderBy(String sql) {
+    String upper = sql.toUpperCase(Locale.ENGLISH);
+    int result = -1;
+    int depth = 0;
+    for (int i = 0; i < upper.length(); i++) {
+      char c = upper.charAt(i);
+      if (c == '\'' || c == '"' || c == '`') {
+        i = skipQuoted(upper, i);
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (depth == 0 && c == 'O' && upper.startsWith("ORDER", i) && isWordBoundary(upper, i - 1)
+          && isWordBoundary(upper, i + 5)) {
+        int j = i + 5;
+        while (j < upper.length() && Character.isWhitespace(upper.charAt(j))) {
+          j++;
+        }
+        if (j > i + 5 && upper.startsWith("BY", j) && isWordBoundary(upper, j + 2)) {
+          result = j + 2;
+        }
+      }
+    }
+    return result;
+  }
+
+  // 列表之后可能跟着 LIMIT、OFFSET、FETCH、FOR UPDATE 等子句
+  private static int endOfClause(String item) {
+    String upper = item.toUpperCase(Locale.ENGLISH);
+    int end = item.length();
+    for (String keyword : new String[] {"LIMIT", "OFFSET", "FETCH", "FOR", "ROWS"}) {
+      int index = upper.indexOf(keyword);
+      while (index >= 0) {
+        if (isWordBoundary(upper, index - 1) && isWordBoundary(upper, index + keyword.length())) {
+          end = Math.min(end, index);
+          break;
+        }
+        index = upper.indexOf(keyword, index + 1);
+      }
+    }
+    return end;
+  }
+
+  private static String toColumn(String item) {
+    String[] tokens = item.trim().split("\\s+");
+    if (tokens.length == 0 || tokens.length > 4) {
+      return null;
+    }
+    for (int i = 1; i < tokens.length; i++) {
+      String token = tokens[i].toUpperCase(Locale.ENGLISH);
+      if (!"ASC".equals(token) && !"DESC".equals(token) && !"NULLS".equals(token) && !"FIRST".equals(token)
+          && !"LAST".equals(token)) {
+        return null;
+      }
+    }
+    return toColumnPath(tokens[0]);
+  }
+
+  // 限定名的每一段都必须是简单标识符，返回去掉引号的大写形式
+  private static String toColumnPath(String expression) {
+    String[] segments = expression.split("\\.", -1);
+    StringBuilder path = new StringBuilder();
+    for (String segment : segments) {
+      String identifier = toIdentifier(segment);
+      if (identifier == null) {
+        return null;
+      }
+      if (path.length() > 0) {
+        path.append('.');
+      }
+      path.append(identifier);
+    }
+    return path.toString();
+  }
+
+  private static String toIdentifier(String token) {
+    String identifier = token;
+    if (identifier.length() > 2 && (identifier.charAt(0) == '"' || identifier.charAt(0) == '`' || identifier.charAt(0) == '[')) {
+      identifier = identifier.substring(1, identifier.length() - 1);
+    }
+    if (identifier.isEmpty() || !Character.isJavaIdentifierStart(identifier.charAt(0))) {
+      return null;
+    }
+    for (int i = 1; i < identifier.length(); i++) {
+      if (!Character.isJavaIdentifierPart(identifier.charAt(i))) {
+        return null;
+      }
+    }
+    return identifier.toUpperCase(Locale.ENGLISH);
+  }
+
+  private static int skipQuoted(String sql, int start) {
+    int end = sql.indexOf(sql.charAt(start), start + 1);
+    return end < 0 ? sql.length() : end;
+  }
+
+  private static boolean isWordBoundary(String sql, int index) {
+    return index < 0 || index >= sql.length() || !Character.isJavaIdentifierPart(sql.charAt(index));
+  }
+
+}
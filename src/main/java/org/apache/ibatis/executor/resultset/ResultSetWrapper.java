@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Set;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.ObjectTypeHandler;
@@ -48,11 +49,15 @@ public class ResultSetWrapper {
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>(); //类型转换Map
   private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>(); //被映射的数据库字段名Map
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>(); //未被映射的数据库字段名Map
+  private final Map<String, int[]> propertyColumnIndexesMap = new HashMap<>(); //属性映射字段的列序号Map
+  private final boolean readByIndex; //字段名称即列标签时才按列序号读取
+  private String columnSignature; //字段名称与jdbcType组成的结果集结构签名
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.resultSet = rs;
+    this.readByIndex = configuration.isUseColumnLabel();
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
     for (int i = 1; i <= columnCount; i++) {
@@ -62,6 +67,22 @@ public class ResultSetWrapper {
     }
   }
 
+  /**
+   * Creates a wrapper with the columns of another wrapper over a different result set, e.g. a buffered row of it.
+   * The column name caches are not shared.
+   *
+   * @param source the wrapper whose columns are copied
+   * @param rs the result set to wrap
+   */
+  ResultSetWrapper(ResultSetWrapper source, ResultSet rs) {
+    this.typeHandlerRegistry = source.typeHandlerRegistry;
+    this.resultSet = rs;
+    this.readByIndex = source.readByIndex;
+    this.columnNames.addAll(source.columnNames);
+    this.jdbcTypes.addAll(source.jdbcTypes);
+    this.classNames.addAll(source.classNames);
+  }
+
   public ResultSet getResultSet() {
     return resultSet;
   }
@@ -87,6 +108,53 @@ public class ResultSetWrapper {
     return null;
   }
 
+  /**
+   * Returns the 1-based index of the first column with the given name, ignoring case.
+   *
+   * @param columnName the column name or label
+   * @return the column index, or -1 if the result set has no such column
+   * @since 3.5.4
+   */
+  public int getColumnIndex(String columnName) {
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the 1-based index to read a column by instead of its label.
+   * Column names only identify the column a label lookup would find when they are column labels, otherwise the
+   * column is read by its label as before.
+   *
+   * @param columnName the column name or label
+   * @return the column index, or 0 if the column must be read by its label
+   * @since 3.5.4
+   */
+  int getReadIndex(String columnName) {
+    return readByIndex ? Math.max(getColumnIndex(columnName), 0) : 0;
+  }
+
+  /**
+   * Returns a string that is equal for result sets with the same column names, JDBC types and column classes in the
+   * same order.
+   *
+   * @return the column signature
+   * @since 3.5.4
+   */
+  public String getColumnSignature() {
+    if (columnSignature == null) {
+      StringBuilder signature = new StringBuilder();
+      for (int i = 0; i < columnNames.size(); i++) {
+        signature.append(columnNames.get(i)).append(':').append(jdbcTypes.get(i)).append(':').append(classNames.get(i)).append(',');
+      }
+      columnSignature = signature.toString();
+    }
+    return columnSignature;
+  }
+
   /**
    * Gets the type handler to use when reading the result set.
    * Tries to get from the TypeHandlerRegistry by searching for the property type.
@@ -182,6 +250,46 @@ public class ResultSetWrapper {
     return unMappedColumnNames;
   }
 
+  /**
+   * Gets how to read the column of each property mapping of a result map, resolved once per result map and prefix.
+   * The array is parallel to {@link ResultMap#getPropertyResultMappings()}; an entry is -1 when the column is not
+   * mapped in this result set, 0 when it is read by its label and the column index otherwise.
+   *
+   * @param resultMap the result map
+   * @param columnPrefix the column prefix, may be null
+   * @return the column indexes of the property mappings
+   * @since 3.5.4
+   */
+  int[] getPropertyColumnIndexes(ResultMap resultMap, String columnPrefix) throws SQLException {
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    int[] columnIndexes = propertyColumnIndexesMap.get(mapKey);
+    if (columnIndexes == null) {
+      final List<String> mappedColumnNames = getMappedColumnNames(resultMap, columnPrefix);
+      final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+      columnIndexes = new int[propertyMappings.size()];
+      for (int i = 0; i < columnIndexes.length; i++) {
+        final ResultMapping propertyMapping = propertyMappings.get(i);
+        // 嵌套结果映射上的column属性会被忽略
+        final String column = propertyMapping.getNestedResultMapId() == null
+            ? prependPrefix(propertyMapping.getColumn(), columnPrefix) : null;
+        if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+          columnIndexes[i] = getReadIndex(column);
+        } else {
+          columnIndexes[i] = -1;
+        }
+      }
+      propertyColumnIndexesMap.put(mapKey, columnIndexes);
+    }
+    return columnIndexes;
+  }
+
+  private String prependPrefix(String columnName, String prefix) {
+    if (columnName == null || columnName.length() == 0 || prefix == null || prefix.length() == 0) {
+      return columnName;
+    }
+    return prefix + columnName;
+  }
+
   private String getMapKey(ResultMap resultMap, String columnPrefix) {
     return resultMap.getId() + ":" + columnPrefix;
   }
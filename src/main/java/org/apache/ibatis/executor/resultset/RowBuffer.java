@@ -0,0 +1,710 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLXML;
+import java.sql.Struct;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * Buffers the column values of result set rows so that they can be mapped away from the thread that reads the
+ * result set.
+ * <p>
+ * The first row is mapped through {@link #record(ResultSet)}, which passes every call to the result set and records
+ * which getters the type handlers used on which columns. Every following row is read with exactly those getters by
+ * {@link #readRow(ResultSet)}, so the driver still does all value conversions, and is served back through
+ * {@link #newResultSet()}. A getter that was not used on the first row throws an {@link UnbufferedAccessException}.
+ * <p>
+ * Type handlers may read other columns depending on the data, so the values of columns that no getter read on the
+ * first row are also kept, as returned by {@link ResultSet#getObject(int)}. A row whose mapping throws an
+ * {@link UnbufferedAccessException} is mapped again with {@link BufferedResultSet#setRow(Object[], boolean)}, which
+ * serves the missing getters from these values and from the values of the recorded getters of the same column. Only
+ * conversions that lose no data are served; any other getter still throws, so a row never maps to a different value.
+ *
+ * @since 3.5.4
+ */
+final class RowBuffer {
+
+  // 返回值与当前行无关、可以提前读出的列读取方法
+  private static final Set<String> BUFFERED_GETTERS = new HashSet<>(Arrays.asList(
+      "getString", "getNString", "getBoolean", "getByte", "getShort", "getInt", "getLong", "getFloat", "getDouble",
+      "getBigDecimal", "getBytes", "getDate", "getTime", "getTimestamp", "getObject", "getURL",
+      "getBlob", "getClob", "getNClob", "getBinaryStream", "getAsciiStream", "getCharacterStream", "getNCharacterStream"));
+
+  private final List<String> columnNames;
+  private final List<JdbcType> jdbcTypes;
+  private final List<String> classNames;
+  private final Map<String, Integer> columnIndexes = new HashMap<>();
+  private final List<Accessor> accessors = new ArrayList<>();
+  private Accessor[][] columnAccessors;
+  // 第一行未读取的列在缓冲行中的位置，-1 表示已有读取方法
+  private int[] snapshotSlots;
+  private int rowLength;
+  private boolean bufferable = true;
+
+  RowBuffer(ResultSetWrapper rsw) {
+    this.columnNames = rsw.getColumnNames();
+    this.jdbcTypes = rsw.getJdbcTypes();
+    this.classNames = rsw.getClassNames();
+    for (int i = 0; i < columnNames.size(); i++) {
+      // 与 JDBC 规范一致，同名列取第一个
+      columnIndexes.putIfAbsent(columnNames.get(i).toUpperCase(Locale.ENGLISH), i + 1);
+    }
+  }
+
+  /**
+   * Returns whether the result set may be buffered at all. Columns whose values are only valid while the row is
+   * current (arrays, structs, refs, XML, row ids and cursors) are never buffered.
+   *
+   * @param rsw the result set
+   * @return true if the rows of the result set may be buffered
+   */
+  static boolean isSupported(ResultSetWrapper rsw) {
+    for (JdbcType jdbcType : rsw.getJdbcTypes()) {
+      if (jdbcType == JdbcType.ARRAY || jdbcType == JdbcType.STRUCT || jdbcType == JdbcType.REF
+          || jdbcType == JdbcType.DATALINK || jdbcType == JdbcType.ROWID || jdbcType == JdbcType.SQLXML
+          || jdbcType == JdbcType.CURSOR) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Wraps the result set so that the getters used to map the current row are recorded.
+   *
+   * @param rs the result set, positioned on the first row
+   * @return the recording result set
+   */
+  ResultSet record(ResultSet rs) {
+    InvocationHandler handler = (proxy, method, params) -> {
+      try {
+        final Object value = method.invoke(rs, params);
+        if (!Object.class.equals(method.getDeclaringClass()) && columnAccessors == null) {
+          recordAccess(method, params, value);
+        }
+        return value;
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    };
+    ClassLoader cl = ResultSet.class.getClassLoader();
+    return (ResultSet) Proxy.newProxyInstance(cl, new Class[]{ResultSet.class}, handler);
+  }
+
+  private void recordAccess(Method method, Object[] params, Object value) {
+    final String name = method.getName();
+    switch (name) {
+      case "wasNull":
+      case "findColumn":
+      case "getMetaData":
+      case "isClosed":
+        return;
+      default:
+        break;
+    }
+    final int column = params == null ? -1 : columnIndex(params[0]);
+    final Class<?> type = params != null && params.length == 2 && params[1] instanceof Class ? (Class<?>) params[1] : null;
+    if (column < 0 || !BUFFERED_GETTERS.contains(name) || params.length != (type == null ? 1 : 2)
+        || value instanceof Array || value instanceof Struct || value instanceof Ref || value instanceof SQLXML
+        || value instanceof RowId) {
+      // 需要结果集其他能力(游标移动、按 Calendar 取值等)的类型处理器只能逐行映射
+      bufferable = false;
+      return;
+    }
+    for (Accessor accessor : accessors) {
+      if (accessor.matches(column, name, type)) {
+        return;
+      }
+    }
+    accessors.add(new Accessor(accessors.size(), column, name, type, method.getReturnType()));
+  }
+
+  private int columnIndex(Object param) {
+    if (param instanceof Integer) {
+      final int column = (Integer) param;
+      return column >= 1 && column <= columnNames.size() ? column : -1;
+    }
+    if (param instanceof String) {
+      final Integer column = columnIndexes.get(((String) param).toUpperCase(Locale.ENGLISH));
+      return column == null ? -1 : column;
+    }
+    return -1;
+  }
+
+  /**
+   * Stops recording and returns whether all recorded accesses can be served from buffered rows.
+   *
+   * @return true if the following rows can be buffered
+   */
+  boolean stopRecording() {
+    final List<List<Accessor>> byColumn = new ArrayList<>();
+    for (int i = 0; i <= columnNames.size(); i++) {
+      byColumn.add(new ArrayList<>());
+    }
+    for (Accessor accessor : accessors) {
+      byColumn.get(accessor.column).add(accessor);
+    }
+    columnAccessors = new Accessor[byColumn.size()][];
+    snapshotSlots = new int[byColumn.size()];
+    rowLength = accessors.size();
+    for (int i = 0; i < columnAccessors.length; i++) {
+      columnAccessors[i] = byColumn.get(i).toArray(new Accessor[0]);
+      snapshotSlots[i] = i > 0 && columnAccessors[i].length == 0 ? rowLength++ : -1;
+    }
+    return bufferable;
+  }
+
+  /**
+   * Reads the values of the current row with the recorded getters.
+   *
+   * @param rs the result set, positioned on a row
+   * @return the buffered values
+   * @throws SQLException if a value cannot be read
+   */
+  Object[] readRow(ResultSet rs) throws SQLException {
+    final Object[] row = new Object[rowLength];
+    for (Accessor accessor : accessors) {
+      row[accessor.slot] = accessor.read(rs);
+    }
+    for (int column = 1; column < snapshotSlots.length; column++) {
+      if (snapshotSlots[column] >= 0) {
+        row[snapshotSlots[column]] = readSnapshot(rs, column);
+      }
+    }
+    return row;
+  }
+
+  private Object readSnapshot(ResultSet rs, int column) throws SQLException {
+    final JdbcType jdbcType = jdbcTypes.get(column - 1);
+    if (jdbcType == JdbcType.BLOB || jdbcType == JdbcType.CLOB || jdbcType == JdbcType.NCLOB
+        || jdbcType == JdbcType.LONGVARBINARY || jdbcType == JdbcType.LONGVARCHAR || jdbcType == JdbcType.LONGNVARCHAR) {
+      // 不为可能用不到的大字段读入全部内容
+      return UNAVAILABLE;
+    }
+    try {
+      return detach(rs.getObject(column));
+    } catch (UnbufferedAccessException e) {
+      return UNAVAILABLE;
+    }
+  }
+
+  /**
+   * Creates a result set over buffered rows. It is positioned with {@link BufferedResultSet#setRow(Object[])} and
+   * must only be used by one thread at a time.
+   *
+   * @return a new buffered result set
+   */
+  BufferedResultSet newResultSet() {
+    return new BufferedResultSet();
+  }
+
+  // 一列的一种读取方式，及其值在缓冲行中的位置
+  private static final class Accessor {
+
+    private final int slot;
+    private final int column;
+    private final String method;
+    private final Class<?> type;
+    private final Class<?> returnType;
+
+    Accessor(int slot, int column, String method, Class<?> type, Class<?> returnType) {
+      this.slot = slot;
+      this.column = column;
+      this.method = method;
+      this.type = type;
+      this.returnType = returnType;
+    }
+
+    boolean matches(int column, String method, Class<?> type) {
+      return this.column == column && this.method.equals(method) && this.type == type;
+    }
+
+    Object read(ResultSet rs) throws SQLException {
+      final Object value;
+      switch (method) {
+        case "getString":
+          return rs.getString(column);
+        case "getNString":
+          return rs.getNString(column);
+        case "getBoolean":
+          value = rs.getBoolean(column);
+          break;
+        case "getByte":
+          value = rs.getByte(column);
+          break;
+        case "getShort":
+          value = rs.getShort(column);
+          break;
+        case "getInt":
+          value = rs.getInt(column);
+          break;
+        case "getLong":
+          value = rs.getLong(column);
+          break;
+        case "getFloat":
+          value = rs.getFloat(column);
+          break;
+        case "getDouble":
+          value = rs.getDouble(column);
+          break;
+        case "getBigDecimal":
+          return rs.getBigDecimal(column);
+        case "getBytes":
+          return rs.getBytes(column);
+        case "getDate":
+          return rs.getDate(column);
+        case "getTime":
+          return rs.getTime(column);
+        case "getTimestamp":
+          return rs.getTimestamp(column);
+        case "getURL":
+          return rs.getURL(column);
+        case "getObject":
+          return detach(type == null ? rs.getObject(column) : rs.getObject(column, type));
+        case "getBlob":
+          return detach(rs.getBlob(column));
+        case "getClob":
+          return detach(rs.getClob(column));
+        case "getNClob":
+          return detach(rs.getNClob(column));
+        case "getBinaryStream":
+          return readBytes(rs.getBinaryStream(column));
+        case "getAsciiStream":
+          return readBytes(rs.getAsciiStream(column));
+        case "getCharacterStream":
+          return readString(rs.getCharacterStream(column));
+        default:
+          return readString(rs.getNCharacterStream(column));
+      }
+      // 基本类型用 null 表示 SQL NULL，供 wasNull 使用
+      return rs.wasNull() ? null : value;
+    }
+
+    Object serve(Object value) {
+      switch (method) {
+        case "getBinaryStream":
+        case "getAsciiStream":
+          return new ByteArrayInputStream((byte[]) value);
+        case "getCharacterStream":
+        case "getNCharacterStream":
+          return new StringReader((String) value);
+        default:
+          return value;
+      }
+    }
+
+    Object nullValue() {
+      if (!returnType.isPrimitive()) {
+        return null;
+      } else if (returnType == boolean.class) {
+        return false;
+      } else if (returnType == byte.class) {
+        return (byte) 0;
+      } else if (returnType == short.class) {
+        return (short) 0;
+      } else if (returnType == int.class) {
+        return 0;
+      } else if (returnType == long.class) {
+        return 0L;
+      } else if (returnType == float.class) {
+        return 0f;
+      }
+      return 0d;
+    }
+  }
+
+  // 缓冲行中无法提供的列值
+  private static final Object UNAVAILABLE = new Object();
+
+  /**
+   * Converts the buffered value of a column to what an unrecorded getter would return, if the conversion is exact and
+   * every driver would return the same value. Anything that may round, truncate or format differently throws an
+   * {@link UnbufferedAccessException}, so that a row never maps differently than it would have without buffering.
+   */
+  private static Object convert(Object value, Class<?> target) throws SQLException {
+    final Class<?> type = target.isPrimitive() ? MethodType.methodType(target).wrap().returnType() : target;
+    if (type.isInstance(value)) {
+      return value;
+    } else if (value instanceof Clob && (type == String.class || type == Reader.class)) {
+      final Clob clob = (Clob) value;
+      final long length = clob.length();
+      final String string = length == 0 ? "" : clob.getSubString(1, (int) length);
+      return type == String.class ? string : new StringReader(string);
+    } else if (value instanceof Blob && (type == byte[].class || type == InputStream.class)) {
+      final Blob blob = (Blob) value;
+      final long length = blob.length();
+      final byte[] bytes = length == 0 ? new byte[0] : blob.getBytes(1, (int) length);
+      return type == byte[].class ? bytes : new ByteArrayInputStream(bytes);
+    } else if (value instanceof byte[] && type == InputStream.class) {
+      return new ByteArrayInputStream((byte[]) value);
+    } else if (value instanceof String && type == Reader.class) {
+      return new StringReader((String) value);
+    } else if ((value instanceof Date || value instanceof Time) && type == Timestamp.class) {
+      // 反方向会丢弃日期或时间部分
+      return new Timestamp(((java.util.Date) value).getTime());
+    } else if (type == String.class && (value instanceof Integer || value instanceof Long || value instanceof Short
+        || value instanceof Byte || value instanceof BigInteger)) {
+      // 小数的文本形式(尾随零、指数形式)因驱动而异，只转换整数
+      return value.toString();
+    } else if (value instanceof Number) {
+      final BigDecimal exact = toExactDecimal((Number) value);
+      final Object converted = exact == null ? null : convertNumber(exact, type);
+      if (converted != null) {
+        return converted;
+      }
+    }
+    throw new UnbufferedAccessException(
+        "A buffered " + value.getClass().getName() + " cannot be read exactly as " + type.getName());
+  }
+
+  // 浮点数转换时各驱动的舍入方式不同，不做转换
+  private static BigDecimal toExactDecimal(Number number) {
+    if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+      return BigDecimal.valueOf(number.longValue());
+    } else if (number instanceof BigInteger) {
+      return new BigDecimal((BigInteger) number);
+    } else if (number instanceof BigDecimal) {
+      return (BigDecimal) number;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number as the type, or null if that would lose data.
+   */
+  private static Object convertNumber(BigDecimal number, Class<?> type) {
+    try {
+      if (type == Integer.class) {
+        return number.intValueExact();
+      } else if (type == Long.class) {
+        return number.longValueExact();
+      } else if (type == Short.class) {
+        return number.shortValueExact();
+      } else if (type == Byte.class) {
+        return number.byteValueExact();
+      } else if (type == BigDecimal.class) {
+        return number;
+      } else if (type == Double.class) {
+        final double converted = number.doubleValue();
+        return !Double.isInfinite(converted) && new BigDecimal(converted).compareTo(number) == 0 ? converted : null;
+      } else if (type == Float.class) {
+        final float converted = number.floatValue();
+        return !Float.isInfinite(converted) && new BigDecimal(converted).compareTo(number) == 0 ? converted : null;
+      }
+    } catch (ArithmeticException e) {
+      // 超出范围或有小数部分
+    }
+    return null;
+  }
+
+  private static Object detach(Object value) throws SQLException {
+    if (value instanceof Clob) {
+      final Clob clob = (Clob) value;
+      final long length = clob.length();
+      return newClob(length == 0 ? "" : clob.getSubString(1, (int) length));
+    } else if (value instanceof Blob) {
+      final Blob blob = (Blob) value;
+      final long length = blob.length();
+      return newBlob(length == 0 ? new byte[0] : blob.getBytes(1, (int) length));
+    } else if (value instanceof Array || value instanceof Struct || value instanceof Ref || value instanceof SQLXML
+        || value instanceof RowId || value instanceof InputStream || value instanceof Reader) {
+      throw new UnbufferedAccessException("Values of type " + value.getClass().getName() + " cannot be buffered");
+    }
+    return value;
+  }
+
+  private static byte[] readBytes(InputStream in) throws SQLException {
+    if (in == null) {
+      return null;
+    }
+    try (InputStream input = in) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    } catch (IOException e) {
+      throw new SQLException("Error reading stream.  Cause: " + e, e);
+    }
+  }
+
+  private static String readString(Reader in) throws SQLException {
+    if (in == null) {
+      return null;
+    }
+    try (Reader reader = in) {
+      final StringBuilder out = new StringBuilder();
+      final char[] buffer = new char[8192];
+      int read;
+      while ((read = reader.read(buffer)) != -1) {
+        out.append(buffer, 0, read);
+      }
+      return out.toString();
+    } catch (IOException e) {
+      throw new SQLException("Error reading stream.  Cause: " + e, e);
+    }
+  }
+
+  // 脱离连接的 LOB，值已全部读入内存
+  private static NClob newClob(String value) {
+    InvocationHandler handler = (proxy, method, params) -> {
+      switch (method.getName()) {
+        case "length":
+          return (long) value.length();
+        case "getSubString":
+          final int start = (int) Math.min((Long) params[0] - 1, value.length());
+          return value.substring(start, Math.min(value.length(), start + (Integer) params[1]));
+        case "getCharacterStream":
+          return new StringReader(value);
+        case "getAsciiStream":
+          return new ByteArrayInputStream(value.getBytes(StandardCharsets.US_ASCII));
+        case "free":
+          return null;
+        case "toString":
+          return value;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == params[0];
+        default:
+          throw new UnbufferedAccessException("Clob." + method.getName() + " is not supported by buffered rows");
+      }
+    };
+    ClassLoader cl = NClob.class.getClassLoader();
+    return (NClob) Proxy.newProxyInstance(cl, new Class[]{NClob.class}, handler);
+  }
+
+  private static Blob newBlob(byte[] value) {
+    InvocationHandler handler = (proxy, method, params) -> {
+      switch (method.getName()) {
+        case "length":
+          return (long) value.length;
+        case "getBytes":
+          final int start = (int) Math.min((Long) params[0] - 1, value.length);
+          return Arrays.copyOfRange(value, start, Math.min(value.length, start + (Integer) params[1]));
+        case "getBinaryStream":
+          return new ByteArrayInputStream(value);
+        case "free":
+          return null;
+        case "toString":
+          return "Blob[" + value.length + "]";
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == params[0];
+        default:
+          throw new UnbufferedAccessException("Blob." + method.getName() + " is not supported by buffered rows");
+      }
+    };
+    ClassLoader cl = Blob.class.getClassLoader();
+    return (Blob) Proxy.newProxyInstance(cl, new Class[]{Blob.class}, handler);
+  }
+
+  /**
+   * Thrown when a buffered row is accessed in a way that was not recorded on the first row.
+   */
+  static final class UnbufferedAccessException extends SQLFeatureNotSupportedException {
+
+    private static final long serialVersionUID = 1L;
+
+    UnbufferedAccessException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * A read only, single row view of buffered values.
+   */
+  final class BufferedResultSet implements InvocationHandler {
+
+    private final ResultSet resultSet;
+    private Object[] row;
+    private boolean lenient;
+    private boolean wasNull;
+
+    private BufferedResultSet() {
+      ClassLoader cl = ResultSet.class.getClassLoader();
+      this.resultSet = (ResultSet) Proxy.newProxyInstance(cl, new Class[]{ResultSet.class}, this);
+    }
+
+    ResultSet getResultSet() {
+      return resultSet;
+    }
+
+    void setRow(Object[] row) {
+      setRow(row, false);
+    }
+
+    /**
+     * Positions the result set on a buffered row.
+     *
+     * @param row the buffered values
+     * @param lenient whether getters that were not used on the first row are served from the other values of the
+     *     column
+     */
+    void setRow(Object[] row, boolean lenient) {
+      this.row = row;
+      this.lenient = lenient;
+      this.wasNull = false;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+      try {
+        if (Object.class.equals(method.getDeclaringClass())) {
+          return method.invoke(this, params);
+        }
+        final String name = method.getName();
+        switch (name) {
+          case "wasNull":
+            return wasNull;
+          case "findColumn":
+            final int column = columnIndex(params[0]);
+            if (column < 0) {
+              throw new SQLException("Column '" + params[0] + "' not found");
+            }
+            return column;
+          case "getMetaData":
+            return newMetaData();
+          case "isClosed":
+            return false;
+          default:
+            return getValue(method, params);
+        }
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+
+    private Object getValue(Method method, Object[] params) throws SQLException {
+      final String name = method.getName();
+      if (params != null && (params.length == 1 || params.length == 2 && params[1] instanceof Class)) {
+        final int column = columnIndex(params[0]);
+        if (column < 0) {
+          throw new SQLException("Column '" + params[0] + "' not found");
+        }
+        final Class<?> type = params.length == 2 ? (Class<?>) params[1] : null;
+        for (Accessor accessor : columnAccessors[column]) {
+          if (accessor.method.equals(name) && accessor.type == type) {
+            final Object value = row[accessor.slot];
+            wasNull = value == null;
+            return value == null ? accessor.nullValue() : accessor.serve(value);
+          }
+        }
+        if (lenient && BUFFERED_GETTERS.contains(name)) {
+          return getUnrecordedValue(column, method, type);
+        }
+      }
+      throw new UnbufferedAccessException("ResultSet." + name + " was not used on the first row and is not buffered");
+    }
+
+    private Object getUnrecordedValue(int column, Method method, Class<?> type) throws SQLException {
+      final Object value;
+      if (snapshotSlots[column] >= 0) {
+        value = row[snapshotSlots[column]];
+      } else {
+        // 优先使用 getObject 读取的值，其次是该列第一个读取方法的值
+        Accessor source = columnAccessors[column][0];
+        for (Accessor accessor : columnAccessors[column]) {
+          if (accessor.method.equals("getObject") && accessor.type == null) {
+            source = accessor;
+          }
+        }
+        value = row[source.slot];
+      }
+      if (value == UNAVAILABLE) {
+        throw new UnbufferedAccessException(
+            "ResultSet." + method.getName() + " was not used on the first row and the column is not buffered");
+      }
+      wasNull = value == null;
+      if (value == null) {
+        return new Accessor(-1, column, method.getName(), type, method.getReturnType()).nullValue();
+      }
+      if (type == null && method.getName().equals("getObject")) {
+        return value;
+      }
+      return convert(value, type != null ? type : method.getReturnType());
+    }
+
+    private ResultSetMetaData newMetaData() {
+      InvocationHandler handler = (proxy, method, params) -> {
+        switch (method.getName()) {
+          case "getColumnCount":
+            return columnNames.size();
+          case "getColumnName":
+          case "getColumnLabel":
+            return columnNames.get((Integer) params[0] - 1);
+          case "getColumnType":
+            final JdbcType jdbcType = jdbcTypes.get((Integer) params[0] - 1);
+            return jdbcType == null ? Types.OTHER : jdbcType.TYPE_CODE;
+          case "getColumnClassName":
+            return classNames.get((Integer) params[0] - 1);
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "equals":
+            return proxy == params[0];
+          case "toString":
+            return "ResultSetMetaData" + columnNames;
+          default:
+            throw new UnbufferedAccessException("ResultSetMetaData." + method.getName() + " is not supported by buffered rows");
+        }
+      };
+      ClassLoader cl = ResultSetMetaData.class.getClassLoader();
+      return (ResultSetMetaData) Proxy.newProxyInstance(cl, new Class[]{ResultSetMetaData.class}, handler);
+    }
+  }
+
+}
@@ -24,9 +24,12 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.AdaptiveFetchSize;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.metrics.MetricsCollector;
+import org.apache.ibatis.metrics.MetricsCollector.Phase;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
@@ -47,6 +50,7 @@ public abstract class BaseStatementHandler implements StatementHandler {
   protected final Executor executor;
   protected final MappedStatement mappedStatement;
   protected final RowBounds rowBounds;
+  protected final MetricsCollector metricsCollector;
 
   protected BoundSql boundSql;
 
@@ -58,6 +62,7 @@ public abstract class BaseStatementHandler implements StatementHandler {
 
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.objectFactory = configuration.getObjectFactory();
+    this.metricsCollector = configuration.getMetricsCollector();
 
     if (boundSql == null) { // issue #435, get the key before calculating the statement
       generateKeys(parameterObject);
@@ -84,10 +89,12 @@ public abstract class BaseStatementHandler implements StatementHandler {
   public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
     ErrorContext.instance().sql(boundSql.getSql());
     Statement statement = null;
+    long start = startPhase();
     try {
       statement = instantiateStatement(connection);
       setStatementTimeout(statement, transactionTimeout);
       setFetchSize(statement);
+      endPhase(Phase.PREPARE, start);
       return statement;
     } catch (SQLException e) {
       closeStatement(statement);
@@ -100,6 +107,19 @@ public abstract class BaseStatementHandler implements StatementHandler {
 
   protected abstract Statement instantiateStatement(Connection connection) throws SQLException;
 
+  /**
+   * Returns the start time of a measured phase, or 0 if no {@link MetricsCollector} is configured.
+   */
+  protected long startPhase() {
+    return metricsCollector == null ? 0 : System.nanoTime();
+  }
+
+  protected void endPhase(Phase phase, long start) {
+    if (metricsCollector != null) {
+      metricsCollector.recordLatency(mappedStatement.getId(), phase, System.nanoTime() - start);
+    }
+  }
+
   protected void setStatementTimeout(Statement stmt, Integer transactionTimeout) throws SQLException {
     Integer queryTimeout = null;
     if (mappedStatement.getTimeout() != null) {
@@ -113,6 +133,18 @@ public abstract class BaseStatementHandler implements StatementHandler {
     StatementUtil.applyTransactionTimeout(stmt, queryTimeout, transactionTimeout);
   }
 
+  /**
+   * Starts a cursor or result handler query with the initial adaptive fetch size, see {@link AdaptiveFetchSize}.
+   *
+   * @param stmt the statement about to be executed
+   * @throws SQLException if the fetch size cannot be set
+   */
+  protected void setInitialAdaptiveFetchSize(Statement stmt) throws SQLException {
+    if (AdaptiveFetchSize.isEnabled(configuration, mappedStatement)) {
+      stmt.setFetchSize(configuration.getAdaptiveFetchSizeInitial());
+    }
+  }
+
   protected void setFetchSize(Statement stmt) throws SQLException {
     Integer fetchSize = mappedStatement.getFetchSize();
     if (fetchSize != null) {
@@ -31,6 +31,7 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.metrics.MetricsCollector.Phase;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.JdbcType;
@@ -47,7 +48,9 @@ public class CallableStatementHandler extends BaseStatementHandler {
   @Override
   public int update(Statement statement) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
+    long start = startPhase();
     cs.execute();
+    endPhase(Phase.EXECUTE, start);
     int rows = cs.getUpdateCount();
     Object parameterObject = boundSql.getParameterObject();
     KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
@@ -65,7 +68,12 @@ public class CallableStatementHandler extends BaseStatementHandler {
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
+    if (resultHandler != null) {
+      setInitialAdaptiveFetchSize(statement);
+    }
+    long start = startPhase();
     cs.execute();
+    endPhase(Phase.EXECUTE, start);
     List<E> resultList = resultSetHandler.handleResultSets(cs);
     resultSetHandler.handleOutputParameters(cs);
     return resultList;
@@ -74,7 +82,10 @@ public class CallableStatementHandler extends BaseStatementHandler {
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
+    setInitialAdaptiveFetchSize(statement);
+    long start = startPhase();
     cs.execute();
+    endPhase(Phase.EXECUTE, start);
     Cursor<E> resultList = resultSetHandler.handleCursorResultSets(cs);
     resultSetHandler.handleOutputParameters(cs);
     return resultList;
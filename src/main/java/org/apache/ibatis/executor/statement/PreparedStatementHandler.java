@@ -29,6 +29,7 @@ import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.metrics.MetricsCollector.Phase;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 
@@ -44,7 +45,9 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   @Override
   public int update(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    long start = startPhase();
     ps.execute();
+    endPhase(Phase.EXECUTE, start);
     int rows = ps.getUpdateCount();
     Object parameterObject = boundSql.getParameterObject();
     KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
@@ -61,14 +64,22 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    if (resultHandler != null) {
+      setInitialAdaptiveFetchSize(statement);
+    }
+    long start = startPhase();
     ps.execute();
+    endPhase(Phase.EXECUTE, start);
     return resultSetHandler.handleResultSets(ps);
   }
 
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    setInitialAdaptiveFetchSize(statement);
+    long start = startPhase();
     ps.execute();
+    endPhase(Phase.EXECUTE, start);
     return resultSetHandler.handleCursorResultSets(ps);
   }
 
@@ -29,6 +29,7 @@ import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.metrics.MetricsCollector.Phase;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 
@@ -47,16 +48,20 @@ public class SimpleStatementHandler extends BaseStatementHandler {
     Object parameterObject = boundSql.getParameterObject();
     KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
     int rows;
+    long start = startPhase();
     if (keyGenerator instanceof Jdbc3KeyGenerator) {
       statement.execute(sql, Statement.RETURN_GENERATED_KEYS);
+      endPhase(Phase.EXECUTE, start);
       rows = statement.getUpdateCount();
       keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
     } else if (keyGenerator instanceof SelectKeyGenerator) {
       statement.execute(sql);
+      endPhase(Phase.EXECUTE, start);
       rows = statement.getUpdateCount();
       keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
     } else {
       statement.execute(sql);
+      endPhase(Phase.EXECUTE, start);
       rows = statement.getUpdateCount();
     }
     return rows;
@@ -71,14 +76,22 @@ public class SimpleStatementHandler extends BaseStatementHandler {
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     String sql = boundSql.getSql();
+    if (resultHandler != null) {
+      setInitialAdaptiveFetchSize(statement);
+    }
+    long start = startPhase();
     statement.execute(sql);
+    endPhase(Phase.EXECUTE, start);
     return resultSetHandler.handleResultSets(statement);
   }
 
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     String sql = boundSql.getSql();
+    setInitialAdaptiveFetchSize(statement);
+    long start = startPhase();
     statement.execute(sql);
+    endPhase(Phase.EXECUTE, start);
     return resultSetHandler.handleCursorResultSets(statement);
   }
 
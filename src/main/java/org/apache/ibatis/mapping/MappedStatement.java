@@ -56,6 +56,7 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private int insertBatchSize;
 
   MappedStatement() {
     // constructor disabled
@@ -174,6 +175,18 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * Makes this insert a multi-row insert that writes a collection parameter in chunks of the given number of rows.
+     *
+     * @param insertBatchSize the number of rows per statement, 0 for a regular insert
+     * @return this builder
+     * @since 3.5.4
+     */
+    public Builder insertBatchSize(int insertBatchSize) {
+      mappedStatement.insertBatchSize = insertBatchSize;
+      return this;
+    }
+
     /**
      * @deprecated Use {@link #resultSets}
      */
@@ -285,6 +298,17 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * Returns the number of rows a multi-row insert writes per statement.
+   *
+   * @return the number of rows per statement, or 0 if this is not a multi-row insert
+   * @since 3.5.4
+   * @see org.apache.ibatis.builder.MultiRowInsertSqlSource
+   */
+  public int getInsertBatchSize() {
+    return insertBatchSize;
+  }
+
   /**
    * @deprecated Use {@link #getResultSets()}
    */
@@ -45,6 +45,7 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
   private boolean lazy;
+  private int fetchBatchSize;
 
   ResultMapping() {
   }
@@ -132,6 +133,11 @@ public class ResultMapping {
       return this;
     }
 
+    public Builder fetchBatchSize(int fetchBatchSize) {
+      resultMapping.fetchBatchSize = fetchBatchSize;
+      return this;
+    }
+
     public ResultMapping build() {
       // lock down collections
       resultMapping.flags = Collections.unmodifiableList(resultMapping.flags);
@@ -251,6 +257,21 @@ public class ResultMapping {
     this.lazy = lazy;
   }
 
+  /**
+   * Returns the maximum number of pending lazy loads of the nested select that are loaded together with a single
+   * query, 0 or 1 to load each of them on its own.
+   *
+   * @return the fetch batch size
+   * @since 3.5.4
+   */
+  public int getFetchBatchSize() {
+    return fetchBatchSize;
+  }
+
+  public void setFetchBatchSize(int fetchBatchSize) {
+    this.fetchBatchSize = fetchBatchSize;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -294,6 +315,7 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", fetchBatchSize=").append(fetchBatchSize);
     sb.append('}');
     return sb.toString();
   }
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps latency histograms and counters per mapped statement id in memory.
+ *
+ * @since 3.5.4
+ */
+public class DefaultMetricsCollector implements MetricsCollector {
+
+  private final ConcurrentMap<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+  private final LatencyHistogram connectionCheckouts = new LatencyHistogram();
+  private final LongAdder forEachPaddings = new LongAdder();
+  private final LongAdder forEachPaddedItems = new LongAdder();
+
+  @Override
+  public void recordLatency(String statementId, Phase phase, long elapsedNanos) {
+    getOrCreate(statementId).getLatency(phase).record(elapsedNanos);
+  }
+
+  @Override
+  public void recordRowsMapped(String statementId, int rows) {
+    getOrCreate(statementId).addRowsMapped(rows);
+  }
+
+  @Override
+  public void recordLocalCacheAccess(String statementId, boolean hit) {
+    getOrCreate(statementId).recordLocalCacheAccess(hit);
+  }
+
+  @Override
+  public void recordCacheAccess(String statementId, boolean hit) {
+    getOrCreate(statementId).recordCacheAccess(hit);
+  }
+
+  @Override
+  public void recordConnectionCheckout(long elapsedNanos) {
+    connectionCheckouts.record(elapsedNanos);
+  }
+
+  @Override
+  public void recordForEachPadding(int size, int paddedSize) {
+    if (paddedSize > size) {
+      forEachPaddings.increment();
+      forEachPaddedItems.add(paddedSize - size);
+    }
+  }
+
+  /**
+   * Returns the metrics of a statement.
+   *
+   * @param statementId the id of the mapped statement
+   * @return the metrics, or null if nothing was recorded for the statement
+   */
+  public StatementMetrics getStatementMetrics(String statementId) {
+    return statements.get(statementId);
+  }
+
+  public Collection<StatementMetrics> getAllStatementMetrics() {
+    return Collections.unmodifiableCollection(statements.values());
+  }
+
+  /**
+   * Returns the connection checkout latencies in nanoseconds.
+   *
+   * @return the histogram of connection checkouts
+   */
+  public LatencyHistogram getConnectionCheckouts() {
+    return connectionCheckouts;
+  }
+
+  /**
+   * Returns how many times a padded foreach had to repeat its last item.
+   *
+   * @return the number of padded foreach evaluations
+   */
+  public long getForEachPaddingCount() {
+    return forEachPaddings.sum();
+  }
+
+  /**
+   * Returns the total number of repeated items added by padded foreach elements.
+   *
+   * @return the number of padded items
+   */
+  public long getForEachPaddedItemCount() {
+    return forEachPaddedItems.sum();
+  }
+
+  public void reset() {
+    statements.clear();
+    connectionCheckouts.reset();
+    forEachPaddings.reset();
+    forEachPaddedItems.reset();
+  }
+
+  private StatementMetrics getOrCreate(String statementId) {
+    // computeIfAbsent locks the bin on Java 8 even if the key is present
+    StatementMetrics metrics = statements.get(statementId);
+    if (metrics == null) {
+      metrics = statements.computeIfAbsent(statementId, StatementMetrics::new);
+    }
+    return metrics;
+  }
+
+}
@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, thread-safe histogram of non-negative values such as latencies.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is split into 8 linear sub-buckets, so a recorded
+ * value is reported with a relative error of at most 12.5% over the whole <code>long</code> range. Recording
+ * does not allocate and does not lock.
+ *
+ * @since 3.5.4
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a value, negative values are recorded as 0.
+   *
+   * @param value the value to record
+   */
+  public void record(long value) {
+    long v = Math.max(0, value);
+    counts.incrementAndGet(indexOf(v));
+    count.increment();
+    total.add(v);
+    long currentMax;
+    while (v > (currentMax = max.get()) && !max.compareAndSet(currentMax, v)) {
+      // retry
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getTotal() {
+    return total.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public long getMean() {
+    long c = count.sum();
+    return c == 0 ? 0 : total.sum() / c;
+  }
+
+  /**
+   * Returns the value below which the given percentage of the recorded values fall.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the upper bound of the bucket holding the percentile (never more than the maximum recorded value)
+   */
+  public long getValueAtPercentile(double percentile) {
+    long c = count.sum();
+    if (c == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(c * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= target) {
+        return Math.min(highestValueOf(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Returns the number of recorded values per bucket; bucket <code>i</code> holds the values between
+   * {@link #lowestValueOf(int)} and {@link #highestValueOf(int)}.
+   *
+   * @return a copy of the bucket counts
+   */
+  public long[] getCounts() {
+    long[] copy = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      copy[i] = counts.get(i);
+    }
+    return copy;
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    count.reset();
+    total.reset();
+    max.set(0);
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int msb = 63 - Long.numberOfLeadingZeros(value);
+    int shift = msb - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  public static long lowestValueOf(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+    int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+    return (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+  }
+
+  public static long highestValueOf(int index) {
+    if (index == BUCKET_COUNT - 1) {
+      return Long.MAX_VALUE;
+    }
+    return lowestValueOf(index + 1) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + getCount() + ", mean=" + getMean() + ", p50=" + getValueAtPercentile(50)
+        + ", p90=" + getValueAtPercentile(90) + ", p99=" + getValueAtPercentile(99) + ", max=" + getMax();
+  }
+
+}
@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+/**
+ * Receives timings and counters from the MyBatis execution path.
+ * <p>
+ * Register an implementation with the <code>metricsCollector</code> setting or
+ * {@link org.apache.ibatis.session.Configuration#setMetricsCollector(MetricsCollector)}. Methods are called on the
+ * thread that executes the statement, so implementations must be thread-safe and should not block or allocate.
+ *
+ * @since 3.5.4
+ * @see DefaultMetricsCollector
+ */
+public interface MetricsCollector {
+
+  /**
+   * The part of a statement execution a latency was measured for.
+   */
+  enum Phase {
+    /** A whole query through the executor, including cache lookups, nested queries and mapping. */
+    QUERY,
+    /** A whole insert, update or delete through the executor. */
+    UPDATE,
+    /** Creating and configuring the JDBC statement. */
+    PREPARE,
+    /** Executing the JDBC statement. */
+    EXECUTE,
+    /** Mapping the result sets to objects. */
+    MAP
+  }
+
+  /**
+   * Records how long a phase of a statement took.
+   *
+   * @param statementId the id of the mapped statement
+   * @param phase the phase that was measured
+   * @param elapsedNanos the elapsed time in nanoseconds
+   */
+  void recordLatency(String statementId, Phase phase, long elapsedNanos);
+
+  /**
+   * Records how many result objects were mapped by one execution of a statement.
+   *
+   * @param statementId the id of the mapped statement
+   * @param rows the number of result objects
+   */
+  default void recordRowsMapped(String statementId, int rows) {
+  }
+
+  /**
+   * Records a lookup in the session (first level) cache.
+   *
+   * @param statementId the id of the mapped statement
+   * @param hit true if the result was found in the cache
+   */
+  default void recordLocalCacheAccess(String statementId, boolean hit) {
+  }
+
+  /**
+   * Records a lookup in the second level cache.
+   *
+   * @param statementId the id of the mapped statement
+   * @param hit true if the result was found in the cache
+   */
+  default void recordCacheAccess(String statementId, boolean hit) {
+  }
+
+  /**
+   * Records how long it took to check a connection out of a pooled data source.
+   *
+   * @param elapsedNanos the elapsed time in nanoseconds
+   */
+  default void recordConnectionCheckout(long elapsedNanos) {
+  }
+
+  /**
+   * Records a <code>&lt;foreach padding="true"&gt;</code> that repeated its last item to reach a padding size.
+   *
+   * @param size the number of items of the collection
+   * @param paddedSize the number of iterations after padding
+   */
+  default void recordForEachPadding(int size, int paddedSize) {
+  }
+
+}
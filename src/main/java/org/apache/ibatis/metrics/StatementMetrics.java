@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.metrics.MetricsCollector.Phase;
+
+/**
+ * The metrics {@link DefaultMetricsCollector} keeps for one mapped statement.
+ *
+ * @since 3.5.4
+ */
+public class StatementMetrics {
+
+  private final String statementId;
+  private final Map<Phase, LatencyHistogram> latencies = new EnumMap<>(Phase.class);
+  private final LongAdder rowsMapped = new LongAdder();
+  private final LongAdder localCacheHits = new LongAdder();
+  private final LongAdder localCacheMisses = new LongAdder();
+  private final LongAdder cacheHits = new LongAdder();
+  private final LongAdder cacheMisses = new LongAdder();
+
+  public StatementMetrics(String statementId) {
+    this.statementId = statementId;
+    // 预先创建所有阶段的直方图，记录时无需加锁
+    for (Phase phase : Phase.values()) {
+      latencies.put(phase, new LatencyHistogram());
+    }
+  }
+
+  public String getStatementId() {
+    return statementId;
+  }
+
+  /**
+   * Returns the latencies, in nanoseconds, recorded for a phase.
+   *
+   * @param phase the phase
+   * @return the histogram of the phase
+   */
+  public LatencyHistogram getLatency(Phase phase) {
+    return latencies.get(phase);
+  }
+
+  public long getRowsMapped() {
+    return rowsMapped.sum();
+  }
+
+  public long getLocalCacheHits() {
+    return localCacheHits.sum();
+  }
+
+  public long getLocalCacheMisses() {
+    return localCacheMisses.sum();
+  }
+
+  public long getCacheHits() {
+    return cacheHits.sum();
+  }
+
+  public long getCacheMisses() {
+    return cacheMisses.sum();
+  }
+
+  void addRowsMapped(int rows) {
+    rowsMapped.add(rows);
+  }
+
+  void recordLocalCacheAccess(boolean hit) {
+    (hit ? localCacheHits : localCacheMisses).increment();
+  }
+
+  void recordCacheAccess(boolean hit) {
+    (hit ? cacheHits : cacheMisses).increment();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(statementId);
+    for (Phase phase : Phase.values()) {
+      LatencyHistogram histogram = latencies.get(phase);
+      if (histogram.getCount() > 0) {
+        builder.append("\n ").append(phase).append(": ").append(histogram);
+      }
+    }
+    builder.append("\n rowsMapped=").append(getRowsMapped());
+    builder.append(", localCacheHits=").append(getLocalCacheHits()).append(", localCacheMisses=").append(getLocalCacheMisses());
+    builder.append(", cacheHits=").append(getCacheHits()).append(", cacheMisses=").append(getCacheMisses());
+    return builder.toString();
+  }
+
+}
@@ -18,6 +18,7 @@ package org.apache.ibatis.plugin;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 /**
  * @author Clinton Begin
@@ -26,10 +27,13 @@ public class InterceptorChain {
 
   //定义拦截器list对象
   private final List<Interceptor> interceptors = new ArrayList<>();
+  //按顺序包装目标对象的各段：连续使用默认 plugin() 的拦截器合并为一层代理，重写了 plugin() 的拦截器单独包装
+  private volatile List<UnaryOperator<Object>> stages;
+
   //执行传入对象的所有拦截操作，并返回执行结果
   public Object pluginAll(Object target) {
-    for (Interceptor interceptor : interceptors) {
-      target = interceptor.plugin(target);
+    for (UnaryOperator<Object> stage : getStages()) {
+      target = stage.apply(target);
     }
     return target;
   }
@@ -37,6 +41,7 @@ public class InterceptorChain {
   //将拦截器加入到拦截器列表中
   public void addInterceptor(Interceptor interceptor) {
     interceptors.add(interceptor);
+    stages = null;
   }
 
   //获取所有拦截器
@@ -44,4 +49,36 @@ public class InterceptorChain {
     return Collections.unmodifiableList(interceptors);
   }
 
+  private List<UnaryOperator<Object>> getStages() {
+    List<UnaryOperator<Object>> result = stages;
+    if (result == null) {
+      result = new ArrayList<>();
+      List<Interceptor> fused = new ArrayList<>();
+      for (Interceptor interceptor : interceptors) {
+        if (usesDefaultPlugin(interceptor)) {
+          fused.add(interceptor);
+          continue;
+        }
+        if (!fused.isEmpty()) {
+          result.add(new PluginChain(new ArrayList<>(fused))::wrap);
+          fused.clear();
+        }
+        result.add(interceptor::plugin);
+      }
+      if (!fused.isEmpty()) {
+        result.add(new PluginChain(fused)::wrap);
+      }
+      stages = result;
+    }
+    return result;
+  }
+
+  private static boolean usesDefaultPlugin(Interceptor interceptor) {
+    try {
+      return interceptor.getClass().getMethod("plugin", Object.class).getDeclaringClass() == Interceptor.class;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
 }
@@ -86,7 +86,7 @@ public class Plugin implements InvocationHandler {
    * 获取拦截器中所有签名注解数组
    * 循环所有签名数组，将sig添加到signatureMap中，并构造Method的Set集合，将sig构造的method添加到methods集合中
    */
-  private static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
+  static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
     Intercepts interceptsAnnotation = interceptor.getClass().getAnnotation(Intercepts.class);
     // issue #251
     if (interceptsAnnotation == null) {
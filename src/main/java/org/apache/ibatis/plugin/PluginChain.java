@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Wraps targets of several interceptors in a single proxy.
+ * <p>
+ * The result is the same as applying {@link Plugin#wrap(Object, Interceptor)} of each interceptor in turn: the
+ * interceptor added last is called first and {@link Invocation#proceed()} moves on to the next matching one. The
+ * matching interceptors of every method are looked up once per target class, and methods that no interceptor
+ * intercepts are invoked on the target directly. {@link Invocation#getTarget()} returns what the nested proxies would
+ * have passed, a proxy with the interceptors added before the current one, which is only created when it is asked for.
+ *
+ * @since 3.5.4
+ */
+final class PluginChain {
+
+  private final Interceptor[] interceptors;
+  private final List<Map<Class<?>, Set<Method>>> signatureMaps = new ArrayList<>();
+  // 目标类 -> 按只使用前 n 个拦截器时的调度, 下标为 n
+  private final Map<Class<?>, Dispatch[]> dispatches = new ConcurrentHashMap<>();
+
+  PluginChain(List<Interceptor> interceptors) {
+    this.interceptors = interceptors.toArray(new Interceptor[0]);
+    for (Interceptor interceptor : interceptors) {
+      signatureMaps.add(Plugin.getSignatureMap(interceptor));
+    }
+  }
+
+  Object wrap(Object target) {
+    return wrap(target, interceptors.length);
+  }
+
+  /**
+   * Wraps a target with the first interceptors of the chain.
+   *
+   * @param target the target
+   * @param count the number of interceptors, in the order they were added
+   * @return the proxy, or the target if none of these interceptors intercepts an interface of it
+   */
+  private Object wrap(Object target, int count) {
+    Class<?> type = target.getClass();
+    Dispatch[] byCount = dispatches.computeIfAbsent(type, t -> new Dispatch[interceptors.length + 1]);
+    Dispatch dispatch = byCount[count];
+    if (dispatch == null) {
+      // 并发时可能重复计算, 结果相同
+      dispatch = dispatchFor(type, count);
+      byCount[count] = dispatch;
+    }
+    if (dispatch.interfaces.length == 0) {
+      return target;
+    }
+    return Proxy.newProxyInstance(type.getClassLoader(), dispatch.interfaces, new ChainedPlugin(this, target, dispatch.chains));
+  }
+
+  private Dispatch dispatchFor(Class<?> type, int count) {
+    Set<Class<?>> interfaces = new LinkedHashSet<>();
+    Map<Method, int[]> chains = new HashMap<>();
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      for (Class<?> anInterface : c.getInterfaces()) {
+        for (Method method : anInterface.getMethods()) {
+          // 后加入的拦截器在外层，先被调用
+          List<Integer> chain = new ArrayList<>();
+          for (int i = count - 1; i >= 0; i--) {
+            Set<Method> methods = signatureMaps.get(i).get(method.getDeclaringClass());
+            if (methods != null && methods.contains(method)) {
+              chain.add(i);
+            }
+          }
+          if (!chain.isEmpty()) {
+            chains.put(method, chain.stream().mapToInt(Integer::intValue).toArray());
+          }
+        }
+        for (int i = 0; i < count; i++) {
+          if (signatureMaps.get(i).containsKey(anInterface)) {
+            interfaces.add(anInterface);
+          }
+        }
+      }
+    }
+    return new Dispatch(interfaces.toArray(new Class<?>[0]), Collections.unmodifiableMap(chains));
+  }
+
+  private static final class Dispatch {
+
+    private final Class<?>[] interfaces;
+    // 方法 -> 拦截它的拦截器下标, 外层在前
+    private final Map<Method, int[]> chains;
+
+    Dispatch(Class<?>[] interfaces, Map<Method, int[]> chains) {
+      this.interfaces = interfaces;
+      this.chains = chains;
+    }
+  }
+
+  private static final class ChainedPlugin implements InvocationHandler {
+
+    private final PluginChain pluginChain;
+    private final Object target;
+    private final Map<Method, int[]> chains;
+
+    ChainedPlugin(PluginChain pluginChain, Object target, Map<Method, int[]> chains) {
+      this.pluginChain = pluginChain;
+      this.target = target;
+      this.chains = chains;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      try {
+        int[] chain = chains.get(method);
+        if (chain == null) {
+          return method.invoke(target, args);
+        }
+        return pluginChain.interceptors[chain[0]].intercept(new ChainedInvocation(pluginChain, target, method, args, chain, 0));
+      } catch (Exception e) {
+        throw ExceptionUtil.unwrapThrowable(e);
+      }
+    }
+  }
+
+  /**
+   * An invocation whose {@link #proceed()} calls the next interceptor of the chain, and the target after the last one.
+   * {@link #getTarget()} is the target wrapped with the interceptors added before the current one.
+   */
+  private static final class ChainedInvocation extends Invocation {
+
+    private final PluginChain pluginChain;
+    private final Object target;
+    private final int[] chain;
+    private final int index;
+    private Object wrappedTarget;
+
+    ChainedInvocation(PluginChain pluginChain, Object target, Method method, Object[] args, int[] chain, int index) {
+      super(target, method, args);
+      this.pluginChain = pluginChain;
+      this.target = target;
+      this.chain = chain;
+      this.index = index;
+    }
+
+    @Override
+    public Object getTarget() {
+      if (wrappedTarget == null) {
+        wrappedTarget = pluginChain.wrap(target, chain[index]);
+      }
+      return wrappedTarget;
+    }
+
+    @Override
+    public Object proceed() throws InvocationTargetException, IllegalAccessException {
+      int next = index + 1;
+      if (next == chain.length) {
+        return super.proceed();
+      }
+      try {
+        return pluginChain.interceptors[chain[next]]
+            .intercept(new ChainedInvocation(pluginChain, target, getMethod(), getArgs(), chain, next));
+      } catch (Throwable t) {
+        // 与逐层代理时经 Method.invoke 调用内层代理抛出的异常一致
+        throw new InvocationTargetException(ExceptionUtil.unwrapThrowable(t));
+      }
+    }
+  }
+
+}
@@ -110,6 +110,10 @@ public class MetaObject {
   }
 
   public Object getValue(String name) {
+    PropertyPath path = propertyPath(name);
+    if (path != null) {
+      return path.getValue(this);
+    }
     PropertyTokenizer prop = new PropertyTokenizer(name);
     if (prop.hasNext()) {
       MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
@@ -124,6 +128,15 @@ public class MetaObject {
   }
 
   public void setValue(String name, Object value) {
+    PropertyPath path = propertyPath(name);
+    if (path != null) {
+      path.setValue(this, value);
+    } else {
+      setValueBySegments(name, value);
+    }
+  }
+
+  void setValueBySegments(String name, Object value) {
     PropertyTokenizer prop = new PropertyTokenizer(name);
     if (prop.hasNext()) {
       MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
@@ -143,9 +156,21 @@ public class MetaObject {
 
   public MetaObject metaObjectForProperty(String name) {
     Object value = getValue(name);
+    return forValue(value);
+  }
+
+  MetaObject forValue(Object value) {
     return MetaObject.forObject(value, objectFactory, objectWrapperFactory, reflectorFactory);
   }
 
+  // 带"."或下标的属性路径按根对象类型缓存解析结果
+  private PropertyPath propertyPath(String name) {
+    if (name.indexOf('.') < 0 && name.indexOf('[') < 0 || !reflectorFactory.isClassCacheEnabled()) {
+      return null;
+    }
+    return reflectorFactory.findForClass(originalObject.getClass()).getPropertyPath(name);
+  }
+
   public ObjectWrapper getObjectWrapper() {
     return objectWrapper;
   }
@@ -0,0 +1,210 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
+import org.apache.ibatis.reflection.wrapper.MapWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+
+/**
+ * A dotted or indexed property path like <code>order.customer.address[0].zip</code>, parsed once.
+ * <p>
+ * Walking the path gives the same results as {@link MetaObject} resolving one segment after the other, but plain
+ * beans and maps along the way are read without creating a {@link MetaObject} for each of them, and the invokers of
+ * bean segments are remembered for the class last seen. Indexed segments, collections and objects that have a
+ * custom {@link ObjectWrapper} are still handled by their wrapper.
+ *
+ * @since 3.5.4
+ */
+final class PropertyPath {
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final Segment[] segments;
+
+  private PropertyPath(Segment[] segments) {
+    this.segments = segments;
+  }
+
+  /**
+   * Parses the path, or returns <code>null</code> if it is a single property without index.
+   */
+  static PropertyPath parse(String name) {
+    if (name.indexOf('.') < 0 && name.indexOf('[') < 0) {
+      return null;
+    }
+    List<Segment> segments = new ArrayList<>();
+    for (String path = name; path != null; ) {
+      PropertyTokenizer prop = new PropertyTokenizer(path);
+      segments.add(new Segment(path, prop));
+      path = prop.getChildren();
+    }
+    return new PropertyPath(segments.toArray(new Segment[0]));
+  }
+
+  Object getValue(MetaObject root) {
+    Object current = segments[0].get(root, root.getObjectWrapper(), root.getOriginalObject());
+    for (int i = 1; i < segments.length; i++) {
+      if (current == null) {
+        return null;
+      }
+      current = segments[i].get(root, null, current);
+    }
+    return current;
+  }
+
+  void setValue(MetaObject root, Object value) {
+    MetaObject parent = root;
+    Object current = root.getOriginalObject();
+    int last = segments.length - 1;
+    for (int i = 0; i < last; i++) {
+      Object next = segments[i].get(root, parent == null ? null : parent.getObjectWrapper(), current);
+      if (next == null) {
+        // 中间属性为 null 时交给逐级实现，由父对象决定是否实例化
+        if (parent == null) {
+          parent = root.forValue(current);
+        }
+        parent.setValueBySegments(segments[i].path, value);
+        return;
+      }
+      parent = null;
+      current = next;
+    }
+    segments[last].set(root, parent == null ? null : parent.getObjectWrapper(), current, value);
+  }
+
+  private static final class Segment {
+
+    private final String path;
+    private final PropertyTokenizer prop;
+    private final String name;
+    private final boolean indexed;
+    // 最近一次访问的Bean类型及其读写方法
+    private volatile BeanAccess beanAccess;
+
+    Segment(String path, PropertyTokenizer prop) {
+      this.path = path;
+      this.prop = new PropertyTokenizer(prop.getIndexedName());
+      this.name = prop.getName();
+      this.indexed = prop.getIndex() != null;
+    }
+
+    Object get(MetaObject root, ObjectWrapper wrapper, Object object) {
+      if (!indexed) {
+        Kind kind = kindOf(root, wrapper, object);
+        if (kind == Kind.MAP) {
+          return ((Map<?, ?>) object).get(name);
+        } else if (kind == Kind.BEAN) {
+          Invoker getter = beanAccess(root, object).getter;
+          if (getter != null) {
+            try {
+              try {
+                return getter.invoke(object, NO_ARGUMENTS);
+              } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+              }
+            } catch (RuntimeException e) {
+              throw e;
+            } catch (Throwable t) {
+              throw new ReflectionException("Could not get property '" + name + "' from " + object.getClass() + ".  Cause: " + t.toString(), t);
+            }
+          }
+        }
+      }
+      return (wrapper != null ? wrapper : root.forValue(object).getObjectWrapper()).get(prop);
+    }
+
+    void set(MetaObject root, ObjectWrapper wrapper, Object object, Object value) {
+      if (!indexed) {
+        Kind kind = kindOf(root, wrapper, object);
+        if (kind == Kind.MAP) {
+          @SuppressWarnings("unchecked")
+          Map<String, Object> map = (Map<String, Object>) object;
+          map.put(name, value);
+          return;
+        } else if (kind == Kind.BEAN) {
+          Invoker setter = beanAccess(root, object).setter;
+          if (setter != null) {
+            try {
+              try {
+                setter.invoke(object, new Object[] { value });
+              } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+              }
+            } catch (Throwable t) {
+              throw new ReflectionException("Could not set property '" + name + "' of '" + object.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+            }
+            return;
+          }
+        }
+      }
+      (wrapper != null ? wrapper : root.forValue(object).getObjectWrapper()).set(prop, value);
+    }
+
+    private static Kind kindOf(MetaObject root, ObjectWrapper wrapper, Object object) {
+      if (wrapper != null) {
+        // 根对象已有wrapper，只有默认实现可以绕过
+        if (wrapper.getClass() == BeanWrapper.class) {
+          return Kind.BEAN;
+        }
+        return wrapper.getClass() == MapWrapper.class ? Kind.MAP : Kind.OTHER;
+      }
+      if (object instanceof ObjectWrapper || root.getObjectWrapperFactory().hasWrapperFor(object)) {
+        return Kind.OTHER;
+      } else if (object instanceof Map) {
+        return Kind.MAP;
+      } else if (object instanceof Collection) {
+        return Kind.OTHER;
+      }
+      return Kind.BEAN;
+    }
+
+    private BeanAccess beanAccess(MetaObject root, Object object) {
+      BeanAccess access = beanAccess;
+      if (access == null || access.type != object.getClass()) {
+        access = new BeanAccess(object.getClass(), root.getReflectorFactory().findForClass(object.getClass()), name);
+        beanAccess = access;
+      }
+      return access;
+    }
+  }
+
+  private enum Kind {
+    BEAN, MAP, OTHER
+  }
+
+  private static final class BeanAccess {
+
+    private final Class<?> type;
+    // 没有对应方法时为 null，由 wrapper 抛出原有的异常
+    private final Invoker getter;
+    private final Invoker setter;
+
+    BeanAccess(Class<?> type, Reflector reflector, String name) {
+      this.type = type;
+      this.getter = reflector.hasGetter(name) ? reflector.getGetInvoker(name) : null;
+      this.setter = reflector.hasSetter(name) ? reflector.getSetInvoker(name) : null;
+    }
+  }
+
+}
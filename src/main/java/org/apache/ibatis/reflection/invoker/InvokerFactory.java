@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Creates the invokers a {@link org.apache.ibatis.reflection.Reflector} reads and writes properties with.
+ *
+ * @since 3.5.4
+ */
+public interface InvokerFactory {
+
+  /**
+   * Creates the invoker of a getter (no parameter) or setter (one parameter) method.
+   *
+   * @param method the getter or setter
+   * @return the invoker
+   */
+  Invoker newMethodInvoker(Method method);
+
+  /**
+   * Creates the invoker that reads a field without getter.
+   *
+   * @param field the field
+   * @return the invoker
+   */
+  Invoker newGetFieldInvoker(Field field);
+
+  /**
+   * Creates the invoker that writes a field without setter.
+   *
+   * @param field the field
+   * @return the invoker
+   */
+  Invoker newSetFieldInvoker(Field field);
+
+}
@@ -0,0 +1,225 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * Creates invokers that the JIT compiler can inline.
+ * <p>
+ * Getters and setters are bound to a {@link Function}/{@link BiConsumer} generated by {@link LambdaMetafactory}, and
+ * fields are accessed through {@link MethodHandle}s. The generated classes resolve the types they use through the
+ * MyBatis class loader, so methods of types that are not public or not visible to that loader, as well as fields that
+ * cannot be made accessible, fall back to the reflective invokers of {@link DefaultInvokerFactory}.
+ *
+ * @since 3.5.4
+ */
+public class LambdaInvokerFactory extends DefaultInvokerFactory {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  @Override
+  public Invoker newMethodInvoker(Method method) {
+    if (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers())
+        && isLinkable(method.getDeclaringClass()) && isLinkable(method.getReturnType())) {
+      try {
+        if (method.getParameterCount() == 0) {
+          return new LambdaGetterInvoker(method, linkGetter(method));
+        } else if (method.getParameterCount() == 1 && isLinkable(method.getParameterTypes()[0])) {
+          return new LambdaSetterInvoker(method, linkSetter(method));
+        }
+      } catch (Throwable e) {
+        // fall back to reflection
+      }
+    }
+    return super.newMethodInvoker(method);
+  }
+
+  @Override
+  public Invoker newGetFieldInvoker(Field field) {
+    try {
+      MethodHandle getter = LOOKUP.unreflectGetter(accessible(field));
+      if (Modifier.isStatic(field.getModifiers())) {
+        getter = MethodHandles.dropArguments(getter, 0, Object.class);
+      }
+      return new HandleGetFieldInvoker(field, getter.asType(MethodType.methodType(Object.class, Object.class)));
+    } catch (Throwable e) {
+      return super.newGetFieldInvoker(field);
+    }
+  }
+
+  @Override
+  public Invoker newSetFieldInvoker(Field field) {
+    try {
+      MethodHandle setter = LOOKUP.unreflectSetter(accessible(field));
+      if (Modifier.isStatic(field.getModifiers())) {
+        setter = MethodHandles.dropArguments(setter, 0, Object.class);
+      }
+      return new HandleSetFieldInvoker(field, setter.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+    } catch (Throwable e) {
+      return super.newSetFieldInvoker(field);
+    }
+  }
+
+  private static Field accessible(Field field) throws IllegalAccessException {
+    if (!Modifier.isPublic(field.getModifiers()) || !Modifier.isPublic(field.getDeclaringClass().getModifiers())) {
+      if (!Reflector.canControlMemberAccessible()) {
+        throw new IllegalAccessException(field.toString());
+      }
+      field.setAccessible(true);
+    }
+    return field;
+  }
+
+  private static boolean isLinkable(Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+      if (!Modifier.isPublic(c.getModifiers())) {
+        return false;
+      }
+    }
+    try {
+      return Class.forName(type.getName(), false, LambdaInvokerFactory.class.getClassLoader()) == type;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<Object, Object> linkGetter(Method method) throws Throwable {
+    MethodHandle getter = LOOKUP.unreflect(method);
+    CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", MethodType.methodType(Function.class),
+        MethodType.methodType(Object.class, Object.class), getter,
+        MethodType.methodType(method.getReturnType(), method.getDeclaringClass()).wrap());
+    return (Function<Object, Object>) site.getTarget().invokeWithArguments();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static BiConsumer<Object, Object> linkSetter(Method method) throws Throwable {
+    MethodHandle setter = LOOKUP.unreflect(method);
+    Class<?> valueType = MethodType.methodType(method.getParameterTypes()[0]).wrap().returnType();
+    CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(BiConsumer.class),
+        MethodType.methodType(void.class, Object.class, Object.class), setter,
+        MethodType.methodType(void.class, method.getDeclaringClass(), valueType));
+    return (BiConsumer<Object, Object>) site.getTarget().invokeWithArguments();
+  }
+
+  // 继承反射实现，以便 MetaClass 等仍可取得对应的 Method/Field
+  private static final class LambdaGetterInvoker extends MethodInvoker {
+
+    private final Function<Object, Object> getter;
+
+    LambdaGetterInvoker(Method method, Function<Object, Object> getter) {
+      super(method);
+      this.getter = getter;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+      try {
+        return getter.apply(target);
+      } catch (Throwable t) {
+        // 与 Method.invoke 一致，方法抛出的异常包装为 InvocationTargetException
+        throw new InvocationTargetException(t);
+      }
+    }
+  }
+
+  private static final class LambdaSetterInvoker extends MethodInvoker {
+
+    private final BiConsumer<Object, Object> setter;
+
+    LambdaSetterInvoker(Method method, BiConsumer<Object, Object> setter) {
+      super(method);
+      this.setter = setter;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+      try {
+        setter.accept(target, args[0]);
+        return null;
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    }
+  }
+
+  private static final class HandleGetFieldInvoker extends GetFieldInvoker {
+
+    private final MethodHandle getter;
+
+    HandleGetFieldInvoker(Field field, MethodHandle getter) {
+      super(field);
+      this.getter = getter;
+    }
+
+    // invokeExact 是签名多态方法，animal-sniffer 无法解析其调用描述符
+    @UsesJava7
+    @Override
+    public Object invoke(Object target, Object[] args) {
+      try {
+        return (Object) getter.invokeExact(target);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new IllegalStateException(t);
+      }
+    }
+  }
+
+  private static final class HandleSetFieldInvoker extends SetFieldInvoker {
+
+    private final MethodHandle setter;
+
+    HandleSetFieldInvoker(Field field, MethodHandle setter) {
+      super(field);
+      this.setter = setter;
+    }
+
+    @UsesJava7
+    @Override
+    public Object invoke(Object target, Object[] args) {
+      try {
+        setter.invokeExact(target, args[0]);
+        return null;
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new IllegalStateException(t);
+      }
+    }
+  }
+
+}
@@ -24,6 +24,7 @@ import ognl.OgnlRuntime;
 import ognl.PropertyAccessor;
 
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -40,9 +41,30 @@ public class DynamicContext {
 
   private final ContextMap bindings;
   private final StringJoiner sqlBuilder = new StringJoiner(" ");
+  private final boolean sqlRendered; //是否拼接SQL文本
+  private final StringBuilder shape; //按遍历顺序记录的分支签名, 为 null 时不记录
+  private final ReflectorFactory reflectorFactory; //编译后的表达式读取参数属性时使用
   private int uniqueNumber = 0;
 
   public DynamicContext(Configuration configuration, Object parameterObject) {
+    this(configuration, parameterObject, true, false);
+  }
+
+  /**
+   * Creates a context that can skip the SQL text and/or record the shape of the rendered statement.
+   * The shape is the sequence of branches taken and dynamic text produced while applying the nodes,
+   * so two parameters with the same shape render the same SQL.
+   *
+   * @param configuration the configuration
+   * @param parameterObject the parameter object
+   * @param sqlRendered whether the SQL text is built
+   * @param shapeRecorded whether the shape is recorded
+   * @since 3.5.4
+   */
+  public DynamicContext(Configuration configuration, Object parameterObject, boolean sqlRendered, boolean shapeRecorded) {
+    this.sqlRendered = sqlRendered;
+    this.shape = shapeRecorded ? new StringBuilder() : null;
+    this.reflectorFactory = configuration.getReflectorFactory();
     if (parameterObject != null && !(parameterObject instanceof Map)) {
       MetaObject metaObject = configuration.newMetaObject(parameterObject);
       boolean existsTypeHandler = configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass());
@@ -58,12 +80,61 @@ public class DynamicContext {
     return bindings;
   }
 
+  /**
+   * Returns the reflector factory of the configuration, used by {@link ExpressionEvaluator} to read properties.
+   *
+   * @return the reflector factory
+   * @since 3.5.4
+   */
+  public ReflectorFactory getReflectorFactory() {
+    return reflectorFactory;
+  }
+
   public void bind(String name, Object value) {
     bindings.put(name, value);
   }
 
   public void appendSql(String sql) {
-    sqlBuilder.add(sql);
+    if (sqlRendered) {
+      sqlBuilder.add(sql);
+    }
+  }
+
+  public boolean isSqlRendered() {
+    return sqlRendered;
+  }
+
+  public boolean isShapeRecorded() {
+    return shape != null;
+  }
+
+  /**
+   * Records a branch decision (e.g. whether an if test passed) into the shape.
+   *
+   * @param branch the branch marker
+   * @since 3.5.4
+   */
+  public void recordShape(char branch) {
+    if (shape != null) {
+      shape.append(branch);
+    }
+  }
+
+  /**
+   * Records text whose content depends on the parameter (e.g. ${} substitutions) into the shape.
+   *
+   * @param text the rendered text
+   * @since 3.5.4
+   */
+  public void recordShape(String text) {
+    if (shape != null) {
+      // 带上长度前缀，避免文本与分支标记混淆
+      shape.append('S').append(text.length()).append(':').append(text);
+    }
+  }
+
+  public String getShape() {
+    return shape == null ? null : shape.toString();
   }
 
   public String getSql() {
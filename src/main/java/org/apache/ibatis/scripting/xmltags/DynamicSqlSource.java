@@ -15,9 +15,19 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.apache.ibatis.builder.SqlSourceBuilder;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -27,16 +37,57 @@ public class DynamicSqlSource implements SqlSource {
 
   private final Configuration configuration;
   private final SqlNode rootSqlNode;
+  private final boolean shapeCacheable; //节点树是否都会记录分支签名
+  private final ConcurrentMap<ShapeKey, ParsedSql> parsedSqls = new ConcurrentHashMap<>();
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
+    this(configuration, rootSqlNode, false);
+  }
+
+  /**
+   * Creates a dynamic SQL source that may cache the parsed statement by the branches taken while rendering it.
+   * The nodes are still applied once per execution, but on a hit the SQL text and parameter mappings are reused
+   * instead of parsing the rendered SQL again. Once the cache is full, new shapes are parsed without being cached. This is only correct when every node of the tree records its decisions with
+   * {@link DynamicContext#recordShape}, as the built-in nodes do.
+   *
+   * @param configuration the configuration
+   * @param rootSqlNode the root node
+   * @param shapeCacheable whether the tree records its decisions, see {@link Configuration#getDynamicSqlCacheSize()}
+   * @since 3.5.4
+   */
+  public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode, boolean shapeCacheable) {
     this.configuration = configuration;
     this.rootSqlNode = rootSqlNode;
+    this.shapeCacheable = shapeCacheable;
   }
 
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
-    DynamicContext context = new DynamicContext(configuration, parameterObject);
+    int cacheSize = shapeCacheable ? configuration.getDynamicSqlCacheSize() : 0;
+    if (cacheSize <= 0) {
+      DynamicContext context = new DynamicContext(configuration, parameterObject);
+      rootSqlNode.apply(context);
+      return parse(context, parameterObject);
+    }
+    // 渲染的同时记录分支签名，节点与绑定变量每次执行只求值一次
+    DynamicContext context = new DynamicContext(configuration, parameterObject, true, true);
     rootSqlNode.apply(context);
+    Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
+    ShapeKey key = new ShapeKey(parameterType, context.getShape());
+    ParsedSql parsedSql = parsedSqls.get(key);
+    if (parsedSql != null && parsedSql.matches(configuration, context.getBindings())) {
+      BoundSql boundSql = new BoundSql(configuration, parsedSql.sql, parsedSql.parameterMappings, parameterObject);
+      context.getBindings().forEach(boundSql::setAdditionalParameter);
+      return boundSql;
+    }
+    BoundSql boundSql = parse(context, parameterObject);
+    if (parsedSqls.size() < cacheSize || parsedSqls.containsKey(key)) {
+      parsedSqls.put(key, new ParsedSql(configuration, boundSql, context.getBindings()));
+    }
+    return boundSql;
+  }
+
+  private BoundSql parse(DynamicContext context, Object parameterObject) {
     SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
     SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
@@ -45,4 +96,77 @@ public class DynamicSqlSource implements SqlSource {
     return boundSql;
   }
 
+  private static final class ShapeKey {
+    private final Class<?> parameterType;
+    private final String shape;
+
+    ShapeKey(Class<?> parameterType, String shape) {
+      this.parameterType = parameterType;
+      this.shape = shape;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ShapeKey)) {
+        return false;
+      }
+      ShapeKey other = (ShapeKey) o;
+      return parameterType == other.parameterType && shape.equals(other.shape);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(parameterType, shape);
+    }
+  }
+
+  private static final class ParsedSql {
+    private final String sql;
+    private final List<ParameterMapping> parameterMappings;
+    // 类型取自绑定变量运行时值的参数，命中时需要确认类型未变
+    private final List<String> boundProperties = new ArrayList<>();
+    private final List<Class<?>> boundTypes = new ArrayList<>();
+
+    ParsedSql(Configuration configuration, BoundSql boundSql, Map<String, Object> bindings) {
+      this.sql = boundSql.getSql();
+      this.parameterMappings = boundSql.getParameterMappings();
+      MetaObject metaBindings = configuration.newMetaObject(bindings);
+      for (ParameterMapping parameterMapping : parameterMappings) {
+        String property = parameterMapping.getProperty();
+        if (isBound(property, bindings)) {
+          boundProperties.add(property);
+          boundTypes.add(typeOf(property, metaBindings));
+        }
+      }
+    }
+
+    boolean matches(Configuration configuration, Map<String, Object> bindings) {
+      if (boundProperties.isEmpty()) {
+        return true;
+      }
+      MetaObject metaBindings = configuration.newMetaObject(bindings);
+      for (int i = 0; i < boundProperties.size(); i++) {
+        if (typeOf(boundProperties.get(i), metaBindings) != boundTypes.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isBound(String property, Map<String, Object> bindings) {
+      if (property == null) {
+        return false;
+      }
+      PropertyTokenizer prop = new PropertyTokenizer(property);
+      return bindings.containsKey(prop.getName()) || bindings.containsKey(prop.getIndexedName());
+    }
+
+    private static Class<?> typeOf(String property, MetaObject metaBindings) {
+      return metaBindings.hasGetter(property) ? metaBindings.getGetterType(property) : null;
+    }
+  }
+
 }
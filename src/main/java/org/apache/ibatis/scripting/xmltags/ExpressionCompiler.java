@@ -0,0 +1,409 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ognl.OgnlOps;
+
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * Evaluates the common subset of OGNL used in dynamic SQL tests without going through the OGNL interpreter:
+ * literals, property paths, <code>size()</code>/<code>isEmpty()</code>/<code>length()</code>/<code>trim()</code>,
+ * comparisons, <code>!</code>/<code>not</code>, <code>and</code>/<code>or</code> and parentheses.
+ * Operators use {@link OgnlOps} so the results are the same as OGNL's. Expressions outside the subset, and
+ * evaluations that reach a case the compiled form does not handle (e.g. a null in the middle of a path),
+ * are evaluated by {@link OgnlCache}.
+ *
+ * @since 3.5.4
+ */
+public final class ExpressionCompiler {
+
+  private static final Node NOT_COMPILED = (root, reflectorFactory) -> null;
+  private static final Map<String, Node> compiledCache = new ConcurrentHashMap<>();
+
+  private ExpressionCompiler() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Evaluates the expression.
+   *
+   * @param expression the expression
+   * @param root the root object
+   * @param reflectorFactory the reflector factory of the configuration, used to read bean properties
+   * @return the value
+   */
+  public static Object getValue(String expression, Object root, ReflectorFactory reflectorFactory) {
+    Node node = getNode(expression);
+    if (node != NOT_COMPILED) {
+      try {
+        return node.getValue(root, reflectorFactory);
+      } catch (RuntimeException e) {
+        // 交给 OGNL 求值，异常与原来保持一致
+      }
+    }
+    return OgnlCache.getValue(expression, root);
+  }
+
+  /**
+   * Returns whether the expression is in the compiled subset.
+   *
+   * @param expression the expression
+   * @return true if the expression is evaluated without OGNL (unless a value requires it)
+   */
+  public static boolean isCompiled(String expression) {
+    return getNode(expression) != NOT_COMPILED;
+  }
+
+  private static Node getNode(String expression) {
+    Node node = compiledCache.get(expression);
+    if (node == null) {
+      node = compiledCache.computeIfAbsent(expression, ExpressionCompiler::compile);
+    }
+    return node;
+  }
+
+  private static Node compile(String expression) {
+    Node node = new Parser(expression).parse();
+    return node == null ? NOT_COMPILED : node;
+  }
+
+  @FunctionalInterface
+  private interface Node {
+    Object getValue(Object root, ReflectorFactory reflectorFactory);
+  }
+
+  /**
+   * 编译后的求值遇到无法处理的情况时抛出，改由 OGNL 求值.
+   */
+  private static final class Unsupported extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private static final Unsupported INSTANCE = new Unsupported();
+
+    private Unsupported() {
+      super(null, null, false, false);
+    }
+  }
+
+  private static Object getProperty(Object target, String name, ReflectorFactory reflectorFactory) {
+    if (target == null) {
+      throw Unsupported.INSTANCE;
+    }
+    if (target instanceof DynamicContext.ContextMap) {
+      // 与 DynamicContext.ContextAccessor 一致
+      Map<?, ?> map = (Map<?, ?>) target;
+      Object result = map.get(name);
+      if (map.containsKey(name) || result != null) {
+        return result;
+      }
+      Object parameterObject = map.get(DynamicContext.PARAMETER_OBJECT_KEY);
+      return parameterObject instanceof Map ? ((Map<?, ?>) parameterObject).get(name) : null;
+    }
+    if (target instanceof Map) {
+      // OGNL 的 MapPropertyAccessor 对这几个名字有特殊处理
+      if ("size".equals(name) || "keys".equals(name) || "keySet".equals(name) || "values".equals(name)
+          || "isEmpty".equals(name)) {
+        throw Unsupported.INSTANCE;
+      }
+      return ((Map<?, ?>) target).get(name);
+    }
+    if (target instanceof Collection || target instanceof Iterator || target instanceof Enumeration
+        || target instanceof Class || target.getClass().isArray()) {
+      throw Unsupported.INSTANCE;
+    }
+    Reflector reflector = reflectorFactory.findForClass(target.getClass());
+    if (!reflector.hasGetter(name)) {
+      throw Unsupported.INSTANCE;
+    }
+    try {
+      return reflector.getGetInvoker(name).invoke(target, null);
+    } catch (ReflectiveOperationException e) {
+      throw Unsupported.INSTANCE;
+    }
+  }
+
+  private static Object callMethod(Object target, String name) {
+    if ("size".equals(name)) {
+      if (target instanceof Collection) {
+        return ((Collection<?>) target).size();
+      } else if (target instanceof Map) {
+        return ((Map<?, ?>) target).size();
+      }
+    } else if ("isEmpty".equals(name)) {
+      if (target instanceof Collection) {
+        return ((Collection<?>) target).isEmpty();
+      } else if (target instanceof Map) {
+        return ((Map<?, ?>) target).isEmpty();
+      } else if (target instanceof String) {
+        return ((String) target).isEmpty();
+      }
+    } else if ("length".equals(name)) {
+      if (target instanceof CharSequence) {
+        return ((CharSequence) target).length();
+      }
+    } else if ("trim".equals(name)) {
+      if (target instanceof String) {
+        return ((String) target).trim();
+      }
+    }
+    throw Unsupported.INSTANCE;
+  }
+
+  /**
+   * Recursive descent parser of the supported subset, with OGNL's precedence. Returns null for anything else.
+   */
+  private static final class Parser {
+    private final String expression;
+    private int position;
+    private String token;
+    private boolean literal; //当前 token 是否为字符串字面量
+
+    Parser(String expression) {
+      this.expression = expression;
+    }
+
+    Node parse() {
+      try {
+        next();
+        Node node = parseOr();
+        return token == null ? node : null;
+      } catch (IllegalStateException e) {
+        return null;
+      }
+    }
+
+    private Node parseOr() {
+      Node node = parseAnd();
+      while (isOperator("or", "||")) {
+        next();
+        Node left = node;
+        Node right = parseAnd();
+        node = (root, reflectorFactory) -> {
+          Object value = left.getValue(root, reflectorFactory);
+          return OgnlOps.booleanValue(value) ? value : right.getValue(root, reflectorFactory);
+        };
+      }
+      return node;
+    }
+
+    private Node parseAnd() {
+      Node node = parseEquality();
+      while (isOperator("and", "&&")) {
+        next();
+        Node left = node;
+        Node right = parseEquality();
+        node = (root, reflectorFactory) -> {
+          Object value = left.getValue(root, reflectorFactory);
+          return OgnlOps.booleanValue(value) ? right.getValue(root, reflectorFactory) : value;
+        };
+      }
+      return node;
+    }
+
+    private Node parseEquality() {
+      Node node = parseRelational();
+      while (true) {
+        Node left = node;
+        if (isOperator("eq", "==")) {
+          next();
+          Node right = parseRelational();
+          node = (root, reflectorFactory) -> OgnlOps.equal(left.getValue(root, reflectorFactory), right.getValue(root, reflectorFactory)) ? Boolean.TRUE : Boolean.FALSE;
+        } else if (isOperator("neq", "!=")) {
+          next();
+          Node right = parseRelational();
+          node = (root, reflectorFactory) -> OgnlOps.equal(left.getValue(root, reflectorFactory), right.getValue(root, reflectorFactory)) ? Boolean.FALSE : Boolean.TRUE;
+        } else {
+          return node;
+        }
+      }
+    }
+
+    private Node parseRelational() {
+      Node node = parseUnary();
+      while (true) {
+        Node left = node;
+        if (isOperator("lt", "<")) {
+          next();
+          Node right = parseUnary();
+          node = (root, reflectorFactory) -> OgnlOps.less(left.getValue(root, reflectorFactory), right.getValue(root, reflectorFactory)) ? Boolean.TRUE : Boolean.FALSE;
+        } else if (isOperator("gt", ">")) {
+          next();
+          Node right = parseUnary();
+          node = (root, reflectorFactory) -> OgnlOps.greater(left.getValue(root, reflectorFactory), right.getValue(root, reflectorFactory)) ? Boolean.TRUE : Boolean.FALSE;
+        } else if (isOperator("lte", "<=")) {
+          next();
+          Node right = parseUnary();
+          node = (root, reflectorFactory) -> OgnlOps.greater(left.getValue(root, reflectorFactory), right.getValue(root, reflectorFactory)) ? Boolean.FALSE : Boolean.TRUE;
+        } else if (isOperator("gte", ">=")) {
+          next();
+          Node right = parseUnary();
+          node = (root, reflectorFactory) -> OgnlOps.less(left.getValue(root, reflectorFactory), right.getValue(root, reflectorFactory)) ? Boolean.FALSE : Boolean.TRUE;
+        } else {
+          return node;
+        }
+      }
+    }
+
+    private Node parseUnary() {
+      if (isOperator("not", "!")) {
+        next();
+        Node operand = parseUnary();
+        return (root, reflectorFactory) -> OgnlOps.booleanValue(operand.getValue(root, reflectorFactory)) ? Boolean.FALSE : Boolean.TRUE;
+      }
+      return parsePrimary();
+    }
+
+    private Node parsePrimary() {
+      if (token == null) {
+        throw new IllegalStateException();
+      }
+      if (literal) {
+        // 与 OGNL 一致，单引号括起的单个字符是 Character
+        Object value = token.length() == 3 && token.charAt(0) == '\'' ? (Object) token.charAt(1)
+            : token.substring(1, token.length() - 1);
+        next();
+        return (root, reflectorFactory) -> value;
+      }
+      if ("(".equals(token)) {
+        next();
+        Node node = parseOr();
+        expect(")");
+        return node;
+      }
+      if (Character.isDigit(token.charAt(0))) {
+        Object value = token.indexOf('.') >= 0 ? (Object) Double.valueOf(token) : (Object) Integer.valueOf(token);
+        next();
+        return (root, reflectorFactory) -> value;
+      }
+      if ("null".equals(token) || "true".equals(token) || "false".equals(token)) {
+        Object value = "null".equals(token) ? null : Boolean.valueOf(token);
+        next();
+        return (root, reflectorFactory) -> value;
+      }
+      return parsePath();
+    }
+
+    private Node parsePath() {
+      String name = identifier();
+      next();
+      Node node = (root, reflectorFactory) -> getProperty(root, name, reflectorFactory);
+      while (".".equals(token)) {
+        next();
+        String member = identifier();
+        next();
+        Node target = node;
+        if ("(".equals(token)) {
+          next();
+          expect(")");
+          node = (root, reflectorFactory) -> callMethod(target.getValue(root, reflectorFactory), member);
+        } else {
+          node = (root, reflectorFactory) -> getProperty(target.getValue(root, reflectorFactory), member, reflectorFactory);
+        }
+      }
+      return node;
+    }
+
+    private String identifier() {
+      if (token == null || literal || !Character.isJavaIdentifierStart(token.charAt(0)) || isKeyword(token)) {
+        throw new IllegalStateException();
+      }
+      return token;
+    }
+
+    private static boolean isKeyword(String name) {
+      switch (name) {
+        case "and": case "or": case "not": case "eq": case "neq": case "lt": case "gt": case "lte": case "gte":
+        case "null": case "true": case "false": case "in": case "instanceof": case "new": case "this":
+        case "shl": case "shr": case "ushr": case "band": case "bor": case "xor":
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    private boolean isOperator(String word, String symbol) {
+      return !literal && (word.equals(token) || symbol.equals(token));
+    }
+
+    private void expect(String expected) {
+      if (!expected.equals(token) || literal) {
+        throw new IllegalStateException();
+      }
+      next();
+    }
+
+    private void next() {
+      literal = false;
+      while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+        position++;
+      }
+      if (position >= expression.length()) {
+        token = null;
+        return;
+      }
+      int start = position;
+      char c = expression.charAt(position);
+      if (c == '\'' || c == '"') {
+        int end = expression.indexOf(c, start + 1);
+        if (end < 0 || expression.indexOf('\\', start) >= 0 && expression.indexOf('\\', start) < end) {
+          throw new IllegalStateException();
+        }
+        position = end + 1;
+        literal = true;
+      } else if (Character.isJavaIdentifierStart(c)) {
+        while (position < expression.length() && Character.isJavaIdentifierPart(expression.charAt(position))) {
+          position++;
+        }
+      } else if (Character.isDigit(c)) {
+        skipDigits();
+        boolean decimal = position + 1 < expression.length() && expression.charAt(position) == '.'
+            && Character.isDigit(expression.charAt(position + 1));
+        if (decimal) {
+          position++;
+          skipDigits();
+        }
+        // 带类型后缀(1L, 1.5f, 0x1F...)、八进制或可能超出 int 范围的整数交给 OGNL
+        if (position < expression.length() && Character.isJavaIdentifierPart(expression.charAt(position))
+            || !decimal && (position - start > 9 || c == '0' && position - start > 1)) {
+          throw new IllegalStateException();
+        }
+      } else if (expression.startsWith("==", start) || expression.startsWith("!=", start)
+          || expression.startsWith("<=", start) || expression.startsWith(">=", start)
+          || expression.startsWith("&&", start) || expression.startsWith("||", start)) {
+        position += 2;
+      } else if (c == '<' || c == '>' || c == '!' || c == '(' || c == ')' || c == '.') {
+        position++;
+      } else {
+        throw new IllegalStateException();
+      }
+      token = expression.substring(start, position);
+    }
+
+    private void skipDigits() {
+      while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+        position++;
+      }
+    }
+  }
+
+}
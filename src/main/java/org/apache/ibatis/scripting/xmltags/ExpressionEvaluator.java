@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.reflection.ReflectorFactory;
 
 /**
  * @author Clinton Begin
@@ -29,7 +30,42 @@ import org.apache.ibatis.builder.BuilderException;
 public class ExpressionEvaluator {
 
   public boolean evaluateBoolean(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    return booleanValue(OgnlCache.getValue(expression, parameterObject));
+  }
+
+  /**
+   * Evaluates the expression as a boolean, without OGNL if the expression is in the subset of
+   * {@link ExpressionCompiler}.
+   *
+   * @param expression the expression
+   * @param parameterObject the root object
+   * @param reflectorFactory the reflector factory of the configuration
+   * @return the boolean value
+   * @since 3.5.4
+   */
+  public boolean evaluateBoolean(String expression, Object parameterObject, ReflectorFactory reflectorFactory) {
+    return booleanValue(ExpressionCompiler.getValue(expression, parameterObject, reflectorFactory));
+  }
+
+  public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
+    return iterableValue(expression, OgnlCache.getValue(expression, parameterObject));
+  }
+
+  /**
+   * Evaluates the expression as an iterable, without OGNL if the expression is in the subset of
+   * {@link ExpressionCompiler}.
+   *
+   * @param expression the expression
+   * @param parameterObject the root object
+   * @param reflectorFactory the reflector factory of the configuration
+   * @return the iterable value
+   * @since 3.5.4
+   */
+  public Iterable<?> evaluateIterable(String expression, Object parameterObject, ReflectorFactory reflectorFactory) {
+    return iterableValue(expression, ExpressionCompiler.getValue(expression, parameterObject, reflectorFactory));
+  }
+
+  private boolean booleanValue(Object value) {
     if (value instanceof Boolean) {
       return (Boolean) value;
     }
@@ -39,8 +75,7 @@ public class ExpressionEvaluator {
     return value != null;
   }
 
-  public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+  private Iterable<?> iterableValue(String expression, Object value) {
     if (value == null) {
       throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
     }
@@ -17,6 +17,7 @@ package org.apache.ibatis.scripting.xmltags;
 
 import java.util.Map;
 
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.session.Configuration;
 
@@ -35,8 +36,25 @@ public class ForEachSqlNode implements SqlNode {
   private final String item;
   private final String index;
   private final Configuration configuration;
+  private final boolean padding; //是否重复最后一个元素，把迭代次数补齐到分档大小
 
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
+    this(configuration, contents, collectionExpression, index, item, open, close, separator, false);
+  }
+
+  /**
+   * Creates a foreach node.
+   * <p>
+   * With <code>padding</code>, the contents are repeated with the last item (and index) until the number of iterations
+   * reaches the next size of {@link Configuration#getForeachPaddingBuckets()}, a power of two by default. An
+   * <code>IN</code> list then renders one of a few SQL texts instead of one per collection size, so that prepared
+   * statements and database plans can be reused. Only use it where repeating an item does not change the result.
+   *
+   * @since 3.5.4
+   */
+  public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index,
+      String item, String open, String close, String separator, boolean padding) {
+    this.padding = padding;
     this.evaluator = new ExpressionEvaluator();
     this.collectionExpression = collectionExpression;
     this.contents = contents;
@@ -51,44 +69,87 @@ public class ForEachSqlNode implements SqlNode {
   @Override
   public boolean apply(DynamicContext context) {
     Map<String, Object> bindings = context.getBindings();
-    final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+    final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings, context.getReflectorFactory());
     if (!iterable.iterator().hasNext()) {
+      context.recordShape('0');
       return true;
     }
+    context.recordShape('[');
     boolean first = true;
     applyOpen(context);
     int i = 0;
+    Object indexValue = null;
+    Object itemValue = null;
     for (Object o : iterable) {
-      DynamicContext oldContext = context;
-      if (first || separator == null) {
-        context = new PrefixedContext(context, "");
-      } else {
-        context = new PrefixedContext(context, separator);
-      }
-      int uniqueNumber = context.getUniqueNumber();
       // Issue #709
       if (o instanceof Map.Entry) {
         @SuppressWarnings("unchecked")
         Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
-        applyIndex(context, mapEntry.getKey(), uniqueNumber);
-        applyItem(context, mapEntry.getValue(), uniqueNumber);
+        indexValue = mapEntry.getKey();
+        itemValue = mapEntry.getValue();
       } else {
-        applyIndex(context, i, uniqueNumber);
-        applyItem(context, o, uniqueNumber);
-      }
-      contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
-      if (first) {
-        first = !((PrefixedContext) context).isPrefixApplied();
+        indexValue = i;
+        itemValue = o;
       }
-      context = oldContext;
+      first = applyIteration(context, first, indexValue, itemValue);
       i++;
     }
+    if (padding) {
+      int paddedSize = paddedSize(i, configuration.getForeachPaddingBuckets());
+      for (int p = i; p < paddedSize; p++) {
+        first = applyIteration(context, first, indexValue, itemValue);
+      }
+      MetricsCollector metricsCollector = configuration.getMetricsCollector();
+      // 缓存未命中时会先只记录签名、再边拼接边记录签名求值两遍，第二遍不重复计数
+      if (metricsCollector != null && !(context.isSqlRendered() && context.isShapeRecorded())) {
+        metricsCollector.recordForEachPadding(i, paddedSize);
+      }
+    }
+    context.recordShape(']');
     applyClose(context);
     context.getBindings().remove(item);
     context.getBindings().remove(index);
     return true;
   }
 
+  /**
+   * Applies the contents for one item.
+   *
+   * @return whether the next item is still the first one, because this one did not render any SQL
+   */
+  private boolean applyIteration(DynamicContext context, boolean first, Object indexValue, Object itemValue) {
+    context.recordShape('.');
+    PrefixedContext prefixedContext = new PrefixedContext(context, first || separator == null ? "" : separator);
+    int uniqueNumber = prefixedContext.getUniqueNumber();
+    applyIndex(prefixedContext, indexValue, uniqueNumber);
+    applyItem(prefixedContext, itemValue, uniqueNumber);
+    contents.apply(new FilteredDynamicContext(configuration, prefixedContext, index, item, uniqueNumber));
+    return first && !prefixedContext.isPrefixApplied();
+  }
+
+  /**
+   * Returns the number of iterations a collection of the given size is padded to.
+   *
+   * @param size the size of the collection
+   * @param buckets the ascending padding sizes, empty for powers of two
+   * @return the smallest bucket not less than the size, or a multiple of the largest bucket beyond it
+   */
+  static int paddedSize(int size, int[] buckets) {
+    if (size <= 1) {
+      return size;
+    }
+    if (buckets == null || buckets.length == 0) {
+      return Integer.highestOneBit(size - 1) << 1;
+    }
+    for (int bucket : buckets) {
+      if (size <= bucket) {
+        return bucket;
+      }
+    }
+    int largest = buckets[buckets.length - 1];
+    return (size + largest - 1) / largest * largest;
+  }
+
   private void applyIndex(DynamicContext context, Object o, int i) {
     if (index != null) {
       context.bind(index, o);
@@ -150,6 +211,9 @@ public class ForEachSqlNode implements SqlNode {
 
     @Override
     public void appendSql(String sql) {
+      if (!delegate.isSqlRendered()) {
+        return;
+      }
       GenericTokenParser parser = new GenericTokenParser("#{", "}", content -> {
         String newContent = content.replaceFirst("^\\s*" + item + "(?![^.,:\\s])", itemizeItem(item, index));
         if (itemIndex != null && newContent.equals(content)) {
@@ -166,6 +230,26 @@ public class ForEachSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public boolean isSqlRendered() {
+      return delegate.isSqlRendered();
+    }
+
+    @Override
+    public boolean isShapeRecorded() {
+      return delegate.isShapeRecorded();
+    }
+
+    @Override
+    public void recordShape(char branch) {
+      delegate.recordShape(branch);
+    }
+
+    @Override
+    public void recordShape(String text) {
+      delegate.recordShape(text);
+    }
+
   }
 
 
@@ -213,6 +297,26 @@ public class ForEachSqlNode implements SqlNode {
     public int getUniqueNumber() {
       return delegate.getUniqueNumber();
     }
+
+    @Override
+    public boolean isSqlRendered() {
+      return delegate.isSqlRendered();
+    }
+
+    @Override
+    public boolean isShapeRecorded() {
+      return delegate.isShapeRecorded();
+    }
+
+    @Override
+    public void recordShape(char branch) {
+      delegate.recordShape(branch);
+    }
+
+    @Override
+    public void recordShape(String text) {
+      delegate.recordShape(text);
+    }
   }
 
 }
@@ -31,10 +31,12 @@ public class IfSqlNode implements SqlNode {
 
   @Override
   public boolean apply(DynamicContext context) {
-    if (evaluator.evaluateBoolean(test, context.getBindings())) {
+    if (evaluator.evaluateBoolean(test, context.getBindings(), context.getReflectorFactory())) {
+      context.recordShape('T');
       contents.apply(context);
       return true;
     }
+    context.recordShape('F');
     return false;
   }
 
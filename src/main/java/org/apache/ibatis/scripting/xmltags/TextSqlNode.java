@@ -48,7 +48,9 @@ public class TextSqlNode implements SqlNode {
   @Override
   public boolean apply(DynamicContext context) {
     GenericTokenParser parser = createParser(new BindingTokenParser(context, injectionFilter));
-    context.appendSql(parser.parse(text));
+    String sql = parser.parse(text);
+    context.recordShape(sql);
+    context.appendSql(sql);
     return true;
   }
 
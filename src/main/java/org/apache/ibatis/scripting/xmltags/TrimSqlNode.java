@@ -84,6 +84,9 @@ public class TrimSqlNode implements SqlNode {
     }
 
     public void applyAll() {
+      if (!delegate.isSqlRendered()) {
+        return;
+      }
       sqlBuffer = new StringBuilder(sqlBuffer.toString().trim());
       String trimmedUppercaseSql = sqlBuffer.toString().toUpperCase(Locale.ENGLISH);
       if (trimmedUppercaseSql.length() > 0) {
@@ -108,9 +111,31 @@ public class TrimSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public boolean isSqlRendered() {
+      return delegate.isSqlRendered();
+    }
+
+    @Override
+    public boolean isShapeRecorded() {
+      return delegate.isShapeRecorded();
+    }
+
+    @Override
+    public void recordShape(char branch) {
+      delegate.recordShape(branch);
+    }
+
+    @Override
+    public void recordShape(String text) {
+      delegate.recordShape(text);
+    }
+
     @Override
     public void appendSql(String sql) {
-      sqlBuffer.append(sql);
+      if (delegate.isSqlRendered()) {
+        sqlBuffer.append(sql);
+      }
     }
 
     @Override
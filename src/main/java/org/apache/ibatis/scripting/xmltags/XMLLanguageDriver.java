@@ -55,7 +55,7 @@ public class XMLLanguageDriver implements LanguageDriver {
       script = PropertyParser.parse(script, configuration.getVariables());
       TextSqlNode textSqlNode = new TextSqlNode(script);
       if (textSqlNode.isDynamic()) {
-        return new DynamicSqlSource(configuration, textSqlNode);
+        return new DynamicSqlSource(configuration, textSqlNode, true);
       } else {
         return new RawSqlSource(configuration, script, parameterType);
       }
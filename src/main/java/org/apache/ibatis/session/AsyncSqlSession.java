@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.apache.ibatis.cursor.Flow;
+import org.apache.ibatis.executor.BatchResult;
+
+/**
+ * A non-blocking view of a {@link SqlSession}.
+ * <p>
+ * Every operation is queued and run on an executor ({@link Configuration#getAsyncExecutor()} unless another one was
+ * given when the session was opened), one at a time and in the order they were called, because the underlying
+ * session and its connection can only be used by one thread at a time. The returned futures complete on an executor
+ * thread, exceptionally if the operation failed.
+ * <p>
+ * Mappers obtained from an async session must declare their statement methods as returning
+ * {@link CompletableFuture} (for example <code>CompletableFuture&lt;List&lt;Blog&gt;&gt;</code>) or
+ * {@link Flow.Publisher} for streaming selects.
+ *
+ * @since 3.5.4
+ */
+public interface AsyncSqlSession {
+
+  /**
+   * Runs any work against the underlying session, in order with the other operations of this session.
+   *
+   * @param <T> the result type
+   * @param action the work, which must not keep the session after it returns
+   * @return the result of the work
+   */
+  <T> CompletableFuture<T> execute(Function<SqlSession, T> action);
+
+  <T> CompletableFuture<T> selectOne(String statement);
+
+  <T> CompletableFuture<T> selectOne(String statement, Object parameter);
+
+  <E> CompletableFuture<List<E>> selectList(String statement);
+
+  <E> CompletableFuture<List<E>> selectList(String statement, Object parameter);
+
+  <E> CompletableFuture<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds);
+
+  <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, Object parameter, String mapKey);
+
+  /**
+   * Streams the results of a statement. Each subscription runs the statement and reads rows from a
+   * {@link org.apache.ibatis.cursor.Cursor} as the subscriber requests them.
+   *
+   * @param <T> the item type
+   * @param statement Unique identifier matching the statement to use.
+   * @return a publisher of mapped objects
+   */
+  <T> Flow.Publisher<T> selectCursor(String statement);
+
+  <T> Flow.Publisher<T> selectCursor(String statement, Object parameter);
+
+  <T> Flow.Publisher<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
+
+  CompletableFuture<Integer> insert(String statement);
+
+  CompletableFuture<Integer> insert(String statement, Object parameter);
+
+  CompletableFuture<Integer> update(String statement);
+
+  CompletableFuture<Integer> update(String statement, Object parameter);
+
+  CompletableFuture<Integer> delete(String statement);
+
+  CompletableFuture<Integer> delete(String statement, Object parameter);
+
+  CompletableFuture<Void> commit();
+
+  CompletableFuture<Void> commit(boolean force);
+
+  CompletableFuture<Void> rollback();
+
+  CompletableFuture<Void> rollback(boolean force);
+
+  CompletableFuture<List<BatchResult>> flushStatements();
+
+  /**
+   * Closes the underlying session once all operations queued before are done.
+   *
+   * @return a future completed when the session is closed
+   */
+  CompletableFuture<Void> close();
+
+  /**
+   * Retrieves a mapper whose methods run on this session.
+   *
+   * @param <T> the mapper type
+   * @param type Mapper interface class
+   * @return a mapper bound to this session
+   */
+  <T> T getMapper(Class<T> type);
+
+  Configuration getConfiguration();
+
+}
@@ -17,6 +17,7 @@ package org.apache.ibatis.session;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -25,6 +26,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
@@ -34,17 +40,24 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CompactCacheKey;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.impl.TinyLfuCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ReorderingBatchExecutor;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -52,6 +65,7 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -73,6 +87,7 @@ import org.apache.ibatis.mapping.ParameterMap;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultSetType;
 import org.apache.ibatis.mapping.VendorDatabaseIdProvider;
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.plugin.InterceptorChain;
@@ -113,6 +128,20 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
+  protected boolean useCompiledRowMappers; //是否为简单结果映射生成直接调用setter的行映射器
+  protected boolean compactCacheKeys; //是否使用不保存分量列表的 CompactCacheKey
+  protected int reorderingBatchSize = 1000; //REORDERING_BATCH 执行器单个批处理的行数上限, 0 表示不限制
+  protected boolean reorderingBatchTableOrdering = true; //REORDERING_BATCH 执行器是否保持同一张表上语句的顺序
+  protected int defaultInsertBatchSize = 100; //批量插入语句未指定行数时每条语句插入的行数
+  protected int[] foreachPaddingBuckets = {}; //foreach 补齐的分档大小(升序)，为空时补齐到2的幂
+  protected int dynamicSqlCacheSize; //每个动态SQL按分支签名缓存的解析结果个数上限, 0 表示不缓存
+  protected boolean nestedResultStreamingEnabled; //ORDER BY 包含 id 列时嵌套结果映射是否按 resultOrdered 处理
+  protected int nestedResultObjectsLimit; //单次查询嵌套结果映射缓存的对象个数上限, 0 表示不限制
+  protected boolean adaptiveFetchSizeEnabled; //游标与 ResultHandler 查询是否从小 fetchSize 开始逐步加倍
+  protected int adaptiveFetchSizeInitial = 16;
+  protected int adaptiveFetchSizeMaxBytes = 4 * 1024 * 1024; //按列类型估算的单次 fetch 字节数上限
+  protected boolean parallelMappingEnabled; //简单结果映射是否一边读取一边在 ForkJoinPool 中并行映射
+  protected int parallelMappingChunkSize = 256; //每个并行映射任务处理的行数
 
   protected String logPrefix;
   protected Class<? extends Log> logImpl;
@@ -134,6 +163,8 @@ public class Configuration {
 
   protected boolean lazyLoadingEnabled = false;
   protected ProxyFactory proxyFactory = new JavassistProxyFactory(); // #224 Using internal Javassist instead of OGNL
+  protected MetricsCollector metricsCollector; //指标收集器，为null时不收集
+  protected java.util.concurrent.Executor asyncExecutor; //异步会话执行语句的线程池，为null时使用默认的守护线程池
 
   protected String databaseId;
   /**
@@ -176,6 +207,9 @@ public class Configuration {
    */
   protected final Map<String, String> cacheRefMap = new HashMap<>();
 
+  // 编译好的行映射器，按结果映射id和结果集列签名存放
+  protected final Map<String, Map<String, CompiledRowMapper>> compiledRowMappers = new ConcurrentHashMap<>();
+
   public Configuration(Environment environment) {
     this();
     this.environment = environment;
@@ -188,6 +222,7 @@ public class Configuration {
     //注册所有数据源方式（JNDI、POOLED、UNPOOLED）
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_POOLED", ConcurrentPooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
     //注册缓存策略（）
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
@@ -195,6 +230,8 @@ public class Configuration {
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -272,6 +309,282 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public boolean isUseCompiledRowMappers() {
+    return useCompiledRowMappers;
+  }
+
+  /**
+   * Sets whether rows of simple result maps are mapped by a row mapper compiled once per result map and result set
+   * shape instead of through {@link MetaObject}.
+   *
+   * @param useCompiledRowMappers true to enable compiled row mappers
+   * @since 3.5.4
+   */
+  public void setUseCompiledRowMappers(boolean useCompiledRowMappers) {
+    this.useCompiledRowMappers = useCompiledRowMappers;
+  }
+
+  /**
+   * Returns the row mapper compiled for a result map and result set column signature.
+   *
+   * @param resultMapId the id of the result map
+   * @param columnSignature the column signature of the result set
+   * @return the row mapper, or null if none was compiled yet
+   * @since 3.5.4
+   */
+  public CompiledRowMapper getCompiledRowMapper(String resultMapId, String columnSignature) {
+    Map<String, CompiledRowMapper> rowMappers = compiledRowMappers.get(resultMapId);
+    return rowMappers == null ? null : rowMappers.get(columnSignature);
+  }
+
+  /**
+   * Keeps a row mapper compiled for a result map and result set column signature, unless another thread kept one
+   * first.
+   *
+   * @param resultMapId the id of the result map
+   * @param columnSignature the column signature of the result set
+   * @param rowMapper the compiled row mapper
+   * @return the row mapper kept for the result map and column signature
+   * @since 3.5.4
+   */
+  public CompiledRowMapper addCompiledRowMapper(String resultMapId, String columnSignature, CompiledRowMapper rowMapper) {
+    CompiledRowMapper existing = compiledRowMappers.computeIfAbsent(resultMapId, id -> new ConcurrentHashMap<>())
+        .putIfAbsent(columnSignature, rowMapper);
+    return existing != null ? existing : rowMapper;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public Collection<CompiledRowMapper> getCompiledRowMappers(String resultMapId) {
+    Map<String, CompiledRowMapper> rowMappers = compiledRowMappers.get(resultMapId);
+    return rowMappers == null ? Collections.emptyList() : Collections.unmodifiableCollection(rowMappers.values());
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public boolean isCompactCacheKeys() {
+    return compactCacheKeys;
+  }
+
+  /**
+   * Sets whether query cache keys and nested result row keys are built as {@link CompactCacheKey}s.
+   *
+   * @param compactCacheKeys true to use compact cache keys
+   * @since 3.5.4
+   */
+  public void setCompactCacheKeys(boolean compactCacheKeys) {
+    this.compactCacheKeys = compactCacheKeys;
+  }
+
+  /**
+   * Creates an empty cache key of the configured kind.
+   *
+   * @return a new cache key
+   * @since 3.5.4
+   */
+  public CacheKey newCacheKey() {
+    return compactCacheKeys ? new CompactCacheKey() : new CacheKey();
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getReorderingBatchSize() {
+    return reorderingBatchSize;
+  }
+
+  /**
+   * Sets the number of rows of one batch after which a {@link ExecutorType#REORDERING_BATCH} executor executes all
+   * pending batches.
+   *
+   * @param reorderingBatchSize the row limit, 0 for no limit
+   * @since 3.5.4
+   */
+  public void setReorderingBatchSize(int reorderingBatchSize) {
+    this.reorderingBatchSize = reorderingBatchSize;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public boolean isReorderingBatchTableOrdering() {
+    return reorderingBatchTableOrdering;
+  }
+
+  /**
+   * Sets whether a {@link ExecutorType#REORDERING_BATCH} executor keeps the order of statements on the same table.
+   *
+   * @param reorderingBatchTableOrdering false to group statements by SQL regardless of the order they were issued in
+   * @since 3.5.4
+   */
+  public void setReorderingBatchTableOrdering(boolean reorderingBatchTableOrdering) {
+    this.reorderingBatchTableOrdering = reorderingBatchTableOrdering;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getDefaultInsertBatchSize() {
+    return defaultInsertBatchSize;
+  }
+
+  /**
+   * Sets the number of rows per statement of batch inserts that do not specify a <code>batchSize</code>.
+   *
+   * @param defaultInsertBatchSize the number of rows per statement
+   * @since 3.5.4
+   */
+  public void setDefaultInsertBatchSize(int defaultInsertBatchSize) {
+    this.defaultInsertBatchSize = defaultInsertBatchSize;
+  }
+
+  /**
+   * Returns the sizes a <code>&lt;foreach padding="true"&gt;</code> pads its iterations to.
+   *
+   * @return the ascending sizes, empty for powers of two
+   * @since 3.5.4
+   */
+  public int[] getForeachPaddingBuckets() {
+    return foreachPaddingBuckets;
+  }
+
+  /**
+   * Sets the sizes a <code>&lt;foreach padding="true"&gt;</code> pads its iterations to. Collections larger than the
+   * largest size are padded to a multiple of it.
+   *
+   * @param foreachPaddingBuckets the sizes, none for powers of two
+   * @since 3.5.4
+   */
+  public void setForeachPaddingBuckets(int... foreachPaddingBuckets) {
+    int[] buckets = foreachPaddingBuckets == null ? new int[0] : foreachPaddingBuckets.clone();
+    Arrays.sort(buckets);
+    if (buckets.length > 0 && buckets[0] <= 0) {
+      throw new IllegalArgumentException("Foreach padding sizes must be positive.");
+    }
+    this.foreachPaddingBuckets = buckets;
+  }
+
+  public int getDynamicSqlCacheSize() {
+    return dynamicSqlCacheSize;
+  }
+
+  /**
+   * Sets how many parsed statements each dynamic SQL source keeps, keyed by the branches taken while rendering it.
+   *
+   * @param dynamicSqlCacheSize the number of cached statements per dynamic SQL source, 0 to always re-parse
+   * @since 3.5.4
+   */
+  public void setDynamicSqlCacheSize(int dynamicSqlCacheSize) {
+    this.dynamicSqlCacheSize = dynamicSqlCacheSize;
+  }
+
+  public boolean isNestedResultStreamingEnabled() {
+    return nestedResultStreamingEnabled;
+  }
+
+  /**
+   * Sets whether statements with nested result maps whose SQL is ordered by the id columns of the result map are
+   * mapped as if they were declared <code>resultOrdered</code>, so that parents are released as soon as they are
+   * complete.
+   *
+   * @param nestedResultStreamingEnabled true to detect ordered nested results
+   * @since 3.5.4
+   */
+  public void setNestedResultStreamingEnabled(boolean nestedResultStreamingEnabled) {
+    this.nestedResultStreamingEnabled = nestedResultStreamingEnabled;
+  }
+
+  public int getNestedResultObjectsLimit() {
+    return nestedResultObjectsLimit;
+  }
+
+  /**
+   * Sets the maximum number of objects nested result mapping may hold for a single query before failing.
+   *
+   * @param nestedResultObjectsLimit the maximum number of objects, 0 for no limit
+   * @since 3.5.4
+   */
+  public void setNestedResultObjectsLimit(int nestedResultObjectsLimit) {
+    this.nestedResultObjectsLimit = nestedResultObjectsLimit;
+  }
+
+  public boolean isAdaptiveFetchSizeEnabled() {
+    return adaptiveFetchSizeEnabled;
+  }
+
+  /**
+   * Sets whether cursor and result handler queries without their own fetch size start with a small fetch size and
+   * double it each time the consumer has read a whole fetch.
+   *
+   * @param adaptiveFetchSizeEnabled true to adapt the fetch size
+   * @since 3.5.4
+   */
+  public void setAdaptiveFetchSizeEnabled(boolean adaptiveFetchSizeEnabled) {
+    this.adaptiveFetchSizeEnabled = adaptiveFetchSizeEnabled;
+  }
+
+  public int getAdaptiveFetchSizeInitial() {
+    return adaptiveFetchSizeInitial;
+  }
+
+  /**
+   * Sets the fetch size adaptive queries start with.
+   *
+   * @param adaptiveFetchSizeInitial the initial fetch size
+   * @since 3.5.4
+   */
+  public void setAdaptiveFetchSizeInitial(int adaptiveFetchSizeInitial) {
+    this.adaptiveFetchSizeInitial = adaptiveFetchSizeInitial;
+  }
+
+  public int getAdaptiveFetchSizeMaxBytes() {
+    return adaptiveFetchSizeMaxBytes;
+  }
+
+  /**
+   * Sets the estimated number of bytes a single fetch of an adaptive query may bring, which caps its fetch size.
+   *
+   * @param adaptiveFetchSizeMaxBytes the byte budget of a fetch
+   * @since 3.5.4
+   */
+  public void setAdaptiveFetchSizeMaxBytes(int adaptiveFetchSizeMaxBytes) {
+    this.adaptiveFetchSizeMaxBytes = adaptiveFetchSizeMaxBytes;
+  }
+
+  public boolean isParallelMappingEnabled() {
+    return parallelMappingEnabled;
+  }
+
+  /**
+   * Sets whether rows of simple result maps are read into buffers on the calling thread and mapped to objects in the
+   * common {@link java.util.concurrent.ForkJoinPool}, handing the results out in row order.
+   *
+   * @param parallelMappingEnabled true to map rows in parallel
+   * @since 3.5.4
+   */
+  public void setParallelMappingEnabled(boolean parallelMappingEnabled) {
+    this.parallelMappingEnabled = parallelMappingEnabled;
+  }
+
+  public int getParallelMappingChunkSize() {
+    return parallelMappingChunkSize;
+  }
+
+  /**
+   * Sets the number of buffered rows a single parallel mapping task maps.
+   *
+   * @param parallelMappingChunkSize the number of rows per task
+   * @since 3.5.4
+   */
+  public void setParallelMappingChunkSize(int parallelMappingChunkSize) {
+    this.parallelMappingChunkSize = parallelMappingChunkSize;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -326,6 +639,7 @@ public class Configuration {
 
   public void setEnvironment(Environment environment) {
     this.environment = environment;
+    applyMetricsCollectorToDataSource(null);
   }
 
   public AutoMappingBehavior getAutoMappingBehavior() {
@@ -369,6 +683,74 @@ public class Configuration {
     this.proxyFactory = proxyFactory;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public MetricsCollector getMetricsCollector() {
+    return metricsCollector;
+  }
+
+  /**
+   * Sets the collector that receives statement latencies, mapped row counts and cache hits. Null disables metrics.
+   * The collector also receives the connection wait times of a {@link PooledDataSource} of the environment.
+   *
+   * @param metricsCollector the collector
+   * @since 3.5.4
+   */
+  public void setMetricsCollector(MetricsCollector metricsCollector) {
+    MetricsCollector previous = this.metricsCollector;
+    this.metricsCollector = metricsCollector;
+    applyMetricsCollectorToDataSource(previous);
+  }
+
+  // 把指标收集器交给环境的连接池，不覆盖连接池自己设置的收集器
+  private void applyMetricsCollectorToDataSource(MetricsCollector previous) {
+    if (environment != null && environment.getDataSource() instanceof PooledDataSource) {
+      PooledDataSource dataSource = (PooledDataSource) environment.getDataSource();
+      if (metricsCollector != null || dataSource.getMetricsCollector() == previous) {
+        dataSource.setMetricsCollector(metricsCollector);
+      }
+    }
+  }
+
+  /**
+   * Returns the executor that runs the operations of {@link AsyncSqlSession}s. Unless one was set, a shared pool of
+   * daemon threads is created on first use. It has as many threads as the {@link PooledDataSource} of the environment
+   * has active connections, or as there are processors for other data sources, and queues further operations.
+   *
+   * @return the executor
+   * @since 3.5.4
+   */
+  public synchronized java.util.concurrent.Executor getAsyncExecutor() {
+    if (asyncExecutor == null) {
+      AtomicInteger threadNumber = new AtomicInteger();
+      // 线程数超过可用连接数时多出的线程只会等待连接
+      int poolSize = environment != null && environment.getDataSource() instanceof PooledDataSource
+          ? ((PooledDataSource) environment.getDataSource()).getPoolMaximumActiveConnections()
+          : Runtime.getRuntime().availableProcessors();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+      executor.allowCoreThreadTimeOut(true);
+      asyncExecutor = executor;
+    }
+    return asyncExecutor;
+  }
+
+  /**
+   * Sets the executor that runs the operations of {@link AsyncSqlSession}s, for example a bounded pool sized like
+   * the connection pool or, on newer JDKs, a virtual thread per task executor.
+   *
+   * @param asyncExecutor the executor
+   * @since 3.5.4
+   */
+  public synchronized void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+  }
+
   public boolean isAggressiveLazyLoading() {
     return aggressiveLazyLoading;
   }
@@ -614,6 +996,8 @@ public class Configuration {
     Executor executor;
     if (ExecutorType.BATCH == executorType) {
       executor = new BatchExecutor(this, transaction);
+    } else if (ExecutorType.REORDERING_BATCH == executorType) {
+      executor = new ReorderingBatchExecutor(this, transaction);
     } else if (ExecutorType.REUSE == executorType) {
       executor = new ReuseExecutor(this, transaction);
     } else {
@@ -790,6 +1174,13 @@ public class Configuration {
     return mapperRegistry.getMapper(type, sqlSession);
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public <T> T getMapper(Class<T> type, SqlSession sqlSession, java.util.concurrent.Executor asyncExecutor) {
+    return mapperRegistry.getMapper(type, sqlSession, asyncExecutor);
+  }
+
   public boolean hasMapper(Class<?> type) {
     return mapperRegistry.hasMapper(type);
   }
@@ -19,5 +19,12 @@ package org.apache.ibatis.session;
  * @author Clinton Begin
  */
 public enum ExecutorType {
-  SIMPLE, REUSE, BATCH
+  SIMPLE, REUSE, BATCH,
+  /**
+   * Like {@link #BATCH}, but keeps one batch open per distinct SQL instead of executing the pending batch whenever the
+   * SQL changes.
+   *
+   * @since 3.5.4
+   */
+  REORDERING_BATCH
 }
@@ -16,6 +16,9 @@
 package org.apache.ibatis.session;
 
 import java.sql.Connection;
+import java.util.concurrent.Executor;
+
+import org.apache.ibatis.session.defaults.DefaultAsyncSqlSession;
 
 /**
  * Creates an {@link SqlSession} out of a connection or a DataSource
@@ -42,4 +45,40 @@ public interface SqlSessionFactory {
 
   Configuration getConfiguration();
 
+  /**
+   * Opens an {@link AsyncSqlSession} that runs on {@link Configuration#getAsyncExecutor()}.
+   *
+   * @return a new async session
+   * @since 3.5.4
+   */
+  default AsyncSqlSession openAsyncSession() {
+    return openAsyncSession(openSession(), getConfiguration().getAsyncExecutor());
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  default AsyncSqlSession openAsyncSession(boolean autoCommit) {
+    return openAsyncSession(openSession(autoCommit), getConfiguration().getAsyncExecutor());
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  default AsyncSqlSession openAsyncSession(ExecutorType execType) {
+    return openAsyncSession(openSession(execType), getConfiguration().getAsyncExecutor());
+  }
+
+  /**
+   * Wraps a session in an {@link AsyncSqlSession}. The session must not be used directly afterwards.
+   *
+   * @param sqlSession the session
+   * @param executor the executor that runs the operations of the session
+   * @return a new async session
+   * @since 3.5.4
+   */
+  default AsyncSqlSession openAsyncSession(SqlSession sqlSession, Executor executor) {
+    return new DefaultAsyncSqlSession(sqlSession, executor);
+  }
+
 }
@@ -0,0 +1,204 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import org.apache.ibatis.cursor.Flow;
+import org.apache.ibatis.cursor.defaults.CursorPublisher;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * The default implementation for {@link AsyncSqlSession}, running the operations of a {@link SqlSession} one after
+ * another on a shared executor.
+ *
+ * @since 3.5.4
+ */
+public class DefaultAsyncSqlSession implements AsyncSqlSession {
+
+  private final SqlSession sqlSession;
+  private final Executor executor;
+
+  public DefaultAsyncSqlSession(SqlSession sqlSession, Executor executor) {
+    this.sqlSession = sqlSession;
+    this.executor = new SerialExecutor(executor);
+  }
+
+  @Override
+  public <T> CompletableFuture<T> execute(Function<SqlSession, T> action) {
+    return CompletableFuture.supplyAsync(() -> action.apply(sqlSession), executor);
+  }
+
+  @Override
+  public <T> CompletableFuture<T> selectOne(String statement) {
+    return execute(session -> session.selectOne(statement));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> selectOne(String statement, Object parameter) {
+    return execute(session -> session.selectOne(statement, parameter));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement) {
+    return execute(session -> session.selectList(statement));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter) {
+    return execute(session -> session.selectList(statement, parameter));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds) {
+    return execute(session -> session.selectList(statement, parameter, rowBounds));
+  }
+
+  @Override
+  public <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, Object parameter, String mapKey) {
+    return execute(session -> session.selectMap(statement, parameter, mapKey));
+  }
+
+  @Override
+  public <T> Flow.Publisher<T> selectCursor(String statement) {
+    return new CursorPublisher<>(() -> sqlSession.selectCursor(statement), executor);
+  }
+
+  @Override
+  public <T> Flow.Publisher<T> selectCursor(String statement, Object parameter) {
+    return new CursorPublisher<>(() -> sqlSession.selectCursor(statement, parameter), executor);
+  }
+
+  @Override
+  public <T> Flow.Publisher<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
+    return new CursorPublisher<>(() -> sqlSession.selectCursor(statement, parameter, rowBounds), executor);
+  }
+
+  @Override
+  public CompletableFuture<Integer> insert(String statement) {
+    return execute(session -> session.insert(statement));
+  }
+
+  @Override
+  public CompletableFuture<Integer> insert(String statement, Object parameter) {
+    return execute(session -> session.insert(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Integer> update(String statement) {
+    return execute(session -> session.update(statement));
+  }
+
+  @Override
+  public CompletableFuture<Integer> update(String statement, Object parameter) {
+    return execute(session -> session.update(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Integer> delete(String statement) {
+    return execute(session -> session.delete(statement));
+  }
+
+  @Override
+  public CompletableFuture<Integer> delete(String statement, Object parameter) {
+    return execute(session -> session.delete(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Void> commit() {
+    return CompletableFuture.runAsync(sqlSession::commit, executor);
+  }
+
+  @Override
+  public CompletableFuture<Void> commit(boolean force) {
+    return CompletableFuture.runAsync(() -> sqlSession.commit(force), executor);
+  }
+
+  @Override
+  public CompletableFuture<Void> rollback() {
+    return CompletableFuture.runAsync(sqlSession::rollback, executor);
+  }
+
+  @Override
+  public CompletableFuture<Void> rollback(boolean force) {
+    return CompletableFuture.runAsync(() -> sqlSession.rollback(force), executor);
+  }
+
+  @Override
+  public CompletableFuture<List<BatchResult>> flushStatements() {
+    return execute(SqlSession::flushStatements);
+  }
+
+  @Override
+  public CompletableFuture<Void> close() {
+    return CompletableFuture.runAsync(sqlSession::close, executor);
+  }
+
+  @Override
+  public <T> T getMapper(Class<T> type) {
+    return getConfiguration().getMapper(type, sqlSession, executor);
+  }
+
+  @Override
+  public Configuration getConfiguration() {
+    return sqlSession.getConfiguration();
+  }
+
+  /**
+   * Runs the submitted tasks one at a time, in submission order, on the threads of another executor.
+   */
+  static class SerialExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final Executor executor;
+    private Runnable active;
+
+    SerialExecutor(Executor executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+      tasks.add(() -> {
+        try {
+          task.run();
+        } finally {
+          scheduleNext();
+        }
+      });
+      if (active == null) {
+        scheduleNext();
+      }
+    }
+
+    private synchronized void scheduleNext() {
+      active = tasks.poll();
+      if (active != null) {
+        executor.execute(active);
+      }
+    }
+  }
+
+}
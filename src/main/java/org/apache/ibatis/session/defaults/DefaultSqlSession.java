@@ -16,21 +16,27 @@
 package org.apache.ibatis.session.defaults;
 
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
+import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -193,6 +199,9 @@ public class DefaultSqlSession implements SqlSession {
     try {
       dirty = true;
       MappedStatement ms = configuration.getMappedStatement(statement);
+      if (ms.getInsertBatchSize() > 0) {
+        return insertInChunks(ms, parameter);
+      }
       return executor.update(ms, wrapCollection(parameter));
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error updating database.  Cause: " + e, e);
@@ -315,6 +324,57 @@ public class DefaultSqlSession implements SqlSession {
     return (!autoCommit && dirty) || force;
   }
 
+  /**
+   * Executes a batch insert with one multi-row statement per chunk of the collection parameter.
+   */
+  private int insertInChunks(MappedStatement ms, Object parameter) throws SQLException {
+    Collection<?> rows = batchRowsOf(ms, parameter);
+    int chunkSize = ms.getInsertBatchSize();
+    int count = 0;
+    List<Object> chunk = new ArrayList<>(Math.min(chunkSize, rows.size()));
+    Iterator<?> iterator = rows.iterator();
+    while (iterator.hasNext()) {
+      chunk.add(iterator.next());
+      if (chunk.size() == chunkSize || !iterator.hasNext()) {
+        int updated = executor.update(ms, chunk);
+        // BatchExecutor 返回的是占位值，不能累加
+        count = updated == BatchExecutor.BATCH_UPDATE_RETURN_VALUE || count == BatchExecutor.BATCH_UPDATE_RETURN_VALUE
+            ? BatchExecutor.BATCH_UPDATE_RETURN_VALUE : count + updated;
+        chunk = new ArrayList<>(Math.min(chunkSize, rows.size()));
+      }
+    }
+    return count;
+  }
+
+  private Collection<?> batchRowsOf(MappedStatement ms, Object parameter) {
+    if (parameter instanceof Collection) {
+      return (Collection<?>) parameter;
+    } else if (parameter != null && parameter.getClass().isArray()) {
+      int length = Array.getLength(parameter);
+      List<Object> rows = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        rows.add(Array.get(parameter, i));
+      }
+      return rows;
+    } else if (parameter instanceof ParamMap) {
+      // 多个参数时取其中唯一的集合参数
+      Object rows = null;
+      for (Object value : ((ParamMap<?>) parameter).values()) {
+        if (value != rows && (value instanceof Collection || value != null && value.getClass().isArray())) {
+          if (rows != null) {
+            throw new ExecutorException("Batch insert '" + ms.getId() + "' has more than one collection parameter.");
+          }
+          rows = value;
+        }
+      }
+      if (rows == null) {
+        throw new ExecutorException("Batch insert '" + ms.getId() + "' requires a collection parameter.");
+      }
+      return batchRowsOf(ms, rows);
+    }
+    return Collections.singletonList(parameter);
+  }
+
   private Object wrapCollection(final Object object) {
     if (object instanceof Collection) {
       StrictMap<Object> map = new StrictMap<>();
@@ -24,7 +24,7 @@ import java.sql.SQLException;
  * @author Clinton Begin
  * Integer的类型转换
  */
-public class IntegerTypeHandler extends BaseTypeHandler<Integer> {
+public class IntegerTypeHandler extends BaseTypeHandler<Integer> implements PrimitiveIntTypeHandler {
 
   //指定索引位置设置参数
   @Override
@@ -54,4 +54,9 @@ public class IntegerTypeHandler extends BaseTypeHandler<Integer> {
     int result = cs.getInt(columnIndex);
     return result == 0 && cs.wasNull() ? null : result;
   }
+
+  @Override
+  public int getInt(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getInt(columnIndex);
+  }
 }
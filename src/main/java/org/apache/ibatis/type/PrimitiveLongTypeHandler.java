@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A type handler that can also read a column as a primitive <code>long</code>, so that results mapped to a
+ * <code>long</code> property are not boxed.
+ *
+ * @since 3.5.4
+ * @see LongTypeHandler
+ */
+public interface PrimitiveLongTypeHandler {
+
+  /**
+   * Gets the column value as a primitive.
+   *
+   * @param rs the result set
+   * @param columnIndex the column index
+   * @return the value, or 0 with {@link ResultSet#wasNull()} returning true if the column is SQL NULL
+   * @throws SQLException if the column cannot be read
+   */
+  long getLong(ResultSet rs, int columnIndex) throws SQLException;
+
+}
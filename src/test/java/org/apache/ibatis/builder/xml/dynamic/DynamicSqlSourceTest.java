@@ -16,19 +16,25 @@
 package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.metrics.DefaultMetricsCollector;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
@@ -37,6 +43,7 @@ import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
 import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.scripting.xmltags.VarDeclSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -376,6 +383,125 @@ class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals("__frch_u_0", boundSql.getParameterMappings().get(3).getProperty());
   }
 
+  @Test
+  void shouldPadForEachToNextPowerOfTwo() {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "list", null, "item", "(", ")", ",", true)));
+    Map<String, Object> param = new HashMap<>();
+    param.put("list", Arrays.asList(1, 2, 3));
+    BoundSql boundSql = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? , ? , ? , ? )", boundSql.getSql());
+    assertEquals(4, boundSql.getParameterMappings().size());
+    assertEquals(3, boundSql.getAdditionalParameter(boundSql.getParameterMappings().get(3).getProperty()));
+
+    param.put("list", Arrays.asList(1, 2, 3, 4));
+    assertEquals(boundSql.getSql(), source.getBoundSql(param).getSql());
+    param.put("list", Arrays.asList(1, 2, 3, 4, 5));
+    assertEquals(8, source.getBoundSql(param).getParameterMappings().size());
+    param.put("list", Collections.singletonList(1));
+    assertEquals(1, source.getBoundSql(param).getParameterMappings().size());
+  }
+
+  @Test
+  void shouldPadForEachToConfiguredBucketsAndRecordPadding() {
+    Configuration configuration = new Configuration();
+    configuration.setForeachPaddingBuckets(10, 5);
+    DefaultMetricsCollector metricsCollector = new DefaultMetricsCollector();
+    configuration.setMetricsCollector(metricsCollector);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "list", null, "item", "(", ")", ",", true)));
+    Map<String, Object> param = new HashMap<>();
+    param.put("list", Arrays.asList(1, 2, 3, 4, 5, 6, 7));
+    assertEquals(10, source.getBoundSql(param).getParameterMappings().size());
+    param.put("list", Arrays.asList(1, 2, 3, 4, 5));
+    assertEquals(5, source.getBoundSql(param).getParameterMappings().size());
+    param.put("list", Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12));
+    assertEquals(20, source.getBoundSql(param).getParameterMappings().size());
+    assertEquals(2, metricsCollector.getForEachPaddingCount());
+    assertEquals(3 + 8, metricsCollector.getForEachPaddedItemCount());
+  }
+
+  @Test
+  void shouldReuseParsedSqlForSameBranches() {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(64);
+    SqlNode root = mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, mixedContents(
+            new IfSqlNode(mixedContents(new TextSqlNode("AND ID = #{id}")), "id != null"),
+            new IfSqlNode(mixedContents(new TextSqlNode("AND TITLE = #{title}")), "title != null"),
+            new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "authors", null, "item", "AND AUTHOR_ID IN (", ")", ","))),
+        new TextSqlNode("ORDER BY ${order}"));
+    DynamicSqlSource source = new DynamicSqlSource(configuration, root, true);
+    DynamicSqlSource uncachedSource = new DynamicSqlSource(configuration, root);
+    Map<String, Object> param = new HashMap<>();
+    param.put("id", 1);
+    param.put("authors", Arrays.asList(101, 102));
+    param.put("order", "ID");
+    BoundSql first = source.getBoundSql(param);
+    param.put("id", 2);
+    param.put("authors", Arrays.asList(103, 104));
+    BoundSql second = source.getBoundSql(param);
+    assertEquals(uncachedSource.getBoundSql(param).getSql(), second.getSql());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(103, second.getAdditionalParameter(second.getParameterMappings().get(1).getProperty()));
+    assertEquals(104, second.getAdditionalParameter(second.getParameterMappings().get(2).getProperty()));
+
+    param.put("title", "t");
+    assertEquals(uncachedSource.getBoundSql(param).getSql(), source.getBoundSql(param).getSql());
+    assertEquals(4, source.getBoundSql(param).getParameterMappings().size());
+    param.put("authors", Arrays.asList(103, 104, 105));
+    assertEquals(5, source.getBoundSql(param).getParameterMappings().size());
+    param.put("authors", Collections.emptyList());
+    param.put("order", "TITLE");
+    BoundSql last = source.getBoundSql(param);
+    assertEquals(uncachedSource.getBoundSql(param).getSql(), last.getSql());
+    assertTrue(last.getSql().endsWith("ORDER BY TITLE"));
+  }
+
+  @Test
+  void shouldReparseWhenBoundValueTypeChanges() {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(64);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "list", null, "item", "(", ")", ",")), true);
+    Map<String, Object> param = new HashMap<>();
+    param.put("list", Collections.singletonList(1));
+    assertEquals(Integer.class, source.getBoundSql(param).getParameterMappings().get(0).getJavaType());
+    param.put("list", Collections.singletonList(1L));
+    assertEquals(Long.class, source.getBoundSql(param).getParameterMappings().get(0).getJavaType());
+  }
+
+  @Test
+  void shouldEvaluateBindOncePerExecution() {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(64);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new VarDeclSqlNode("sequence", "counter.incrementAndGet()"),
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID = #{sequence}")), true);
+    AtomicInteger counter = new AtomicInteger();
+    Map<String, Object> param = Collections.singletonMap("counter", counter);
+    assertEquals(1, source.getBoundSql(param).getAdditionalParameter("sequence"));
+    assertEquals(1, counter.get());
+    BoundSql cached = source.getBoundSql(param);
+    assertEquals(2, cached.getAdditionalParameter("sequence"));
+    assertEquals(2, counter.get());
+  }
+
+  @Test
+  void shouldNotReuseParsedSqlByDefault() {
+    Configuration configuration = new Configuration();
+    assertEquals(0, configuration.getDynamicSqlCacheSize());
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new IfSqlNode(mixedContents(new TextSqlNode("SELECT * FROM BLOG WHERE ID = #{id}")), "id != null")), true);
+    Map<String, Object> param = Collections.singletonMap("id", 1);
+    assertNotSame(source.getBoundSql(param).getParameterMappings(), source.getBoundSql(param).getParameterMappings());
+  }
+
   private DynamicSqlSource createDynamicSqlSource(SqlNode... contents) throws IOException, SQLException {
     createBlogDataSource();
     final String resource = "org/apache/ibatis/builder/MapperConfig.xml";
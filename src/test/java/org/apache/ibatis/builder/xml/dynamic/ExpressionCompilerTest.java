@@ -0,0 +1,130 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml.dynamic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.ExpressionCompiler;
+import org.apache.ibatis.scripting.xmltags.IfSqlNode;
+import org.apache.ibatis.scripting.xmltags.OgnlCache;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class ExpressionCompilerTest {
+
+  private static final ReflectorFactory REFLECTOR_FACTORY = new DefaultReflectorFactory();
+
+  private static final String[] COMPILED_EXPRESSIONS = {
+      "id", "name != null", "name == null", "name != null and name != ''", "name != null && name.length() > 3",
+      "name.trim().length() == 0", "ids != null and ids.size() > 0", "!ids.isEmpty()", "not emptyIds.isEmpty()",
+      "id == 1", "id eq 1", "id neq 2", "id > 0", "id gt 0", "id >= 1", "id < 1.5", "id <= 0", "id lte 1", "id gte 2",
+      "flag", "!flag", "flag == true", "flag and id == 1", "missing or id", "(missing or id) and flag", "type == 'A'",
+      "name == \"mybatis\"", "author.username == 'cbegin'", "author.favouriteSection != null", "nested.key == 'value'",
+      "_parameter != null", "_databaseId == null", "zero", "count == 10"
+  };
+
+  @Test
+  void shouldEvaluateLikeOgnl() {
+    Map<String, Object> param = new HashMap<>();
+    param.put("id", 1);
+    param.put("name", "mybatis ");
+    param.put("ids", new ArrayList<>(Arrays.asList(1, 2)));
+    param.put("emptyIds", new ArrayList<>());
+    param.put("flag", true);
+    param.put("type", 'A');
+    param.put("zero", 0L);
+    param.put("count", 10);
+    param.put("author", new Author(1, "cbegin", "******", "cbegin@apache.org", "N/A", Section.NEWS));
+    param.put("nested", new HashMap<>(Collections.singletonMap("key", "value")));
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), param).getBindings();
+    for (String expression : COMPILED_EXPRESSIONS) {
+      assertTrue(ExpressionCompiler.isCompiled(expression), expression);
+      assertEquals(OgnlCache.getValue(expression, bindings), ExpressionCompiler.getValue(expression, bindings, REFLECTOR_FACTORY), expression);
+    }
+  }
+
+  @Test
+  void shouldEvaluateBeanRootLikeOgnl() {
+    Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    for (String expression : new String[] {"username == 'cbegin'", "password == null", "id > 0 and favouriteSection != null", "bio.length()"}) {
+      assertTrue(ExpressionCompiler.isCompiled(expression), expression);
+      assertEquals(OgnlCache.getValue(expression, author), ExpressionCompiler.getValue(expression, author, REFLECTOR_FACTORY), expression);
+    }
+  }
+
+  @Test
+  void shouldReadPropertiesWithReflectorFactoryOfConfiguration() {
+    List<Class<?>> reflectedTypes = new ArrayList<>();
+    Configuration configuration = new Configuration();
+    configuration.setReflectorFactory(new DefaultReflectorFactory() {
+      @Override
+      public Reflector findForClass(Class<?> type) {
+        reflectedTypes.add(type);
+        return super.findForClass(type);
+      }
+    });
+    Map<String, Object> param = new HashMap<>();
+    param.put("author", new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS));
+    DynamicContext context = new DynamicContext(configuration, param);
+    assertTrue(new IfSqlNode(new StaticTextSqlNode("id = 1"), "author.username == 'cbegin'").apply(context));
+    assertEquals(Collections.singletonList(Author.class), reflectedTypes);
+  }
+
+  @Test
+  void shouldCompileCommonSubsetOnly() {
+    assertTrue(ExpressionCompiler.isCompiled("name != null and name != ''"));
+    assertTrue(ExpressionCompiler.isCompiled("list != null and list.size() > 0"));
+    assertFalse(ExpressionCompiler.isCompiled("id in {1, 2}"));
+    assertFalse(ExpressionCompiler.isCompiled("name.startsWith('a')"));
+    assertFalse(ExpressionCompiler.isCompiled("id + 1 > 2"));
+    assertFalse(ExpressionCompiler.isCompiled("list[0] != null"));
+    assertFalse(ExpressionCompiler.isCompiled("@java.lang.Math@max(1, 2) == 2"));
+    assertFalse(ExpressionCompiler.isCompiled("count == 10L"));
+    assertFalse(ExpressionCompiler.isCompiled("name == 'it\\'s'"));
+    assertFalse(ExpressionCompiler.isCompiled("id == 010"));
+  }
+
+  @Test
+  void shouldFallBackToOgnlForUnsupportedValues() {
+    Map<String, Object> param = new HashMap<>();
+    param.put("ids", new ArrayList<>(Arrays.asList(1, 2)));
+    param.put("nested", new HashMap<>(Collections.singletonMap("key", "value")));
+    Map<String, Object> bindings = new DynamicContext(new Configuration(), param).getBindings();
+    assertEquals(2, ExpressionCompiler.getValue("ids.size", bindings, REFLECTOR_FACTORY));
+    assertEquals(1, ExpressionCompiler.getValue("nested.size", bindings, REFLECTOR_FACTORY));
+    BuilderException e = assertThrows(BuilderException.class, () -> ExpressionCompiler.getValue("missing.name != null", bindings, REFLECTOR_FACTORY));
+    assertTrue(e.getMessage().contains("missing.name != null"));
+  }
+
+}
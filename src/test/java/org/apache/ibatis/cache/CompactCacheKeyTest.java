@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class CompactCacheKeyTest {
+
+  @Test
+  void shouldTestCacheKeysEqual() {
+    Date date = new Date();
+    Object[] components = { "org.apache.ibatis.Mapper.select", 0, Integer.MAX_VALUE, "select * from t where a = ?",
+        1L, (short) 2, (byte) 3, true, 'c', 1.5d, 2.5f, null, new Date(date.getTime()), Section.NEWS,
+        new BigDecimal("1.10"), new byte[] { 1, 2 }, "中文" };
+    CacheKey key1 = new CompactCacheKey(components);
+    CacheKey key2 = new CompactCacheKey(components.clone());
+    assertEquals(key1, key2);
+    assertEquals(key2, key1);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+    assertEquals(components.length, key1.getUpdateCount());
+  }
+
+  @Test
+  void shouldDescribeComponentsInToString() {
+    CacheKey key = new CompactCacheKey(new Object[] { "id", -1, Long.MIN_VALUE, null, true, 'x', 0.5d, 0.25f, Section.NEWS });
+    assertEquals(key.hashCode() + ":" + ((CompactCacheKey) key).getHash64() + ":id:-1:" + Long.MIN_VALUE
+        + ":null:true:x:0.5:0.25:NEWS", key.toString());
+  }
+
+  @Test
+  void shouldNotMatchDifferentTypesOrValues() {
+    assertNotEquals(new CompactCacheKey(new Object[] { 1 }), new CompactCacheKey(new Object[] { 1L }));
+    assertNotEquals(new CompactCacheKey(new Object[] { 1 }), new CompactCacheKey(new Object[] { "1" }));
+    assertNotEquals(new CompactCacheKey(new Object[] { "ab", "c" }), new CompactCacheKey(new Object[] { "a", "bc" }));
+    assertNotEquals(new CompactCacheKey(new Object[] { 1, null }), new CompactCacheKey(new Object[] { null, 1 }));
+    assertNotEquals(new CompactCacheKey(new Object[] { new BigDecimal("1.0") }),
+        new CompactCacheKey(new Object[] { new BigDecimal("1.00") }));
+    assertNotEquals(new CompactCacheKey(new Object[] { new Date(0) }), new CompactCacheKey(new Object[] { new Date(1) }));
+  }
+
+  @Test
+  void shouldNotMatchPlainCacheKeys() {
+    CacheKey plain = new CacheKey();
+    CacheKey compact = new CompactCacheKey();
+    assertNotEquals(plain, compact);
+    assertNotEquals(compact, plain);
+    assertNotEquals(CacheKey.NULL_CACHE_KEY, compact);
+  }
+
+  @Test
+  void shouldBeIndependentOfClone() throws Exception {
+    CompactCacheKey key = new CompactCacheKey(new Object[] { "a", new Date(0) });
+    CacheKey clone = key.clone();
+    assertEquals(key, clone);
+    clone.update("b");
+    key.update("c");
+    assertNotEquals(key, clone);
+    assertEquals(new CompactCacheKey(new Object[] { "a", new Date(0), "b" }), clone);
+    assertEquals(new CompactCacheKey(new Object[] { "a", new Date(0), "c" }), key);
+  }
+
+  @Test
+  void shouldCompareLongStrings() {
+    StringBuilder sql = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      sql.append("column").append(i).append(", ");
+    }
+    assertEquals(new CompactCacheKey(new Object[] { sql.toString() }),
+        new CompactCacheKey(new Object[] { new String(sql) }));
+    assertNotEquals(new CompactCacheKey(new Object[] { sql.toString() }),
+        new CompactCacheKey(new Object[] { sql.append('x').toString() }));
+  }
+
+  @Test
+  void serializationTest() throws Exception {
+    CacheKey cacheKey = new CompactCacheKey(new Object[] { "serializable", 1, new Date(0) });
+    assertEquals(cacheKey, serialize(cacheKey));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T serialize(T object) throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new ObjectOutputStream(baos).writeObject(object);
+
+    ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
+    return (T) new ObjectInputStream(bais).readObject();
+  }
+
+}
@@ -0,0 +1,145 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.impl.CompactSerializer;
+import org.apache.ibatis.cache.impl.JavaCacheSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class CompactSerializerTest {
+
+  private final CacheSerializer serializer = new CompactSerializer();
+
+  @Test
+  void shouldRoundTripSimpleValues() {
+    Timestamp timestamp = new Timestamp(1234567890123L);
+    timestamp.setNanos(123456789);
+    List<Object> values = Arrays.asList(null, "text", "中文", 42, -42L, Long.MIN_VALUE, (short) 7, (byte) -3,
+        1.5d, -2.25f, true, false, 'x', new BigDecimal("-12345.6789"), new BigInteger("123456789012345678901234567890"),
+        new Date(1234567890123L), new java.sql.Date(1234567890123L), new Time(1234567890123L), timestamp,
+        Section.NEWS, LocalDate.of(2020, 1, 31));
+    for (Object value : values) {
+      assertEquals(value, roundTrip(value));
+    }
+    assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) roundTrip(new byte[] { 1, 2, 3 }));
+    assertArrayEquals(new int[] { 1, 2, 3 }, (int[]) roundTrip(new int[] { 1, 2, 3 }));
+  }
+
+  @Test
+  void shouldRoundTripCollections() {
+    Map<String, Object> map = new HashMap<>();
+    map.put("id", 1);
+    map.put("names", new LinkedHashSet<>(Arrays.asList("a", "b")));
+    map.put("fixed", Collections.unmodifiableList(Arrays.asList(1, 2)));
+    List<Object> list = new ArrayList<>(Arrays.asList(map, new Object[] { "x", 1 }));
+    @SuppressWarnings("unchecked")
+    List<Object> copy = (List<Object>) roundTrip(list);
+    assertEquals(ArrayList.class, copy.getClass());
+    assertEquals(map, copy.get(0));
+    assertEquals(LinkedHashSet.class, ((Map<?, ?>) copy.get(0)).get("names").getClass());
+    assertArrayEquals(new Object[] { "x", 1 }, (Object[]) copy.get(1));
+  }
+
+  @Test
+  void shouldCopyResultObjects() {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    Author copy = (Author) roundTrip(author);
+    assertNotSame(author, copy);
+    assertEquals(author, copy);
+  }
+
+  @Test
+  void shouldPreserveSharedAndCyclicReferences() {
+    Node parent = new Node("parent");
+    Node child = new Node("child");
+    child.parent = parent;
+    parent.children.add(child);
+    parent.children.add(child);
+    Node copy = (Node) roundTrip(parent);
+    assertEquals("parent", copy.name);
+    assertEquals(2, copy.children.size());
+    assertSame(copy.children.get(0), copy.children.get(1));
+    assertSame(copy, copy.children.get(0).parent);
+    assertEquals(7, copy.children.get(0).weight);
+  }
+
+  @Test
+  void shouldBeSmallerThanJavaSerialization() {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "password" + i, "user" + i + "@example.com", "bio", Section.NEWS));
+    }
+    int compact = serializer.serialize(authors).length;
+    int java = new JavaCacheSerializer().serialize(authors).length;
+    assertTrue(compact < java, compact + " >= " + java);
+  }
+
+  @Test
+  void shouldRejectNonSerializableObjects() {
+    assertThrows(CacheException.class, () -> serializer.serialize(new Object()));
+  }
+
+  @Test
+  void shouldReturnNullForNull() {
+    assertNull(roundTrip(null));
+  }
+
+  private Object roundTrip(Object value) {
+    return serializer.deserialize(serializer.serialize(value));
+  }
+
+  static class Node implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final int weight = 7;
+    private Node parent;
+    private final List<Node> children = new ArrayList<>();
+
+    Node() {
+      this(null);
+    }
+
+    Node(String name) {
+      this.name = name;
+    }
+  }
+
+}
@@ -0,0 +1,173 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.impl.JavaCacheSerializer;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldReturnCopiesOfCachedValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    List<Author> authors = new ArrayList<>(Arrays.asList(
+        new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS)));
+    cache.putObject("authors", authors);
+    Object cached = cache.getObject("authors");
+    assertEquals(authors, cached);
+    assertNotSame(authors, cached);
+    assertNotSame(cached, cache.getObject("authors"));
+  }
+
+  @Test
+  void shouldEvictOldestSlabWhenFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(4096);
+    cache.setMaximumBytes(4 * 4096);
+    char[] chars = new char[1000];
+    Arrays.fill(chars, 'x');
+    String value = new String(chars);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, value);
+    }
+    assertTrue(cache.getSize() < 100);
+    assertEquals(100, cache.getSize() + cache.getEvictionCount());
+    assertNull(cache.getObject(0));
+    assertEquals(value, cache.getObject(99));
+    assertEquals(4 * 4096, cache.getAllocatedBytes());
+  }
+
+  @Test
+  void shouldNotCacheValuesLargerThanSlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(4096);
+    cache.putObject("large", new byte[8192]);
+    assertNull(cache.getObject("large"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldReplaceExistingValue() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject(0, "a");
+    cache.putObject(0, "b");
+    assertEquals("b", cache.getObject(0));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  void shouldCountHitsAndMisses() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.putObject(0, 0);
+    cache.getObject(0);
+    cache.getObject(0);
+    cache.getObject(1);
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldRejectInvalidSizes() {
+    OffHeapCache cache = new OffHeapCache("default");
+    assertThrows(CacheException.class, () -> cache.setSlabSize(100));
+    assertThrows(CacheException.class, () -> cache.setMaximumBytes(1024));
+  }
+
+  @Test
+  void shouldReturnConsistentValuesUnderConcurrentAccess() throws Exception {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(4096);
+    cache.setMaximumBytes(8 * 4096);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 20000; i++) {
+            int key = ThreadLocalRandom.current().nextInt(2000);
+            Object value = cache.getObject(key);
+            if (value == null) {
+              cache.putObject(key, "value-" + key);
+            } else {
+              assertEquals("value-" + key, value);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(160000, cache.getHitCount() + cache.getMissCount());
+  }
+
+  @Test
+  void shouldBeBuiltWithProperties() {
+    Properties properties = new Properties();
+    properties.setProperty("maximumBytes", "65536");
+    properties.setProperty("slabSize", "8192");
+    properties.setProperty("serializerType", JavaCacheSerializer.class.getName());
+    Cache cache = new CacheBuilder("namespace").implementation(OffHeapCache.class).properties(properties).build();
+    assertTrue(cache instanceof LoggingCache);
+    cache.putObject(0, "value");
+    assertEquals("value", cache.getObject(0));
+  }
+
+}
@@ -0,0 +1,173 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.impl.TinyLfuCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheTest {
+
+  @Test
+  void shouldEvictBeyondMaximumSize() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setSize(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(100, cache.getSize());
+    assertEquals(900, cache.getEvictionCount());
+  }
+
+  @Test
+  void shouldKeepFrequentlyUsedEntriesDuringScan() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setSize(100);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 10; i++) {
+        assertEquals(i, cache.getObject(i));
+      }
+    }
+    for (int i = 100; i < 1100; i++) {
+      cache.putObject(i, i);
+    }
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, cache.getObject(i));
+    }
+  }
+
+  @Test
+  void shouldAdmitNewEntryOnceItIsRequestedOften() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setSize(100);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    for (int round = 0; round < 5; round++) {
+      cache.getObject("hot");
+    }
+    cache.putObject("hot", "value");
+    cache.putObject("other", "value");
+    assertEquals("value", cache.getObject("hot"));
+  }
+
+  @Test
+  void shouldCountHitsAndMisses() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.putObject(0, 0);
+    cache.getObject(0);
+    cache.getObject(0);
+    cache.getObject(1);
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(0, cache.getEvictionCount());
+  }
+
+  @Test
+  void shouldBoundByWeight() {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setMaximumWeight(100);
+    List<Integer> rows = Collections.nCopies(9, 1);
+    for (int i = 0; i < 50; i++) {
+      cache.putObject(i, rows);
+    }
+    assertEquals(10, cache.getSize());
+    cache.putObject("large", Collections.nCopies(200, 1));
+    assertNull(cache.getObject("large"));
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new TinyLfuCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    assertEquals(0, cache.removeObject(0));
+    assertNull(cache.getObject(0));
+    assertNull(cache.removeObject(0));
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    Cache cache = new TinyLfuCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldStayBoundedUnderConcurrentAccess() throws Exception {
+    TinyLfuCache cache = new TinyLfuCache("default");
+    cache.setSize(1000);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 20000; i++) {
+            int key = ThreadLocalRandom.current().nextInt(5000);
+            if (cache.getObject(key) == null) {
+              cache.putObject(key, key);
+            } else if (i % 100 == 0) {
+              cache.removeObject(key);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(cache.getSize() <= 1000);
+    assertEquals(160000, cache.getHitCount() + cache.getMissCount());
+  }
+
+  @Test
+  void shouldBeBuiltWithoutSynchronizedDecorator() {
+    Properties properties = new Properties();
+    properties.setProperty("size", "10");
+    Cache cache = new CacheBuilder("namespace").implementation(TinyLfuCache.class).properties(properties).build();
+    assertTrue(cache instanceof LoggingCache);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(10, cache.getSize());
+  }
+
+}
@@ -0,0 +1,192 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentPooledDataSourceTest {
+
+  private ConcurrentPooledDataSource ds;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Properties props = Resources.getResourceAsProperties(BaseDataTest.JPETSTORE_PROPERTIES);
+    ds = new ConcurrentPooledDataSource(props.getProperty("driver"), props.getProperty("url"),
+        props.getProperty("username"), props.getProperty("password"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    ds.forceCloseAll();
+  }
+
+  @Test
+  void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnections() throws Exception {
+    ds.setPoolMaximumActiveConnections(3);
+    ds.setPoolMaximumIdleConnections(2);
+    ds.setPoolPingConnectionsNotUsedFor(1);
+    ds.setPoolPingEnabled(true);
+    ds.setPoolPingQuery("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+    List<Connection> connections = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      connections.add(ds.getConnection());
+    }
+    assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+    for (Connection c : connections) {
+      c.close();
+    }
+    assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+    assertEquals(3, ds.getPoolState().getRequestCount());
+    assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    assertEquals(0, ds.getPoolState().getHadToWaitCount());
+    assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+    assertNotNull(ds.getPoolState().toString());
+  }
+
+  @Test
+  void shouldReuseTheRealConnectionAndInvalidateTheClosedProxy() throws Exception {
+    Connection first = ds.getConnection();
+    Connection realConnection = PooledDataSource.unwrapConnection(first);
+    first.close();
+    Connection second = ds.getConnection();
+    assertSame(realConnection, PooledDataSource.unwrapConnection(second));
+    assertThrows(SQLException.class, first::createStatement);
+    first.close();
+    assertEquals(1, ds.getPoolState().getBadConnectionCount());
+    second.close();
+    assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+  }
+
+  @Test
+  void shouldClaimOverdueConnection() throws Exception {
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolMaximumCheckoutTime(10);
+    Connection leaked = ds.getConnection();
+    Thread.sleep(20);
+    Connection claimed = ds.getConnection();
+    assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+    assertThrows(SQLException.class, leaked::createStatement);
+    leaked.close();
+    claimed.close();
+    assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+  }
+
+  @Test
+  void shouldBlockWithoutSpinningWhenNoWaitTimeIsSet() throws Exception {
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolTimeToWait(0);
+    ds.setPoolConnectionTimeout(0);
+    Connection held = ds.getConnection();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Thread[] waiter = new Thread[1];
+      Future<Connection> future = executor.submit(() -> {
+        waiter[0] = Thread.currentThread();
+        return ds.getConnection();
+      });
+      Thread.sleep(100);
+      // 等待中的线程应阻塞在移交队列上，而不是反复轮询
+      for (int i = 0; i < 10; i++) {
+        Thread.State state = waiter[0].getState();
+        assertTrue(state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING, state.toString());
+        Thread.sleep(5);
+      }
+      held.close();
+      future.get(5, TimeUnit.SECONDS).close();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldReturnConnectionToTheEntryItWasBorrowedFrom() throws Exception {
+    ds.setPoolMaximumActiveConnections(3);
+    Connection first = ds.getConnection();
+    Connection second = ds.getConnection();
+    PooledConnection pooled = (PooledConnection) Proxy.getInvocationHandler(second);
+    PoolEntry entry = pooled.getPoolEntry();
+    assertSame(pooled, entry.getPooledConnection());
+    second.close();
+    assertNull(entry.getPooledConnection());
+    assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+    assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    // 重复关闭不会再次归还
+    second.close();
+    assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    first.close();
+  }
+
+  @Test
+  void shouldFailFastWhenConnectionTimeoutElapses() throws Exception {
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolConnectionTimeout(50);
+    Connection c = ds.getConnection();
+    assertThrows(PoolTimeoutException.class, ds::getConnection);
+    assertEquals(1, ds.getPoolState().getTimedOutRequestCount());
+    assertEquals(1, ds.getPoolState().getWaitTimeHistogram().getCount());
+    c.close();
+  }
+
+  @Test
+  void shouldHandOffConnectionsToWaitingThreads() throws Exception {
+    ds.setPoolMaximumActiveConnections(4);
+    ds.setPoolMaximumIdleConnections(4);
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 200; j++) {
+            try (Connection c = ds.getConnection()) {
+              assertTrue(ds.getPoolState().getActiveConnectionCount() <= 4);
+              c.getAutoCommit();
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(3200, ds.getPoolState().getRequestCount());
+    assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    assertTrue(ds.getPoolState().getIdleConnectionCount() <= 4);
+  }
+
+}
@@ -0,0 +1,221 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.junit.jupiter.api.Test;
+
+class PoolHousekeeperTest {
+
+  private static Properties jpetstoreProperties() throws IOException {
+    return Resources.getResourceAsProperties(BaseDataTest.JPETSTORE_PROPERTIES);
+  }
+
+  private static PooledDataSource createDataSource(boolean concurrent) throws IOException {
+    Properties props = jpetstoreProperties();
+    return concurrent
+        ? new ConcurrentPooledDataSource(props.getProperty("driver"), props.getProperty("url"), props.getProperty("username"), props.getProperty("password"))
+        : new PooledDataSource(props.getProperty("driver"), props.getProperty("url"), props.getProperty("username"), props.getProperty("password"));
+  }
+
+  // 记录打开的连接，便于校验调用和连接数
+  private static PooledDataSource createSpyingDataSource(List<Connection> opened) throws IOException {
+    Properties props = jpetstoreProperties();
+    UnpooledDataSource unpooled = new UnpooledDataSource(props.getProperty("driver"), props.getProperty("url"),
+        props.getProperty("username"), props.getProperty("password")) {
+      @Override
+      public Connection getConnection() throws SQLException {
+        Connection connection = spy(super.getConnection());
+        opened.add(connection);
+        return connection;
+      }
+    };
+    PooledDataSource ds = new PooledDataSource(unpooled);
+    // 设置url以计算期望的连接类型码，否则连接不会放回连接池
+    ds.setUrl(props.getProperty("url"));
+    return ds;
+  }
+
+  @Test
+  void shouldPreWarmMinimumIdleConnections() throws Exception {
+    for (boolean concurrent : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(concurrent);
+      try {
+        ds.setPoolMinimumIdleConnections(3);
+        ds.housekeep();
+        assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+        assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldRetireConnectionsPastMaximumLifetime() throws Exception {
+    for (boolean concurrent : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(concurrent);
+      try {
+        ds.setPoolMaximumLifetime(10);
+        Connection first = ds.getConnection();
+        Connection realConnection = PooledDataSource.unwrapConnection(first);
+        first.close();
+        Thread.sleep(20);
+        ds.housekeep();
+        assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+        assertTrue(realConnection.isClosed());
+
+        Connection second = ds.getConnection();
+        Thread.sleep(20);
+        second.close();
+        assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldRetireIdleConnectionsAboveMinimumIdle() throws Exception {
+    for (boolean concurrent : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(concurrent);
+      try {
+        ds.setPoolMinimumIdleConnections(1);
+        ds.setPoolMaximumIdleTime(10);
+        Connection c1 = ds.getConnection();
+        Connection c2 = ds.getConnection();
+        Connection c3 = ds.getConnection();
+        c1.close();
+        c2.close();
+        c3.close();
+        assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+        Thread.sleep(20);
+        ds.housekeep();
+        assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldDiscardInvalidIdleConnections() throws Exception {
+    for (boolean concurrent : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(concurrent);
+      try {
+        Connection c = ds.getConnection();
+        Connection realConnection = PooledDataSource.unwrapConnection(c);
+        c.close();
+        realConnection.close();
+        ds.housekeep();
+        assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldRunInTheBackgroundOnceEnabled() throws Exception {
+    PooledDataSource ds = createDataSource(false);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolHousekeepingInterval(10);
+      ds.getConnection().close();
+      long deadline = System.currentTimeMillis() + 5000;
+      while (ds.getPoolState().getIdleConnectionCount() < 2 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertTrue(ds.getPoolState().getIdleConnectionCount() >= 2);
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+    }
+  }
+
+  @Test
+  void shouldNotValidateIdleConnectionsWhenPingIsDisabled() throws Exception {
+    List<Connection> opened = new ArrayList<>();
+    PooledDataSource ds = createSpyingDataSource(opened);
+    try {
+      ds.getConnection().close();
+      ds.housekeep();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      verify(opened.get(0), never()).isValid(anyInt());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCountConnectionBeingValidatedTowardsMaximumActiveConnections() throws Exception {
+    List<Connection> opened = new ArrayList<>();
+    PooledDataSource ds = createSpyingDataSource(opened);
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolPingEnabled(true);
+    ds.setPoolPingQuery("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+    ds.setPoolPingConnectionsNotUsedFor(0);
+    ds.setPoolTimeToWait(50);
+    try {
+      ds.getConnection().close();
+      CountDownLatch validating = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      doAnswer(invocation -> {
+        validating.countDown();
+        release.await(5, TimeUnit.SECONDS);
+        return invocation.callRealMethod();
+      }).when(opened.get(0)).isValid(anyInt());
+      Thread housekeeper = new Thread(ds::housekeep);
+      housekeeper.start();
+      assertTrue(validating.await(5, TimeUnit.SECONDS));
+
+      new Thread(() -> {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          // ignore
+        }
+        release.countDown();
+      }).start();
+      Connection connection = ds.getConnection();
+      assertSame(opened.get(0), PooledDataSource.unwrapConnection(connection));
+      assertEquals(1, opened.size());
+      connection.close();
+      housekeeper.join();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+}
@@ -0,0 +1,193 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class PooledStatementCacheTest {
+
+  interface SupplierMapper {
+    @Select("select count(*) from supplier")
+    int countSuppliers();
+
+    @Select("select count(*) from supplier where status = #{status}")
+    int countSuppliersByStatus(String status);
+  }
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    BaseDataTest.createJPetstoreDataSource();
+  }
+
+  private static PooledDataSource createDataSource(boolean concurrent, int statementCacheSize) throws Exception {
+    Properties props = Resources.getResourceAsProperties(BaseDataTest.JPETSTORE_PROPERTIES);
+    PooledDataSource ds = concurrent
+        ? new ConcurrentPooledDataSource(props.getProperty("driver"), props.getProperty("url"), props.getProperty("username"), props.getProperty("password"))
+        : new PooledDataSource(props.getProperty("driver"), props.getProperty("url"), props.getProperty("username"), props.getProperty("password"));
+    ds.setPoolStatementCacheSize(statementCacheSize);
+    return ds;
+  }
+
+  @Test
+  void shouldShareCacheAcrossCheckoutsOfTheSameConnection() throws Exception {
+    for (boolean concurrent : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(concurrent, 5);
+      try {
+        Connection first = ds.getConnection();
+        assertTrue(first.isWrapperFor(PooledStatementCache.class));
+        PooledStatementCache cache = first.unwrap(PooledStatementCache.class);
+        PreparedStatement statement = first.prepareStatement("select count(*) from supplier");
+        assertNull(cache.get("select count(*) from supplier"));
+        cache.put("select count(*) from supplier", statement);
+        first.close();
+
+        Connection second = ds.getConnection();
+        assertSame(cache, second.unwrap(PooledStatementCache.class));
+        assertSame(statement, cache.get("select count(*) from supplier"));
+        assertFalse(statement.isClosed());
+        second.close();
+
+        assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+        assertEquals(1, ds.getPoolState().getStatementCacheMissCount());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldCloseLeastRecentlyUsedStatement() throws Exception {
+    PooledDataSource ds = createDataSource(false, 2);
+    try (Connection connection = ds.getConnection()) {
+      PooledStatementCache cache = connection.unwrap(PooledStatementCache.class);
+      PreparedStatement a = connection.prepareStatement("select 1 from supplier");
+      PreparedStatement b = connection.prepareStatement("select 2 from supplier");
+      PreparedStatement c = connection.prepareStatement("select 3 from supplier");
+      cache.put("a", a);
+      cache.put("b", b);
+      assertSame(a, cache.get("a"));
+      cache.put("c", c);
+      assertEquals(2, cache.size());
+      assertTrue(b.isClosed());
+      assertFalse(a.isClosed());
+      assertNull(cache.get("b"));
+      assertEquals(1, cache.getEvictionCount());
+      assertEquals(1, ds.getPoolState().getStatementCacheEvictionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldGiveReclaimedConnectionNewCache() throws Exception {
+    for (boolean concurrent : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(concurrent, 5);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(10);
+      try {
+        Connection leaked = ds.getConnection();
+        PooledStatementCache leakedCache = leaked.unwrap(PooledStatementCache.class);
+        PreparedStatement statement = leaked.prepareStatement("select count(*) from supplier");
+        leakedCache.put("select count(*) from supplier", statement);
+        Thread.sleep(20);
+
+        Connection claimed = ds.getConnection();
+        assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+        PooledStatementCache claimedCache = claimed.unwrap(PooledStatementCache.class);
+        assertNotSame(leakedCache, claimedCache);
+        assertFalse(leakedCache.isValid());
+        assertTrue(statement.isClosed());
+
+        // 原会话不能再通过旧缓存使用或放入新连接的语句
+        PreparedStatement other = claimed.prepareStatement("select count(*) from supplier");
+        leakedCache.put("select count(*) from supplier", other);
+        assertNull(leakedCache.get("select count(*) from supplier"));
+        assertEquals(0, claimedCache.size());
+        claimed.close();
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldRestoreFetchSizeOfCachedStatement() throws Exception {
+    PooledDataSource ds = createDataSource(false, 5);
+    try (Connection connection = ds.getConnection()) {
+      PooledStatementCache cache = connection.unwrap(PooledStatementCache.class);
+      PreparedStatement statement = connection.prepareStatement("select count(*) from supplier");
+      statement.setFetchSize(10);
+      cache.put("select count(*) from supplier", statement);
+      statement.setFetchSize(500);
+      assertSame(statement, cache.get("select count(*) from supplier"));
+      assertEquals(10, statement.getFetchSize());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotExposeCacheWhenDisabled() throws Exception {
+    PooledDataSource ds = createDataSource(false, 0);
+    try (Connection connection = ds.getConnection()) {
+      assertFalse(connection.isWrapperFor(PooledStatementCache.class));
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReuseStatementsAcrossSessionsWithReuseExecutor() throws Exception {
+    for (boolean concurrent : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(concurrent, 10);
+      try {
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), ds));
+        configuration.addMapper(SupplierMapper.class);
+        SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+        for (int i = 0; i < 3; i++) {
+          try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.REUSE)) {
+            SupplierMapper mapper = sqlSession.getMapper(SupplierMapper.class);
+            assertEquals(2, mapper.countSuppliers());
+            sqlSession.commit(true);
+            assertEquals(2, mapper.countSuppliersByStatus("AC"));
+          }
+        }
+        assertEquals(2, ds.getPoolState().getStatementCacheMissCount());
+        assertEquals(4, ds.getPoolState().getStatementCacheHitCount());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+}
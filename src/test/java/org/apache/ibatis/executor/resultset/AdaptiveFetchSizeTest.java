@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+class AdaptiveFetchSizeTest {
+
+  private ResultSet resultSet(int... columnTypesAndPrecisions) throws SQLException {
+    ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+    when(metaData.getColumnCount()).thenReturn(columnTypesAndPrecisions.length / 2);
+    for (int i = 0; i < columnTypesAndPrecisions.length / 2; i++) {
+      when(metaData.getColumnType(i + 1)).thenReturn(columnTypesAndPrecisions[i * 2]);
+      when(metaData.getPrecision(i + 1)).thenReturn(columnTypesAndPrecisions[i * 2 + 1]);
+    }
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getMetaData()).thenReturn(metaData);
+    return resultSet;
+  }
+
+  @Test
+  void shouldDoubleFetchSizeEachTimeAFetchIsDrained() throws SQLException {
+    ResultSet resultSet = resultSet(Types.INTEGER, 10, Types.VARCHAR, 60);
+    AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(resultSet, 4, 1024 * 1024);
+    for (int i = 0; i < 3; i++) {
+      fetchSize.rowFetched();
+    }
+    verify(resultSet, never()).setFetchSize(8);
+    fetchSize.rowFetched();
+    for (int i = 0; i < 8 + 16; i++) {
+      fetchSize.rowFetched();
+    }
+    InOrder inOrder = inOrder(resultSet);
+    inOrder.verify(resultSet).setFetchSize(8);
+    inOrder.verify(resultSet).setFetchSize(16);
+    inOrder.verify(resultSet).setFetchSize(32);
+    assertEquals(32, fetchSize.getFetchSize());
+  }
+
+  @Test
+  void shouldCapFetchSizeByEstimatedBytes() throws SQLException {
+    // 4 + 8 + 88 = 100 bytes per row
+    ResultSet resultSet = resultSet(Types.INTEGER, 10, Types.BIGINT, 19, Types.VARCHAR, 88);
+    AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(resultSet, 10, 3000);
+    for (int i = 0; i < 1000; i++) {
+      fetchSize.rowFetched();
+    }
+    verify(resultSet).setFetchSize(20);
+    verify(resultSet).setFetchSize(30);
+    verify(resultSet, never()).setFetchSize(40);
+    assertEquals(30, fetchSize.getFetchSize());
+  }
+
+  @Test
+  void shouldStopGrowingWhenDriverRejectsFetchSize() throws SQLException {
+    ResultSet resultSet = resultSet(Types.INTEGER, 10);
+    doThrow(new SQLException("not supported")).when(resultSet).setFetchSize(2);
+    AdaptiveFetchSize fetchSize = new AdaptiveFetchSize(resultSet, 1, 1024);
+    for (int i = 0; i < 10; i++) {
+      fetchSize.rowFetched();
+    }
+    verify(resultSet).setFetchSize(2);
+    verify(resultSet, never()).setFetchSize(4);
+  }
+
+  @Test
+  void shouldEstimateUnboundedColumnsConservatively() {
+    assertEquals(4096, AdaptiveFetchSize.estimateColumnBytes(Types.CLOB, 0));
+    assertEquals(4096, AdaptiveFetchSize.estimateColumnBytes(Types.VARCHAR, Integer.MAX_VALUE));
+    assertEquals(8, AdaptiveFetchSize.estimateColumnBytes(Types.BIGINT, 19));
+  }
+
+}
@@ -18,6 +18,8 @@ package org.apache.ibatis.executor.resultset;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
@@ -36,6 +38,7 @@ import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ResultMapException;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultMap;
@@ -68,6 +71,7 @@ class DefaultResultSetHandlerTest {
 
   /**
    * Contrary to the spec, some drivers require case-sensitive column names when getting result.
+   * Columns are only read by name when the names are not column labels.
    *
    * @see <a href="http://code.google.com/p/mybatis/issues/detail?id=557">Issue 557</a>
    */
@@ -75,6 +79,7 @@ class DefaultResultSetHandlerTest {
   void shouldRetainColumnNameCase() throws Exception {
 
     final MappedStatement ms = getMappedStatement();
+    ms.getConfiguration().setUseColumnLabel(false);
 
     final Executor executor = null;
     final ParameterHandler parameterHandler = null;
@@ -89,7 +94,7 @@ class DefaultResultSetHandlerTest {
     when(rs.next()).thenReturn(true).thenReturn(false);
     when(rs.getInt("CoLuMn1")).thenReturn(100);
     when(rsmd.getColumnCount()).thenReturn(1);
-    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    when(rsmd.getColumnName(1)).thenReturn("CoLuMn1");
     when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
     when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
     when(stmt.getConnection()).thenReturn(conn);
@@ -101,6 +106,54 @@ class DefaultResultSetHandlerTest {
     assertEquals(100, ((HashMap) results.get(0)).get("cOlUmN1"));
   }
 
+  @Test
+  void shouldReadMappedColumnsByIndex() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null/*executor*/, ms,
+            null/*parameterHandler*/, null/*resultHandler*/, null/*boundSql*/, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+    when(rs.getInt(1)).thenReturn(100).thenReturn(200);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false); // for simplicity.
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(2, results.size());
+    assertEquals(100, ((HashMap) results.get(0)).get("cOlUmN1"));
+    assertEquals(200, ((HashMap) results.get(1)).get("cOlUmN1"));
+    verify(rs, never()).getInt(any(String.class));
+  }
+
+  @Test
+  void shouldReportColumnLabelWhenReadingByIndexFails() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null/*executor*/, ms,
+            null/*parameterHandler*/, null/*resultHandler*/, null/*boundSql*/, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true);
+    when(rs.getInt(1)).thenThrow(new SQLException("conversion failed"));
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+
+    ResultMapException e = Assertions.assertThrows(ResultMapException.class, () -> resultSetHandler.handleResultSets(stmt));
+    assertEquals("Error attempting to get column 'CoLuMn1' from result set.  Cause: java.sql.SQLException: conversion failed",
+        e.getMessage());
+    Assertions.assertTrue(e.getCause() instanceof SQLException);
+  }
+
   @Test
   void shouldThrowExceptionWithColumnName() throws Exception {
     final MappedStatement ms = getMappedStatement();
@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.ibatis.mapping.ResultFlag;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class NestedResultOrderingTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldExtractOuterOrderByColumns() {
+    assertEquals(Arrays.asList("A.ID", "NAME"),
+        NestedResultOrdering.orderByColumns("select * from (select * from t order by x) a order by a.id asc, \"name\" desc nulls last"));
+    assertEquals(Arrays.asList("ID", null),
+        NestedResultOrdering.orderByColumns("select * from t order by id, lower(name) limit 10 offset 5"));
+    assertEquals(Collections.singletonList("ID"),
+        NestedResultOrdering.orderByColumns("select 'order by x' from t order by id fetch first 10 rows only"));
+    assertEquals(Collections.emptyList(),
+        NestedResultOrdering.orderByColumns("select row_number() over (order by id) from t"));
+  }
+
+  @Test
+  void shouldRequireAllIdColumnsAfterParentColumnsOnly() {
+    ResultMap resultMap = resultMap(id("id"), id("version"), result("name"));
+    String select = "select t.id, t.version, t.name, c.id child_id from t join c on c.t_id = t.id";
+    assertTrue(NestedResultOrdering.isOrderedById(select + " order by t.id, t.version, child_id", resultMap));
+    assertTrue(NestedResultOrdering.isOrderedById(select + " order by name, version desc, id", resultMap));
+    assertFalse(NestedResultOrdering.isOrderedById(select + " order by id", resultMap));
+    assertFalse(NestedResultOrdering.isOrderedById(select + " order by child_id, id, version", resultMap));
+    assertFalse(NestedResultOrdering.isOrderedById(select + " order by 1, 2", resultMap));
+    assertFalse(NestedResultOrdering.isOrderedById(select, resultMap));
+  }
+
+  @Test
+  void shouldResolveQualifiedItemsThroughSelectList() {
+    ResultMap resultMap = resultMap(id("id"), result("customer"));
+    String select = "select o.id, o.customer, l.id line_id, l.product as line_product"
+        + " from orders o join order_lines l on l.order_id = o.id";
+    assertTrue(NestedResultOrdering.isOrderedById(select + " order by o.id, l.id", resultMap));
+    assertTrue(NestedResultOrdering.isOrderedById(select + " order by o.customer desc, \"O\".id", resultMap));
+    // l.id 是子对象的 id，结果集中的标签为 line_id
+    assertFalse(NestedResultOrdering.isOrderedById(select + " order by l.id", resultMap));
+    assertFalse(NestedResultOrdering.isOrderedById(select + " order by l.id, o.id", resultMap));
+    // l.name 不在选择列表中，无法解析
+    assertFalse(NestedResultOrdering.isOrderedById(select + " order by l.name, o.id", resultMap));
+    assertFalse(NestedResultOrdering.isOrderedById(select + " order by x.id", resultMap));
+  }
+
+  @Test
+  void shouldNotTreatUnresolvableSelectListsAsOrdered() {
+    ResultMap resultMap = resultMap(id("id"));
+    assertFalse(NestedResultOrdering.isOrderedById("select * from t order by id", resultMap));
+    assertFalse(NestedResultOrdering.isOrderedById("select t.*, c.id child_id from t join c on c.t_id = t.id order by t.id", resultMap));
+    assertFalse(NestedResultOrdering.isOrderedById("select t.id, c.id from t join c on c.t_id = t.id order by t.id", resultMap));
+    assertFalse(NestedResultOrdering.isOrderedById("select t.id, c.id from t join c on c.t_id = t.id order by id", resultMap));
+    assertTrue(NestedResultOrdering.isOrderedById("select distinct t.id, c.name from t join c on c.t_id = t.id order by id", resultMap));
+  }
+
+  @Test
+  void shouldNotTreatResultMapWithoutIdsAsOrdered() {
+    ResultMap resultMap = resultMap(result("id"), result("name"));
+    assertFalse(NestedResultOrdering.isOrderedById("select * from t order by id, name", resultMap));
+  }
+
+  private ResultMap resultMap(ResultMapping... resultMappings) {
+    return new ResultMap.Builder(configuration, "resultMap", Object.class, Arrays.asList(resultMappings)).build();
+  }
+
+  private ResultMapping id(String column) {
+    return new ResultMapping.Builder(configuration, column, column, Object.class)
+        .flags(new ArrayList<>(Collections.singletonList(ResultFlag.ID))).build();
+  }
+
+  private ResultMapping result(String column) {
+    return new ResultMapping.Builder(configuration, column, column, Object.class).build();
+  }
+
+}
@@ -0,0 +1,189 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+
+import javax.sql.rowset.serial.SerialBlob;
+
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class RowBufferTest {
+
+  private ResultSet resultSet(Object... labelsAndTypes) throws SQLException {
+    ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+    when(metaData.getColumnCount()).thenReturn(labelsAndTypes.length / 2);
+    for (int i = 0; i < labelsAndTypes.length / 2; i++) {
+      when(metaData.getColumnLabel(i + 1)).thenReturn((String) labelsAndTypes[i * 2]);
+      when(metaData.getColumnType(i + 1)).thenReturn((Integer) labelsAndTypes[i * 2 + 1]);
+    }
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getMetaData()).thenReturn(metaData);
+    return resultSet;
+  }
+
+  private RowBuffer rowBuffer(ResultSet resultSet) throws SQLException {
+    return new RowBuffer(new ResultSetWrapper(resultSet, new Configuration()));
+  }
+
+  @Test
+  void shouldServeGettersRecordedOnFirstRowFromBufferedRows() throws SQLException {
+    ResultSet resultSet = resultSet("ID", Types.INTEGER, "NAME", Types.VARCHAR, "CREATED", Types.TIMESTAMP,
+        "DATA", Types.BLOB);
+    when(resultSet.getInt(1)).thenReturn(1);
+    when(resultSet.getString("name")).thenReturn("first");
+    RowBuffer rowBuffer = rowBuffer(resultSet);
+    ResultSet recorder = rowBuffer.record(resultSet);
+    assertEquals(1, recorder.getInt(1));
+    assertFalse(recorder.wasNull());
+    assertEquals("first", recorder.getString("name"));
+    assertNull(recorder.getObject("CREATED", LocalDateTime.class));
+    assertNull(recorder.getBlob(4));
+    assertTrue(rowBuffer.stopRecording());
+
+    LocalDateTime created = LocalDateTime.of(2020, 1, 2, 3, 4, 5, 123456789);
+    when(resultSet.getInt(1)).thenReturn(2);
+    when(resultSet.getString(2)).thenReturn("second");
+    when(resultSet.getObject(3, LocalDateTime.class)).thenReturn(created);
+    when(resultSet.getBlob(4)).thenReturn(new SerialBlob(new byte[] {1, 2}));
+    Object[] row = rowBuffer.readRow(resultSet);
+    RowBuffer.BufferedResultSet buffered = rowBuffer.newResultSet();
+    buffered.setRow(row);
+
+    ResultSet rs = buffered.getResultSet();
+    assertEquals(2, rs.getInt("id"));
+    assertEquals("second", rs.getString(2));
+    assertEquals(created, rs.getObject("Created", LocalDateTime.class));
+    Blob blob = rs.getBlob("DATA");
+    assertArrayEquals(new byte[] {1, 2}, blob.getBytes(1, (int) blob.length()));
+    assertFalse(rs.wasNull());
+    assertEquals(2, rs.findColumn("name"));
+    assertEquals(Types.TIMESTAMP, rs.getMetaData().getColumnType(3));
+  }
+
+  @Test
+  void shouldServeNullValuesAndEmptyLobs() throws SQLException {
+    ResultSet resultSet = resultSet("ID", Types.INTEGER, "NOTE", Types.CLOB);
+    RowBuffer rowBuffer = rowBuffer(resultSet);
+    ResultSet recorder = rowBuffer.record(resultSet);
+    recorder.getInt("ID");
+    recorder.getClob("NOTE");
+    assertTrue(rowBuffer.stopRecording());
+
+    Clob empty = mock(Clob.class);
+    when(resultSet.getInt(1)).thenReturn(0);
+    when(resultSet.wasNull()).thenReturn(true);
+    when(resultSet.getClob(2)).thenReturn(empty);
+    RowBuffer.BufferedResultSet buffered = rowBuffer.newResultSet();
+    buffered.setRow(rowBuffer.readRow(resultSet));
+
+    ResultSet rs = buffered.getResultSet();
+    assertEquals(0, rs.getInt("ID"));
+    assertTrue(rs.wasNull());
+    Clob clob = rs.getClob("NOTE");
+    assertEquals("", clob.getSubString(1, (int) clob.length()));
+    assertFalse(rs.wasNull());
+    assertThrows(SQLException.class, () -> rs.getInt("MISSING"));
+  }
+
+  @Test
+  void shouldRejectGettersNotUsedOnFirstRow() throws SQLException {
+    ResultSet resultSet = resultSet("ID", Types.INTEGER, "NAME", Types.VARCHAR);
+    RowBuffer rowBuffer = rowBuffer(resultSet);
+    rowBuffer.record(resultSet).getInt("ID");
+    assertTrue(rowBuffer.stopRecording());
+    RowBuffer.BufferedResultSet buffered = rowBuffer.newResultSet();
+    buffered.setRow(rowBuffer.readRow(resultSet));
+
+    ResultSet rs = buffered.getResultSet();
+    assertThrows(RowBuffer.UnbufferedAccessException.class, () -> rs.getLong("ID"));
+    assertThrows(RowBuffer.UnbufferedAccessException.class, () -> rs.getString("NAME"));
+    assertThrows(RowBuffer.UnbufferedAccessException.class, rs::getStatement);
+  }
+
+  @Test
+  void shouldOnlyConvertRecordedValuesExactlyForUnrecordedGetters() throws SQLException {
+    ResultSet resultSet = resultSet("ID", Types.BIGINT, "PRICE", Types.DECIMAL, "RATE", Types.DOUBLE,
+        "CREATED", Types.TIMESTAMP);
+    RowBuffer rowBuffer = rowBuffer(resultSet);
+    ResultSet recorder = rowBuffer.record(resultSet);
+    recorder.getLong("ID");
+    recorder.getBigDecimal("PRICE");
+    recorder.getDouble("RATE");
+    recorder.getTimestamp("CREATED");
+    assertTrue(rowBuffer.stopRecording());
+
+    when(resultSet.getLong(1)).thenReturn(3_000_000_000L);
+    when(resultSet.getBigDecimal(2)).thenReturn(new BigDecimal("12.50"));
+    when(resultSet.getDouble(3)).thenReturn(0.5);
+    when(resultSet.getTimestamp(4)).thenReturn(Timestamp.valueOf("2020-01-02 03:04:05"));
+    RowBuffer.BufferedResultSet buffered = rowBuffer.newResultSet();
+    buffered.setRow(rowBuffer.readRow(resultSet), true);
+
+    ResultSet rs = buffered.getResultSet();
+    assertEquals("3000000000", rs.getString("ID"));
+    assertEquals(3_000_000_000d, rs.getDouble("ID"));
+    assertEquals(12.5d, rs.getDouble("PRICE"));
+    // 会丢失数据或因驱动而异的转换不做
+    assertThrows(RowBuffer.UnbufferedAccessException.class, () -> rs.getInt("ID"));
+    assertThrows(RowBuffer.UnbufferedAccessException.class, () -> rs.getBoolean("ID"));
+    assertThrows(RowBuffer.UnbufferedAccessException.class, () -> rs.getLong("PRICE"));
+    assertThrows(RowBuffer.UnbufferedAccessException.class, () -> rs.getString("PRICE"));
+    assertThrows(RowBuffer.UnbufferedAccessException.class, () -> rs.getFloat("RATE"));
+    assertThrows(RowBuffer.UnbufferedAccessException.class, () -> rs.getBigDecimal("RATE"));
+    assertThrows(RowBuffer.UnbufferedAccessException.class, () -> rs.getDate("CREATED"));
+  }
+
+  @Test
+  void shouldNotBufferWhenFirstRowNeedsMoreThanColumnValues() throws SQLException {
+    ResultSet resultSet = resultSet("ID", Types.INTEGER, "CREATED", Types.TIMESTAMP);
+    RowBuffer statementUser = rowBuffer(resultSet);
+    statementUser.record(resultSet).getStatement();
+    assertFalse(statementUser.stopRecording());
+
+    RowBuffer calendarUser = rowBuffer(resultSet);
+    calendarUser.record(resultSet).getTimestamp("CREATED", Calendar.getInstance());
+    assertFalse(calendarUser.stopRecording());
+  }
+
+  @Test
+  void shouldNotBufferColumnsOnlyValidOnTheCurrentRow() throws SQLException {
+    Configuration configuration = new Configuration();
+    assertTrue(RowBuffer.isSupported(new ResultSetWrapper(resultSet("ID", Types.INTEGER, "NOTE", Types.CLOB), configuration)));
+    assertFalse(RowBuffer.isSupported(new ResultSetWrapper(resultSet("ID", Types.INTEGER, "TAGS", Types.ARRAY), configuration)));
+    assertFalse(RowBuffer.isSupported(new ResultSetWrapper(resultSet("DOC", Types.SQLXML), configuration)));
+  }
+
+}
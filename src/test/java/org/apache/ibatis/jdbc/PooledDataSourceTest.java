@@ -22,11 +22,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PoolTimeoutException;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.jupiter.api.Disabled;
@@ -91,6 +94,62 @@ class PooledDataSourceTest extends BaseDataTest {
     c.close();
   }
 
+  @Test
+  void shouldFailFastWithTypedExceptionWhenConnectionTimeoutElapses() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolConnectionTimeout(50);
+      Connection c = ds.getConnection();
+      long start = System.currentTimeMillis();
+      assertThrows(PoolTimeoutException.class, ds::getConnection);
+      assertTrue(System.currentTimeMillis() - start < ds.getPoolTimeToWait());
+      assertEquals(1, ds.getPoolState().getTimedOutRequestCount());
+      assertEquals(1, ds.getPoolState().getWaitTimeHistogram().getCount());
+      assertTrue(ds.getPoolState().getWaitTimeHistogram().getMax() >= 50);
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldServeWaitingThreadsInArrivalOrderWhenFair() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolFairWaiting(true);
+      ds.setPoolConnectionTimeout(10000);
+      Connection c = ds.getConnection();
+      List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+      List<Thread> threads = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        final int n = i;
+        Thread thread = new Thread(() -> {
+          try (Connection conn = ds.getConnection()) {
+            order.add(n);
+          } catch (SQLException e) {
+            order.add(-1);
+          }
+        });
+        threads.add(thread);
+        thread.start();
+        while (ds.getPoolState().getHadToWaitCount() < i + 1) {
+          Thread.sleep(5);
+        }
+      }
+      c.close();
+      for (Thread thread : threads) {
+        thread.join(10000);
+      }
+      assertEquals(Arrays.asList(0, 1, 2), order);
+      assertEquals(4, ds.getPoolState().getRequestTimeHistogram().getCount());
+      assertEquals(3, ds.getPoolState().getWaitTimeHistogram().getCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
   @Disabled("See the comments")
   @Test
   void shouldReconnectWhenServerKilledLeakedConnection() throws Exception {
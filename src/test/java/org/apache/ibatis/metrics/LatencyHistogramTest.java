@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldMapEveryValueIntoTheBucketThatContainsIt() {
+    long[] values = { 0, 1, 7, 8, 9, 15, 16, 17, 100, 1000, 123456789L, Long.MAX_VALUE };
+    for (long value : values) {
+      int index = LatencyHistogram.indexOf(value);
+      assertTrue(LatencyHistogram.lowestValueOf(index) <= value, "lowest of " + value);
+      assertTrue(LatencyHistogram.highestValueOf(index) >= value, "highest of " + value);
+    }
+  }
+
+  @Test
+  void shouldReportPercentilesWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000, histogram.getMax());
+    assertEquals(500, histogram.getMean());
+    long p50 = histogram.getValueAtPercentile(50);
+    assertTrue(p50 >= 500 && p50 <= 500 * 1.125, "p50=" + p50);
+    long p99 = histogram.getValueAtPercentile(99);
+    assertTrue(p99 >= 990 && p99 <= 1000, "p99=" + p99);
+    assertEquals(1000, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  void shouldResetAllCounters() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(42);
+    histogram.record(-1);
+    assertEquals(2, histogram.getCount());
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+
+}
@@ -0,0 +1,178 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class InterceptorChainTest {
+
+  private final List<String> calls = new ArrayList<>();
+
+  @Test
+  void shouldCallInterceptorAddedLastFirst() {
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingGetPlugin("first"));
+    chain.addInterceptor(new RecordingGetPlugin("second"));
+    chain.addInterceptor(new RecordingPutPlugin());
+    Map<String, String> map = new HashMap<>();
+    map.put("key", "value");
+    @SuppressWarnings("unchecked")
+    Map<String, String> plugged = (Map<String, String>) chain.pluginAll(map);
+
+    assertEquals("value", plugged.get("key"));
+    assertEquals("[second, first]", calls.toString());
+  }
+
+  @Test
+  void shouldWrapTargetInSingleProxyAndCallOtherMethodsDirectly() {
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingGetPlugin("first"));
+    chain.addInterceptor(new RecordingPutPlugin());
+    Map<String, String> map = new HashMap<>();
+    @SuppressWarnings("unchecked")
+    Map<String, String> plugged = (Map<String, String>) chain.pluginAll(map);
+    plugged.put("key", "value");
+    plugged.size();
+
+    assertTrue(Proxy.isProxyClass(plugged.getClass()));
+    assertEquals("[put]", calls.toString());
+    assertEquals("value", map.get("key"));
+  }
+
+  @Test
+  void shouldKeepOrderAroundInterceptorWithOwnPlugin() {
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingGetPlugin("first"));
+    chain.addInterceptor(new OwnPlugin());
+    chain.addInterceptor(new RecordingGetPlugin("third"));
+    @SuppressWarnings("unchecked")
+    Map<String, String> plugged = (Map<String, String>) chain.pluginAll(new HashMap<>());
+    plugged.get("key");
+
+    assertEquals("[third, own, first]", calls.toString());
+  }
+
+  @Test
+  void shouldThrowExceptionOfInterceptor() {
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new FailingGetPlugin());
+    chain.addInterceptor(new RecordingGetPlugin("outer"));
+    Map<?, ?> plugged = (Map<?, ?>) chain.pluginAll(new HashMap<>());
+
+    UnsupportedOperationException e = assertThrows(UnsupportedOperationException.class, () -> plugged.get("key"));
+    assertSame(SQLException.class, e.getCause().getClass());
+    assertEquals("[outer]", calls.toString());
+  }
+
+  @Test
+  void shouldCallInnerInterceptorsThroughTargetOfInvocation() {
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingGetPlugin("first"));
+    chain.addInterceptor(new RecordingPutPlugin());
+    chain.addInterceptor(new TargetCallingPlugin());
+    Map<String, String> map = new HashMap<>();
+    map.put("key", "value");
+    @SuppressWarnings("unchecked")
+    Map<String, String> plugged = (Map<String, String>) chain.pluginAll(map);
+
+    assertEquals("value", plugged.get("key"));
+    assertEquals("[target, first]", calls.toString());
+  }
+
+  @Test
+  void shouldReturnTargetWhenNoInterfaceIsIntercepted() {
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingGetPlugin("first"));
+    Object target = new Object();
+
+    assertSame(target, chain.pluginAll(target));
+  }
+
+  @Intercepts(@Signature(type = Map.class, method = "get", args = Object.class))
+  class RecordingGetPlugin implements Interceptor {
+
+    private final String name;
+
+    RecordingGetPlugin(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      calls.add(name);
+      return invocation.proceed();
+    }
+  }
+
+  @Intercepts(@Signature(type = Map.class, method = "put", args = { Object.class, Object.class }))
+  class RecordingPutPlugin implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      calls.add("put");
+      return invocation.proceed();
+    }
+  }
+
+  @Intercepts(@Signature(type = Map.class, method = "get", args = Object.class))
+  class OwnPlugin implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      calls.add("own");
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+  }
+
+  @Intercepts(@Signature(type = Map.class, method = "get", args = Object.class))
+  class TargetCallingPlugin implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) {
+      calls.add("target");
+      Map<?, ?> target = (Map<?, ?>) invocation.getTarget();
+      assertTrue(Proxy.isProxyClass(target.getClass()));
+      return target.get(invocation.getArgs()[0]);
+    }
+  }
+
+  @Intercepts(@Signature(type = Map.class, method = "get", args = Object.class))
+  static class FailingGetPlugin implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) {
+      throw new UnsupportedOperationException(new SQLException("failed"));
+    }
+  }
+
+}
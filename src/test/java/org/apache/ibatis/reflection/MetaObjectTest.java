@@ -300,4 +300,64 @@ class MetaObjectTest {
     assertTrue(meta.hasGetter("filterParams[2]"));
   }
 
+  @Test
+  void shouldResolveNestedPathAcrossDifferentTypes() {
+    Map<String, Object> params = new HashMap<>();
+    MetaObject meta = MetaObject.forObject(params, SystemMetaObject.DEFAULT_OBJECT_FACTORY,
+        SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, new DefaultReflectorFactory());
+
+    Author author = new Author();
+    author.setUsername("author");
+    params.put("value", author);
+    assertEquals("author", meta.getValue("value.username"));
+
+    Section section = Section.NEWS;
+    params.put("value", new RichType());
+    meta.setValue("value.richMap.key", section);
+    assertEquals(section, meta.getValue("value.richMap.key"));
+
+    Map<String, Object> map = new HashMap<>();
+    map.put("username", "map");
+    params.put("value", map);
+    assertEquals("map", meta.getValue("value.username"));
+
+    params.put("value", author);
+    meta.setValue("value.username", "changed");
+    assertEquals("changed", author.getUsername());
+  }
+
+  @Test
+  void shouldReturnNullForNestedPathOfNullProperty() {
+    MetaObject meta = SystemMetaObject.forObject(new RichType());
+    assertNull(meta.getValue("richType.richType.richField"));
+    meta.setValue("richType.richType.richField", null);
+    assertNull(((RichType) meta.getOriginalObject()).getRichType());
+  }
+
+  @Test
+  void shouldFailOnMissingGetterOfNestedPath() {
+    RichType rich = new RichType();
+    rich.setRichType(new RichType());
+    MetaObject meta = SystemMetaObject.forObject(rich);
+    ReflectionException e = assertThrows(ReflectionException.class, () -> meta.getValue("richType.missing"));
+    assertTrue(e.getMessage().contains("There is no getter for property named 'missing'"));
+  }
+
+  @Test
+  void shouldBoundCachedPathsOfGeneratedNames() {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Map<String, Object> params = new HashMap<>();
+    MetaObject meta = MetaObject.forObject(params, SystemMetaObject.DEFAULT_OBJECT_FACTORY,
+        SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, reflectorFactory);
+    Reflector reflector = reflectorFactory.findForClass(HashMap.class);
+    for (int i = 0; i < Reflector.MAX_PROPERTY_PATHS * 2; i++) {
+      Author author = new Author();
+      author.setUsername("author" + i);
+      params.put("__frch_item_" + i, author);
+      assertEquals("author" + i, meta.getValue("__frch_item_" + i + ".username"));
+    }
+    assertNotNull(reflector.getPropertyPath("__frch_item_0.username"));
+    assertNull(reflector.getPropertyPath("__frch_item_" + Reflector.MAX_PROPERTY_PATHS + ".username"));
+  }
+
 }
@@ -0,0 +1,145 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.reflection.LambdaReflectorFactory;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.junit.jupiter.api.Test;
+
+// public so that the nested Bean is a public type
+public class LambdaInvokerFactoryTest {
+
+  private final ReflectorFactory reflectorFactory = new LambdaReflectorFactory();
+
+  @Test
+  void shouldLinkGettersAndSettersOfPublicType() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Invoker getter = reflector.getGetInvoker("count");
+    Invoker setter = reflector.getSetInvoker("count");
+    assertTrue(getter instanceof MethodInvoker);
+    assertNotSame(MethodInvoker.class, getter.getClass());
+    assertNotSame(MethodInvoker.class, setter.getClass());
+    assertSame(int.class, getter.getType());
+
+    Bean bean = new Bean();
+    setter.invoke(bean, new Object[] { 3 });
+    assertEquals(3, getter.invoke(bean, null));
+    reflector.getSetInvoker("name").invoke(bean, new Object[] { "a" });
+    assertEquals("a", reflector.getGetInvoker("name").invoke(bean, null));
+  }
+
+  @Test
+  void shouldWrapExceptionOfGetterLikeReflection() {
+    Invoker getter = reflectorFactory.findForClass(Bean.class).getGetInvoker("failing");
+    InvocationTargetException e = assertThrows(InvocationTargetException.class, () -> getter.invoke(new Bean(), null));
+    assertSame(UnsupportedOperationException.class, e.getTargetException().getClass());
+  }
+
+  @Test
+  void shouldAccessPrivateFieldsWithoutAccessors() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    reflector.getSetInvoker("hidden").invoke(bean, new Object[] { 7L });
+    assertEquals(7L, reflector.getGetInvoker("hidden").invoke(bean, null));
+    assertEquals(7L, bean.hidden);
+  }
+
+  @Test
+  void shouldFallBackToReflectionForNonPublicType() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(PackagePrivateBean.class);
+    Invoker getter = reflector.getGetInvoker("value");
+    assertSame(MethodInvoker.class, getter.getClass());
+
+    PackagePrivateBean bean = new PackagePrivateBean();
+    reflector.getSetInvoker("value").invoke(bean, new Object[] { "v" });
+    assertEquals("v", getter.invoke(bean, null));
+  }
+
+  @Test
+  void shouldResolveGenericPropertyTypesThroughLinkedInvokers() {
+    Bean bean = new Bean();
+    bean.setItems(Collections.singletonList(new Bean()));
+    MetaObject metaObject = MetaObject.forObject(bean, SystemMetaObject.DEFAULT_OBJECT_FACTORY,
+        SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, reflectorFactory);
+    metaObject.setValue("items[0].name", "nested");
+    assertEquals("nested", metaObject.getValue("items[0].name"));
+    assertSame(Bean.class, MetaClass.forClass(Bean.class, reflectorFactory).getGetterType("items[0]"));
+  }
+
+  public static class Bean {
+
+    private int count;
+    private String name;
+    private long hidden;
+    private List<Bean> items;
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getFailing() {
+      throw new UnsupportedOperationException();
+    }
+
+    public List<Bean> getItems() {
+      return items;
+    }
+
+    public void setItems(List<Bean> items) {
+      this.items = items;
+    }
+  }
+
+  static class PackagePrivateBean {
+
+    private String value;
+
+    public String getValue() {
+      return value;
+    }
+
+    public void setValue(String value) {
+      this.value = value;
+    }
+  }
+
+}
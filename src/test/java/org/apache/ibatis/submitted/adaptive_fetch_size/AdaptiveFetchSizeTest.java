@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.adaptive_fetch_size;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.Reader;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveFetchSizeTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/adaptive_fetch_size/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/adaptive_fetch_size/CreateDB.sql");
+  }
+
+  @Test
+  void shouldStartCursorWithInitialFetchSizeAndReadAllRows() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      int count = 0;
+      try (Cursor<Map<String, Object>> cursor = mapper.selectCursor()) {
+        assertEquals(5, FetchSizeInterceptor.lastFetchSize);
+        for (Map<String, Object> item : cursor) {
+          assertEquals(++count, item.get("ID"));
+        }
+      }
+      assertEquals(100, count);
+    }
+  }
+
+  @Test
+  void shouldStartResultHandlerQueryWithInitialFetchSize() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      AtomicInteger count = new AtomicInteger();
+      mapper.selectWithHandler(context -> count.incrementAndGet());
+      assertEquals(5, FetchSizeInterceptor.lastFetchSize);
+      assertEquals(100, count.get());
+    }
+  }
+
+  @Test
+  void shouldKeepFetchSizeOfListQueriesAndExplicitFetchSizes() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(100, mapper.selectList().size());
+      assertNotEquals(5, FetchSizeInterceptor.lastFetchSize);
+      try (Cursor<Map<String, Object>> cursor = mapper.selectCursorWithFetchSize()) {
+        assertEquals(50, FetchSizeInterceptor.lastFetchSize);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.adaptive_fetch_size;
+
+import java.sql.Statement;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+
+@Intercepts({
+    @Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }),
+    @Signature(type = StatementHandler.class, method = "queryCursor", args = { Statement.class }) })
+public class FetchSizeInterceptor implements Interceptor {
+
+  static int lastFetchSize;
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    Object result = invocation.proceed();
+    lastFetchSize = ((Statement) invocation.getArgs()[0]).getFetchSize();
+    return result;
+  }
+
+}
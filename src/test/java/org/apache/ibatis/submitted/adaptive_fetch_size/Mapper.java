@@ -0,0 +1,43 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.adaptive_fetch_size;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+
+public interface Mapper {
+
+  @Select("select id, name from items order by id")
+  Cursor<Map<String, Object>> selectCursor();
+
+  @Select("select id, name from items order by id")
+  @ResultType(Map.class)
+  void selectWithHandler(ResultHandler<Map<String, Object>> handler);
+
+  @Select("select id, name from items order by id")
+  List<Map<String, Object>> selectList();
+
+  @Select("select id, name from items order by id")
+  @Options(fetchSize = 50)
+  Cursor<Map<String, Object>> selectCursorWithFetchSize();
+
+}
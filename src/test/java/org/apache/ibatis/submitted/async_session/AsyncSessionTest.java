@@ -0,0 +1,297 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.cursor.Flow;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncSessionTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_session/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+  }
+
+  @BeforeEach
+  void createDatabase() throws Exception {
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/async_session/CreateDB.sql");
+  }
+
+  @Test
+  void shouldSelectThroughStatementIds() throws Exception {
+    AsyncSqlSession session = sqlSessionFactory.openAsyncSession();
+    try {
+      CompletableFuture<User> user = session.selectOne("org.apache.ibatis.submitted.async_session.Mapper.getUser", 2);
+      CompletableFuture<List<User>> users = session.selectList("org.apache.ibatis.submitted.async_session.Mapper.getUsers");
+      assertEquals("User2", user.get(5, TimeUnit.SECONDS).getName());
+      assertEquals(5, users.get(5, TimeUnit.SECONDS).size());
+    } finally {
+      session.close().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void shouldRunMapperMethodsAsynchronously() throws Exception {
+    AsyncSqlSession session = sqlSessionFactory.openAsyncSession();
+    try {
+      Mapper mapper = session.getMapper(Mapper.class);
+      assertEquals("User1", mapper.getUser(1).get(5, TimeUnit.SECONDS).getName());
+      assertEquals(5, mapper.getUsers().get(5, TimeUnit.SECONDS).size());
+      Map<Integer, User> usersById = mapper.getUsersById().get(5, TimeUnit.SECONDS);
+      assertEquals("User3", usersById.get(3).getName());
+      assertEquals("User4", mapper.getUserName(4).get(5, TimeUnit.SECONDS));
+      String threadName = session.execute(s -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+      assertTrue(threadName.startsWith("mybatis-async-"), threadName);
+    } finally {
+      session.close().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void shouldRunOperationsInOrder() throws Exception {
+    AsyncSqlSession session = sqlSessionFactory.openAsyncSession();
+    try {
+      Mapper mapper = session.getMapper(Mapper.class);
+      User user = new User();
+      user.setId(6);
+      user.setName("User6");
+      CompletableFuture<Integer> inserted = mapper.insertUser(user);
+      CompletableFuture<Integer> countBeforeRollback = mapper.countUsers();
+      user.setName("Renamed");
+      CompletableFuture<Void> renamed = mapper.renameUser(user);
+      session.rollback();
+      CompletableFuture<Integer> countAfterRollback = mapper.countUsers();
+      assertEquals(1, inserted.get(5, TimeUnit.SECONDS));
+      assertNull(renamed.get(5, TimeUnit.SECONDS));
+      assertEquals(6, countBeforeRollback.get(5, TimeUnit.SECONDS));
+      assertEquals(5, countAfterRollback.get(5, TimeUnit.SECONDS));
+    } finally {
+      session.close().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void shouldCompleteExceptionallyOnFailure() throws Exception {
+    AsyncSqlSession session = sqlSessionFactory.openAsyncSession();
+    try {
+      CompletableFuture<List<User>> users = session.getMapper(Mapper.class).selectFromMissingTable();
+      ExecutionException e = assertThrows(ExecutionException.class, () -> users.get(5, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof PersistenceException, e.getCause().toString());
+      // 失败不影响后续操作
+      assertEquals(5, session.getMapper(Mapper.class).countUsers().get(5, TimeUnit.SECONDS));
+    } finally {
+      session.close().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void shouldRejectBlockingMapperMethods() throws Exception {
+    AsyncSqlSession session = sqlSessionFactory.openAsyncSession();
+    try {
+      Mapper mapper = session.getMapper(Mapper.class);
+      assertThrows(BindingException.class, mapper::getUsersBlocking);
+    } finally {
+      session.close().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void shouldStreamOnDemand() throws Exception {
+    AsyncSqlSession session = sqlSessionFactory.openAsyncSession();
+    try {
+      TestSubscriber subscriber = new TestSubscriber();
+      session.getMapper(Mapper.class).streamUsers().subscribe(subscriber);
+      subscriber.subscription.request(2);
+      subscriber.await(2);
+      // 未请求更多数据时不再推送
+      assertEquals(2, session.execute(s -> subscriber.items.size()).get(5, TimeUnit.SECONDS));
+      assertFalse(subscriber.completed.getCount() == 0);
+      subscriber.subscription.request(Long.MAX_VALUE);
+      assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+      assertEquals(5, subscriber.items.size());
+      assertEquals("User5", subscriber.items.get(4).getName());
+      assertNull(subscriber.error);
+    } finally {
+      session.close().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void shouldStopStreamingWhenCancelled() throws Exception {
+    AsyncSqlSession session = sqlSessionFactory.openAsyncSession();
+    try {
+      TestSubscriber subscriber = new TestSubscriber();
+      session.<User>selectCursor("org.apache.ibatis.submitted.async_session.Mapper.streamUsers").subscribe(subscriber);
+      subscriber.subscription.request(1);
+      subscriber.await(1);
+      subscriber.subscription.cancel();
+      subscriber.subscription.request(10);
+      assertEquals(1, session.execute(s -> subscriber.items.size()).get(5, TimeUnit.SECONDS));
+      assertEquals(1, subscriber.completed.getCount());
+    } finally {
+      session.close().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void shouldSignalErrorForInvalidRequest() throws Exception {
+    AsyncSqlSession session = sqlSessionFactory.openAsyncSession();
+    try {
+      TestSubscriber subscriber = new TestSubscriber();
+      session.getMapper(Mapper.class).streamUsers().subscribe(subscriber);
+      subscriber.subscription.request(0);
+      assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+      assertTrue(subscriber.error instanceof IllegalArgumentException);
+    } finally {
+      session.close().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void shouldUseGivenExecutor() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    AtomicInteger tasks = new AtomicInteger();
+    try {
+      AsyncSqlSession session = sqlSessionFactory.openAsyncSession(sqlSessionFactory.openSession(), task -> {
+        tasks.incrementAndGet();
+        executor.execute(task);
+      });
+      List<CompletableFuture<Integer>> counts = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        counts.add(session.getMapper(Mapper.class).countUsers());
+      }
+      for (CompletableFuture<Integer> count : counts) {
+        assertEquals(5, count.get(5, TimeUnit.SECONDS));
+      }
+      session.close().get(5, TimeUnit.SECONDS);
+      assertEquals(21, tasks.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void shouldCompleteFuturesOfSynchronousSessions() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      CompletableFuture<User> user = mapper.getUser(1);
+      assertTrue(user.isDone());
+      assertEquals("User1", user.join().getName());
+      TestSubscriber subscriber = new TestSubscriber();
+      mapper.streamUsers().subscribe(subscriber);
+      subscriber.subscription.request(Long.MAX_VALUE);
+      assertEquals(5, subscriber.items.size());
+      assertEquals(0, subscriber.completed.getCount());
+      CompletionException e = assertThrows(CompletionException.class, () -> mapper.selectFromMissingTable().join());
+      assertTrue(e.getCause() instanceof PersistenceException);
+    }
+  }
+
+  @Test
+  void shouldSizeDefaultExecutorToConnectionPool() {
+    PooledDataSource dataSource = new PooledDataSource();
+    dataSource.setPoolMaximumActiveConnections(3);
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    ThreadPoolExecutor executor = (ThreadPoolExecutor) configuration.getAsyncExecutor();
+    assertEquals(3, executor.getMaximumPoolSize());
+    assertSame(executor, configuration.getAsyncExecutor());
+
+    ThreadPoolExecutor unpooled = (ThreadPoolExecutor) new Configuration().getAsyncExecutor();
+    assertEquals(Runtime.getRuntime().availableProcessors(), unpooled.getMaximumPoolSize());
+  }
+
+  private static class TestSubscriber implements Flow.Subscriber<User> {
+    private final List<User> items = new ArrayList<>();
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private volatile Flow.Subscription subscription;
+    private volatile Throwable error;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(User item) {
+      synchronized (items) {
+        items.add(item);
+        items.notifyAll();
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      completed.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed.countDown();
+    }
+
+    void await(int count) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 5000;
+      synchronized (items) {
+        while (items.size() < count && System.currentTimeMillis() < deadline) {
+          items.wait(100);
+        }
+      }
+      assertEquals(count, items.size());
+    }
+  }
+
+}
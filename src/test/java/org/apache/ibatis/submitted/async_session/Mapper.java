@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.MapKey;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Flow;
+
+public interface Mapper {
+
+  @Select("select * from users where id = #{id}")
+  CompletableFuture<User> getUser(Integer id);
+
+  @Select("select * from users order by id")
+  CompletableFuture<List<User>> getUsers();
+
+  @Select("select * from users order by id")
+  @MapKey("id")
+  CompletableFuture<Map<Integer, User>> getUsersById();
+
+  @Select("select * from users order by id")
+  Flow.Publisher<User> streamUsers();
+
+  @Select("select count(*) from users")
+  CompletableFuture<Integer> countUsers();
+
+  @Insert("insert into users (id, name) values (#{id}, #{name})")
+  CompletableFuture<Integer> insertUser(User user);
+
+  @Update("update users set name = #{name} where id = #{id}")
+  CompletableFuture<Void> renameUser(User user);
+
+  @Select("select * from users order by id")
+  List<User> getUsersBlocking();
+
+  @Select("select * from missing_table")
+  CompletableFuture<List<User>> selectFromMissingTable();
+
+  default CompletableFuture<String> getUserName(Integer id) {
+    return getUser(id).thenApply(User::getName);
+  }
+
+}
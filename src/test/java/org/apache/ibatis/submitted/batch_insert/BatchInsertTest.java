@@ -0,0 +1,166 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_insert;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchInsertTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_insert/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+  }
+
+  @BeforeEach
+  void createDatabase() throws Exception {
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_insert/CreateDB.sql");
+  }
+
+  private static List<User> users(int count) {
+    List<User> users = new ArrayList<>();
+    for (int i = 1; i <= count; i++) {
+      users.add(new User("user" + i));
+    }
+    return users;
+  }
+
+  @Test
+  void shouldInsertInChunksAndAssignGeneratedKeys() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = users(7);
+      // 第二组的三行都有nickname，渲染出相同的SQL
+      users.get(3).setNickname("four");
+      users.get(4).setNickname("five");
+      users.get(5).setNickname("six");
+      assertEquals(7, mapper.insertUsers(users));
+      for (int i = 0; i < users.size(); i++) {
+        assertEquals(Integer.valueOf(i + 1), users.get(i).getId());
+      }
+      assertEquals(Arrays.asList("user1", "user2", "user3", "user4", "user5", "user6", "user7"), mapper.selectNames());
+      assertEquals("five", mapper.selectNickname(5));
+      assertEquals("none", mapper.selectNickname(7));
+    }
+  }
+
+  @Test
+  void shouldRenderStableSqlPerChunkSize() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration()
+        .getMappedStatement("org.apache.ibatis.submitted.batch_insert.Mapper.insertAnnotated");
+    assertEquals(2, ms.getInsertBatchSize());
+    String sql = ms.getBoundSql(users(2)).getSql();
+    assertEquals("insert into users (name, nickname) values (?, ?),(?, ?)", sql);
+    assertEquals(sql, ms.getBoundSql(Arrays.asList(new User("a"), new User("b"))).getSql());
+    assertEquals(4, ms.getBoundSql(users(2)).getParameterMappings().size());
+  }
+
+  @Test
+  void shouldUseDefaultBatchSizeAndArrayParameter() {
+    assertEquals(2, sqlSessionFactory.getConfiguration()
+        .getMappedStatement("org.apache.ibatis.submitted.batch_insert.Mapper.insertUsersWithDefaultSize").getInsertBatchSize());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User[] users = users(3).toArray(new User[0]);
+      assertEquals(3, mapper.insertUsersWithDefaultSize(users));
+      assertEquals(Integer.valueOf(3), users[2].getId());
+    }
+  }
+
+  @Test
+  void shouldInsertAnnotatedNamedCollection() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = users(5);
+      assertEquals(5, mapper.insertAnnotated(users));
+      assertEquals(Integer.valueOf(5), users.get(4).getId());
+      assertEquals(5, mapper.count());
+    }
+  }
+
+  @Test
+  void shouldInsertMapsAndSimpleValues() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Map<String, Object> row = new HashMap<>();
+      row.put("name", "map1");
+      assertEquals(1, mapper.insertMaps(Collections.singletonList(row)));
+      assertEquals(2, mapper.insertNames(Arrays.asList("name1", "name2")));
+      assertEquals(Arrays.asList("map1", "name1", "name2"), mapper.selectNames());
+    }
+  }
+
+  @Test
+  void shouldDoNothingForEmptyCollection() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(0, mapper.insertUsers(Collections.emptyList()));
+      assertEquals(0, mapper.count());
+    }
+  }
+
+  @Test
+  void shouldAssignKeysWithBatchExecutor() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = users(5);
+      mapper.insertUsers(users);
+      assertEquals(2, sqlSession.flushStatements().size());
+      for (int i = 0; i < users.size(); i++) {
+        assertEquals(Integer.valueOf(i + 1), users.get(i).getId());
+      }
+    }
+  }
+
+  @Test
+  void shouldRejectRowsRenderingDifferentSql() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration()
+        .getMappedStatement("org.apache.ibatis.submitted.batch_insert.Mapper.insertUsers");
+    List<User> users = users(2);
+    users.get(1).setNickname("two");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PersistenceException e = assertThrows(PersistenceException.class, () -> sqlSession.insert(ms.getId(), users));
+      assertTrue(e.getMessage().contains("All rows of a batch insert must render the same SQL"));
+    }
+  }
+
+}
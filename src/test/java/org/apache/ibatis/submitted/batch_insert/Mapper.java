@@ -0,0 +1,55 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_insert;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.InsertBatch;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  int insertUsers(List<User> users);
+
+  int insertUsersWithDefaultSize(User[] users);
+
+  @Insert("insert into users (name, nickname) values (#{name}, #{nickname})")
+  @Options(useGeneratedKeys = true, keyProperty = "id")
+  @InsertBatch(size = 2)
+  int insertAnnotated(@Param("users") List<User> users);
+
+  @Insert("insert into users (name) values (#{name})")
+  @InsertBatch
+  int insertMaps(List<Map<String, Object>> users);
+
+  @Insert("insert into users (name) values (#{value})")
+  @InsertBatch(size = 10)
+  int insertNames(List<String> names);
+
+  @Select("select count(*) from users")
+  int count();
+
+  @Select("select name from users order by id")
+  List<String> selectNames();
+
+  @Select("select nickname from users where id = #{id}")
+  String selectNickname(int id);
+
+}
@@ -0,0 +1,132 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_lazy_loading;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchLazyLoadingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_lazy_loading/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_lazy_loading/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void clearStatements() {
+    StatementRecorder.statements.clear();
+  }
+
+  private long countStatements(String table) {
+    return StatementRecorder.statements.stream().filter(sql -> sql.contains("from " + table)).count();
+  }
+
+  private void assertLines(Order order) {
+    List<Line> lines = order.getLines();
+    if (order.getId() == 10) {
+      assertTrue(lines.isEmpty());
+      return;
+    }
+    assertEquals(3, lines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      Line line = lines.get(i);
+      assertEquals((order.getId() - 1) * 3 + i + 1, line.getId());
+      assertEquals(order.getId().longValue(), line.getOrderId());
+      assertEquals("product" + line.getId(), line.getProduct());
+    }
+  }
+
+  @Test
+  void shouldLoadAssociationsOfSeveralRowsWithOneQuery() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectOrders();
+      assertEquals(10, orders.size());
+      assertEquals(0, countStatements("customers"));
+      for (Order order : orders) {
+        Customer customer = order.getCustomer();
+        assertEquals(order.getCustomerId(), customer.getId());
+        assertEquals("customer" + customer.getId(), customer.getName());
+      }
+      // 10 个订单只关联 4 个不同的客户，不超过 fetchBatchSize
+      assertEquals(1, countStatements("customers"));
+      assertTrue(StatementRecorder.statements.stream().anyMatch(sql -> sql.contains("where id IN (?, ?, ?, ?)")));
+    }
+  }
+
+  @Test
+  void shouldLoadCollectionsInBatchesOfFetchBatchSize() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectOrders();
+      for (Order order : orders) {
+        assertLines(order);
+      }
+      assertEquals(3, countStatements("lines"));
+      assertEquals(0, countStatements("customers"));
+    }
+  }
+
+  @Test
+  void shouldLoadRowsInAnyAccessOrder() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectOrders();
+      for (int i = orders.size() - 1; i >= 0; i--) {
+        assertLines(orders.get(i));
+      }
+      assertEquals(3, countStatements("lines"));
+    }
+  }
+
+  @Test
+  void shouldApplyFetchBatchSizeOfAnnotation() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectOrdersWithAnnotatedLines();
+      for (Order order : orders) {
+        assertLines(order);
+      }
+      assertEquals(4, countStatements("lines"));
+    }
+  }
+
+  @Test
+  void shouldLoadOneByOneWhenNestedSelectCannotBeBatched() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectOrdersWithUnbatchableLines();
+      for (Order order : orders) {
+        assertLines(order);
+      }
+      assertEquals(10, countStatements("lines"));
+    }
+  }
+
+}
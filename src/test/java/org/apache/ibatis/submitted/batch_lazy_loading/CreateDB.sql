@@ -0,0 +1,46 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table lines if exists;
+drop table orders if exists;
+drop table customers if exists;
+
+create table customers (
+  id int,
+  name varchar(20)
+);
+
+create table orders (
+  id int,
+  customer_id int
+);
+
+create table lines (
+  id int,
+  order_id int,
+  product varchar(20)
+);
+
+insert into customers (id, name)
+  select c, 'customer' || c from unnest(sequence_array(1, 4, 1)) as t(c);
+
+insert into orders (id, customer_id)
+  select c, mod(c, 4) + 1 from unnest(sequence_array(1, 10, 1)) as t(c);
+
+-- 订单 10 没有明细
+insert into lines (id, order_id, product)
+  select c, (c + 2) / 3, 'product' || c from unnest(sequence_array(1, 27, 1)) as t(c);
@@ -0,0 +1,131 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMapperTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapper/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/compiled_row_mapper/CreateDB.sql");
+  }
+
+  @Test
+  void shouldAutoMapWithCompiledRowMapper() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals(3, users.size());
+      // 所有列都为null的行不创建对象
+      assertNull(users.get(0));
+      assertEquals(1, users.get(1).getId());
+      assertEquals("User1", users.get(1).getUserName());
+      assertEquals(Integer.valueOf(10), users.get(1).getScore());
+      assertEquals("one", users.get(1).getNickname());
+      assertEquals(2, users.get(2).getId());
+      assertNull(users.get(2).getScore());
+    }
+    assertEquals(1, compiledRowMappers("getUsers").size());
+  }
+
+  @Test
+  void shouldCompileOneRowMapperPerColumnSignature() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = mapper.getUserWithResultMap(1);
+      assertEquals(1, user.getId());
+      assertEquals("User1", user.getUserName());
+      assertEquals(Integer.valueOf(10), user.getScore());
+      user = mapper.getUserWithOtherColumns(2);
+      assertEquals(2, user.getId());
+      assertEquals("User2", user.getUserName());
+      assertNull(user.getScore());
+      mapper.getUserWithResultMap(2);
+    }
+    assertEquals(2, sqlSessionFactory.getConfiguration().getCompiledRowMappers(Mapper.class.getName() + ".userMap").size());
+  }
+
+  @Test
+  void shouldMapNonPublicSetterThroughReflector() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Item item = sqlSession.getMapper(Mapper.class).getItem(1);
+      assertEquals(Integer.valueOf(1), item.getId());
+      assertEquals("User1", item.getName());
+    }
+    assertEquals(1, compiledRowMappers("getItem").size());
+  }
+
+  @Test
+  void shouldNotCompileResultMapWithNestedQuery() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = sqlSession.getMapper(Mapper.class).getUserWithFriends(1);
+      assertEquals(1, user.getId());
+      assertEquals(3, user.getFriends().size());
+    }
+    assertTrue(compiledRowMappers("getUserWithFriends").isEmpty());
+  }
+
+  @Test
+  void shouldMapPrimitivePropertiesWithoutBoxing() {
+    CountingIntegerTypeHandler.primitiveReads.set(0);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Stats> stats = sqlSession.getMapper(Mapper.class).getStats();
+      assertEquals(3, stats.size());
+      assertNull(stats.get(0));
+      assertEquals(1, stats.get(1).getCount());
+      assertEquals(10L, stats.get(1).getTotal());
+      assertEquals(2.5d, stats.get(1).getRatio());
+      // 重写了 getNullableResult 的处理器不走基本类型读取
+      assertEquals(-10, stats.get(1).getNegated());
+      assertEquals(2, stats.get(2).getCount());
+      assertEquals(0L, stats.get(2).getTotal());
+      assertEquals(0d, stats.get(2).getRatio());
+      assertEquals(0, stats.get(2).getNegated());
+    }
+    assertEquals(3, CountingIntegerTypeHandler.primitiveReads.get());
+    assertEquals(1, compiledRowMappers("getStats").size());
+  }
+
+  private Collection<CompiledRowMapper> compiledRowMappers(String statement) {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    ResultMap resultMap = configuration.getMappedStatement(Mapper.class.getName() + "." + statement).getResultMaps().get(0);
+    return configuration.getCompiledRowMappers(resultMap.getId());
+  }
+
+}
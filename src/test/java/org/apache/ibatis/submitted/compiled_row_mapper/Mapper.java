@@ -0,0 +1,59 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapper;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Many;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.ResultMap;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Select("select * from users order by id")
+  List<User> getUsers();
+
+  @Results(id = "userMap", value = {
+      @Result(property = "id", column = "user_id", id = true),
+      @Result(property = "userName", column = "name")
+  })
+  @Select("select id as user_id, user_name as name, score from users where id = #{id}")
+  User getUserWithResultMap(int id);
+
+  @ResultMap("userMap")
+  @Select("select id as user_id, user_name as name from users where id = #{id}")
+  User getUserWithOtherColumns(int id);
+
+  @Select("select id, user_name as name from users where id = #{id}")
+  Item getItem(int id);
+
+  @Results({
+      @Result(property = "id", column = "id", id = true),
+      @Result(property = "friends", column = "id", many = @Many(select = "getUsers"))
+  })
+  @Select("select id from users where id = #{id}")
+  User getUserWithFriends(int id);
+
+  @Results({
+      @Result(property = "count", column = "count", typeHandler = CountingIntegerTypeHandler.class),
+      @Result(property = "negated", column = "negated", typeHandler = NegatingIntegerTypeHandler.class)
+  })
+  @Select("select id as count, score as total, score / 4.0e0 as ratio, score as negated from users order by id")
+  List<Stats> getStats();
+
+}
@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.metrics.DefaultMetricsCollector;
+import org.apache.ibatis.metrics.MetricsCollector.Phase;
+import org.apache.ibatis.metrics.StatementMetrics;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MetricsTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static DefaultMetricsCollector collector;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/metrics/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/metrics/CreateDB.sql");
+    collector = (DefaultMetricsCollector) sqlSessionFactory.getConfiguration().getMetricsCollector();
+  }
+
+  @BeforeEach
+  void resetMetrics() {
+    collector.reset();
+  }
+
+  @Test
+  void shouldRegisterCollectorOnPooledDataSource() {
+    PooledDataSource dataSource = (PooledDataSource) sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+    assertSame(collector, dataSource.getMetricsCollector());
+  }
+
+  @Test
+  void shouldRegisterCollectorSetInCodeOnPooledDataSource() {
+    PooledDataSource dataSource = new PooledDataSource();
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    DefaultMetricsCollector metricsCollector = new DefaultMetricsCollector();
+    configuration.setMetricsCollector(metricsCollector);
+    assertSame(metricsCollector, dataSource.getMetricsCollector());
+
+    configuration.setMetricsCollector(null);
+    assertNull(dataSource.getMetricsCollector());
+
+    configuration.setMetricsCollector(metricsCollector);
+    PooledDataSource otherDataSource = new PooledDataSource();
+    configuration.setEnvironment(new Environment("other", new JdbcTransactionFactory(), otherDataSource));
+    assertSame(metricsCollector, otherDataSource.getMetricsCollector());
+  }
+
+  @Test
+  void shouldRecordPhasesAndRowsOfAQuery() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals(3, users.size());
+    }
+    StatementMetrics metrics = collector.getStatementMetrics("org.apache.ibatis.submitted.metrics.Mapper.getUsers");
+    assertEquals("org.apache.ibatis.submitted.metrics.Mapper.getUsers", metrics.getStatementId());
+    assertEquals(1, metrics.getLatency(Phase.QUERY).getCount());
+    assertEquals(1, metrics.getLatency(Phase.PREPARE).getCount());
+    assertEquals(1, metrics.getLatency(Phase.EXECUTE).getCount());
+    assertEquals(1, metrics.getLatency(Phase.MAP).getCount());
+    assertEquals(0, metrics.getLatency(Phase.UPDATE).getCount());
+    assertEquals(3, metrics.getRowsMapped());
+    assertEquals(0, metrics.getLocalCacheHits());
+    assertEquals(1, metrics.getLocalCacheMisses());
+    assertTrue(collector.getConnectionCheckouts().getCount() >= 1);
+  }
+
+  @Test
+  void shouldRecordCacheHitsAndMisses() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getUser(1);
+      mapper.getUser(1);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUser(1);
+    }
+    StatementMetrics metrics = collector.getStatementMetrics("org.apache.ibatis.submitted.metrics.Mapper.getUser");
+    // 第一个会话未提交，二级缓存在第二个会话中才命中
+    assertEquals(2, metrics.getCacheMisses());
+    assertEquals(1, metrics.getCacheHits());
+    assertEquals(1, metrics.getLocalCacheHits());
+    assertEquals(1, metrics.getLocalCacheMisses());
+    assertEquals(1, metrics.getLatency(Phase.EXECUTE).getCount());
+  }
+
+  @Test
+  void shouldRecordUpdates() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = new User();
+      user.setId(3);
+      user.setName("User3");
+      assertEquals(1, sqlSession.getMapper(Mapper.class).updateUser(user));
+      sqlSession.rollback();
+    }
+    StatementMetrics metrics = collector.getStatementMetrics("org.apache.ibatis.submitted.metrics.Mapper.updateUser");
+    assertEquals(1, metrics.getLatency(Phase.UPDATE).getCount());
+    assertEquals(1, metrics.getLatency(Phase.EXECUTE).getCount());
+    assertEquals(0, metrics.getRowsMapped());
+    assertNull(collector.getStatementMetrics("org.apache.ibatis.submitted.metrics.Mapper.getUsers"));
+  }
+
+}
@@ -0,0 +1,44 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table orders if exists;
+drop table order_lines if exists;
+
+create table orders (
+  id int,
+  customer varchar(20)
+);
+
+create table order_lines (
+  id int,
+  order_id int,
+  product varchar(20)
+);
+
+insert into orders (id, customer) values (1, 'alice');
+insert into orders (id, customer) values (2, 'bob');
+insert into orders (id, customer) values (3, 'carol');
+insert into orders (id, customer) values (4, 'dave');
+
+insert into order_lines (id, order_id, product) values (1, 1, 'apple');
+insert into order_lines (id, order_id, product) values (2, 1, 'banana');
+insert into order_lines (id, order_id, product) values (3, 2, 'cherry');
+insert into order_lines (id, order_id, product) values (4, 2, 'date');
+insert into order_lines (id, order_id, product) values (5, 3, 'elderberry');
+insert into order_lines (id, order_id, product) values (6, 3, 'fig');
+insert into order_lines (id, order_id, product) values (7, 4, 'grape');
+insert into order_lines (id, order_id, product) values (8, 4, 'honeydew');
@@ -0,0 +1,113 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.nested_result_streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class NestedResultStreamingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/nested_result_streaming/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/nested_result_streaming/CreateDB.sql");
+  }
+
+  @Test
+  void shouldHandOutCompleteParentsWhenOrderedById() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Integer> ids = new ArrayList<>();
+      List<Integer> lineCounts = new ArrayList<>();
+      mapper.selectOrderedById(context -> {
+        ids.add(context.getResultObject().getId());
+        lineCounts.add(context.getResultObject().getLines().size());
+      });
+      assertEquals(4, ids.size());
+      assertEquals(Integer.valueOf(1), ids.get(0));
+      assertEquals(Integer.valueOf(4), ids.get(3));
+      lineCounts.forEach(count -> assertEquals(Integer.valueOf(2), count));
+    }
+  }
+
+  @Test
+  void shouldStreamWhenIdFollowsOtherParentColumns() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<String> customers = new ArrayList<>();
+      try (Cursor<Order> orders = mapper.selectOrderedByCustomerAndId()) {
+        for (Order order : orders) {
+          customers.add(order.getCustomer());
+          assertEquals(2, order.getLines().size());
+        }
+      }
+      assertEquals("dave", customers.get(0));
+      assertEquals("alice", customers.get(3));
+    }
+  }
+
+  @Test
+  void shouldFailFastWhenNestedResultObjectsExceedLimit() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      PersistenceException e = assertThrows(PersistenceException.class, mapper::selectOrderedByProduct);
+      assertTrue(e.getMessage().contains("nestedResultObjectsLimit"));
+    }
+  }
+
+  @Test
+  void shouldStillRejectResultHandlerWhenNotOrderedById() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      PersistenceException e = assertThrows(PersistenceException.class,
+          () -> mapper.selectOrderedByProduct(context -> { }));
+      assertTrue(e.getMessage().contains("cannot be safely used with a custom ResultHandler"));
+    }
+  }
+
+  @Test
+  void shouldNotStreamWhenOrderedByQualifiedChildColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      PersistenceException e = assertThrows(PersistenceException.class,
+          () -> mapper.selectOrderedByLineId(context -> { }));
+      assertTrue(e.getMessage().contains("cannot be safely used with a custom ResultHandler"));
+      e = assertThrows(PersistenceException.class, () -> mapper.selectOrderedByProductAndId(context -> { }));
+      assertTrue(e.getMessage().contains("cannot be safely used with a custom ResultHandler"));
+    }
+  }
+
+}
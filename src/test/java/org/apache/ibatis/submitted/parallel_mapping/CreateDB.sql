@@ -0,0 +1,30 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table items if exists;
+
+create table items (
+  id int,
+  name varchar(20),
+  price decimal(10, 2),
+  created timestamp,
+  note clob
+);
+
+insert into items (id, name, price, created, note)
+  select c, 'item' || c, c * 1.5, timestamp '2020-01-01 00:00:00' + c second, 'note of item ' || c
+  from unnest(sequence_array(1, 1000, 1)) as t(c);
@@ -0,0 +1,55 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_mapping;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+public interface Mapper {
+
+  @Select("select id, name, price, created, note from items order by id")
+  @Results(@Result(property = "name", column = "name", typeHandler = ThreadRecordingTypeHandler.class))
+  List<Item> selectAll();
+
+  @Select("select id, name, price, created, note from items order by id")
+  @Results(@Result(property = "name", column = "name", typeHandler = ThreadRecordingTypeHandler.class))
+  List<Item> selectPage(RowBounds rowBounds);
+
+  @Select("select id, name, price, created, note from items order by id")
+  @ResultType(Item.class)
+  void selectWithHandler(ResultHandler<Item> handler);
+
+  @Select("select id, name, price, created, note from items order by id")
+  @Results(@Result(property = "name", column = "name", typeHandler = StatementAwareTypeHandler.class))
+  List<Item> selectWithStatementAwareTypeHandler();
+
+  @Select("select id, name, price, created, note, id * 2 as twice from items order by id")
+  @Results(@Result(property = "name", column = "name", typeHandler = DataDependentTypeHandler.class))
+  List<Item> selectWithDataDependentTypeHandler();
+
+  @Select("select id, name, price, created, note from items order by id")
+  @Options(fetchSize = 10)
+  Cursor<Item> selectCursor();
+
+}
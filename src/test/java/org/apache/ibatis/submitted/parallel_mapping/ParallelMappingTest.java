@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ParallelMappingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/parallel_mapping/CreateDB.sql");
+  }
+
+  private void assertItem(int id, Item item) {
+    assertEquals(id, item.getId());
+    assertEquals("item" + id, item.getName());
+    assertEquals(new BigDecimal("1.50").multiply(BigDecimal.valueOf(id)), item.getPrice());
+    assertEquals(LocalDateTime.of(2020, 1, 1, 0, 0).plusSeconds(id), item.getCreated());
+    assertEquals("note of item " + id, item.getNote());
+  }
+
+  @Test
+  void shouldMapRowsInParallelKeepingRowOrder() {
+    ThreadRecordingTypeHandler.threads.clear();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).selectAll();
+      assertEquals(1000, items.size());
+      for (int i = 0; i < items.size(); i++) {
+        assertItem(i + 1, items.get(i));
+      }
+    }
+    ThreadRecordingTypeHandler.threads.remove(Thread.currentThread());
+    assertFalse(ThreadRecordingTypeHandler.threads.isEmpty());
+  }
+
+  @Test
+  void shouldHandResultsToResultHandlerInRowOrderUntilStopped() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = new ArrayList<>();
+      sqlSession.getMapper(Mapper.class).selectWithHandler(context -> {
+        items.add(context.getResultObject());
+        if (context.getResultCount() == 150) {
+          context.stop();
+        }
+      });
+      assertEquals(150, items.size());
+      for (int i = 0; i < items.size(); i++) {
+        assertItem(i + 1, items.get(i));
+      }
+    }
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).selectPage(new RowBounds(10, 25));
+      assertEquals(25, items.size());
+      for (int i = 0; i < items.size(); i++) {
+        assertItem(i + 11, items.get(i));
+      }
+    }
+  }
+
+  @Test
+  void shouldMapRowByRowWhenTypeHandlerNeedsMoreThanTheValues() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).selectWithStatementAwareTypeHandler();
+      assertEquals(1000, items.size());
+      for (int i = 0; i < items.size(); i++) {
+        assertItem(i + 1, items.get(i));
+      }
+    }
+  }
+
+  @Test
+  void shouldRemapRowWhenTypeHandlerReadsColumnsNotUsedOnFirstRow() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).selectWithDataDependentTypeHandler();
+      assertEquals(1000, items.size());
+      for (int i = 0; i < items.size(); i++) {
+        final int id = i + 1;
+        if (id % 100 == 0) {
+          assertEquals("item" + id + "/" + id * 2 + "/" + id, items.get(i).getName());
+          items.get(i).setName("item" + id);
+        }
+        assertItem(id, items.get(i));
+      }
+    }
+  }
+
+  @Test
+  void shouldMapCursorRowByRow() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      int count = 0;
+      try (Cursor<Item> cursor = sqlSession.getMapper(Mapper.class).selectCursor()) {
+        for (Item item : cursor) {
+          assertItem(++count, item);
+        }
+      }
+      assertEquals(1000, count);
+    }
+  }
+
+}
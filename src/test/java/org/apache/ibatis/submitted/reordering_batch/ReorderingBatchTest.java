@@ -0,0 +1,164 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.reordering_batch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ReorderingBatchExecutor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReorderingBatchTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/reordering_batch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+  }
+
+  @BeforeEach
+  void createDatabase() throws Exception {
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/reordering_batch/CreateDB.sql");
+  }
+
+  @Test
+  void shouldGroupInterleavedInserts() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.REORDERING_BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 3; i++) {
+        mapper.insertOrder(i, "order" + i);
+        mapper.insertLine(i * 10 + 1, i, "item1");
+        mapper.insertLine(i * 10 + 2, i, "item2");
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("org.apache.ibatis.submitted.reordering_batch.Mapper.insertOrder", results.get(0).getMappedStatement().getId());
+      assertEquals(3, results.get(0).getUpdateCounts().length);
+      assertEquals("org.apache.ibatis.submitted.reordering_batch.Mapper.insertLine", results.get(1).getMappedStatement().getId());
+      assertEquals(6, results.get(1).getUpdateCounts().length);
+      sqlSession.commit();
+      assertEquals(3, mapper.countOrders());
+      assertEquals(6, mapper.countLines());
+    }
+  }
+
+  @Test
+  void shouldNotMoveChildRowsBeforeTheirParent() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.REORDERING_BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertOrder(1, "order1");
+      sqlSession.flushStatements();
+      mapper.insertLine(11, 1, "item1");
+      mapper.insertOrder(2, "order2");
+      mapper.insertLine(21, 2, "item1");
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals("org.apache.ibatis.submitted.reordering_batch.Mapper.insertLine", results.get(0).getMappedStatement().getId());
+      assertEquals("org.apache.ibatis.submitted.reordering_batch.Mapper.insertOrder", results.get(1).getMappedStatement().getId());
+      assertEquals("org.apache.ibatis.submitted.reordering_batch.Mapper.insertLine", results.get(2).getMappedStatement().getId());
+      sqlSession.commit();
+      assertEquals(2, mapper.countOrders());
+      assertEquals(2, mapper.countLines());
+    }
+  }
+
+  @Test
+  void shouldKeepOrderOfStatementsOnTheSameTable() {
+    try (SqlSession sqlSession = openSession(0, true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.deleteOrdersByName("x");
+      mapper.insertOrder(1, "x");
+      mapper.deleteOrdersByName("x");
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals(0, mapper.countOrders());
+    }
+  }
+
+  @Test
+  void shouldGroupBySqlWithoutTableOrdering() {
+    try (SqlSession sqlSession = openSession(0, false)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.deleteOrdersByName("x");
+      mapper.insertOrder(1, "x");
+      mapper.deleteOrdersByName("x");
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(2, results.get(0).getParameterObjects().size());
+      assertEquals(1, mapper.countOrders());
+    }
+  }
+
+  @Test
+  void shouldExecuteAllBatchesWhenOneReachesTheRowLimit() {
+    try (SqlSession sqlSession = openSession(2, true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertOrder(1, "order1");
+      mapper.insertLine(11, 1, "item1");
+      mapper.insertLine(12, 1, "item2");
+      mapper.insertOrder(2, "order2");
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(3, results.size());
+      assertArrayEquals(new int[] { 1 }, results.get(0).getUpdateCounts());
+      assertEquals(2, results.get(1).getUpdateCounts().length);
+      assertEquals(1, results.get(2).getUpdateCounts().length);
+      assertTrue(sqlSession.flushStatements().isEmpty());
+      assertEquals(2, mapper.countOrders());
+      assertEquals(2, mapper.countLines());
+    }
+  }
+
+  @Test
+  void shouldDiscardPendingBatchesOnRollback() {
+    try (SqlSession sqlSession = openSession(1, true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertOrder(1, "order1");
+      mapper.insertOrder(2, "order2");
+      sqlSession.rollback();
+      assertTrue(sqlSession.flushStatements().isEmpty());
+      assertEquals(0, mapper.countOrders());
+    }
+  }
+
+  private SqlSession openSession(int batchSize, boolean tableOrdering) {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    JdbcTransaction transaction = new JdbcTransaction(configuration.getEnvironment().getDataSource(), null, false);
+    Executor executor = new ReorderingBatchExecutor(configuration, transaction, batchSize, tableOrdering);
+    return new DefaultSqlSession(configuration, executor, false);
+  }
+
+}